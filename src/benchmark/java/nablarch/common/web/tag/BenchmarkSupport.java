@@ -0,0 +1,241 @@
+package nablarch.common.web.tag;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.common.code.CodeManager;
+import nablarch.common.web.handler.MockPageContext;
+import nablarch.common.web.handler.MockPageContext.MockJspWriter;
+import nablarch.core.ThreadContext;
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+
+/**
+ * ベンチマークで使用する画面データやリポジトリの準備を行うクラス。
+ * <p/>
+ * 各ベンチマークは、入力項目数を変えた代表的な画面(50, 500, 5000項目)を対象に計測する。
+ */
+final class BenchmarkSupport {
+
+    /** ベンチマークで使用するコードID */
+    static final String CODE_ID = "BENCH";
+
+    /** 入力項目の値に付加する文字列(一部にHTMLエスケープ対象の文字を含む) */
+    private static final String[] VALUE_SUFFIXES = {"", " & <b>", "\"quoted\"", "it's", "改行\n含み"};
+
+    /** 隠蔽コンストラクタ */
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * ベンチマークで使用するコンポーネントをリポジトリに登録する。
+     * @param codeSize コード値の数
+     */
+    static void loadRepository(final int codeSize) {
+        SystemRepository.clear();
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                Map<String, Object> data = new HashMap<String, Object>();
+                data.put("customTagConfig", new CustomTagConfig());
+                data.put("static_content_version", "1.0.0");
+                data.put("codeManager", new BenchmarkCodeManager(codeSize));
+                return data;
+            }
+        });
+        ThreadContext.setLanguage(Locale.JAPANESE);
+    }
+
+    /**
+     * リポジトリをクリアする。
+     */
+    static void clearRepository() {
+        SystemRepository.clear();
+        ThreadContext.clear();
+    }
+
+    /**
+     * ページコンテキストを生成する。
+     * @return ページコンテキスト
+     */
+    static MockPageContext createPageContext() {
+        return new MockPageContext(true);
+    }
+
+    /**
+     * 出力内容をクリアする。
+     * @param pageContext ページコンテキスト
+     * @return クリア前に出力されていた文字数
+     */
+    static int clearOutput(PageContext pageContext) {
+        MockJspWriter writer = (MockJspWriter) pageContext.getOut();
+        int length = writer.getOutput().length();
+        writer.clearOutput();
+        return length;
+    }
+
+    /**
+     * 入力項目の値を生成する。
+     * <p/>
+     * 実際の画面に近づけるため、一部の値にはHTMLエスケープが必要な文字を含める。
+     * @param index インデックス
+     * @return 入力項目の値
+     */
+    static String value(int index) {
+        return "value" + index + VALUE_SUFFIXES[index % VALUE_SUFFIXES.length];
+    }
+
+    /**
+     * input要素の属性を生成する。
+     * @param index インデックス
+     * @return input要素の属性
+     */
+    static HtmlAttributes inputAttributes(int index) {
+        HtmlAttributes attributes = new HtmlAttributes();
+        attributes.put(HtmlAttribute.TYPE, "text");
+        attributes.put(HtmlAttribute.ID, "id" + index);
+        attributes.put(HtmlAttribute.CLASS, "input-text");
+        attributes.put(HtmlAttribute.NAME, "form.item" + index);
+        attributes.put(HtmlAttribute.VALUE, value(index));
+        attributes.put(HtmlAttribute.MAXLENGTH, "20");
+        attributes.put(HtmlAttribute.ONCHANGE, "return check(this);");
+        attributes.put(HtmlAttribute.DISABLED, index % 7 == 0);
+        return attributes;
+    }
+
+    /**
+     * 選択肢となるリストを生成する。
+     * @param size 要素数
+     * @return リスト
+     */
+    static List<Item> items(int size) {
+        List<Item> items = new ArrayList<Item>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Item(String.valueOf(i), "ラベル" + value(i)));
+        }
+        return items;
+    }
+
+    /**
+     * リストの要素。
+     */
+    public static final class Item {
+
+        /** 値 */
+        private final String id;
+
+        /** ラベル */
+        private final String name;
+
+        /**
+         * コンストラクタ。
+         * @param id 値
+         * @param name ラベル
+         */
+        Item(String id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        /**
+         * 値を取得する。
+         * @return 値
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * ラベルを取得する。
+         * @return ラベル
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * 指定された数のコード値を保持するコードマネージャ。
+     */
+    private static final class BenchmarkCodeManager implements CodeManager {
+
+        /** コード値 */
+        private final List<String> values;
+
+        /**
+         * コンストラクタ。
+         * @param size コード値の数
+         */
+        BenchmarkCodeManager(int size) {
+            values = new ArrayList<String>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(String.format("%05d", i));
+            }
+        }
+
+        @Override
+        public String getName(String codeId, String value) {
+            return "名称" + value + " & <name>";
+        }
+
+        @Override
+        public String getName(String codeId, String value, Locale locale) {
+            return getName(codeId, value);
+        }
+
+        @Override
+        public String getShortName(String codeId, String value) {
+            return "略称" + value;
+        }
+
+        @Override
+        public String getShortName(String codeId, String value, Locale locale) {
+            return getShortName(codeId, value);
+        }
+
+        @Override
+        public String getOptionalName(String codeId, String value, String optionColumnName) {
+            return optionColumnName + value;
+        }
+
+        @Override
+        public String getOptionalName(String codeId, String value, String optionColumnName, Locale locale) {
+            return getOptionalName(codeId, value, optionColumnName);
+        }
+
+        @Override
+        public List<String> getValues(String codeId) {
+            return values;
+        }
+
+        @Override
+        public List<String> getValues(String codeId, String pattern) {
+            return values;
+        }
+
+        @Override
+        public List<String> getValues(String codeId, Locale locale) {
+            return values;
+        }
+
+        @Override
+        public List<String> getValues(String codeId, String pattern, Locale locale) {
+            return values;
+        }
+
+        @Override
+        public boolean contains(String codeId, String value) {
+            return values.contains(value);
+        }
+
+        @Override
+        public boolean contains(String codeId, String pattern, String value) {
+            return values.contains(value);
+        }
+    }
+}
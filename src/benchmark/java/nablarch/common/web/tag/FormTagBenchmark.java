@@ -0,0 +1,118 @@
+package nablarch.common.web.tag;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.jsp.JspException;
+
+import nablarch.common.web.handler.MockPageContext;
+import nablarch.common.web.tag.SubmissionInfo.SubmissionAction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FormTag#doStartTag()}から{@link FormTag#doEndTag()}までのベンチマーク。
+ * <p/>
+ * フォームの本体には、入力項目数分の入力項目名とhiddenタグを持ち、
+ * 入力項目10個につき1つのサブミット情報(パラメータ付き)を持つ画面を想定する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormTagBenchmark {
+
+    /** 画面の入力項目数 */
+    @Param({"50", "500", "5000"})
+    private int inputs;
+
+    /** hiddenタグの暗号化機能を使用するか否か */
+    @Param({"true", "false"})
+    private boolean useHiddenEncryption;
+
+    /** 入力項目名 */
+    private String[] names;
+
+    /** 入力項目の値 */
+    private String[] values;
+
+    /** ページコンテキスト */
+    private MockPageContext pageContext;
+
+    /**
+     * 入力項目を準備する。
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.loadRepository(0);
+        TagUtil.getCustomTagConfig().setUseHiddenEncryption(useHiddenEncryption);
+        names = new String[inputs];
+        values = new String[inputs];
+        for (int i = 0; i < inputs; i++) {
+            names[i] = "form.item" + i;
+            values[i] = BenchmarkSupport.value(i);
+        }
+    }
+
+    /**
+     * 画面ごとにページコンテキストを生成する。
+     * <p/>
+     * サブミット制御のJavaScriptは画面内の最初のフォームのみ出力されるため、
+     * 操作ごとに新しい画面として扱う。
+     */
+    @Setup(Level.Invocation)
+    public void setUpPage() {
+        pageContext = BenchmarkSupport.createPageContext();
+    }
+
+    /**
+     * リポジトリをクリアする。
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.clearRepository();
+    }
+
+    /**
+     * フォームを出力する。
+     * @return 出力された文字数
+     * @throws JspException JSP例外
+     */
+    @Benchmark
+    public int renderForm() throws JspException {
+        FormTag form = new FormTag();
+        form.setPageContext(pageContext);
+        form.setName("form");
+        form.doStartTag();
+
+        FormContext formContext = TagUtil.getFormContext(pageContext);
+        for (int i = 0; i < inputs; i++) {
+            formContext.addInputName(names[i]);
+            formContext.addHiddenTagInfo(names[i] + ".hidden", values[i]);
+            if (i % 10 == 0) {
+                HtmlAttributes attributes = new HtmlAttributes();
+                attributes.put(HtmlAttribute.NAME, "submit" + i);
+                formContext.addSubmissionInfo(SubmissionAction.TRANSITION, attributes, "/action/R" + i,
+                                              false, "R" + i, null, null, DisplayMethod.NORMAL);
+                formContext.getCurrentSubmissionInfo().addParam("param" + i, values[i]);
+            }
+        }
+
+        form.doEndTag();
+        form.release();
+        return BenchmarkSupport.clearOutput(pageContext);
+    }
+}
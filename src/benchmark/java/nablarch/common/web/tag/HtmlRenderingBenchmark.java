@@ -0,0 +1,111 @@
+package nablarch.common.web.tag;
+
+import java.util.concurrent.TimeUnit;
+
+import nablarch.common.web.HtmlTagUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * タグ生成の基本処理({@link TagUtil#createStartTag(String, HtmlAttributes)}、
+ * {@link HtmlAttributes#toHTML(String)}、{@link HtmlTagUtil#escapeHtml(Object, boolean)})のベンチマーク。
+ * <p/>
+ * 1回の操作で、画面の入力項目数分のタグを生成する。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HtmlRenderingBenchmark {
+
+    /** 画面の入力項目数 */
+    @Param({"50", "500", "5000"})
+    private int inputs;
+
+    /** 入力項目の属性 */
+    private HtmlAttributes[] attributes;
+
+    /** 入力項目の値 */
+    private String[] values;
+
+    /**
+     * 入力項目を準備する。
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.loadRepository(0);
+        attributes = new HtmlAttributes[inputs];
+        values = new String[inputs];
+        for (int i = 0; i < inputs; i++) {
+            attributes[i] = BenchmarkSupport.inputAttributes(i);
+            values[i] = BenchmarkSupport.value(i);
+        }
+    }
+
+    /**
+     * リポジトリをクリアする。
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.clearRepository();
+    }
+
+    /**
+     * 開始タグを生成する。
+     * @param bh ブラックホール
+     */
+    @Benchmark
+    public void createStartTag(Blackhole bh) {
+        for (HtmlAttributes attribute : attributes) {
+            bh.consume(TagUtil.createStartTag("input", attribute));
+        }
+    }
+
+    /**
+     * 属性を文字列に変換する。
+     * @param bh ブラックホール
+     */
+    @Benchmark
+    public void toHTML(Blackhole bh) {
+        for (HtmlAttributes attribute : attributes) {
+            bh.consume(attribute.toHTML("input"));
+        }
+    }
+
+    /**
+     * 属性値に対するHTMLエスケープを行う。
+     * @param bh ブラックホール
+     */
+    @Benchmark
+    public void escapeHtml(Blackhole bh) {
+        for (String value : values) {
+            bh.consume(HtmlTagUtil.escapeHtml(value, false));
+        }
+    }
+
+    /**
+     * 改行変換と半角スペース変換を伴うHTMLエスケープを行う。
+     * @param bh ブラックホール
+     */
+    @Benchmark
+    public void escapeHtmlWithHtmlFormat(Blackhole bh) {
+        for (String value : values) {
+            bh.consume(HtmlTagUtil.escapeHtml(value, true));
+        }
+    }
+}
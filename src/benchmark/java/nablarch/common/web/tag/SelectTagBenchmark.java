@@ -0,0 +1,121 @@
+package nablarch.common.web.tag;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.common.web.handler.MockPageContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link CodeSelectTag}と{@link ListSelectTag}のベンチマーク。
+ * <p/>
+ * 入力画面と確認画面のそれぞれについて、選択肢の数を変えたselectタグを出力する。
+ * 入力値として、選択肢のうち10個に1個が選択された状態とする。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectTagBenchmark {
+
+    /** 選択肢の数 */
+    @Param({"50", "500", "5000"})
+    private int inputs;
+
+    /** 確認画面として出力するか否か */
+    @Param({"false", "true"})
+    private boolean confirmationPage;
+
+    /** ページコンテキスト */
+    private MockPageContext pageContext;
+
+    /**
+     * 選択肢と入力値を準備する。
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.loadRepository(inputs);
+        pageContext = BenchmarkSupport.createPageContext();
+        pageContext.setAttribute("items", BenchmarkSupport.items(inputs), PageContext.REQUEST_SCOPE);
+
+        String[] listSelected = new String[(inputs + 9) / 10];
+        String[] codeSelected = new String[listSelected.length];
+        for (int i = 0; i < listSelected.length; i++) {
+            listSelected[i] = String.valueOf(i * 10);
+            codeSelected[i] = String.format("%05d", i * 10);
+        }
+        pageContext.getMockReq().getParams().put("form.list", listSelected);
+        pageContext.getMockReq().getParams().put("form.code", codeSelected);
+
+        TagUtil.setFormContext(pageContext, new FormContext("form"));
+        if (confirmationPage) {
+            TagUtil.setConfirmationPage(pageContext);
+        }
+    }
+
+    /**
+     * リポジトリをクリアする。
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSupport.clearRepository();
+    }
+
+    /**
+     * コード値のselectタグを出力する。
+     * @return 出力された文字数
+     * @throws JspException JSP例外
+     */
+    @Benchmark
+    public int codeSelect() throws JspException {
+        CodeSelectTag tag = new CodeSelectTag();
+        tag.setPageContext(pageContext);
+        tag.setName("form.code");
+        tag.setCodeId(BenchmarkSupport.CODE_ID);
+        tag.setLabelPattern("$VALUE$ - $NAME$");
+        tag.setMultiple(true);
+        tag.setWithNoneOption(true);
+        tag.doStartTag();
+        tag.doEndTag();
+        tag.release();
+        return BenchmarkSupport.clearOutput(pageContext);
+    }
+
+    /**
+     * リストのselectタグを出力する。
+     * @return 出力された文字数
+     * @throws JspException JSP例外
+     */
+    @Benchmark
+    public int listSelect() throws JspException {
+        ListSelectTag tag = new ListSelectTag();
+        tag.setPageContext(pageContext);
+        tag.setName("form.list");
+        tag.setListName("items");
+        tag.setElementValueProperty("id");
+        tag.setElementLabelProperty("name");
+        tag.setMultiple(true);
+        tag.setWithNoneOption(true);
+        tag.doStartTag();
+        tag.doEndTag();
+        tag.release();
+        return BenchmarkSupport.clearOutput(pageContext);
+    }
+}
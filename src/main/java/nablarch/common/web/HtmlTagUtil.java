@@ -1,5 +1,6 @@
 package nablarch.common.web;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Stack;
 
@@ -12,6 +13,24 @@ import nablarch.core.util.annotation.Published;
  */
 public final class HtmlTagUtil {
 
+    /** HTMLエスケープの変換表(インデックスは変換対象の文字) */
+    private static final String[] REPLACEMENTS = new String['>' + 1];
+
+    /** HTMLエスケープと半角スペース・改行の変換を行う場合の変換表(インデックスは変換対象の文字) */
+    private static final String[] REPLACEMENTS_WITH_HTML_FORMAT = new String['>' + 1];
+
+    static {
+        REPLACEMENTS['&'] = "&amp;";
+        REPLACEMENTS['<'] = "&lt;";
+        REPLACEMENTS['>'] = "&gt;";
+        REPLACEMENTS['"'] = "&#034;";
+        REPLACEMENTS['\''] = "&#039;";
+        System.arraycopy(REPLACEMENTS, 0, REPLACEMENTS_WITH_HTML_FORMAT, 0, REPLACEMENTS.length);
+        REPLACEMENTS_WITH_HTML_FORMAT[' '] = "&nbsp;";
+        REPLACEMENTS_WITH_HTML_FORMAT['\n'] = "<br />";
+        REPLACEMENTS_WITH_HTML_FORMAT['\r'] = "<br />";
+    }
+
     /** 隠蔽コンストラクタ */
     private HtmlTagUtil() {
     }
@@ -164,47 +183,130 @@ public final class HtmlTagUtil {
         }
 
         String str = StringUtil.toString(s);
-        int length = str.length();
-        boolean emitsSafeTags = (safeTags != null && safeTags.size() > 0);
+        String[] replacements = withHtmlFormat ? REPLACEMENTS_WITH_HTML_FORMAT : REPLACEMENTS;
+        int extraLength = countExtraLength(str, replacements);
+        if (extraLength == 0) {
+            // エスケープ対象の文字を含まない場合は、元の文字列をそのまま返す。
+            return str;
+        }
 
-        StringBuffer sb = new StringBuffer();
-        HtmlTagConsumer consumer = emitsSafeTags
-                                  ? new HtmlTagConsumer(sb, str, safeTags, safeAttributes)
-                                  : null;
+        StringBuilder sb = new StringBuilder(str.length() + extraLength);
+        try {
+            escape(str, replacements, safeTags, safeAttributes, sb);
+        } catch (IOException e) {
+            // StringBuilderへの追加でIOExceptionが発生することはない。
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
 
+    /**
+     * HTMLエスケープ及び半角スペースと改行の変換を行い、結果を出力先に書き込む。
+     * <p/>
+     * 変換内容は{@link #escapeHtml(Object, boolean)}と同じ。
+     * エスケープ後の文字列を生成せずに、出力先へ直接書き込む。<br/>
+     * 文字列がnullであった場合、{@link Appendable#append(CharSequence)}にnullを指定した場合と同じ内容を書き込む。
+     * @param s エスケープ対象のオブジェクト
+     * @param withHtmlFormat 改行変換と半角スペース変換を行う場合はtrue
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    @Published(tag = "architect")
+    public static void escapeHtml(Object s, boolean withHtmlFormat, Appendable out) throws IOException {
+        escapeHtml(s, withHtmlFormat, null, null, out);
+    }
+
+    /**
+     * HTMLエスケープ、半角スペース・改行の変換を行い、結果を出力先に書き込む。
+     * <p/>
+     * 変換内容は{@link #escapeHtml(Object, boolean, List, List)}と同じ。
+     * エスケープ後の文字列を生成せずに、出力先へ直接書き込む。<br/>
+     * 文字列がnullであった場合、{@link Appendable#append(CharSequence)}にnullを指定した場合と同じ内容を書き込む。
+     * @param s エスケープ対象のオブジェクト
+     * @param withHtmlFormat 改行変換と半角スペース変換を行う場合はtrue
+     * @param safeTags       エスケープ対象外のタグ
+     * @param safeAttributes エスケープ対象外のタグの中で使用することができる属性
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    @Published(tag = "architect")
+    public static void escapeHtml(Object       s,
+                                  boolean      withHtmlFormat,
+                                  List<String> safeTags,
+                                  List<String> safeAttributes,
+                                  Appendable   out) throws IOException {
+        if (s == null) {
+            out.append(null);
+            return;
+        }
+        escape(StringUtil.toString(s), withHtmlFormat ? REPLACEMENTS_WITH_HTML_FORMAT : REPLACEMENTS,
+               safeTags, safeAttributes, out);
+    }
+
+    /**
+     * 変換により増加する文字数を数える。
+     * <p/>
+     * 変換対象の文字を含まない場合は0を返す。
+     * \r\nは2文字分として数えるため、実際の増加分より大きくなる場合がある。
+     * @param str 文字列
+     * @param replacements 変換表
+     * @return 変換により増加する文字数
+     */
+    private static int countExtraLength(String str, String[] replacements) {
+        int extraLength = 0;
+        for (int i = 0, length = str.length(); i < length; i++) {
+            char c = str.charAt(i);
+            if (c < replacements.length && replacements[c] != null) {
+                extraLength += replacements[c].length() - 1;
+            }
+        }
+        return extraLength;
+    }
+
+    /**
+     * 変換表に従って文字列を変換し、出力先に書き込む。
+     * <p/>
+     * 変換対象でない文字は、連続する範囲ごとにまとめて書き込む。
+     * @param str 文字列
+     * @param replacements 変換表
+     * @param safeTags エスケープ対象外のタグ
+     * @param safeAttributes エスケープ対象外のタグの中で使用することができる属性
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private static void escape(String       str,
+                               String[]     replacements,
+                               List<String> safeTags,
+                               List<String> safeAttributes,
+                               Appendable   out) throws IOException {
+        int length = str.length();
+        HtmlTagConsumer consumer = (safeTags != null && safeTags.size() > 0)
+                                  ? new HtmlTagConsumer(out, str, safeTags, safeAttributes)
+                                  : null;
+        // 未出力の文字列の開始位置
+        int start = 0;
         for (int i = 0; i < length; i++) {
             char c = str.charAt(i);
-            switch (c) {
-                case '&' : sb.append("&amp;"); break;
-                case '<' :
-                    if (emitsSafeTags) {
-                        int chars = consumer.consumeTagBeginsAt(i);
-                        if (chars == 0) {
-                            sb.append("&lt;");
-                        } else {
-                            i += chars - 1;
-                        }
-                    } else {
-                        sb.append("&lt;");
-                    }
-                    break;
-                case '>' : sb.append("&gt;"); break;
-                case '"' : sb.append("&#034;"); break;
-                case '\'': sb.append("&#039;"); break;
-                case ' ' : sb.append(withHtmlFormat ? "&nbsp;" : c); break;
-                case '\n': sb.append(withHtmlFormat ? "<br />" : c); break;
-                case '\r':
-                    sb.append(withHtmlFormat ? "<br />" : c);
-                    // \r\nの場合はiを1進める。
-                    if (withHtmlFormat && ((i + 1) != length && str.charAt(i + 1) == '\n')) {
-                        i++;
-                    }
-                    break;
-                default :
-                    sb.append(c);
+            if (c >= replacements.length || replacements[c] == null) {
+                continue;
+            }
+            out.append(str, start, i);
+            if (c == '<' && consumer != null) {
+                int chars = consumer.consumeTagBeginsAt(i);
+                if (chars != 0) {
+                    i += chars - 1;
+                    start = i + 1;
+                    continue;
+                }
             }
+            out.append(replacements[c]);
+            // \r\nの場合はiを1進める。(\rは改行の変換を行う場合のみ変換対象となる)
+            if (c == '\r' && (i + 1) != length && str.charAt(i + 1) == '\n') {
+                i++;
+            }
+            start = i + 1;
         }
-        return sb.toString();
+        out.append(str, start, length);
     }
 
     /**
@@ -212,8 +314,8 @@ public final class HtmlTagUtil {
      *
      */
     private static class HtmlTagConsumer {
-        /** 連結バッファ */
-        private final StringBuffer sb;
+        /** 出力先 */
+        private final Appendable out;
         /** 探索対象文字列 */
         private final String src;
         /** 許容されるHTMLタグ */
@@ -255,13 +357,13 @@ public final class HtmlTagUtil {
         }
 
         /** デフォルトコンストラクタ
-         * @param sb    連結バッファ
+         * @param out   出力先
          * @param src   元文字列
          * @param tags  許容されるHTMLタグ
          * @param attrs 許容タグの中で使用できる属性
          */
-        public HtmlTagConsumer(StringBuffer sb, String src, List<String> tags, List<String> attrs) {
-            this.sb    = sb;
+        public HtmlTagConsumer(Appendable out, String src, List<String> tags, List<String> attrs) {
+            this.out   = out;
             this.src   = src;
             this.tags  = tags;
             this.attrs = attrs;
@@ -271,12 +373,13 @@ public final class HtmlTagUtil {
 
         /**
          * offsetで指定された位置から許容されたタグが開始していた場合は
-         * その内容をそのままバッファに連結し、その文字数を返却する。
+         * その内容をそのまま出力先に書き込み、その文字数を返却する。
          *
          * @param  offset 読込み開始位置(0起算)
-         * @return        読み込んだ(バッファに連結した)文字列数
+         * @return        読み込んだ(出力先に書き込んだ)文字列数
+         * @throws IOException 出力先への書き込みに失敗した場合
          */
-        public int consumeTagBeginsAt(int offset) {
+        public int consumeTagBeginsAt(int offset) throws IOException {
             Range r = new Range(offset, src.length());
             stack.push(r);
             if (endTag()) {
@@ -289,13 +392,14 @@ public final class HtmlTagUtil {
         }
 
         /**
-         * 読み込まれたタグ文字列をバッファに出力する。
-         * @return バッファに出力した文字数
+         * 読み込まれたタグ文字列を出力先に書き込む。
+         * @return 出力先に書き込んだ文字数
+         * @throws IOException 出力先への書き込みに失敗した場合
          */
-        private int consume() {
-            String read = stack.pop().toString();
-            sb.append(read);
-            return read.length();
+        private int consume() throws IOException {
+            Range r = stack.pop();
+            out.append(src, r.begin, r.pos);
+            return r.pos - r.begin;
         }
 
         /**
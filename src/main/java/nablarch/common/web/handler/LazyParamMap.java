@@ -0,0 +1,156 @@
+package nablarch.common.web.handler;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 初回のアクセス時にパラメータを解決するリクエストパラメータのMap。
+ * <p/>
+ * {@link #get(Object)}や{@link #entrySet()}など、いずれかのメソッドが初めて呼ばれた時点で
+ * {@link #resolve(Map)}を呼び出し、以降は解決したMapに委譲する。
+ * 解決に失敗した場合は、以降のアクセスでも同じ例外を送出する。
+ * <p/>
+ * 1リクエストを処理するスレッドのみがアクセスすることを前提とするため、スレッドセーフではない。
+ */
+abstract class LazyParamMap implements Map<String, String[]> {
+
+    /** 委譲先のMap */
+    private final Map<String, String[]> delegate;
+
+    /** 解決を開始したか否か */
+    private boolean resolved;
+
+    /** 解決に失敗した場合の例外 */
+    private RuntimeException failure;
+
+    /**
+     * コンストラクタ。
+     * @param delegate 委譲先のMap
+     */
+    LazyParamMap(Map<String, String[]> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * パラメータを解決する。
+     * <p/>
+     * 解決中は、このMapへのアクセスを解決せずに委譲先のMapに委譲する。
+     * @param params 委譲先のMap
+     */
+    protected abstract void resolve(Map<String, String[]> params);
+
+    /**
+     * パラメータを解決したか否かを判定する。
+     * @return 解決した(解決中又は解決に失敗した場合を含む)場合はtrue
+     */
+    boolean isResolved() {
+        return resolved;
+    }
+
+    /**
+     * パラメータを解決せずに、委譲先のMapを取得する。
+     * @return 委譲先のMap
+     */
+    Map<String, String[]> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * パラメータを解決していない場合は解決し、委譲先のMapを取得する。
+     * @return 委譲先のMap
+     */
+    private Map<String, String[]> resolved() {
+        if (failure != null) {
+            throw failure;
+        }
+        if (!resolved) {
+            resolved = true;
+            try {
+                resolve(delegate);
+            } catch (RuntimeException e) {
+                failure = e;
+                throw e;
+            }
+        }
+        return delegate;
+    }
+
+    /** {@inheritDoc} */
+    public int size() {
+        return resolved().size();
+    }
+
+    /** {@inheritDoc} */
+    public boolean isEmpty() {
+        return resolved().isEmpty();
+    }
+
+    /** {@inheritDoc} */
+    public boolean containsKey(Object key) {
+        return resolved().containsKey(key);
+    }
+
+    /** {@inheritDoc} */
+    public boolean containsValue(Object value) {
+        return resolved().containsValue(value);
+    }
+
+    /** {@inheritDoc} */
+    public String[] get(Object key) {
+        return resolved().get(key);
+    }
+
+    /** {@inheritDoc} */
+    public String[] put(String key, String[] value) {
+        return resolved().put(key, value);
+    }
+
+    /** {@inheritDoc} */
+    public String[] remove(Object key) {
+        return resolved().remove(key);
+    }
+
+    /** {@inheritDoc} */
+    public void putAll(Map<? extends String, ? extends String[]> m) {
+        resolved().putAll(m);
+    }
+
+    /** {@inheritDoc} */
+    public void clear() {
+        resolved().clear();
+    }
+
+    /** {@inheritDoc} */
+    public Set<String> keySet() {
+        return resolved().keySet();
+    }
+
+    /** {@inheritDoc} */
+    public Collection<String[]> values() {
+        return resolved().values();
+    }
+
+    /** {@inheritDoc} */
+    public Set<Map.Entry<String, String[]>> entrySet() {
+        return resolved().entrySet();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        return o == this || resolved().equals(o);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return resolved().hashCode();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return resolved().toString();
+    }
+}
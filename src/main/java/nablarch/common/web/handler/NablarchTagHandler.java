@@ -10,6 +10,7 @@ import nablarch.common.util.WebRequestUtil;
 import nablarch.common.web.hiddenencryption.HiddenEncryptionUtil;
 import nablarch.common.web.hiddenencryption.KeyEncryptionContextNotFoundException;
 import nablarch.common.web.hiddenencryption.TamperingDetectedException;
+import nablarch.common.web.metrics.TagMetrics;
 import nablarch.common.web.tag.CheckboxTag;
 import nablarch.common.web.tag.CustomTagConfig;
 import nablarch.common.web.tag.TagUtil;
@@ -70,6 +71,9 @@ public class NablarchTagHandler implements HttpRequestHandler {
     
     /** セッションから情報が取得出来なかった場合のレスポンスステータス */
     private int sessionExpireStatusCode = 400;
+
+    /** hiddenタグの値の復号を、リクエストパラメータに初めてアクセスするまで遅延するか否か */
+    private boolean lazyDecryption = false;
     
     /**
      * 改竄を検知した場合に送信する画面のリソースパスを設定する。
@@ -106,6 +110,33 @@ public class NablarchTagHandler implements HttpRequestHandler {
         this.sessionExpireStatusCode = sessionExpireStatusCode;
     }
 
+    /**
+     * hiddenタグの値の復号を、リクエストパラメータに初めてアクセスするまで遅延するか否かを設定する。<br>
+     * <br>
+     * 遅延する場合も、下記の改竄チェックとセッションの有効期限切れの検知は、遅延せずに次のハンドラに処理を委譲する前に行う。
+     * <ul>
+     * <li>nablarch_hiddenパラメータとnablarch_submitパラメータが存在すること</li>
+     * <li>hiddenタグの値の復号に使用する暗号化キーがセッションに存在すること</li>
+     * <li>hiddenタグの値をサーバ側で保持している場合は、トークンに対応する値が存在し、現在のリクエストIDを含むこと</li>
+     * </ul>
+     * 遅延するのは、hiddenタグの値の復号とリクエストパラメータへの設定(復号した値によるリクエストIDとサブミット情報の改竄チェックを含む)、
+     * checkboxタグのチェックなしに対応する値の設定、複合キーの値の復元で、
+     * 後続のハンドラ又は業務アクションがリクエストパラメータに初めてアクセスした時点で行う。
+     * 後続のハンドラの処理結果がJSPなどへのフォワードの場合、又は後続のハンドラが例外を送出した場合
+     * (エラー画面に遷移する{@link HttpErrorResponse}など)は、JSPの出力中に改竄を検知しないように、
+     * リクエストパラメータにアクセスしていなくても、処理結果を返す前又は例外を送出する前に行う。<br>
+     * 復号した値を使用する改竄チェックは、リクエストパラメータにアクセスしない業務アクション
+     * (画面に配置したフォームからのAjaxによるポーリングなど)では行わないため、
+     * そのような業務アクションでは、hiddenタグの値が改竄されていても業務処理が実行されることに注意すること。<br>
+     * 改竄を検知した場合は、遅延しない場合と同じく指定された画面に遷移する。
+     * HTTPアクセスログのリクエストパラメータは、後続のハンドラの処理が終了した時点で出力する。<br>
+     * デフォルトはfalse。
+     * @param lazyDecryption 遅延する場合はtrue
+     */
+    public void setLazyDecryption(boolean lazyDecryption) {
+        this.lazyDecryption = lazyDecryption;
+    }
+
     /**
      * {@inheritDoc}<br>
      * <br>
@@ -117,9 +148,10 @@ public class NablarchTagHandler implements HttpRequestHandler {
      * <li>hiddenタグの値を復号し、リクエストパラメータに設定する。
      * 復号では、改竄チェックを行い、改竄を検知した場合は指定された画面に遷移する。
      * 復号が成功した場合は、次のハンドラに処理を委譲する。
-     * 復号処理は、{@link HiddenEncryptionUtil#decryptHiddenValues(ExecutionContext, String)}に移譲する。</li>
+     * 復号処理は、{@link HiddenEncryptionUtil#decryptHiddenValues(ExecutionContext, String, nablarch.common.web.hiddenencryption.HiddenValueCodec, nablarch.common.web.hiddenencryption.HiddenValueStore)}に移譲する。</li>
      * <li>HTTPアクセスログのリクエストパラメータを出力する。</li>
      * </ul>
+     * 復号を遅延する設定の場合の処理タイミングは、{@link #setLazyDecryption(boolean)}を参照。
      */
     public HttpResponse handle(HttpRequest request, ExecutionContext context) {
     	
@@ -129,51 +161,222 @@ public class NablarchTagHandler implements HttpRequestHandler {
         
         if (isFirstHandling // リクエスト内で1回目の呼び出しの場合かつ、GETリクエストを使用しない場合
                 && (!useGetRequest || !"get".equalsIgnoreCase(request.getMethod()))) {
+            context.setRequestScopedVar(CUSTOM_TAG_CONFIG_KEY, config);
+            if (lazyDecryption) {
+                return handleLazily(request, context, config);
+            }
             try {
-                context.setRequestScopedVar(CUSTOM_TAG_CONFIG_KEY, config);
-                
-                String nablarchHiddenValue = getNablarchHiddenValue(request);
-                String submitName = getSubmitName(request);
-                
-                Map<String, List<String>> params = null;
-                if (isDecryptionRequired(request, config)) { // nablarch_hiddenパラメータを暗号化している場合。
-                    if (nablarchHiddenValue == null) {
-                        throw new TamperingDetectedException("valid hidden parameter not found.");
-                    }
-                    if (submitName == null) {
-                        throw new TamperingDetectedException("valid submitName parameter not found.");
-                    }
-                    params = HiddenEncryptionUtil.decryptHiddenValues(context, nablarchHiddenValue);
-                    context.setRequestScopedVar(DECRYPTED_PARAMS, params);
-                    
-                } else { // nablarch_hiddenパラメータを暗号化していない場合。
-                    if (StringUtil.hasValue(nablarchHiddenValue)) {
-                        params = WebRequestUtil.convertToParamsMap(nablarchHiddenValue);
-                    }
-                }
-                
-                if (params != null) {
-                    setNablarchHiddenValueToRequest(request, submitName, params);
-                }
-                setCheckboxOffValueToRequest(request);
-                
-            } catch (KeyEncryptionContextNotFoundException e) {
-                LOGGER.logInfo("session expired. cause = [" + e.getMessage() + "]");
-                throw new HttpErrorResponse(sessionExpireStatusCode, 
-                        sessionExpirePath == null ? path : sessionExpirePath, e);
-            } catch (TamperingDetectedException e) {
-                LOGGER.logInfo("tampering detected. cause = [" + e.getMessage() + "]");
-                throw new HttpErrorResponse(statusCode, path, e);
+                Map<String, String[]> paramMap = request.getParamMap();
+                setNablarchHiddenValueToRequest(paramMap, getNablarchHiddenValue(paramMap), getSubmitName(paramMap),
+                                                null, context, config);
             } finally {
                 writeParametersLog(request, context);
             }
         }
         
-        restoreKeyValueSet(request);
+        if (!isUnresolved(request.getParamMap())) {
+            restoreKeyValueSet(request);
+        }
 
         return context.handleNext(request);
     }
 
+    /**
+     * hiddenタグの値の復号を、リクエストパラメータに初めてアクセスするまで遅延して、次のハンドラに処理を委譲する。
+     * <p/>
+     * nablarch_hiddenパラメータとnablarch_submitパラメータはリクエストから取り除き、
+     * 復号を行わずに行える改竄チェックとセッションの有効期限切れの検知を行った後に、
+     * それ以外のリクエストパラメータを初回のアクセス時に解決する{@link LazyParamMap}に置き換える。
+     * 次のハンドラの処理結果がフォワードの場合、又は次のハンドラが例外を送出した場合は、
+     * 処理結果を返す前又は例外を送出する前にリクエストパラメータを解決する。
+     * HTTPアクセスログのリクエストパラメータは、次のハンドラの処理が終了した時点のリクエストパラメータを出力する。
+     * @param request {@link HttpRequest}
+     * @param context {@link ExecutionContext}
+     * @param config カスタムタグ設定
+     * @return 次のハンドラの処理結果
+     * @throws HttpErrorResponse 改竄を検知した場合、又はセッションから情報が取得出来なかった場合
+     */
+    private HttpResponse handleLazily(final HttpRequest request, final ExecutionContext context, final CustomTagConfig config)
+            throws HttpErrorResponse {
+        Map<String, String[]> paramMap = request.getParamMap();
+        final String nablarchHiddenValue = getNablarchHiddenValue(paramMap);
+        final String submitName = getSubmitName(paramMap);
+        final Map<String, List<String>> storedParams;
+        try {
+            storedParams = checkBeforeDecryption(paramMap, nablarchHiddenValue, submitName, context, config);
+        } catch (RuntimeException e) {
+            writeParametersLog(request, context);
+            throw e;
+        }
+        LazyParamMap lazyParamMap = new LazyParamMap(paramMap) {
+            @Override
+            protected void resolve(Map<String, String[]> params) {
+                setNablarchHiddenValueToRequest(params, nablarchHiddenValue, submitName, storedParams, context, config);
+                restoreKeyValueSet(request);
+            }
+        };
+        request.setParamMap(lazyParamMap);
+        try {
+            HttpResponse response;
+            try {
+                response = context.handleNext(request);
+            } catch (RuntimeException e) {
+                // エラー画面の出力中に改竄を検知しないように、例外を送出する前に解決する。
+                // 改竄を検知した場合は、遅延しない場合と同じく改竄を検知した際のエラーを優先する。
+                lazyParamMap.isEmpty();
+                throw e;
+            }
+            if (isForward(response)) {
+                // JSPの出力中に改竄を検知しないように、フォワードする前に解決する。
+                lazyParamMap.isEmpty();
+            }
+            return response;
+        } finally {
+            // ログ出力によりパラメータを解決しないように、委譲先のMapを使用して出力する。
+            request.setParamMap(lazyParamMap.getDelegate());
+            try {
+                writeParametersLog(request, context);
+            } finally {
+                request.setParamMap(lazyParamMap);
+            }
+        }
+    }
+
+    /**
+     * hiddenタグの値を復号する前に行える改竄チェックとセッションの有効期限切れの検知を行う。
+     * <p/>
+     * hiddenタグの値をサーバ側で保持している場合は、復号が不要なため、値の取得とリクエストIDによる改竄チェックまで行う。
+     * @param paramMap リクエストパラメータ
+     * @param nablarchHiddenValue nablarch_hiddenパラメータの値
+     * @param submitName サブミットされた要素のname属性
+     * @param context {@link ExecutionContext}
+     * @param config カスタムタグ設定
+     * @return サーバ側で保持していたhiddenタグの値。復号が必要な場合、又は暗号化していない場合はnull
+     * @throws HttpErrorResponse 改竄を検知した場合、又はセッションから情報が取得出来なかった場合
+     */
+    private Map<String, List<String>> checkBeforeDecryption(Map<String, String[]> paramMap, String nablarchHiddenValue,
+                                                            String submitName, ExecutionContext context, CustomTagConfig config)
+            throws HttpErrorResponse {
+        if (!isDecryptionRequired(paramMap, config)) {
+            return null;
+        }
+        try {
+            checkHiddenParameters(nablarchHiddenValue, submitName);
+            if (HiddenEncryptionUtil.isStoredToken(nablarchHiddenValue, config.getHiddenValueStore())) {
+                return HiddenEncryptionUtil.decryptHiddenValues(context, nablarchHiddenValue, config.getHiddenValueCodec(),
+                                                                config.getHiddenValueStore());
+            }
+            HiddenEncryptionUtil.checkEncryptionContext(context, nablarchHiddenValue, config.getHiddenValueCodec());
+            return null;
+        } catch (KeyEncryptionContextNotFoundException e) {
+            throw createSessionExpireResponse(e);
+        } catch (TamperingDetectedException e) {
+            throw createTamperingResponse(e);
+        }
+    }
+
+    /**
+     * 処理結果が、JSPなどへのフォワードか否かを判定する。
+     * @param response 処理結果
+     * @return フォワードの場合はtrue
+     */
+    private static boolean isForward(HttpResponse response) {
+        if (response == null || response.getContentPath() == null) {
+            return false;
+        }
+        String scheme = response.getContentPath().getScheme();
+        return "servlet".equals(scheme) || "forward".equals(scheme);
+    }
+
+    /**
+     * リクエストパラメータが、未解決の{@link LazyParamMap}か否かを判定する。
+     * @param paramMap リクエストパラメータ
+     * @return 未解決の場合はtrue
+     */
+    private static boolean isUnresolved(Map<String, String[]> paramMap) {
+        return paramMap instanceof LazyParamMap && !((LazyParamMap) paramMap).isResolved();
+    }
+
+    /**
+     * hiddenタグの値を復号し、サブミット情報とcheckboxタグのチェックなしに対応する値とともにリクエストパラメータに設定する。
+     * @param paramMap リクエストパラメータ
+     * @param nablarchHiddenValue nablarch_hiddenパラメータの値
+     * @param submitName サブミットされた要素のname属性
+     * @param storedParams 復号前に取得したサーバ側で保持していたhiddenタグの値。取得していない場合はnull
+     * @param context {@link ExecutionContext}
+     * @param config カスタムタグ設定
+     * @throws HttpErrorResponse 改竄を検知した場合、又はセッションから情報が取得出来なかった場合
+     */
+    private void setNablarchHiddenValueToRequest(Map<String, String[]> paramMap, String nablarchHiddenValue, String submitName,
+                                                 Map<String, List<String>> storedParams, ExecutionContext context,
+                                                 CustomTagConfig config) throws HttpErrorResponse {
+        try {
+            Map<String, List<String>> params = null;
+            if (isDecryptionRequired(paramMap, config)) { // nablarch_hiddenパラメータを暗号化している場合。
+                if (storedParams != null) {
+                    params = storedParams;
+                } else {
+                    checkHiddenParameters(nablarchHiddenValue, submitName);
+                    params = HiddenEncryptionUtil.decryptHiddenValues(context, nablarchHiddenValue,
+                                                                      config.getHiddenValueCodec(), config.getHiddenValueStore());
+                }
+                context.setRequestScopedVar(DECRYPTED_PARAMS, params);
+                
+            } else { // nablarch_hiddenパラメータを暗号化していない場合。
+                if (StringUtil.hasValue(nablarchHiddenValue)) {
+                    params = WebRequestUtil.convertToParamsMap(nablarchHiddenValue);
+                }
+            }
+            
+            if (params != null) {
+                setNablarchHiddenValueToRequest(paramMap, submitName, params);
+            }
+            setCheckboxOffValueToRequest(paramMap);
+            
+        } catch (KeyEncryptionContextNotFoundException e) {
+            throw createSessionExpireResponse(e);
+        } catch (TamperingDetectedException e) {
+            throw createTamperingResponse(e);
+        }
+    }
+
+    /**
+     * 暗号化している場合に必須となる、nablarch_hiddenパラメータとnablarch_submitパラメータが存在することをチェックする。
+     * @param nablarchHiddenValue nablarch_hiddenパラメータの値
+     * @param submitName サブミットされた要素のname属性
+     * @throws TamperingDetectedException いずれかのパラメータが存在しない場合
+     */
+    private static void checkHiddenParameters(String nablarchHiddenValue, String submitName) throws TamperingDetectedException {
+        if (nablarchHiddenValue == null) {
+            throw new TamperingDetectedException("valid hidden parameter not found.");
+        }
+        if (submitName == null) {
+            throw new TamperingDetectedException("valid submitName parameter not found.");
+        }
+    }
+
+    /**
+     * セッションから情報が取得出来なかった場合のレスポンスを作成する。
+     * @param e セッションから情報が取得出来なかったことを示す例外
+     * @return セッションから情報が取得出来なかった場合のレスポンス
+     */
+    private HttpErrorResponse createSessionExpireResponse(KeyEncryptionContextNotFoundException e) {
+        LOGGER.logInfo("session expired. cause = [" + e.getMessage() + "]");
+        return new HttpErrorResponse(sessionExpireStatusCode, 
+                sessionExpirePath == null ? path : sessionExpirePath, e);
+    }
+
+    /**
+     * 改竄を検知した場合のレスポンスを作成する。
+     * @param e 改竄を検知したことを示す例外
+     * @return 改竄を検知した場合のレスポンス
+     */
+    private HttpErrorResponse createTamperingResponse(TamperingDetectedException e) {
+        LOGGER.logInfo("tampering detected. cause = [" + e.getMessage() + "]");
+        TagMetrics.getRecorder().recordTamperingDetected();
+        return new HttpErrorResponse(statusCode, path, e);
+    }
+
     /**
      * 複合キーの値を復元する。
      * @param request {@link HttpRequest}
@@ -187,14 +390,14 @@ public class NablarchTagHandler implements HttpRequestHandler {
      * <p/>
      * hidden暗号化機能を使用する設定になっている場合、
      * かつ現在のリクエストIDが暗号化しないリクエストID設定に含まれない場合にtrueを返す。
+     * @param paramMap リクエストパラメータ
      * @param config カスタムタグ設定
-     * @param request HTTPリクエストオブジェクト
      * @return 復号を行う場合はtrue
      */
-    private boolean isDecryptionRequired(HttpRequest request, CustomTagConfig config) {
+    private boolean isDecryptionRequired(Map<String, String[]> paramMap, CustomTagConfig config) {
         return config.getUseHiddenEncryption()
             && !config.getNoHiddenEncryptionRequestIds().contains(ThreadContext.getRequestId())
-            || request.getParamMap().containsKey(HiddenEncryptionUtil.KEY_NEEDS_ENCRYPTION);
+            || paramMap.containsKey(HiddenEncryptionUtil.KEY_NEEDS_ENCRYPTION);
     }
     
     /**
@@ -211,11 +414,11 @@ public class NablarchTagHandler implements HttpRequestHandler {
     
     /**
      * nablarch_hiddenパラメータをリクエストに設定する。
-     * @param request リクエスト
+     * @param paramMap リクエストパラメータ
      * @param submitName サブミットされた要素のname属性
      * @param params nablarch_hiddenパラメータ
      */
-    private void setNablarchHiddenValueToRequest(HttpRequest request, String submitName, Map<String, List<String>> params) {
+    private void setNablarchHiddenValueToRequest(Map<String, String[]> paramMap, String submitName, Map<String, List<String>> params) {
         
         boolean hitSubmission = false;
         submitName = HiddenEncryptionUtil.KEY_HIDDEN_SUBMIT_NAME_PREFIX + submitName;
@@ -240,12 +443,12 @@ public class NablarchTagHandler implements HttpRequestHandler {
                 // サブミット情報以外は、全てリクエストに設定する。
                 List<String> values = param.getValue();
                 String[] arrayValues = new String[values.size()];
-                request.getParamMap().put(param.getKey(), values.toArray(arrayValues));
+                paramMap.put(param.getKey(), values.toArray(arrayValues));
             }
         }
         
         // サブミット情報による上書き
-        request.getParamMap().putAll(submitParams);
+        paramMap.putAll(submitParams);
         
         if (!hitSubmission) {
             // 復号したhiddenパラメータから、今回のリクエストでサブミットされたものに該当する
@@ -256,11 +459,10 @@ public class NablarchTagHandler implements HttpRequestHandler {
     
     /**
      * checkboxタグのチェックなしに対応する値をリクエストに設定する。
-     * @param request リクエスト
+     * @param params リクエストパラメータ
      */
-    private void setCheckboxOffValueToRequest(HttpRequest request) {
+    private void setCheckboxOffValueToRequest(Map<String, String[]> params) {
         Map<String, String[]> paramsToOverride = new HashMap<String, String[]>();
-        Map<String, String[]> params = request.getParamMap();
         for (Map.Entry<String, String[]> param : params.entrySet()) {
             String name = param.getKey();
             if (name.startsWith(CheckboxTag.CHECKBOX_OFF_PARAM_PREFIX)) {
@@ -275,21 +477,21 @@ public class NablarchTagHandler implements HttpRequestHandler {
     
     /**
      * nablarch_hiddenパラメータの値を取得する。
-     * @param request リクエスト
+     * @param paramMap リクエストパラメータ
      * @return nablarch_hiddenパラメータの値。有効な値が存在しない場合はnull
      */
-    private String getNablarchHiddenValue(HttpRequest request) {
-        String[] values = request.getParamMap().remove(HiddenEncryptionUtil.KEY_HIDDEN_NAME);
+    private String getNablarchHiddenValue(Map<String, String[]> paramMap) {
+        String[] values = paramMap.remove(HiddenEncryptionUtil.KEY_HIDDEN_NAME);
         return (values != null && values.length == 1) ? values[0] : null;
     }
     
     /**
      * サブミットされた要素のname属性を取得する。
-     * @param request リクエスト
+     * @param paramMap リクエストパラメータ
      * @return サブミットされた要素のname属性。有効な値が存在しない場合はnull
      */
-    private String getSubmitName(HttpRequest request) {
-        String[] values = request.getParamMap().remove(HiddenEncryptionUtil.KEY_SUBMIT_NAME);
+    private String getSubmitName(Map<String, String[]> paramMap) {
+        String[] values = paramMap.remove(HiddenEncryptionUtil.KEY_SUBMIT_NAME);
         return (values != null && values.length == 1) ? values[0] : null;
     }
 }
@@ -0,0 +1,77 @@
+package nablarch.common.web.handler;
+
+import java.nio.charset.StandardCharsets;
+
+import nablarch.common.web.tag.CustomTagConfig;
+import nablarch.common.web.tag.FormTag;
+import nablarch.common.web.tag.TagUtil;
+import nablarch.core.util.StringUtil;
+import nablarch.core.util.annotation.Published;
+import nablarch.fw.ExecutionContext;
+import nablarch.fw.web.HttpRequest;
+import nablarch.fw.web.HttpRequestHandler;
+import nablarch.fw.web.HttpResponse;
+
+/**
+ * formタグのサブミット制御に使用するJavaScriptを、外部ファイルとして応答するハンドラ。
+ * <p/>
+ * リクエストパスがカスタムタグのデフォルト値設定の{@link CustomTagConfig#getSubmitFunctionScriptPath()}と一致する場合に、
+ * サブミット制御の関数を応答する。一致しない場合は、次のハンドラに処理を委譲する。
+ * <br>
+ * 応答はブラウザにキャッシュさせるため、{@link #setCacheControl(String)}で指定したCache-Controlヘッダを付与する。
+ * formタグは参照するパスに静的リソースのバージョン(static_content_version)を付加するため、
+ * バージョンを変更すればキャッシュした内容は使用されない。
+ */
+@Published(tag = "architect")
+public class SubmitFunctionScriptHandler implements HttpRequestHandler {
+
+    /** 応答するContent-Type */
+    private static final String CONTENT_TYPE = "text/javascript;charset=UTF-8";
+
+    /** Cache-Controlヘッダの値 */
+    private String cacheControl = "public, max-age=31536000";
+
+    /** 応答するJavaScript */
+    private volatile byte[] script;
+
+    /**
+     * Cache-Controlヘッダの値を設定する。
+     * <p/>
+     * デフォルトは"public, max-age=31536000"(1年)。
+     * @param cacheControl Cache-Controlヘッダの値
+     */
+    public void setCacheControl(String cacheControl) {
+        this.cacheControl = cacheControl;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * リクエストパスがサブミット制御のJavaScriptのパスと一致する場合は、JavaScriptを応答する。
+     */
+    public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+        String scriptPath = TagUtil.getCustomTagConfig().getSubmitFunctionScriptPath();
+        if (StringUtil.isNullOrEmpty(scriptPath) || !scriptPath.equals(request.getRequestPath())) {
+            return context.handleNext(request);
+        }
+        HttpResponse response = new HttpResponse(200);
+        response.setContentType(CONTENT_TYPE);
+        if (StringUtil.hasValue(cacheControl)) {
+            response.setHeader("Cache-Control", cacheControl);
+        }
+        return response.write(getScript());
+    }
+
+    /**
+     * 応答するJavaScriptを取得する。
+     * @return 応答するJavaScript
+     */
+    private byte[] getScript() {
+        byte[] bytes = script;
+        if (bytes == null) {
+            bytes = FormTag.getSubmitFunctionScript().getBytes(StandardCharsets.UTF_8);
+            script = bytes;
+        }
+        return bytes;
+    }
+}
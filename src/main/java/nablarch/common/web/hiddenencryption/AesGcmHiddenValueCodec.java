@@ -0,0 +1,218 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * AES-GCMを使用してhiddenタグの値を暗号化する{@link HiddenValueCodec}。
+ * <p/>
+ * 認証付き暗号のため、ハッシュ値を付与せずに暗号化と改竄検知を1回の処理で行う。
+ * 変換した結果は、初期化ベクトル(12バイト)と暗号文(認証タグ16バイトを含む)を連結したバイト列となる。
+ * 初期化ベクトルは暗号化のたびに生成する。
+ * {@link Cipher}はスレッドごとに鍵単位で保持し、鍵の展開を鍵ごとに1回に抑える。
+ * <p/>
+ * ストリームで変換する場合は、書き込んだバイト列を順に暗号化して出力する。
+ */
+@Published(tag = "architect")
+public class AesGcmHiddenValueCodec implements StreamingHiddenValueCodec {
+
+    /** 形式ID */
+    private static final String FORMAT_ID = "gcm";
+
+    /** 暗号化の変換方式 */
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    /** 鍵のアルゴリズム */
+    private static final String KEY_ALGORITHM = "AES";
+
+    /** 鍵のバイトサイズ */
+    private static final int KEY_BYTE_LENGTH = 16;
+
+    /** 初期化ベクトルのバイトサイズ */
+    private static final int IV_BYTE_LENGTH = 12;
+
+    /** 認証タグのビットサイズ */
+    private static final int TAG_BIT_LENGTH = 128;
+
+    /** 認証タグのバイトサイズ */
+    private static final int TAG_BYTE_LENGTH = TAG_BIT_LENGTH / Byte.SIZE;
+
+    /** 鍵と初期化ベクトルの生成に使用する乱数生成器 */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** スレッドごとに鍵単位でキャッシュする{@link Cipher} */
+    private static final KeyScheduleCache<Cipher> CIPHERS = new KeyScheduleCache<Cipher>() {
+        @Override
+        protected Cipher create(SecretKey key) {
+            try {
+                return Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cipher initialization failed. transformation = [" + TRANSFORMATION + "]", e);
+            }
+        }
+    };
+
+    /** {@inheritDoc} */
+    public String getFormatId() {
+        return FORMAT_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 128ビットのAESの鍵を生成する。
+     */
+    public Serializable generateContext() {
+        byte[] key = new byte[KEY_BYTE_LENGTH];
+        RANDOM.nextBytes(key);
+        return new SecretKeySpec(key, KEY_ALGORITHM);
+    }
+
+    /** {@inheritDoc} */
+    public byte[] encode(Serializable context, byte[] payload) {
+        byte[] iv = new byte[IV_BYTE_LENGTH];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher cipher = initCipher(Cipher.ENCRYPT_MODE, context, new GCMParameterSpec(TAG_BIT_LENGTH, iv));
+            byte[] encoded = new byte[IV_BYTE_LENGTH + cipher.getOutputSize(payload.length)];
+            System.arraycopy(iv, 0, encoded, 0, IV_BYTE_LENGTH);
+            cipher.doFinal(payload, 0, payload.length, encoded, IV_BYTE_LENGTH);
+            return encoded;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(
+                    String.format("encryption failed. transformation = [%s]", TRANSFORMATION), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public byte[] decode(Serializable context, byte[] encoded) throws TamperingDetectedException {
+        if (encoded.length < IV_BYTE_LENGTH + TAG_BYTE_LENGTH) {
+            throw new TamperingDetectedException("encrypted value was too short.");
+        }
+        try {
+            Cipher cipher = initCipher(Cipher.DECRYPT_MODE, context,
+                                       new GCMParameterSpec(TAG_BIT_LENGTH, encoded, 0, IV_BYTE_LENGTH));
+            return cipher.doFinal(encoded, IV_BYTE_LENGTH, encoded.length - IV_BYTE_LENGTH);
+        } catch (AEADBadTagException e) {
+            throw new TamperingDetectedException("authentication tag was invalid.", e);
+        } catch (GeneralSecurityException e) {
+            throw new TamperingDetectedException("decryption failed.", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 初期化ベクトルを出力した後、書き込んだバイト列を順に暗号化して出力し、クローズ時に認証タグを出力する。
+     */
+    public OutputStream encodingStream(Serializable context, final OutputStream out) throws IOException {
+        byte[] iv = new byte[IV_BYTE_LENGTH];
+        RANDOM.nextBytes(iv);
+        final Cipher cipher;
+        try {
+            cipher = initCipher(Cipher.ENCRYPT_MODE, context, new GCMParameterSpec(TAG_BIT_LENGTH, iv));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(
+                    String.format("encryption failed. transformation = [%s]", TRANSFORMATION), e);
+        }
+        out.write(iv);
+        return new OutputStream() {
+            /** クローズ済みか否か */
+            private boolean closed;
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                byte[] encrypted = cipher.update(b, off, len);
+                if (encrypted != null) {
+                    out.write(encrypted);
+                }
+            }
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    out.write(cipher.doFinal());
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalArgumentException(
+                            String.format("encryption failed. transformation = [%s]", TRANSFORMATION), e);
+                }
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    public byte[] decode(Serializable context, InputStream in) throws TamperingDetectedException, IOException {
+        byte[] iv = HiddenValueStreams.readFully(in, IV_BYTE_LENGTH);
+        if (iv == null) {
+            throw new TamperingDetectedException("encrypted value was too short.");
+        }
+        try {
+            Cipher cipher = initCipher(Cipher.DECRYPT_MODE, context, new GCMParameterSpec(TAG_BIT_LENGTH, iv));
+            HiddenValueStreams.Buffer payload = new HiddenValueStreams.Buffer();
+            byte[] chunk = new byte[HiddenValueStreams.BUFFER_SIZE];
+            int total = 0;
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                total += read;
+                byte[] decrypted = cipher.update(chunk, 0, read);
+                if (decrypted != null) {
+                    payload.write(decrypted);
+                }
+            }
+            if (total < TAG_BYTE_LENGTH) {
+                throw new TamperingDetectedException("encrypted value was too short.");
+            }
+            payload.write(cipher.doFinal());
+            return payload.toByteArray();
+        } catch (AEADBadTagException e) {
+            throw new TamperingDetectedException("authentication tag was invalid.", e);
+        } catch (GeneralSecurityException e) {
+            throw new TamperingDetectedException("decryption failed.", e);
+        }
+    }
+
+    /**
+     * 鍵に対応する{@link Cipher}を取得し、初期化する。
+     * @param mode 暗号化または復号のモード
+     * @param context コンテキスト情報
+     * @param spec 初期化ベクトルと認証タグのサイズ
+     * @return 初期化した{@link Cipher}
+     * @throws GeneralSecurityException 初期化に失敗した場合
+     */
+    private static Cipher initCipher(int mode, Serializable context, GCMParameterSpec spec) throws GeneralSecurityException {
+        SecretKey key = toKey(context);
+        Cipher cipher = CIPHERS.get(key);
+        cipher.init(mode, key, spec);
+        return cipher;
+    }
+
+    /**
+     * コンテキスト情報を鍵に変換する。
+     * @param context コンテキスト情報
+     * @return 鍵
+     */
+    private static SecretKey toKey(Serializable context) {
+        if (!(context instanceof SecretKey)) {
+            throw new IllegalArgumentException("context must be SecretKey. context = [" + context + "]");
+        }
+        return (SecretKey) context;
+    }
+}
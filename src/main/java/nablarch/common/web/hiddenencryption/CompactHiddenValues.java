@@ -0,0 +1,399 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import nablarch.fw.ExecutionContext;
+
+/**
+ * hiddenタグの値をコンパクトなバイナリ形式に変換するクラス。
+ * <pre>
+ * バイナリ形式は、下記の仕様とする。
+ * ・先頭の1バイトは0(テキスト形式の先頭には出現しない値)、2バイト目はバージョンとフラグとする。
+ *   フラグには、本体をDeflateで圧縮しているか否かを設定する。
+ * ・本体は、パラメータの数と、パラメータごとの名前、値の数、値で構成する。
+ * ・数と長さは、可変長整数(7ビットずつ、下位から出力)で出力する。
+ * ・文字列は、同じ文字列が2回目以降に出現した場合は、出現順の番号で参照する。
+ *   フレームワークが使用するパラメータ名のプレフィックスは、辞書の番号で参照し、残りの部分のみを出力する。
+ * 値の数が0のパラメータは、テキスト形式と同じく出力しない。
+ * </pre>
+ */
+final class CompactHiddenValues {
+
+    /** バイナリ形式であることを示す先頭のバイト */
+    private static final byte MAGIC = 0;
+
+    /** バージョン */
+    private static final int VERSION = 1;
+
+    /** 本体を圧縮していることを示すフラグ */
+    private static final int FLAG_DEFLATE = 0x80;
+
+    /** バージョンを取り出すマスク */
+    private static final int VERSION_MASK = 0x7F;
+
+    /** 文字列の種類: 文字列をそのまま出力する */
+    private static final int LITERAL = 0;
+
+    /** 文字列の種類: 出現済みの文字列を参照する */
+    private static final int REFERENCE = 1;
+
+    /** 文字列の種類: 辞書のプレフィックスと残りの部分を出力する */
+    private static final int PREFIXED = 2;
+
+    /** 文字列の種類を格納するビット数 */
+    private static final int KIND_BITS = 2;
+
+    /** 文字列の種類を取り出すマスク */
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    /** 出力に使用するバッファのバイトサイズ */
+    private static final int BUFFER_SIZE = 4096;
+
+    /** 展開後の本体の上限 */
+    private static final int MAX_INFLATED_LENGTH = 16 * 1024 * 1024;
+
+    /** 文字列の変換に使用する文字セット */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /** パラメータ名のプレフィックスの辞書(長いものから順に照合する) */
+    private static final String[] DICTIONARY = {
+        HiddenEncryptionUtil.KEY_HIDDEN_SUBMIT_NAME_PREFIX,
+        HiddenEncryptionUtil.KEY_HIDDEN_REQUEST_IDS_NAME,
+        HiddenEncryptionUtil.KEY_SUBMIT_NAME,
+        ExecutionContext.FW_PREFIX,
+    };
+
+    /** 隠蔽コンストラクタ */
+    private CompactHiddenValues() {
+    }
+
+    /**
+     * バイト列がバイナリ形式か否かを判定する。
+     * @param bytes バイト列
+     * @return バイナリ形式の場合はtrue
+     */
+    static boolean isCompact(byte[] bytes) {
+        return bytes.length >= 2 && bytes[0] == MAGIC;
+    }
+
+    /**
+     * hiddenタグの値をバイナリ形式に変換する。
+     * @param values hiddenタグの値
+     * @param deflate 本体を圧縮する場合はtrue
+     * @return バイナリ形式のバイト列
+     */
+    static byte[] serialize(Map<String, List<String>> values, boolean deflate) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            serialize(values, deflate, out);
+        } catch (IOException e) {
+            // ByteArrayOutputStreamへの書き込みのため到達不能
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * hiddenタグの値をバイナリ形式に変換して出力する。
+     * <p/>
+     * 本体はバイト列に変換せずに、出力先(圧縮する場合はDeflateのストリーム)に直接出力する。
+     * 出力先のストリームはクローズしない。
+     * @param values hiddenタグの値
+     * @param deflate 本体を圧縮する場合はtrue
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    static void serialize(Map<String, List<String>> values, boolean deflate, OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(deflate ? VERSION | FLAG_DEFLATE : VERSION);
+        if (!deflate) {
+            writeBody(values, out);
+            return;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            DeflaterOutputStream deflating = new DeflaterOutputStream(out, deflater, BUFFER_SIZE);
+            writeBody(values, deflating);
+            deflating.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * バイナリ形式の本体を出力する。
+     * @param values hiddenタグの値
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private static void writeBody(Map<String, List<String>> values, OutputStream out) throws IOException {
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        Writer writer = new Writer(buffered);
+        int count = 0;
+        for (List<String> paramValues : values.values()) {
+            if (!paramValues.isEmpty()) {
+                count++;
+            }
+        }
+        writer.writeVarint(count);
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            List<String> paramValues = entry.getValue();
+            if (paramValues.isEmpty()) {
+                continue;
+            }
+            writer.writeString(entry.getKey());
+            writer.writeVarint(paramValues.size());
+            for (String value : paramValues) {
+                writer.writeString(value);
+            }
+        }
+        buffered.flush();
+    }
+
+    /**
+     * バイナリ形式のバイト列をhiddenタグの値に変換する。
+     * @param bytes バイナリ形式のバイト列
+     * @return hiddenタグの値
+     * @throws TamperingDetectedException バイナリ形式として不正な場合
+     */
+    static Map<String, List<String>> deserialize(byte[] bytes) throws TamperingDetectedException {
+        if (!isCompact(bytes) || (bytes[1] & VERSION_MASK) != VERSION) {
+            throw new TamperingDetectedException("compact hidden value header was invalid.");
+        }
+        Reader reader = (bytes[1] & FLAG_DEFLATE) != 0
+                ? new Reader(inflate(bytes), 0)
+                : new Reader(bytes, 2);
+        try {
+            int count = reader.readVarint();
+            Map<String, List<String>> values = new HashMap<String, List<String>>();
+            for (int i = 0; i < count; i++) {
+                String name = reader.readString();
+                int size = reader.readVarint();
+                List<String> paramValues = new ArrayList<String>(Math.min(size, reader.remaining()));
+                for (int j = 0; j < size; j++) {
+                    paramValues.add(reader.readString());
+                }
+                values.put(name, paramValues);
+            }
+            if (reader.remaining() != 0) {
+                throw new TamperingDetectedException("compact hidden value has trailing bytes.");
+            }
+            return values;
+        } catch (IndexOutOfBoundsException e) {
+            throw new TamperingDetectedException("compact hidden value was truncated.", e);
+        }
+    }
+
+    /**
+     * 圧縮した本体を展開する。
+     * @param bytes バイナリ形式のバイト列
+     * @return 展開した本体
+     * @throws TamperingDetectedException 展開に失敗した場合
+     */
+    private static byte[] inflate(byte[] bytes) throws TamperingDetectedException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 2, bytes.length - 2);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new TamperingDetectedException("compact hidden value was truncated.");
+                }
+                out.write(buffer, 0, length);
+                if (out.size() > MAX_INFLATED_LENGTH) {
+                    throw new TamperingDetectedException("compact hidden value was too large.");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new TamperingDetectedException("inflating compact hidden value failed.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 辞書から文字列に一致するプレフィックスを検索する。
+     * @param str 文字列
+     * @return 辞書の番号。一致するプレフィックスが存在しない場合は-1
+     */
+    private static int findPrefix(String str) {
+        for (int i = 0; i < DICTIONARY.length; i++) {
+            if (str.startsWith(DICTIONARY[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * バイナリ形式の本体を出力するクラス。
+     */
+    private static final class Writer {
+
+        /** 出力先 */
+        private final OutputStream out;
+
+        /** 出現済みの文字列と出現順の番号 */
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        /**
+         * コンストラクタ。
+         * @param out 出力先
+         */
+        Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * 可変長整数を出力する。
+         * @param value 0以上の値
+         * @throws IOException 出力先への書き込みに失敗した場合
+         */
+        void writeVarint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        /**
+         * 文字列を出力する。
+         * @param str 文字列
+         * @throws IOException 出力先への書き込みに失敗した場合
+         */
+        void writeString(String str) throws IOException {
+            if (str == null) {
+                throw new IllegalArgumentException("hidden value must not be null.");
+            }
+            Integer index = strings.get(str);
+            if (index != null) {
+                writeVarint(index << KIND_BITS | REFERENCE);
+                return;
+            }
+            strings.put(str, strings.size());
+            int prefix = findPrefix(str);
+            if (prefix != -1) {
+                writeVarint(prefix << KIND_BITS | PREFIXED);
+                byte[] suffix = str.substring(DICTIONARY[prefix].length()).getBytes(CHARSET);
+                writeVarint(suffix.length);
+                out.write(suffix, 0, suffix.length);
+            } else {
+                byte[] bytes = str.getBytes(CHARSET);
+                writeVarint(bytes.length << KIND_BITS | LITERAL);
+                out.write(bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    /**
+     * バイナリ形式の本体を読み込むクラス。
+     */
+    private static final class Reader {
+
+        /** 本体を含むバイト列 */
+        private final byte[] bytes;
+
+        /** 読み込み位置 */
+        private int position;
+
+        /** 出現済みの文字列 */
+        private final List<String> strings = new ArrayList<String>();
+
+        /**
+         * コンストラクタ。
+         * @param bytes 本体を含むバイト列
+         * @param position 本体の開始位置
+         */
+        Reader(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        /**
+         * 読み込んでいないバイト数を取得する。
+         * @return 読み込んでいないバイト数
+         */
+        int remaining() {
+            return bytes.length - position;
+        }
+
+        /**
+         * 可変長整数を読み込む。
+         * @return 値
+         * @throws TamperingDetectedException 値が不正な場合
+         */
+        int readVarint() throws TamperingDetectedException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        break;
+                    }
+                    return value;
+                }
+            }
+            throw new TamperingDetectedException("compact hidden value has invalid length.");
+        }
+
+        /**
+         * 文字列を読み込む。
+         * @return 文字列
+         * @throws TamperingDetectedException 文字列が不正な場合
+         */
+        String readString() throws TamperingDetectedException {
+            int header = readVarint();
+            int kind = header & KIND_MASK;
+            int operand = header >>> KIND_BITS;
+            String str;
+            if (kind == REFERENCE) {
+                if (operand >= strings.size()) {
+                    throw new TamperingDetectedException("compact hidden value has invalid reference.");
+                }
+                return strings.get(operand);
+            } else if (kind == PREFIXED) {
+                if (operand >= DICTIONARY.length) {
+                    throw new TamperingDetectedException("compact hidden value has invalid prefix.");
+                }
+                str = DICTIONARY[operand] + readBytes(readVarint());
+            } else if (kind == LITERAL) {
+                str = readBytes(operand);
+            } else {
+                throw new TamperingDetectedException("compact hidden value has invalid string kind.");
+            }
+            strings.add(str);
+            return str;
+        }
+
+        /**
+         * 指定されたバイト数を文字列として読み込む。
+         * @param length バイト数
+         * @return 文字列
+         */
+        private String readBytes(int length) {
+            if (length > remaining()) {
+                throw new IndexOutOfBoundsException("length = [" + length + "], remaining = [" + remaining() + "]");
+            }
+            String str = new String(bytes, position, length, CHARSET);
+            position += length;
+            return str;
+        }
+    }
+}
@@ -2,19 +2,27 @@ package nablarch.common.web.hiddenencryption;
 
 import static nablarch.fw.ExecutionContext.FW_PREFIX;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import jakarta.servlet.jsp.PageContext;
 
 import nablarch.common.encryption.AesEncryptor;
 import nablarch.common.encryption.Encryptor;
 import nablarch.common.util.WebRequestUtil;
+import nablarch.common.web.metrics.TagMetrics;
+import nablarch.common.web.metrics.TagMetricsRecorder;
 import nablarch.core.ThreadContext;
 import nablarch.core.repository.SystemRepository;
 import nablarch.core.util.Base64Util;
@@ -27,6 +35,10 @@ import nablarch.fw.ExecutionContext;
  * このユーティリティでは、{@link Encryptor}インタフェースを実装したクラスに、暗号化と復号の処理を移譲する。
  * デフォルトでは{@link AesEncryptor}を使用する。
  * 暗号化と復号に使用するクラスを変更したい場合は、"hiddenEncryptor"という名前でリポジトリに登録する。
+ *
+ * {@link HiddenValueCodec}を指定した場合は、ハッシュ値を使用せずに{@link HiddenValueCodec}で改竄検知と暗号化を行う。
+ * {@link StreamingHiddenValueCodec}を指定した場合は、変換、暗号化、BASE64のエンコードをストリームで行い、
+ * 変換の途中でhiddenタグの値全体のバイト列を保持しない。
  * </pre>
  * @author Kiyohito Itoh
  */
@@ -41,6 +53,9 @@ public final class HiddenEncryptionUtil {
     
     /** リポジトリから取得できない場合に使用するデフォルトの{@link Encryptor} */
     private static final Encryptor<? extends Serializable> DEFAULT_HIDDEN_ENCRYPTOR = new AesEncryptor();
+
+    /** リポジトリから取得した{@link Encryptor}と、暗号化と復号に使用する{@link Encryptor}の組み合わせ */
+    private static volatile ResolvedEncryptor resolvedEncryptor;
     
     /**
      * {@link Encryptor}が使用するコンテキスト情報をセッションに格納する際に使用するキー。
@@ -63,6 +78,15 @@ public final class HiddenEncryptionUtil {
     /** 現在のリクエストに対して、hiddenタグの暗号化が必要であることを示すリクエストパラメータ名 */
     public static final String KEY_NEEDS_ENCRYPTION = FW_PREFIX + "needs_hidden_encryption";
     
+    /** {@link HiddenValueCodec}で変換した値の形式IDとBASE64の値の区切り文字 */
+    private static final char FORMAT_ID_SEPARATOR = '.';
+
+    /** {@link KeyRotatingHiddenValueCodec}のローテーションに使用するロック(ローテーションは稀なため全セッションで共有する) */
+    private static final Object KEY_ROTATION_LOCK = new Object();
+
+    /** {@link HiddenValueStore}に保持した値のトークンに付与するプレフィックス(BASE64と形式IDに出現しない文字) */
+    private static final char TOKEN_PREFIX = '~';
+
     /** ハッシュ値の生成に使用するアルゴリズム */
     private static final String HASH_ALGORITHM = "MD5";
     
@@ -71,6 +95,19 @@ public final class HiddenEncryptionUtil {
     
     /** 暗号化と復号に使用する文字セット */
     private static final Charset ENCRYPTION_CHARSET = Charset.forName("UTF-8");
+
+    /** スレッドごとの{@link MessageDigest} */
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance(HASH_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                // アルゴリズムが固定のため到達不能
+                throw new IllegalStateException("MessageDigest initialization failed.", e);
+            }
+        }
+    };
     
     /**
      * hiddenタグの値を復号する。
@@ -88,7 +125,122 @@ public final class HiddenEncryptionUtil {
      */
     public static Map<String, List<String>> decryptHiddenValues(ExecutionContext context, String value) 
             throws TamperingDetectedException, KeyEncryptionContextNotFoundException {
-        
+        return decryptHiddenValues(context, value, null);
+    }
+
+    /**
+     * 指定された{@link HiddenValueCodec}を使用して、hiddenタグの値を復号する。
+     * <pre>
+     * 値の先頭に{@link HiddenValueCodec}の形式IDが付与されている場合は、{@link HiddenValueCodec}を使用して
+     * 改竄チェックと復号を行い、リクエストID文字列を使用して値の置き換えによる改竄チェックを行う。
+     * 形式IDが付与されていない場合は、移行期間中に出力した画面からのリクエストに対応するため、
+     * {@link #decryptHiddenValues(ExecutionContext, String)}と同じ従来の形式として復号する。
+     * </pre>
+     * @param context {@link ExecutionContext}
+     * @param value hiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式のみを使用する場合はnull
+     * @return hiddenタグの値を復号した結果
+     * 
+     * @throws TamperingDetectedException 改竄を検知した場合。
+     * @throws KeyEncryptionContextNotFoundException 暗号化キーをセッションから取得出来なかった場合。
+     */
+    public static Map<String, List<String>> decryptHiddenValues(ExecutionContext context, String value, HiddenValueCodec codec)
+            throws TamperingDetectedException, KeyEncryptionContextNotFoundException {
+        return decryptHiddenValues(context, value, codec, null);
+    }
+
+    /**
+     * 指定された{@link HiddenValueCodec}と{@link HiddenValueStore}を使用して、hiddenタグの値を復号する。
+     * <pre>
+     * 値の先頭に"~"が付与されている場合は、残りの部分をトークンとして{@link HiddenValueStore}から値を取得し、
+     * リクエストID文字列を使用して値の置き換えによる改竄チェックを行う。
+     * "~"が付与されていない場合は、移行期間中に出力した画面からのリクエストに対応するため、
+     * {@link #decryptHiddenValues(ExecutionContext, String, HiddenValueCodec)}と同じく復号する。
+     * </pre>
+     * @param context {@link ExecutionContext}
+     * @param value hiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式のみを使用する場合はnull
+     * @param store hiddenタグの値を保持する{@link HiddenValueStore}。使用しない場合はnull
+     * @return hiddenタグの値を復号した結果
+     * 
+     * @throws TamperingDetectedException 改竄を検知した場合。
+     * @throws KeyEncryptionContextNotFoundException 暗号化キーをセッションから取得出来なかった場合、
+     *                                               またはトークンに対応する値を取得出来なかった場合。
+     */
+    public static Map<String, List<String>> decryptHiddenValues(ExecutionContext context, String value, HiddenValueCodec codec,
+                                                                HiddenValueStore store)
+            throws TamperingDetectedException, KeyEncryptionContextNotFoundException {
+        long start = System.nanoTime();
+        try {
+            return decrypt(context, value, codec, store);
+        } finally {
+            TagMetrics.getRecorder().recordDecryption(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * hiddenタグの値が、{@link HiddenValueStore}に保持した値のトークンか否かを判定する。
+     * <p/>
+     * トークンの場合は、{@link #decryptHiddenValues(ExecutionContext, String, HiddenValueCodec, HiddenValueStore)}で
+     * 復号を行わずに値を取得する。
+     * @param value hiddenタグの値
+     * @param store hiddenタグの値を保持する{@link HiddenValueStore}。使用しない場合はnull
+     * @return トークンの場合はtrue
+     */
+    public static boolean isStoredToken(String value, HiddenValueStore store) {
+        return store != null && value != null && value.length() > 1 && value.charAt(0) == TOKEN_PREFIX;
+    }
+
+    /**
+     * hiddenタグの値の復号に使用する暗号化キーが、セッションに存在することをチェックする。
+     * <p/>
+     * 復号を行わずにセッションの有効期限切れを検知するために使用する。
+     * 値の先頭に{@link HiddenValueCodec}の形式IDが付与されている場合は{@link HiddenValueCodec}のコンテキスト情報を、
+     * 付与されていない場合は従来の形式の暗号化キーをチェックする。
+     * @param context {@link ExecutionContext}
+     * @param value hiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式のみを使用する場合はnull
+     * @throws KeyEncryptionContextNotFoundException 暗号化キーをセッションから取得出来なかった場合。
+     */
+    public static void checkEncryptionContext(ExecutionContext context, String value, HiddenValueCodec codec)
+            throws KeyEncryptionContextNotFoundException {
+        if (codec != null && value != null && hasFormatId(value, codec)) {
+            getEncryptionContext(context, codec);
+        } else if (context.getSessionScopedVar(KEY_ENCRYPTION_CONTEXT) == null) {
+            throw new KeyEncryptionContextNotFoundException("key encryption context was not found."
+                    + " session key = [" + KEY_ENCRYPTION_CONTEXT + "]");
+        }
+    }
+
+    /**
+     * hiddenタグの値を復号する。
+     * <p/>
+     * 仕様は{@link #decryptHiddenValues(ExecutionContext, String, HiddenValueCodec, HiddenValueStore)}を参照。
+     * @param context {@link ExecutionContext}
+     * @param value hiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式のみを使用する場合はnull
+     * @param store hiddenタグの値を保持する{@link HiddenValueStore}。使用しない場合はnull
+     * @return hiddenタグの値を復号した結果
+     * @throws TamperingDetectedException 改竄を検知した場合。
+     * @throws KeyEncryptionContextNotFoundException 暗号化キーをセッションから取得出来なかった場合、
+     *                                               またはトークンに対応する値を取得出来なかった場合。
+     */
+    private static Map<String, List<String>> decrypt(ExecutionContext context, String value, HiddenValueCodec codec,
+                                                     HiddenValueStore store)
+            throws TamperingDetectedException, KeyEncryptionContextNotFoundException {
+
+        if (isStoredToken(value, store)) {
+            Map<String, List<String>> values = store.load(context, value.substring(1));
+            if (values == null) {
+                throw new KeyEncryptionContextNotFoundException("hidden values were not found in the store.");
+            }
+            return checkRequestIds(values);
+        }
+
+        if (codec != null && value != null && hasFormatId(value, codec)) {
+            return decodeHiddenValues(context, value, codec);
+        }
+
         byte[] allBytes;
         try {
             allBytes = Base64Util.decode(value);
@@ -118,6 +270,14 @@ public final class HiddenEncryptionUtil {
         System.arraycopy(allBytes, 0, hash, 0, hash.length);
         System.arraycopy(allBytes, hash.length, valuesBytes, 0, valuesBytes.length);
         
+        if (CompactHiddenValues.isCompact(valuesBytes)) {
+            // バイナリ形式は文字列に変換できないため、復号したバイト列のハッシュ値を検証する。
+            if (!Arrays.equals(hash, hash(KEY_HIDDEN_NAME, valuesBytes))) {
+                throw new TamperingDetectedException("hash was invalid.");
+            }
+            return checkRequestIds(CompactHiddenValues.deserialize(valuesBytes));
+        }
+        
         String values = StringUtil.toString(valuesBytes, ENCRYPTION_CHARSET);
         valuesBytes = StringUtil.getBytes(values, ENCRYPTION_CHARSET);
         
@@ -125,14 +285,107 @@ public final class HiddenEncryptionUtil {
             throw new TamperingDetectedException("hash was invalid.");
         }
         
-        Map<String, List<String>> params = WebRequestUtil.convertToParamsMap(values);
+        return checkRequestIds(WebRequestUtil.convertToParamsMap(values));
+    }
+
+    /**
+     * {@link HiddenValueCodec}を使用して変換したhiddenタグの値を復号する。
+     * @param context {@link ExecutionContext}
+     * @param value 形式IDが付与されたhiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}
+     * @return hiddenタグの値を復号した結果
+     * @throws TamperingDetectedException 改竄を検知した場合。
+     * @throws KeyEncryptionContextNotFoundException 暗号化キーをセッションから取得出来なかった場合。
+     */
+    private static Map<String, List<String>> decodeHiddenValues(ExecutionContext context, String value, HiddenValueCodec codec)
+            throws TamperingDetectedException, KeyEncryptionContextNotFoundException {
+
+        if (codec instanceof StreamingHiddenValueCodec) {
+            return streamDecodeHiddenValues(context, value, (StreamingHiddenValueCodec) codec);
+        }
+
+        byte[] encoded;
+        try {
+            encoded = Base64Util.decode(value.substring(codec.getFormatId().length() + 1));
+        } catch (IllegalArgumentException e) {
+            throw new TamperingDetectedException("base64 decoding failed.", e);
+        }
+
+        Serializable encryptionContext = getEncryptionContext(context, codec);
+        return checkRequestIds(HiddenValueFormat.deserialize(codec.decode(encryptionContext, encoded)));
+    }
+
+    /**
+     * {@link StreamingHiddenValueCodec}を使用して変換したhiddenタグの値を、ストリームで復号する。
+     * <p/>
+     * hiddenタグの値からBASE64の部分を切り出さずに、BASE64のデコードと復号を並行して行う。
+     * @param context {@link ExecutionContext}
+     * @param value 形式IDが付与されたhiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link StreamingHiddenValueCodec}
+     * @return hiddenタグの値を復号した結果
+     * @throws TamperingDetectedException 改竄を検知した場合。
+     * @throws KeyEncryptionContextNotFoundException 暗号化キーをセッションから取得出来なかった場合。
+     */
+    private static Map<String, List<String>> streamDecodeHiddenValues(ExecutionContext context, String value,
+                                                                      StreamingHiddenValueCodec codec)
+            throws TamperingDetectedException, KeyEncryptionContextNotFoundException {
+
+        Serializable encryptionContext = getEncryptionContext(context, codec);
+        InputStream in = Base64.getDecoder().wrap(
+                new HiddenValueStreams.AsciiStringInputStream(value, codec.getFormatId().length() + 1));
+        byte[] payload;
+        try {
+            payload = codec.decode(encryptionContext, in);
+        } catch (IOException e) {
+            throw new TamperingDetectedException("base64 decoding failed.", e);
+        }
+        return checkRequestIds(HiddenValueFormat.deserialize(payload));
+    }
+
+    /**
+     * セッションから{@link HiddenValueCodec}が使用するコンテキスト情報を取得する。
+     * @param context {@link ExecutionContext}
+     * @param codec {@link HiddenValueCodec}
+     * @return {@link HiddenValueCodec}が使用するコンテキスト情報
+     * @throws KeyEncryptionContextNotFoundException 暗号化キーをセッションから取得出来なかった場合。
+     */
+    private static Serializable getEncryptionContext(ExecutionContext context, HiddenValueCodec codec)
+            throws KeyEncryptionContextNotFoundException {
+        String contextKey = getEncryptionContextKey(codec);
+        Serializable encryptionContext = (Serializable) context.getSessionScopedVar(contextKey);
+        if (encryptionContext == null) {
+            throw new KeyEncryptionContextNotFoundException("key encryption context was not found."
+                    + " session key = [" + contextKey + "]");
+        }
+        return encryptionContext;
+    }
+
+    /**
+     * リクエストID文字列を使用して改竄チェックを行う。
+     * @param params hiddenタグの値を変換したパラメータ
+     * @return リクエストID文字列を除いたパラメータ
+     * @throws TamperingDetectedException 現在のリクエストIDが含まれていない場合。
+     */
+    private static Map<String, List<String>> checkRequestIds(Map<String, List<String>> params) throws TamperingDetectedException {
         List<String> requestIds = params.remove(KEY_HIDDEN_REQUEST_IDS_NAME);
-        if (!requestIds.contains(ThreadContext.getRequestId())) {
+        if (requestIds == null || !requestIds.contains(ThreadContext.getRequestId())) {
             throw new TamperingDetectedException("requestId was invalid.");
         }
-        
         return params;
     }
+
+    /**
+     * hiddenタグの値の先頭に、{@link HiddenValueCodec}の形式IDが付与されているか否かを判定する。
+     * @param value hiddenタグの値
+     * @param codec {@link HiddenValueCodec}
+     * @return 形式IDが付与されている場合はtrue
+     */
+    private static boolean hasFormatId(String value, HiddenValueCodec codec) {
+        String formatId = codec.getFormatId();
+        return value.length() > formatId.length()
+                && value.charAt(formatId.length()) == FORMAT_ID_SEPARATOR
+                && value.startsWith(formatId);
+    }
     
     /**
      * 改竄検知に使用するハッシュ値を生成する。<br>
@@ -142,15 +395,10 @@ public final class HiddenEncryptionUtil {
      * @return 改竄検知に使用するハッシュ値
      */
     private static byte[] hash(String name, byte[] value) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
-            digest.reset();
-            digest.update(value);
-            return digest.digest();
-        } catch (NoSuchAlgorithmException e) {
-            // アルゴリズムが固定のため到達不能
-            throw new IllegalStateException("MessageDigest initialization failed.", e);
-        }
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        digest.update(value);
+        return digest.digest();
     }
     
     /**
@@ -171,29 +419,253 @@ public final class HiddenEncryptionUtil {
      * @return hiddenタグの値を暗号化した結果
      */
     public static String encryptHiddenValues(PageContext pageContext, List<String> requestIds, Map<String, List<String>> values) {
-        
+        return encryptHiddenValues(pageContext, requestIds, values, null);
+    }
+
+    /**
+     * 指定された{@link HiddenValueCodec}を使用して、hiddenタグの値を暗号化する。
+     * <pre>
+     * {@link HiddenValueCodec}を指定した場合は、下記の仕様で行う。
+     * ・リクエストID文字列とhidden文字列を作成する。(従来の形式と同じ)
+     * ・リクエストID文字列＋hidden文字列を{@link HiddenValueCodec}で変換し、BASE64でエンコードする。
+     *   改竄検知は{@link HiddenValueCodec}が行うため、ハッシュ値は付与しない。
+     * ・先頭に"形式ID."を付与する。
+     * {@link HiddenValueCodec}を指定しない場合は、{@link #encryptHiddenValues(PageContext, List, Map)}と同じ従来の形式で暗号化する。
+     * </pre>
+     * @param pageContext ページコンテキスト
+     * @param requestIds リクエストID
+     * @param values hiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式で暗号化する場合はnull
+     * @return hiddenタグの値を暗号化した結果
+     */
+    public static String encryptHiddenValues(PageContext pageContext, List<String> requestIds, Map<String, List<String>> values,
+                                             HiddenValueCodec codec) {
+        return encryptHiddenValues(pageContext, requestIds, values, codec, HiddenValueFormat.TEXT);
+    }
+
+    /**
+     * 指定された{@link HiddenValueCodec}と{@link HiddenValueFormat}を使用して、hiddenタグの値を暗号化する。
+     * <pre>
+     * リクエストID文字列とhidden文字列の代わりに、{@link HiddenValueFormat}で変換したバイト列を暗号化する。
+     * それ以外の仕様は、{@link #encryptHiddenValues(PageContext, List, Map, HiddenValueCodec)}と同じ。
+     * 復号時は、バイト列の先頭から形式を判定する。
+     * </pre>
+     * @param pageContext ページコンテキスト
+     * @param requestIds リクエストID
+     * @param values hiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式で暗号化する場合はnull
+     * @param format 暗号化する前にhiddenタグの値をバイト列に変換する形式
+     * @return hiddenタグの値を暗号化した結果
+     */
+    public static String encryptHiddenValues(PageContext pageContext, List<String> requestIds, Map<String, List<String>> values,
+                                             HiddenValueCodec codec, HiddenValueFormat format) {
+        return prepareEncryption(pageContext, requestIds, values, codec, format).call();
+    }
+
+    /**
+     * 指定された{@link HiddenValueCodec}と{@link HiddenValueFormat}を使用して、hiddenタグの値を暗号化して出力する。
+     * <p/>
+     * 出力内容は、{@link #encryptHiddenValues(PageContext, List, Map, HiddenValueCodec, HiddenValueFormat)}と同じ形式となる。
+     * {@link StreamingHiddenValueCodec}を指定した場合は、変換、暗号化、BASE64のエンコードをストリームで行い、
+     * 暗号化した結果を文字列に変換せずに出力先に直接出力する。
+     * 出力内容はHTMLエスケープが不要な文字のみで構成するため、hiddenタグのvalue属性にそのまま出力できる。
+     * @param pageContext ページコンテキスト
+     * @param requestIds リクエストID
+     * @param values hiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式で暗号化する場合はnull
+     * @param format 暗号化する前にhiddenタグの値をバイト列に変換する形式
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public static void writeEncryptedHiddenValues(PageContext pageContext, List<String> requestIds,
+                                                  Map<String, List<String>> values, HiddenValueCodec codec,
+                                                  HiddenValueFormat format, Writer out) throws IOException {
+        prepareEncryption(pageContext, requestIds, values, codec, format).writeTo(out);
+    }
+
+    /**
+     * hiddenタグの値を暗号化する{@link EncryptionTask}を作成する。
+     * <p/>
+     * セッションへのアクセスが必要なコンテキスト情報の取得のみを呼び出し元のスレッドで行い、
+     * 変換と暗号化は{@link EncryptionTask}を実行したスレッドで行う。
+     * 暗号化した結果は、{@link #encryptHiddenValues(PageContext, List, Map, HiddenValueCodec, HiddenValueFormat)}と同じとなる。
+     * {@link EncryptionTask}を実行するまで、hiddenタグの値を変更しないこと。
+     * @param pageContext ページコンテキスト
+     * @param requestIds リクエストID
+     * @param values hiddenタグの値
+     * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式で暗号化する場合はnull
+     * @param format 暗号化する前にhiddenタグの値をバイト列に変換する形式
+     * @return hiddenタグの値を暗号化する{@link EncryptionTask}
+     */
+    public static EncryptionTask prepareEncryption(PageContext pageContext, List<String> requestIds, Map<String, List<String>> values,
+                                                   HiddenValueCodec codec, HiddenValueFormat format) {
         values.put(KEY_HIDDEN_REQUEST_IDS_NAME, requestIds);
-        String value = WebRequestUtil.convertToParamsString(values);
-        
-        byte[] valueBytes = StringUtil.getBytes(value, ENCRYPTION_CHARSET);
-        byte[] hash = hash(KEY_HIDDEN_NAME, valueBytes);
-        byte[] allBytes = new byte[hash.length + valueBytes.length];
-        
-        System.arraycopy(hash, 0, allBytes, 0, hash.length);
-        System.arraycopy(valueBytes, 0, allBytes, hash.length, valueBytes.length);
-        
-        return Base64Util.encode(getHiddenEncryptor().encrypt(getEncryptionContext(pageContext), allBytes));
+        Serializable encryptionContext = codec != null
+                ? getEncryptionContext(pageContext, codec)
+                : getEncryptionContext(pageContext);
+        return new EncryptionTask(values, codec, format, encryptionContext);
+    }
+
+    /**
+     * hiddenタグの値を暗号化するタスク。
+     * <p/>
+     * ページコンテキストとセッションにアクセスしないため、画面を出力するスレッド以外のスレッドで実行できる。
+     */
+    public static final class EncryptionTask implements Callable<String> {
+
+        /** リクエストID文字列を含むhiddenタグの値 */
+        private final Map<String, List<String>> values;
+
+        /** hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式で暗号化する場合はnull */
+        private final HiddenValueCodec codec;
+
+        /** 暗号化する前にhiddenタグの値をバイト列に変換する形式 */
+        private final HiddenValueFormat format;
+
+        /** 暗号化に使用するコンテキスト情報 */
+        private final Serializable encryptionContext;
+
+        /**
+         * コンストラクタ。
+         * @param values リクエストID文字列を含むhiddenタグの値
+         * @param codec hiddenタグの値の変換に使用する{@link HiddenValueCodec}。従来の形式で暗号化する場合はnull
+         * @param format 暗号化する前にhiddenタグの値をバイト列に変換する形式
+         * @param encryptionContext 暗号化に使用するコンテキスト情報
+         */
+        private EncryptionTask(Map<String, List<String>> values, HiddenValueCodec codec, HiddenValueFormat format,
+                               Serializable encryptionContext) {
+            this.values = values;
+            this.codec = codec;
+            this.format = format;
+            this.encryptionContext = encryptionContext;
+        }
+
+        /**
+         * hiddenタグの値を暗号化する。
+         * @return hiddenタグの値を暗号化した結果
+         */
+        public String call() {
+            long start = System.nanoTime();
+            String encrypted = encrypt();
+            TagMetricsRecorder recorder = TagMetrics.getRecorder();
+            recorder.recordEncryption(System.nanoTime() - start);
+            recorder.recordHiddenPayloadSize(encrypted.length());
+            return encrypted;
+        }
+
+        /**
+         * hiddenタグの値を暗号化した結果を文字列で作成する。
+         * @return hiddenタグの値を暗号化した結果
+         */
+        private String encrypt() {
+            byte[] valueBytes = format.serialize(values);
+            if (codec != null) {
+                byte[] encoded = codec.encode(encryptionContext, valueBytes);
+                return codec.getFormatId() + FORMAT_ID_SEPARATOR + Base64Util.encode(encoded);
+            }
+            
+            byte[] hash = hash(KEY_HIDDEN_NAME, valueBytes);
+            byte[] allBytes = new byte[hash.length + valueBytes.length];
+            
+            System.arraycopy(hash, 0, allBytes, 0, hash.length);
+            System.arraycopy(valueBytes, 0, allBytes, hash.length, valueBytes.length);
+            
+            return Base64Util.encode(getHiddenEncryptor().encrypt(encryptionContext, allBytes));
+        }
+
+        /**
+         * hiddenタグの値を暗号化して出力する。
+         * <p/>
+         * {@link StreamingHiddenValueCodec}を使用する場合は、変換したバイト列を暗号化とBASE64のエンコードを
+         * 経由して出力先に直接出力する。それ以外の場合は、{@link #call()}の結果を出力する。
+         * @param out 出力先
+         * @throws IOException 出力先への書き込みに失敗した場合
+         */
+        public void writeTo(Writer out) throws IOException {
+            if (!(codec instanceof StreamingHiddenValueCodec)) {
+                out.write(call());
+                return;
+            }
+            long start = System.nanoTime();
+            String formatId = codec.getFormatId();
+            out.write(formatId);
+            out.write(FORMAT_ID_SEPARATOR);
+            HiddenValueStreams.AsciiWriterOutputStream ascii = new HiddenValueStreams.AsciiWriterOutputStream(out);
+            OutputStream base64 = Base64.getEncoder().wrap(ascii);
+            OutputStream encoding = ((StreamingHiddenValueCodec) codec).encodingStream(encryptionContext, base64);
+            format.serialize(values, encoding);
+            encoding.close();
+            base64.close();
+            TagMetricsRecorder recorder = TagMetrics.getRecorder();
+            recorder.recordEncryption(System.nanoTime() - start);
+            recorder.recordHiddenPayloadSize(formatId.length() + 1 + ascii.getCount());
+        }
     }
     
+    /**
+     * 指定された{@link HiddenValueStore}に、hiddenタグの値を保持する。
+     * <pre>
+     * 保持は、下記の仕様で行う。
+     * ・リクエストID文字列をhiddenタグの値に追加する。(暗号化と同じ)
+     * ・hiddenタグの値を{@link HiddenValueStore}に保持し、先頭に"~"を付与したトークンを返す。
+     *   値は画面に出力しないため、暗号化は行わない。
+     * </pre>
+     * @param pageContext ページコンテキスト
+     * @param requestIds リクエストID
+     * @param values hiddenタグの値
+     * @param store hiddenタグの値を保持する{@link HiddenValueStore}
+     * @return 先頭に"~"を付与したトークン
+     */
+    public static String storeHiddenValues(PageContext pageContext, List<String> requestIds, Map<String, List<String>> values,
+                                           HiddenValueStore store) {
+        values.put(KEY_HIDDEN_REQUEST_IDS_NAME, requestIds);
+        return TOKEN_PREFIX + store.save(pageContext, values);
+    }
+
     /**
      * リポジトリから{@link Encryptor}を取得する。<br>
      * 存在しない場合はデフォルトの{@link AesEncryptor}を使用する。
+     * <p/>
+     * {@link AesEncryptor}(サブクラスを除く)の場合は、暗号化と復号のたびにプロバイダを検索しないように、
+     * スレッドごとに{@link javax.crypto.Cipher}を保持する{@link ThreadLocalAesEncryptor}に置き換える。
+     * 置き換えた結果は、リポジトリから取得した{@link Encryptor}のインスタンスが変わるまで使用する。
      * @return {@link Encryptor}
      */
     @SuppressWarnings("unchecked")
     private static Encryptor<Serializable> getHiddenEncryptor() {
         Encryptor<Serializable> encryptor = (Encryptor<Serializable>) SystemRepository.getObject(HIDDEN_ENCRYPTOR_NAME);
-        return encryptor != null ? encryptor : (Encryptor<Serializable>) DEFAULT_HIDDEN_ENCRYPTOR;
+        if (encryptor == null) {
+            encryptor = (Encryptor<Serializable>) DEFAULT_HIDDEN_ENCRYPTOR;
+        }
+        ResolvedEncryptor resolved = resolvedEncryptor;
+        if (resolved == null || resolved.source != encryptor) {
+            resolved = new ResolvedEncryptor(encryptor);
+            resolvedEncryptor = resolved;
+        }
+        return resolved.encryptor;
+    }
+
+    /**
+     * リポジトリから取得した{@link Encryptor}と、暗号化と復号に使用する{@link Encryptor}の組み合わせ。
+     */
+    private static final class ResolvedEncryptor {
+
+        /** リポジトリから取得した{@link Encryptor} */
+        private final Encryptor<Serializable> source;
+
+        /** 暗号化と復号に使用する{@link Encryptor} */
+        private final Encryptor<Serializable> encryptor;
+
+        /**
+         * コンストラクタ。
+         * @param source リポジトリから取得した{@link Encryptor}
+         */
+        ResolvedEncryptor(Encryptor<Serializable> source) {
+            this.source = source;
+            this.encryptor = source.getClass() == AesEncryptor.class
+                    ? new ThreadLocalAesEncryptor((AesEncryptor) (Encryptor<?>) source)
+                    : source;
+        }
     }
     
     /**
@@ -210,4 +682,46 @@ public final class HiddenEncryptionUtil {
         }
         return encryptionContext;
     }
+
+    /**
+     * セッションから{@link HiddenValueCodec}が使用するコンテキスト情報を取得する。<br>
+     * セッションにコンテキスト情報が存在しない場合は生成する。
+     * <p/>
+     * {@link KeyRotatingHiddenValueCodec}の場合は、ローテーション間隔を過ぎていればローテーションしたコンテキスト情報に置き換える。
+     * 同じセッションの並行するリクエストが異なる鍵を生成しないように、置き換えは排他制御した上で行う。
+     * @param pageContext ページコンテキスト
+     * @param codec {@link HiddenValueCodec}
+     * @return {@link HiddenValueCodec}が使用するコンテキスト情報
+     */
+    private static Serializable getEncryptionContext(PageContext pageContext, HiddenValueCodec codec) {
+        String contextKey = getEncryptionContextKey(codec);
+        Serializable encryptionContext = (Serializable) pageContext.getAttribute(contextKey, PageContext.SESSION_SCOPE);
+        if (encryptionContext == null) {
+            encryptionContext = codec.generateContext();
+            pageContext.setAttribute(contextKey, encryptionContext, PageContext.SESSION_SCOPE);
+        } else if (codec instanceof KeyRotatingHiddenValueCodec) {
+            KeyRotatingHiddenValueCodec rotatingCodec = (KeyRotatingHiddenValueCodec) codec;
+            if (rotatingCodec.needsRotation(encryptionContext)) {
+                synchronized (KEY_ROTATION_LOCK) {
+                    encryptionContext = (Serializable) pageContext.getAttribute(contextKey, PageContext.SESSION_SCOPE);
+                    if (rotatingCodec.needsRotation(encryptionContext)) {
+                        encryptionContext = rotatingCodec.rotate(encryptionContext);
+                        pageContext.setAttribute(contextKey, encryptionContext, PageContext.SESSION_SCOPE);
+                    }
+                }
+            }
+        }
+        return encryptionContext;
+    }
+
+    /**
+     * {@link HiddenValueCodec}が使用するコンテキスト情報をセッションに格納する際に使用するキーを取得する。
+     * <p/>
+     * 形式ごとに異なるコンテキスト情報を使用するため、キーに形式IDを付与する。
+     * @param codec {@link HiddenValueCodec}
+     * @return セッションに格納する際に使用するキー
+     */
+    private static String getEncryptionContextKey(HiddenValueCodec codec) {
+        return KEY_ENCRYPTION_CONTEXT + "_" + codec.getFormatId();
+    }
 }
@@ -0,0 +1,52 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.Serializable;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * hiddenタグの値の改竄検知と暗号化を行うインタフェース。
+ * <p/>
+ * 実装クラスは、hiddenタグの値を連結したバイト列を受け取り、改竄を検知できる形式に変換する。
+ * 変換した結果はBASE64でエンコードし、先頭に{@link #getFormatId()}と"."を付与して出力する。
+ * 復号時は、先頭の形式IDで変換に使用した実装クラスを判定する。
+ * 形式IDを持たない値は、{@link nablarch.common.encryption.Encryptor}を使用する従来の形式として復号する。
+ * <p/>
+ * 実装クラスはスレッドセーフにすること。
+ * 変換に使用するコンテキスト情報(鍵など)は、{@link #generateContext()}で生成し、
+ * セッションに格納してセッションごとに使用する。
+ */
+@Published(tag = "architect")
+public interface HiddenValueCodec {
+
+    /**
+     * 変換した値の形式を識別するIDを取得する。
+     * <p/>
+     * 形式IDには、"."とBASE64で使用する文字以外を含めてはならない。
+     * @return 形式ID
+     */
+    String getFormatId();
+
+    /**
+     * 変換に使用するコンテキスト情報を生成する。
+     * @return コンテキスト情報
+     */
+    Serializable generateContext();
+
+    /**
+     * hiddenタグの値を改竄検知できる形式に変換する。
+     * @param context コンテキスト情報
+     * @param payload hiddenタグの値を連結したバイト列
+     * @return 変換した結果
+     */
+    byte[] encode(Serializable context, byte[] payload);
+
+    /**
+     * 変換した結果を検証し、hiddenタグの値を連結したバイト列に戻す。
+     * @param context コンテキスト情報
+     * @param encoded 変換した結果
+     * @return hiddenタグの値を連結したバイト列
+     * @throws TamperingDetectedException 改竄を検知した場合
+     */
+    byte[] decode(Serializable context, byte[] encoded) throws TamperingDetectedException;
+}
@@ -0,0 +1,86 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+import nablarch.common.util.WebRequestUtil;
+import nablarch.core.util.StringUtil;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * hiddenタグの暗号化機能で、暗号化する前にhiddenタグの値をバイト列に変換する形式を表す列挙型。
+ * <p/>
+ * 復号時は、バイト列の先頭から形式を判定するため、形式を変更した後も変更前に出力した画面からのリクエストを復号できる。
+ */
+@Published(tag = "architect")
+public enum HiddenValueFormat {
+
+    /** {@link WebRequestUtil#convertToParamsString(Map)}で変換したテキスト形式 */
+    TEXT,
+
+    /** パラメータ名の辞書と可変長整数を使用するバイナリ形式 */
+    COMPACT,
+
+    /** {@link #COMPACT}をDeflateで圧縮したバイナリ形式 */
+    COMPACT_DEFLATE;
+
+    /** テキスト形式の変換に使用する文字セット */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * hiddenタグの値をバイト列に変換する。
+     * @param values hiddenタグの値
+     * @return バイト列
+     */
+    byte[] serialize(Map<String, List<String>> values) {
+        switch (this) {
+        case COMPACT:
+            return CompactHiddenValues.serialize(values, false);
+        case COMPACT_DEFLATE:
+            return CompactHiddenValues.serialize(values, true);
+        default:
+            return StringUtil.getBytes(WebRequestUtil.convertToParamsString(values), CHARSET);
+        }
+    }
+
+    /**
+     * hiddenタグの値をバイト列に変換して出力する。
+     * <p/>
+     * 出力先のストリームはクローズしない。
+     * @param values hiddenタグの値
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    void serialize(Map<String, List<String>> values, OutputStream out) throws IOException {
+        switch (this) {
+        case COMPACT:
+            CompactHiddenValues.serialize(values, false, out);
+            break;
+        case COMPACT_DEFLATE:
+            CompactHiddenValues.serialize(values, true, out);
+            break;
+        default:
+            OutputStreamWriter writer = new OutputStreamWriter(out, CHARSET);
+            writer.write(WebRequestUtil.convertToParamsString(values));
+            writer.flush();
+            break;
+        }
+    }
+
+    /**
+     * バイト列の先頭から形式を判定し、hiddenタグの値に変換する。
+     * @param bytes バイト列
+     * @return hiddenタグの値
+     * @throws TamperingDetectedException バイト列が不正な場合
+     */
+    static Map<String, List<String>> deserialize(byte[] bytes) throws TamperingDetectedException {
+        if (CompactHiddenValues.isCompact(bytes)) {
+            return CompactHiddenValues.deserialize(bytes);
+        }
+        return WebRequestUtil.convertToParamsMap(StringUtil.toString(bytes, CHARSET));
+    }
+}
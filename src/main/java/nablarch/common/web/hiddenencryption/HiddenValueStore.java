@@ -0,0 +1,42 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.core.util.annotation.Published;
+import nablarch.fw.ExecutionContext;
+
+/**
+ * hiddenタグの値をサーバ側で保持するインタフェース。
+ * <p/>
+ * hiddenタグの値を暗号化して画面に出力する代わりに、サーバ側で保持し、
+ * 画面には保持した値を識別するトークンのみを出力する。
+ * リクエスト時はトークンに対応する値を取得するため、暗号化と復号が不要となり、リクエストとレスポンスのサイズも削減できる。
+ * <p/>
+ * 実装クラスはスレッドセーフにすること。
+ * トークンは推測できない値とし、他のセッションで保持した値を取得できないようにすること。
+ */
+@Published(tag = "architect")
+public interface HiddenValueStore {
+
+    /**
+     * hiddenタグの値を保持する。
+     * @param pageContext ページコンテキスト
+     * @param values hiddenタグの値(リクエストID文字列を含む)
+     * @return 保持した値を識別するトークン
+     */
+    String save(PageContext pageContext, Map<String, List<String>> values);
+
+    /**
+     * トークンに対応するhiddenタグの値を取得する。
+     * <p/>
+     * 呼び出し元で取得した値を変更するため、保持している値の複製を返すこと。
+     * @param context {@link ExecutionContext}
+     * @param token トークン
+     * @return hiddenタグの値(リクエストID文字列を含む)。
+     *          保持していない場合(有効期限切れ、追い出し済み、他のセッションで保持した値を含む)はnull
+     */
+    Map<String, List<String>> load(ExecutionContext context, String token);
+}
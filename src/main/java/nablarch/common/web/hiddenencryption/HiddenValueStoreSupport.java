@@ -0,0 +1,128 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nablarch.core.util.Base64Util;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * {@link HiddenValueStore}の実装をサポートするクラス。
+ * <p/>
+ * トークンの生成と値の複製、保持状況の統計情報を提供する。
+ * 統計情報は、ストアのインスタンスごとに集計する。
+ */
+@Published(tag = "architect")
+public abstract class HiddenValueStoreSupport implements HiddenValueStore {
+
+    /** トークンのバイトサイズ */
+    private static final int TOKEN_BYTE_LENGTH = 18;
+
+    /** トークンの生成に使用する乱数生成器 */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** 保持した回数 */
+    private final AtomicLong saveCount = new AtomicLong();
+
+    /** 値を取得できた回数 */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /** 値を取得できなかった回数 */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /** 上限に達したため追い出した回数 */
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /** 有効期限切れのため破棄した回数 */
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    /**
+     * 推測できないトークンを生成する。
+     * @return トークン
+     */
+    protected String generateToken() {
+        byte[] bytes = new byte[TOKEN_BYTE_LENGTH];
+        RANDOM.nextBytes(bytes);
+        return Base64Util.encode(bytes);
+    }
+
+    /**
+     * hiddenタグの値を複製する。
+     * @param values hiddenタグの値
+     * @return 複製した値
+     */
+    protected static HashMap<String, List<String>> copy(Map<String, List<String>> values) {
+        HashMap<String, List<String>> copied = new HashMap<String, List<String>>(values.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            copied.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+        }
+        return copied;
+    }
+
+    /** 値を保持したことを記録する。 */
+    protected void recordSave() {
+        saveCount.incrementAndGet();
+    }
+
+    /**
+     * 値の取得結果を記録する。
+     * @param hit 値を取得できた場合はtrue
+     */
+    protected void recordLoad(boolean hit) {
+        (hit ? hitCount : missCount).incrementAndGet();
+    }
+
+    /** 上限に達したため値を追い出したことを記録する。 */
+    protected void recordEviction() {
+        evictionCount.incrementAndGet();
+    }
+
+    /** 有効期限切れのため値を破棄したことを記録する。 */
+    protected void recordExpiration() {
+        expirationCount.incrementAndGet();
+    }
+
+    /**
+     * 保持した回数を取得する。
+     * @return 保持した回数
+     */
+    public long getSaveCount() {
+        return saveCount.get();
+    }
+
+    /**
+     * 値を取得できた回数を取得する。
+     * @return 値を取得できた回数
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 値を取得できなかった回数を取得する。
+     * @return 値を取得できなかった回数
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 上限に達したため値を追い出した回数を取得する。
+     * @return 追い出した回数
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * 有効期限切れのため値を破棄した回数を取得する。
+     * @return 破棄した回数
+     */
+    public long getExpirationCount() {
+        return expirationCount.get();
+    }
+}
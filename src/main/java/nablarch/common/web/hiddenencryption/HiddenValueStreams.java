@@ -0,0 +1,213 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * hiddenタグの値をストリームで変換する際に使用するユーティリティ。
+ */
+final class HiddenValueStreams {
+
+    /** 読み込みに使用するバッファのバイトサイズ */
+    static final int BUFFER_SIZE = 4096;
+
+    /** 隠蔽コンストラクタ */
+    private HiddenValueStreams() {
+    }
+
+    /**
+     * 指定されたバイト数を読み込む。
+     * @param in 入力ストリーム
+     * @param length バイト数
+     * @return 読み込んだバイト列。指定されたバイト数に満たない場合はnull
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read == -1) {
+                return null;
+            }
+            offset += read;
+        }
+        return bytes;
+    }
+
+    /**
+     * 残りの全てのバイトを読み込む。
+     * @param in 入力ストリーム
+     * @return 読み込んだ結果を保持する{@link Buffer}
+     * @throws IOException 読み込みに失敗した場合
+     */
+    static Buffer readAll(InputStream in) throws IOException {
+        Buffer buffer = new Buffer();
+        byte[] chunk = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+        }
+        return buffer;
+    }
+
+    /**
+     * 内部のバイト列を参照できる{@link ByteArrayOutputStream}。
+     * <p/>
+     * 読み込んだ結果の一部のみを使用する場合に、全体をコピーせずに参照するために使用する。
+     */
+    static final class Buffer extends ByteArrayOutputStream {
+
+        /**
+         * コンストラクタ。
+         */
+        Buffer() {
+            super(BUFFER_SIZE);
+        }
+
+        /**
+         * 内部のバイト列を取得する。
+         * <p/>
+         * 有効なバイト数は{@link #size()}で取得する。
+         * @return 内部のバイト列
+         */
+        byte[] array() {
+            return buf;
+        }
+
+        /**
+         * 先頭から指定されたバイト数をコピーする。
+         * @param length バイト数
+         * @return コピーしたバイト列
+         */
+        byte[] copyOf(int length) {
+            return Arrays.copyOf(buf, length);
+        }
+    }
+
+    /**
+     * ASCII文字のみで構成されるバイト列を、{@link Writer}に文字として出力する{@link OutputStream}。
+     * <p/>
+     * BASE64でエンコードした結果を{@link jakarta.servlet.jsp.JspWriter}に直接出力するために使用する。
+     * クローズしても、出力先の{@link Writer}はクローズしない。
+     */
+    static final class AsciiWriterOutputStream extends OutputStream {
+
+        /** 出力先 */
+        private final Writer out;
+
+        /** 文字への変換に使用するバッファ */
+        private final char[] chars = new char[BUFFER_SIZE];
+
+        /** 出力した文字数 */
+        private int count;
+
+        /**
+         * コンストラクタ。
+         * @param out 出力先
+         */
+        AsciiWriterOutputStream(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b & 0x7F);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int size = Math.min(len, chars.length);
+                for (int i = 0; i < size; i++) {
+                    chars[i] = (char) (b[off + i] & 0x7F);
+                }
+                out.write(chars, 0, size);
+                count += size;
+                off += size;
+                len -= size;
+            }
+        }
+
+        @Override
+        public void close() {
+            // 出力先はJSPが管理するため、クローズしない。
+        }
+
+        /**
+         * 出力した文字数を取得する。
+         * @return 出力した文字数
+         */
+        int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * 文字列の指定された位置以降のASCII文字を、バイトとして読み込む{@link InputStream}。
+     * <p/>
+     * hiddenタグの値から、BASE64の部分をコピーせずに読み込むために使用する。
+     */
+    static final class AsciiStringInputStream extends InputStream {
+
+        /** 文字列 */
+        private final String str;
+
+        /** 読み込み位置 */
+        private int position;
+
+        /**
+         * コンストラクタ。
+         * @param str 文字列
+         * @param position 読み込みを開始する位置
+         */
+        AsciiStringInputStream(String str, int position) {
+            this.str = str;
+            this.position = position;
+        }
+
+        @Override
+        public int read() {
+            if (position >= str.length()) {
+                return -1;
+            }
+            return toByte(str.charAt(position++));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            int size = Math.min(len, str.length() - position);
+            if (size <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < size; i++) {
+                b[off + i] = (byte) toByte(str.charAt(position++));
+            }
+            return size;
+        }
+
+        @Override
+        public int available() {
+            return str.length() - position;
+        }
+
+        /**
+         * 文字をバイトに変換する。
+         * <p/>
+         * ASCII以外の文字はBASE64として不正な文字に変換し、デコード時にエラーとする。
+         * @param c 文字
+         * @return バイト
+         */
+        private static int toByte(char c) {
+            return c < 0x80 ? c : '?';
+        }
+    }
+}
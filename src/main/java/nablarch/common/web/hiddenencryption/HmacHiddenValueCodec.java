@@ -0,0 +1,189 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * HMAC-SHA256を使用してhiddenタグの値の改竄検知のみを行う{@link HiddenValueCodec}。
+ * <p/>
+ * hiddenタグの値は暗号化しないため、画面のソースからhiddenタグの値を参照できる。
+ * 秘匿する必要はないが、改竄を検知する必要がある場合に使用する。
+ * 変換した結果は、hiddenタグの値を連結したバイト列とMAC(32バイト)を連結したバイト列となる。
+ * 鍵で初期化した{@link Mac}はスレッドごとに鍵単位で保持し、鍵の初期化を鍵ごとに1回に抑える。
+ * <p/>
+ * ストリームで変換する場合は、書き込んだバイト列をそのまま出力しながらMACを計算する。
+ */
+@Published(tag = "architect")
+public class HmacHiddenValueCodec implements StreamingHiddenValueCodec {
+
+    /** 形式ID */
+    private static final String FORMAT_ID = "hmac";
+
+    /** MACのアルゴリズム */
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    /** 鍵のバイトサイズ */
+    private static final int KEY_BYTE_LENGTH = 32;
+
+    /** MACのバイトサイズ */
+    private static final int MAC_BYTE_LENGTH = 32;
+
+    /** 鍵の生成に使用する乱数生成器 */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** スレッドごとに鍵単位でキャッシュする、鍵で初期化済みの{@link Mac} */
+    private static final KeyScheduleCache<Mac> MACS = new KeyScheduleCache<Mac>() {
+        @Override
+        protected Mac create(SecretKey key) throws GeneralSecurityException {
+            Mac mac;
+            try {
+                mac = Mac.getInstance(MAC_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Mac initialization failed. algorithm = [" + MAC_ALGORITHM + "]", e);
+            }
+            mac.init(key);
+            return mac;
+        }
+    };
+
+    /** {@inheritDoc} */
+    public String getFormatId() {
+        return FORMAT_ID;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 256ビットのHMACの鍵を生成する。
+     */
+    public Serializable generateContext() {
+        byte[] key = new byte[KEY_BYTE_LENGTH];
+        RANDOM.nextBytes(key);
+        return new SecretKeySpec(key, MAC_ALGORITHM);
+    }
+
+    /** {@inheritDoc} */
+    public byte[] encode(Serializable context, byte[] payload) {
+        byte[] encoded = Arrays.copyOf(payload, payload.length + MAC_BYTE_LENGTH);
+        try {
+            Mac mac = initMac(context);
+            mac.update(payload);
+            mac.doFinal(encoded, payload.length);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(String.format("MAC generation failed. algorithm = [%s]", MAC_ALGORITHM), e);
+        }
+        return encoded;
+    }
+
+    /** {@inheritDoc} */
+    public byte[] decode(Serializable context, byte[] encoded) throws TamperingDetectedException {
+        int payloadLength = encoded.length - MAC_BYTE_LENGTH;
+        if (payloadLength < 0) {
+            throw new TamperingDetectedException("mac was invalid.");
+        }
+        byte[] expected;
+        try {
+            Mac mac = initMac(context);
+            mac.update(encoded, 0, payloadLength);
+            expected = mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(String.format("MAC generation failed. algorithm = [%s]", MAC_ALGORITHM), e);
+        }
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(encoded, payloadLength, encoded.length))) {
+            throw new TamperingDetectedException("mac was invalid.");
+        }
+        return Arrays.copyOf(encoded, payloadLength);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 書き込んだバイト列をそのまま出力し、クローズ時にMACを出力する。
+     */
+    public OutputStream encodingStream(Serializable context, OutputStream out) {
+        final Mac mac;
+        try {
+            mac = initMac(context);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(String.format("MAC generation failed. algorithm = [%s]", MAC_ALGORITHM), e);
+        }
+        return new FilterOutputStream(out) {
+            /** クローズ済みか否か */
+            private boolean closed;
+            @Override
+            public void write(int b) throws IOException {
+                mac.update((byte) b);
+                out.write(b);
+            }
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                mac.update(b, off, len);
+                out.write(b, off, len);
+            }
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                out.write(mac.doFinal());
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * MACは末尾に位置するため、全てのバイト列を読み込んでから検証する。
+     */
+    public byte[] decode(Serializable context, InputStream in) throws TamperingDetectedException, IOException {
+        HiddenValueStreams.Buffer encoded = HiddenValueStreams.readAll(in);
+        int payloadLength = encoded.size() - MAC_BYTE_LENGTH;
+        if (payloadLength < 0) {
+            throw new TamperingDetectedException("mac was invalid.");
+        }
+        byte[] bytes = encoded.array();
+        byte[] expected;
+        try {
+            Mac mac = initMac(context);
+            mac.update(bytes, 0, payloadLength);
+            expected = mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(String.format("MAC generation failed. algorithm = [%s]", MAC_ALGORITHM), e);
+        }
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(bytes, payloadLength, encoded.size()))) {
+            throw new TamperingDetectedException("mac was invalid.");
+        }
+        return encoded.copyOf(payloadLength);
+    }
+
+    /**
+     * 鍵で初期化済みの{@link Mac}を取得する。
+     * <p/>
+     * {@link Mac}は初期化した状態に戻して返すため、鍵の再設定は行わない。
+     * @param context コンテキスト情報
+     * @return 初期化済みの{@link Mac}
+     * @throws GeneralSecurityException 初期化に失敗した場合
+     */
+    private static Mac initMac(Serializable context) throws GeneralSecurityException {
+        if (!(context instanceof SecretKey)) {
+            throw new IllegalArgumentException("context must be SecretKey. context = [" + context + "]");
+        }
+        Mac mac = MACS.get((SecretKey) context);
+        mac.reset();
+        return mac;
+    }
+}
@@ -0,0 +1,106 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.Serializable;
+
+/**
+ * {@link KeyRotatingHiddenValueCodec}がセッションに保持する、バージョン付きのコンテキスト情報の集合。
+ * <p/>
+ * 新しいものから順に、有効なコンテキスト情報を保持する。
+ * セッションで共有するため、変更せずにローテーションのたびに新しいインスタンスを生成する。
+ */
+final class KeyRing implements Serializable {
+
+    /** シリアルバージョンUID */
+    private static final long serialVersionUID = 1L;
+
+    /** バージョンの上限(バージョンは1バイトで出力する) */
+    static final int MAX_VERSION = 0xFF;
+
+    /** バージョン(新しいものから順) */
+    private final int[] versions;
+
+    /** コンテキスト情報(新しいものから順) */
+    private final Serializable[] contexts;
+
+    /** 最新のコンテキスト情報を生成した時刻(ミリ秒) */
+    private final long createdAt;
+
+    /**
+     * コンストラクタ。
+     * @param context 最初のコンテキスト情報
+     * @param createdAt コンテキスト情報を生成した時刻(ミリ秒)
+     */
+    KeyRing(Serializable context, long createdAt) {
+        this(new int[] {0}, new Serializable[] {context}, createdAt);
+    }
+
+    /**
+     * コンストラクタ。
+     * @param versions バージョン(新しいものから順)
+     * @param contexts コンテキスト情報(新しいものから順)
+     * @param createdAt 最新のコンテキスト情報を生成した時刻(ミリ秒)
+     */
+    private KeyRing(int[] versions, Serializable[] contexts, long createdAt) {
+        this.versions = versions;
+        this.contexts = contexts;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * 最新のバージョンを取得する。
+     * @return 最新のバージョン
+     */
+    int getCurrentVersion() {
+        return versions[0];
+    }
+
+    /**
+     * 最新のコンテキスト情報を取得する。
+     * @return 最新のコンテキスト情報
+     */
+    Serializable getCurrentContext() {
+        return contexts[0];
+    }
+
+    /**
+     * 最新のコンテキスト情報を生成した時刻を取得する。
+     * @return 生成した時刻(ミリ秒)
+     */
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * バージョンに対応するコンテキスト情報を取得する。
+     * @param version バージョン
+     * @return コンテキスト情報。有効なコンテキスト情報が存在しない場合はnull
+     */
+    Serializable getContext(int version) {
+        for (int i = 0; i < versions.length; i++) {
+            if (versions[i] == version) {
+                return contexts[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 新しいコンテキスト情報を追加したインスタンスを生成する。
+     * <p/>
+     * 保持する数が上限を超える場合は、最も古いコンテキスト情報を破棄する。
+     * @param context 新しいコンテキスト情報
+     * @param now 現在時刻(ミリ秒)
+     * @param maxSize 保持するコンテキスト情報の上限数
+     * @return 新しいインスタンス
+     */
+    KeyRing rotate(Serializable context, long now, int maxSize) {
+        int size = Math.min(versions.length + 1, maxSize);
+        int[] newVersions = new int[size];
+        Serializable[] newContexts = new Serializable[size];
+        newVersions[0] = (versions[0] + 1) & MAX_VERSION;
+        newContexts[0] = context;
+        System.arraycopy(versions, 0, newVersions, 1, size - 1);
+        System.arraycopy(contexts, 0, newContexts, 1, size - 1);
+        return new KeyRing(newVersions, newContexts, now);
+    }
+}
@@ -0,0 +1,197 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 鍵を定期的にローテーションする{@link HiddenValueCodec}。
+ * <p/>
+ * セッションごとに、バージョン付きの鍵(委譲先の{@link HiddenValueCodec}のコンテキスト情報)を一定数保持する。
+ * 暗号化は最新の鍵で行い、ローテーション間隔を過ぎた場合は新しい鍵を生成する。
+ * 保持する数を超えた古い鍵は破棄するため、長時間継続するセッションでも同じ鍵を使い続けない。
+ * <p/>
+ * 変換した結果は、鍵のバージョン(1バイト)と委譲先の{@link HiddenValueCodec}で変換したバイト列を連結したバイト列となる。
+ * 復号はバージョンに対応する鍵で行うため、ローテーション前に出力した画面からのリクエストも、鍵を破棄するまでは復号できる。
+ * 破棄した鍵で暗号化した値は、セッションの有効期限切れとして扱う。
+ * <p/>
+ * 形式IDは、委譲先の{@link HiddenValueCodec}の形式IDに"-r"を付与した値となる。
+ * <p/>
+ * ストリームで変換する場合は、委譲先が{@link StreamingHiddenValueCodec}であればストリームのまま委譲し、
+ * そうでなければバイト列に変換してから委譲する。
+ */
+@Published(tag = "architect")
+public class KeyRotatingHiddenValueCodec implements StreamingHiddenValueCodec {
+
+    /** 委譲先の{@link HiddenValueCodec} */
+    private HiddenValueCodec codec = new AesGcmHiddenValueCodec();
+
+    /** ローテーション間隔(ミリ秒) */
+    private long rotationIntervalMillis = 60L * 60L * 1000L;
+
+    /** セッションごとに保持する鍵の数 */
+    private int activeKeyCount = 3;
+
+    /**
+     * 委譲先の{@link HiddenValueCodec}を設定する。
+     * <p/>
+     * デフォルトは{@link AesGcmHiddenValueCodec}。
+     * @param codec 委譲先の{@link HiddenValueCodec}
+     */
+    public void setCodec(HiddenValueCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * ローテーション間隔(秒)を設定する。
+     * <p/>
+     * デフォルトは3600秒(1時間)。
+     * @param rotationIntervalSeconds ローテーション間隔(秒)
+     */
+    public void setRotationIntervalSeconds(long rotationIntervalSeconds) {
+        if (rotationIntervalSeconds <= 0) {
+            throw new IllegalArgumentException(
+                    "rotationIntervalSeconds must be greater than 0. rotationIntervalSeconds = [" + rotationIntervalSeconds + "]");
+        }
+        this.rotationIntervalMillis = rotationIntervalSeconds * 1000L;
+    }
+
+    /**
+     * セッションごとに保持する鍵の数を設定する。
+     * <p/>
+     * 画面を表示してからサブミットするまでの時間が、ローテーション間隔×(保持する鍵の数-1)を超えない値を指定すること。
+     * 1から255の範囲で指定する。デフォルトは3。
+     * @param activeKeyCount セッションごとに保持する鍵の数
+     */
+    public void setActiveKeyCount(int activeKeyCount) {
+        if (activeKeyCount < 1 || activeKeyCount > KeyRing.MAX_VERSION) {
+            throw new IllegalArgumentException(
+                    "activeKeyCount must be between 1 and " + KeyRing.MAX_VERSION + ". activeKeyCount = [" + activeKeyCount + "]");
+        }
+        this.activeKeyCount = activeKeyCount;
+    }
+
+    /** {@inheritDoc} */
+    public String getFormatId() {
+        return codec.getFormatId() + "-r";
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * 委譲先の{@link HiddenValueCodec}で生成した鍵のみを保持するコンテキスト情報を生成する。
+     */
+    public Serializable generateContext() {
+        return new KeyRing(codec.generateContext(), currentTimeMillis());
+    }
+
+    /** {@inheritDoc} */
+    public byte[] encode(Serializable context, byte[] payload) {
+        KeyRing keyRing = toKeyRing(context);
+        byte[] encoded = codec.encode(keyRing.getCurrentContext(), payload);
+        byte[] versioned = new byte[encoded.length + 1];
+        versioned[0] = (byte) keyRing.getCurrentVersion();
+        System.arraycopy(encoded, 0, versioned, 1, encoded.length);
+        return versioned;
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws KeyEncryptionContextNotFoundException バージョンに対応する鍵を破棄済みの場合
+     */
+    public byte[] decode(Serializable context, byte[] encoded) throws TamperingDetectedException {
+        if (encoded.length == 0) {
+            throw new TamperingDetectedException("key version was not found.");
+        }
+        int version = encoded[0] & KeyRing.MAX_VERSION;
+        Serializable versionContext = toKeyRing(context).getContext(version);
+        if (versionContext == null) {
+            throw new KeyEncryptionContextNotFoundException("key version was expired. version = [" + version + "]");
+        }
+        return codec.decode(versionContext, Arrays.copyOfRange(encoded, 1, encoded.length));
+    }
+
+    /** {@inheritDoc} */
+    public OutputStream encodingStream(Serializable context, final OutputStream out) throws IOException {
+        KeyRing keyRing = toKeyRing(context);
+        out.write(keyRing.getCurrentVersion());
+        final Serializable currentContext = keyRing.getCurrentContext();
+        if (codec instanceof StreamingHiddenValueCodec) {
+            return ((StreamingHiddenValueCodec) codec).encodingStream(currentContext, out);
+        }
+        return new ByteArrayOutputStream() {
+            /** クローズ済みか否か */
+            private boolean closed;
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                out.write(codec.encode(currentContext, toByteArray()));
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws KeyEncryptionContextNotFoundException バージョンに対応する鍵を破棄済みの場合
+     */
+    public byte[] decode(Serializable context, InputStream in) throws TamperingDetectedException, IOException {
+        int version = in.read();
+        if (version == -1) {
+            throw new TamperingDetectedException("key version was not found.");
+        }
+        Serializable versionContext = toKeyRing(context).getContext(version);
+        if (versionContext == null) {
+            throw new KeyEncryptionContextNotFoundException("key version was expired. version = [" + version + "]");
+        }
+        if (codec instanceof StreamingHiddenValueCodec) {
+            return ((StreamingHiddenValueCodec) codec).decode(versionContext, in);
+        }
+        return codec.decode(versionContext, HiddenValueStreams.readAll(in).toByteArray());
+    }
+
+    /**
+     * ローテーションが必要か否かを判定する。
+     * @param context コンテキスト情報
+     * @return ローテーション間隔を過ぎている場合はtrue
+     */
+    boolean needsRotation(Serializable context) {
+        return currentTimeMillis() - toKeyRing(context).getCreatedAt() >= rotationIntervalMillis;
+    }
+
+    /**
+     * 新しい鍵を生成し、ローテーションしたコンテキスト情報を生成する。
+     * @param context コンテキスト情報
+     * @return ローテーションしたコンテキスト情報
+     */
+    Serializable rotate(Serializable context) {
+        return toKeyRing(context).rotate(codec.generateContext(), currentTimeMillis(), activeKeyCount);
+    }
+
+    /**
+     * 現在時刻(ミリ秒)を取得する。
+     * @return 現在時刻
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * コンテキスト情報を{@link KeyRing}に変換する。
+     * @param context コンテキスト情報
+     * @return {@link KeyRing}
+     */
+    private static KeyRing toKeyRing(Serializable context) {
+        if (!(context instanceof KeyRing)) {
+            throw new IllegalArgumentException("context must be KeyRing. context = [" + context + "]");
+        }
+        return (KeyRing) context;
+    }
+}
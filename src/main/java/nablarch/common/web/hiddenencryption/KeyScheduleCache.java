@@ -0,0 +1,61 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+
+/**
+ * 鍵で初期化した暗号オブジェクト({@link javax.crypto.Cipher}や{@link javax.crypto.Mac})を、スレッドごとに鍵単位でキャッシュするクラス。
+ * <p/>
+ * 暗号オブジェクトを鍵ごとに使い分けることで、鍵スケジュールの計算(AESのラウンド鍵の展開やHMACの内部状態の計算)を
+ * 鍵ごとに1回に抑える。
+ * キャッシュする鍵の数はスレッドごとに上限を設け、上限を超えた場合は最近使用していない鍵から破棄する。
+ * @param <T> 暗号オブジェクトの型
+ */
+abstract class KeyScheduleCache<T> {
+
+    /** スレッドごとにキャッシュする鍵の上限数 */
+    private static final int MAX_KEYS_PER_THREAD = 16;
+
+    /** スレッドごとのキャッシュ */
+    private final ThreadLocal<Map<SecretKey, T>> cache = new ThreadLocal<Map<SecretKey, T>>() {
+        @Override
+        protected Map<SecretKey, T> initialValue() {
+            return new LinkedHashMap<SecretKey, T>(MAX_KEYS_PER_THREAD * 2, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<SecretKey, T> eldest) {
+                    return size() > MAX_KEYS_PER_THREAD;
+                }
+            };
+        }
+    };
+
+    /**
+     * 鍵に対応する暗号オブジェクトを取得する。
+     * <p/>
+     * キャッシュに存在しない場合は、{@link #create(SecretKey)}で生成してキャッシュする。
+     * @param key 鍵
+     * @return 暗号オブジェクト
+     * @throws GeneralSecurityException 暗号オブジェクトの生成に失敗した場合
+     */
+    T get(SecretKey key) throws GeneralSecurityException {
+        Map<SecretKey, T> schedules = cache.get();
+        T schedule = schedules.get(key);
+        if (schedule == null) {
+            schedule = create(key);
+            schedules.put(key, schedule);
+        }
+        return schedule;
+    }
+
+    /**
+     * 鍵に対応する暗号オブジェクトを生成する。
+     * @param key 鍵
+     * @return 暗号オブジェクト
+     * @throws GeneralSecurityException 暗号オブジェクトの生成に失敗した場合
+     */
+    protected abstract T create(SecretKey key) throws GeneralSecurityException;
+}
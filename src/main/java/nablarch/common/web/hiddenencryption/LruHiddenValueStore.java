@@ -0,0 +1,249 @@
+package nablarch.common.web.hiddenencryption;
+
+import static nablarch.fw.ExecutionContext.FW_PREFIX;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.core.util.annotation.Published;
+import nablarch.fw.ExecutionContext;
+
+/**
+ * hiddenタグの値をアプリケーションサーバのメモリに保持する{@link HiddenValueStore}。
+ * <p/>
+ * 全てのセッションで共有する領域に、最近使用した順に上限数までの値を保持し、上限を超えた場合は最も古い値を追い出す。
+ * また、有効期限を過ぎた値は破棄する。
+ * <p/>
+ * 1つのセッションが大量に値を保持して他のセッションの値を追い出さないように、
+ * セッションごとにも保持する値の上限数を設け、上限を超えた場合はそのセッションで最も古く保持した値を追い出す。
+ * 全体の上限数は、同時に利用するセッション数とセッションごとの上限数の積を目安に指定すること。
+ * セッションには値を保持した際に生成した所有者のIDのみを格納し、他のセッションで保持した値は取得できない。
+ * <p/>
+ * 値はアプリケーションサーバごとに保持するため、複数のアプリケーションサーバで構成する場合は、
+ * 同じセッションのリクエストを同じアプリケーションサーバに振り分けること(スティッキーセッション)。
+ * アプリケーションサーバを再起動した場合や、追い出された画面、有効期限が切れた画面からのリクエストは、
+ * セッションの有効期限切れとして扱う。
+ */
+@Published(tag = "architect")
+public class LruHiddenValueStore extends HiddenValueStoreSupport {
+
+    /**
+     * 所有者のIDをセッションに格納する際に使用するキー。
+     * セッション管理機能の論理区分の最上位階層に設定する。
+     */
+    private static final String KEY_OWNER_ID = "/" + FW_PREFIX + "hiddenValueStoreOwner";
+
+    /** 保持する値の上限数 */
+    private int maxSize = 10000;
+
+    /** セッションごとに保持する値の上限数 */
+    private int maxEntriesPerOwner = 32;
+
+    /** 値の有効期限(ミリ秒) */
+    private long expiryMillis = 30L * 60L * 1000L;
+
+    /** 保持している値(最近使用した順) */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    /** 所有者ごとに保持している値のトークン(保持した順) */
+    private final Map<String, LinkedHashSet<String>> ownerTokens = new HashMap<String, LinkedHashSet<String>>();
+
+    /**
+     * 保持する値の上限数を設定する。
+     * <p/>
+     * 全てのセッションで共有する上限数のため、同時に利用するセッション数に
+     * {@link #setMaxEntriesPerOwner(int)}で指定したセッションごとの上限数を掛けた値を目安に指定すること。
+     * 上限数が小さい場合は、他のセッションが保持した値によって画面の値が追い出され、
+     * セッションの有効期限切れとして扱われる。
+     * デフォルトは10000。
+     * @param maxSize 保持する値の上限数
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0. maxSize = [" + maxSize + "]");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * セッションごとに保持する値の上限数を設定する。
+     * <p/>
+     * 1画面に複数のフォームがある場合は、フォームごとに値を保持する。
+     * 上限を超えると、画面に表示中のフォームの値であってもそのセッションで最も古く保持した値から追い出され、
+     * 追い出された値のフォームをサブミットしたリクエストは、セッションの有効期限切れとなる。
+     * 1画面に配置するフォームの数と、複数の画面(タブ)を並行して操作する場合を考慮して指定すること。
+     * デフォルトは32。
+     * @param maxEntriesPerOwner セッションごとに保持する値の上限数
+     */
+    public void setMaxEntriesPerOwner(int maxEntriesPerOwner) {
+        if (maxEntriesPerOwner <= 0) {
+            throw new IllegalArgumentException(
+                    "maxEntriesPerOwner must be greater than 0. maxEntriesPerOwner = [" + maxEntriesPerOwner + "]");
+        }
+        this.maxEntriesPerOwner = maxEntriesPerOwner;
+    }
+
+    /**
+     * 値の有効期限(秒)を設定する。
+     * <p/>
+     * セッションの有効期限と同じか、それより長い値を指定すること。
+     * デフォルトは1800秒(30分)。
+     * @param expirySeconds 値の有効期限(秒)
+     */
+    public void setExpirySeconds(long expirySeconds) {
+        if (expirySeconds <= 0) {
+            throw new IllegalArgumentException("expirySeconds must be greater than 0. expirySeconds = [" + expirySeconds + "]");
+        }
+        this.expiryMillis = expirySeconds * 1000L;
+    }
+
+    /**
+     * 保持している値の数を取得する。
+     * @return 保持している値の数
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** {@inheritDoc} */
+    public String save(PageContext pageContext, Map<String, List<String>> values) {
+        String ownerId = (String) pageContext.getAttribute(KEY_OWNER_ID, PageContext.SESSION_SCOPE);
+        if (ownerId == null) {
+            ownerId = generateToken();
+            pageContext.setAttribute(KEY_OWNER_ID, ownerId, PageContext.SESSION_SCOPE);
+        }
+        String token = generateToken();
+        Entry entry = new Entry(ownerId, copy(values), currentTimeMillis() + expiryMillis);
+        synchronized (entries) {
+            entries.put(token, entry);
+            addOwnerToken(ownerId, token);
+            removeExpiredAndEldest();
+        }
+        recordSave();
+        return token;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, List<String>> load(ExecutionContext context, String token) {
+        String ownerId = context.getSessionScopedVar(KEY_OWNER_ID);
+        Entry entry = null;
+        if (ownerId != null) {
+            synchronized (entries) {
+                entry = entries.get(token);
+                if (entry != null && entry.expiry <= currentTimeMillis()) {
+                    entries.remove(token);
+                    removeOwnerToken(entry.ownerId, token);
+                    recordExpiration();
+                    entry = null;
+                }
+            }
+        }
+        boolean hit = entry != null && entry.ownerId.equals(ownerId);
+        recordLoad(hit);
+        return hit ? copy(entry.values) : null;
+    }
+
+    /**
+     * 現在時刻(ミリ秒)を取得する。
+     * @return 現在時刻
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * 所有者が保持している値のトークンを追加する。
+     * <p/>
+     * 所有者ごとの上限数を超えた場合は、所有者が最も古く保持した値を破棄する。
+     * @param ownerId 所有者のID
+     * @param token トークン
+     */
+    private void addOwnerToken(String ownerId, String token) {
+        LinkedHashSet<String> tokens = ownerTokens.get(ownerId);
+        if (tokens == null) {
+            tokens = new LinkedHashSet<String>();
+            ownerTokens.put(ownerId, tokens);
+        }
+        tokens.add(token);
+        Iterator<String> it = tokens.iterator();
+        while (tokens.size() > maxEntriesPerOwner) {
+            entries.remove(it.next());
+            it.remove();
+            recordEviction();
+        }
+    }
+
+    /**
+     * 所有者が保持している値のトークンを削除する。
+     * @param ownerId 所有者のID
+     * @param token トークン
+     */
+    private void removeOwnerToken(String ownerId, String token) {
+        LinkedHashSet<String> tokens = ownerTokens.get(ownerId);
+        if (tokens != null) {
+            tokens.remove(token);
+            if (tokens.isEmpty()) {
+                ownerTokens.remove(ownerId);
+            }
+        }
+    }
+
+    /**
+     * 有効期限を過ぎた値と、上限数を超えた古い値を破棄する。
+     * <p/>
+     * 最近使用した順に先頭から走査し、有効期限内かつ上限数以内の値に到達した時点で終了する。
+     */
+    private void removeExpiredAndEldest() {
+        long now = currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            if (eldest.getValue().expiry <= now) {
+                it.remove();
+                removeOwnerToken(eldest.getValue().ownerId, eldest.getKey());
+                recordExpiration();
+            } else if (entries.size() > maxSize) {
+                it.remove();
+                removeOwnerToken(eldest.getValue().ownerId, eldest.getKey());
+                recordEviction();
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 保持している値。
+     */
+    private static final class Entry {
+
+        /** 所有者のID */
+        private final String ownerId;
+
+        /** hiddenタグの値 */
+        private final HashMap<String, List<String>> values;
+
+        /** 有効期限(ミリ秒) */
+        private final long expiry;
+
+        /**
+         * コンストラクタ。
+         * @param ownerId 所有者のID
+         * @param values hiddenタグの値
+         * @param expiry 有効期限(ミリ秒)
+         */
+        Entry(String ownerId, HashMap<String, List<String>> values, long expiry) {
+            this.ownerId = ownerId;
+            this.values = values;
+            this.expiry = expiry;
+        }
+    }
+}
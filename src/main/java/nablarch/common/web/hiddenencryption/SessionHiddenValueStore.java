@@ -0,0 +1,113 @@
+package nablarch.common.web.hiddenencryption;
+
+import static nablarch.fw.ExecutionContext.FW_PREFIX;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.core.util.annotation.Published;
+import nablarch.fw.ExecutionContext;
+
+/**
+ * hiddenタグの値をセッションに保持する{@link HiddenValueStore}。
+ * <p/>
+ * セッションごとに、最近使用した順に上限数までの値を保持し、上限を超えた場合は最も古い値を追い出す。
+ * 値はセッションに保持するため、セッションの有効期限とともに破棄される。
+ * 追い出された画面や、有効期限が切れた画面からのリクエストは、セッションの有効期限切れとして扱う。
+ * <p/>
+ * 保持している値を変更するたびにセッションに設定し直すため、
+ * セッションを複製又は永続化する構成でも、変更した内容が他のサーバに引き継がれる。
+ */
+@Published(tag = "architect")
+public class SessionHiddenValueStore extends HiddenValueStoreSupport {
+
+    /**
+     * 保持している値をセッションに格納する際に使用するキー。
+     * セッション管理機能の論理区分の最上位階層に設定する。
+     */
+    private static final String KEY_HIDDEN_VALUES = "/" + FW_PREFIX + "hiddenValueStore";
+
+    /** セッションごとに保持する値の上限数 */
+    private int maxEntriesPerSession = 1000;
+
+    /**
+     * セッションごとに保持する値の上限数を設定する。
+     * <p/>
+     * 1画面に複数のフォームがある場合は、フォームごとに値を保持する。
+     * 上限を超えると、画面に表示中のフォームの値であっても最近使用していない値から追い出され、
+     * 追い出された値のフォームをサブミットしたリクエストは、セッションの有効期限切れ
+     * ({@link nablarch.common.web.handler.NablarchTagHandler}のセッション切れ画面への遷移)となる。
+     * 1画面に配置するフォームの数と、複数の画面(タブ)を並行して操作する場合を考慮し、
+     * 利用者が操作し得る全てのフォームを保持できる値を指定すること。
+     * 値はセッションに保持するため、上限を大きくするとセッションのサイズも大きくなる。
+     * デフォルトは1000。
+     * @param maxEntriesPerSession セッションごとに保持する値の上限数
+     */
+    public void setMaxEntriesPerSession(int maxEntriesPerSession) {
+        if (maxEntriesPerSession <= 0) {
+            throw new IllegalArgumentException(
+                    "maxEntriesPerSession must be greater than 0. maxEntriesPerSession = [" + maxEntriesPerSession + "]");
+        }
+        this.maxEntriesPerSession = maxEntriesPerSession;
+    }
+
+    /** {@inheritDoc} */
+    public String save(PageContext pageContext, Map<String, List<String>> values) {
+        Entries entries = (Entries) pageContext.getAttribute(KEY_HIDDEN_VALUES, PageContext.SESSION_SCOPE);
+        if (entries == null) {
+            entries = new Entries();
+            pageContext.setAttribute(KEY_HIDDEN_VALUES, entries, PageContext.SESSION_SCOPE);
+        }
+        String token = generateToken();
+        synchronized (entries) {
+            entries.put(token, copy(values));
+            while (entries.size() > maxEntriesPerSession) {
+                entries.remove(entries.keySet().iterator().next());
+                recordEviction();
+            }
+        }
+        // セッションを複製又は永続化する構成で変更を反映させるため、設定し直す。
+        pageContext.setAttribute(KEY_HIDDEN_VALUES, entries, PageContext.SESSION_SCOPE);
+        recordSave();
+        return token;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, List<String>> load(ExecutionContext context, String token) {
+        Entries entries = context.getSessionScopedVar(KEY_HIDDEN_VALUES);
+        Map<String, List<String>> values = null;
+        if (entries != null) {
+            synchronized (entries) {
+                values = entries.get(token);
+                if (values != null) {
+                    values = copy(values);
+                }
+            }
+            if (values != null) {
+                // 最近使用した順が変わったため、設定し直す。
+                context.setSessionScopedVar(KEY_HIDDEN_VALUES, entries);
+            }
+        }
+        recordLoad(values != null);
+        return values;
+    }
+
+    /**
+     * セッションに保持する値(最近使用した順に保持する)。
+     */
+    private static final class Entries extends LinkedHashMap<String, HashMap<String, List<String>>> implements Serializable {
+
+        /** シリアルバージョンUID */
+        private static final long serialVersionUID = 1L;
+
+        /** コンストラクタ。 */
+        Entries() {
+            super(16, 0.75f, true);
+        }
+    }
+}
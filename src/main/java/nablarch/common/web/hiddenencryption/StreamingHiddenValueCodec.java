@@ -0,0 +1,46 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * ストリームで変換できる{@link HiddenValueCodec}。
+ * <p/>
+ * hiddenタグの値が大きい画面で、変換の途中でバイト列全体を保持せずに、
+ * 変換した結果をBASE64でエンコードしながらhiddenタグに直接出力するために使用する。
+ * ストリームで変換した結果は、{@link #encode(Serializable, byte[])}で変換した結果と同じ形式とすること。
+ * <p/>
+ * 実装クラスがスレッドごとに暗号オブジェクトを保持する場合は、
+ * 取得したストリームを取得したスレッドで使用し、クローズするまで同じスレッドで他の変換を行わないこと。
+ */
+@Published(tag = "architect")
+public interface StreamingHiddenValueCodec extends HiddenValueCodec {
+
+    /**
+     * hiddenタグの値を改竄検知できる形式に変換して出力するストリームを取得する。
+     * <p/>
+     * 返却したストリームをクローズした時点で変換を完了し、残りの結果を出力する。
+     * 返却したストリームをクローズしても、出力先のストリームはクローズしない。
+     * @param context コンテキスト情報
+     * @param out 変換した結果の出力先
+     * @return hiddenタグの値を連結したバイト列を書き込むストリーム
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    OutputStream encodingStream(Serializable context, OutputStream out) throws IOException;
+
+    /**
+     * ストリームから読み込んだ変換結果を検証し、hiddenタグの値を連結したバイト列に戻す。
+     * <p/>
+     * 検証が完了するまでは、hiddenタグの値を返却しない。
+     * @param context コンテキスト情報
+     * @param in 変換した結果を読み込むストリーム
+     * @return hiddenタグの値を連結したバイト列
+     * @throws TamperingDetectedException 改竄を検知した場合
+     * @throws IOException ストリームの読み込みに失敗した場合
+     */
+    byte[] decode(Serializable context, InputStream in) throws TamperingDetectedException, IOException;
+}
@@ -0,0 +1,97 @@
+package nablarch.common.web.hiddenencryption;
+
+import java.io.Serializable;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+
+import nablarch.common.encryption.AesEncryptor;
+import nablarch.common.encryption.AesEncryptor.AesContext;
+import nablarch.common.encryption.Encryptor;
+
+/**
+ * {@link AesEncryptor}と同じ暗号化と復号を、スレッドごとに保持した{@link Cipher}を使用して行うクラス。
+ * <p/>
+ * {@link AesEncryptor}は暗号化と復号のたびに{@link Cipher#getInstance(String)}でプロバイダを検索するため、
+ * hiddenタグの暗号化では、このクラスでスレッドごとに生成済みの{@link Cipher}を初期化し直して使用する。
+ * 暗号化の仕様(AES/CBC/PKCS5Padding)と、コンテキスト情報の生成は{@link AesEncryptor}と同じ。
+ */
+final class ThreadLocalAesEncryptor implements Encryptor<Serializable> {
+
+    /** 暗号化の変換方式({@link AesEncryptor}と同じ) */
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+    /** スレッドごとの{@link Cipher} */
+    private static final ThreadLocal<Cipher> CIPHER = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            try {
+                return Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                // AESは全てのJava実装で使用できるため到達不能
+                throw new IllegalStateException("Cipher initialization failed. transformation = [" + TRANSFORMATION + "]", e);
+            }
+        }
+    };
+
+    /** コンテキスト情報の生成に使用する{@link AesEncryptor} */
+    private final AesEncryptor encryptor;
+
+    /**
+     * コンストラクタ。
+     * @param encryptor コンテキスト情報の生成に使用する{@link AesEncryptor}
+     */
+    ThreadLocalAesEncryptor(AesEncryptor encryptor) {
+        this.encryptor = encryptor;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * {@link AesEncryptor#generateContext()}に処理を委譲する。
+     */
+    public Serializable generateContext() {
+        return encryptor.generateContext();
+    }
+
+    /** {@inheritDoc} */
+    public byte[] encrypt(Serializable context, byte[] src) throws IllegalArgumentException {
+        if (context == null || src == null) {
+            throw new IllegalArgumentException("context or src is null.");
+        }
+        try {
+            return doFinal(Cipher.ENCRYPT_MODE, (AesContext) context, src);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(
+                    String.format("encryption failed. transformation = [%s]", TRANSFORMATION), e);
+        }
+    }
+
+    /** {@inheritDoc} */
+    public byte[] decrypt(Serializable context, byte[] src) throws IllegalArgumentException {
+        if (context == null || src == null) {
+            throw new IllegalArgumentException("context or src is null.");
+        }
+        try {
+            return doFinal(Cipher.DECRYPT_MODE, (AesContext) context, src);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(
+                    String.format("decryption failed. transformation = [%s]", TRANSFORMATION), e);
+        }
+    }
+
+    /**
+     * スレッドごとの{@link Cipher}を初期化して、暗号化又は復号を行う。
+     * @param mode {@link Cipher#ENCRYPT_MODE}又は{@link Cipher#DECRYPT_MODE}
+     * @param context コンテキスト情報
+     * @param src 暗号化又は復号の対象
+     * @return 暗号化又は復号した結果
+     * @throws GeneralSecurityException 暗号化又は復号に失敗した場合
+     */
+    private static byte[] doFinal(int mode, AesContext context, byte[] src) throws GeneralSecurityException {
+        Cipher cipher = CIPHER.get();
+        cipher.init(mode, context.getKey(), new IvParameterSpec(context.getIv()));
+        return cipher.doFinal(src);
+    }
+}
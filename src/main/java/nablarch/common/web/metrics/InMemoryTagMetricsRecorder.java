@@ -0,0 +1,274 @@
+package nablarch.common.web.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 計測値をメモリ上のヒストグラムに集計する{@link TagMetricsRecorder}。
+ * <p/>
+ * 計測値の種類ごとに{@link Histogram}で集計する。カスタムタグの出力時間は、カスタムタグのクラスごとに集計する。
+ * 集計した結果は、管理画面や定期的に実行する処理から取得し、監視システムに送信することを想定している。
+ * 集計した結果は、{@link #reset()}を呼び出すまで保持する。
+ */
+@Published(tag = "architect")
+public class InMemoryTagMetricsRecorder implements TagMetricsRecorder {
+
+    /** カスタムタグのクラスごとの出力時間(ナノ秒) */
+    private final ConcurrentMap<Class<?>, Histogram> tagRenderTimes = new ConcurrentHashMap<Class<?>, Histogram>();
+
+    /** 暗号化したhiddenタグの値の長さ */
+    private volatile Histogram hiddenPayloadSizes = new Histogram();
+
+    /** hiddenタグの値の暗号化にかかった時間(ナノ秒) */
+    private volatile Histogram encryptionTimes = new Histogram();
+
+    /** hiddenタグの値の復号にかかった時間(ナノ秒) */
+    private volatile Histogram decryptionTimes = new Histogram();
+
+    /** 1リクエストで出力したフォームの数 */
+    private volatile Histogram formCounts = new Histogram();
+
+    /** 改竄を検知した回数 */
+    private final AtomicLong tamperingCount = new AtomicLong();
+
+    /** {@inheritDoc} */
+    public void recordTagRender(Class<?> tagClass, long nanos) {
+        Histogram histogram = tagRenderTimes.get(tagClass);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = tagRenderTimes.putIfAbsent(tagClass, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    /** {@inheritDoc} */
+    public void recordHiddenPayloadSize(int length) {
+        hiddenPayloadSizes.record(length);
+    }
+
+    /** {@inheritDoc} */
+    public void recordEncryption(long nanos) {
+        encryptionTimes.record(nanos);
+    }
+
+    /** {@inheritDoc} */
+    public void recordDecryption(long nanos) {
+        decryptionTimes.record(nanos);
+    }
+
+    /** {@inheritDoc} */
+    public void recordTamperingDetected() {
+        tamperingCount.incrementAndGet();
+    }
+
+    /** {@inheritDoc} */
+    public void recordFormCount(int formCount) {
+        formCounts.record(formCount);
+    }
+
+    /**
+     * カスタムタグのクラスごとの出力時間(ナノ秒)を取得する。
+     * @return カスタムタグのクラスごとの出力時間
+     */
+    public Map<Class<?>, Histogram> getTagRenderTimes() {
+        return Collections.unmodifiableMap(new HashMap<Class<?>, Histogram>(tagRenderTimes));
+    }
+
+    /**
+     * 暗号化したhiddenタグの値の長さを取得する。
+     * @return 暗号化したhiddenタグの値の長さ
+     */
+    public Histogram getHiddenPayloadSizes() {
+        return hiddenPayloadSizes;
+    }
+
+    /**
+     * hiddenタグの値の暗号化にかかった時間(ナノ秒)を取得する。
+     * @return 暗号化にかかった時間
+     */
+    public Histogram getEncryptionTimes() {
+        return encryptionTimes;
+    }
+
+    /**
+     * hiddenタグの値の復号にかかった時間(ナノ秒)を取得する。
+     * @return 復号にかかった時間
+     */
+    public Histogram getDecryptionTimes() {
+        return decryptionTimes;
+    }
+
+    /**
+     * 1リクエストで出力したフォームの数を取得する。
+     * @return フォームの数
+     */
+    public Histogram getFormCounts() {
+        return formCounts;
+    }
+
+    /**
+     * 改竄を検知した回数を取得する。
+     * @return 改竄を検知した回数
+     */
+    public long getTamperingCount() {
+        return tamperingCount.get();
+    }
+
+    /**
+     * 集計した結果を破棄する。
+     * <p/>
+     * 破棄する前に取得した{@link Histogram}は、破棄した後に記録した値を含まない。
+     */
+    public void reset() {
+        tagRenderTimes.clear();
+        hiddenPayloadSizes = new Histogram();
+        encryptionTimes = new Histogram();
+        decryptionTimes = new Histogram();
+        formCounts = new Histogram();
+        tamperingCount.set(0);
+    }
+
+    /**
+     * 値の分布を集計するヒストグラム。
+     * <p/>
+     * 値は2のべき乗ごとのバケットに集計する。i番目のバケットには、2<sup>i-1</sup>以上2<sup>i</sup>未満の値を集計する。
+     * (0番目のバケットには0以下の値を集計する)
+     * 記録は排他制御せずに行うため、記録と並行して取得した件数と合計は、一時的に一致しない場合がある。
+     */
+    @Published(tag = "architect")
+    public static final class Histogram {
+
+        /** バケットの数 */
+        private static final int BUCKET_COUNT = Long.SIZE;
+
+        /** バケットごとの件数 */
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+        /** 件数 */
+        private final AtomicLong count = new AtomicLong();
+
+        /** 合計 */
+        private final AtomicLong total = new AtomicLong();
+
+        /** 最大値 */
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        /**
+         * 値を記録する。
+         * @param value 値
+         */
+        void record(long value) {
+            buckets.incrementAndGet(bucketOf(value));
+            count.incrementAndGet();
+            total.addAndGet(value);
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        /**
+         * 件数を取得する。
+         * @return 件数
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * 合計を取得する。
+         * @return 合計
+         */
+        public long getTotal() {
+            return total.get();
+        }
+
+        /**
+         * 平均を取得する。
+         * @return 平均。記録した値が存在しない場合は0
+         */
+        public double getMean() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) total.get() / n;
+        }
+
+        /**
+         * 最大値を取得する。
+         * @return 最大値。記録した値が存在しない場合は0
+         */
+        public long getMax() {
+            return count.get() == 0 ? 0 : max.get();
+        }
+
+        /**
+         * 指定されたパーセンタイルの値を含むバケットの上限を取得する。
+         * <p/>
+         * バケット単位で集計するため、実際の値より最大で2倍大きい値となる。
+         * @param percentile パーセンタイル(0より大きく100以下)
+         * @return パーセンタイルの値を含むバケットの上限。記録した値が存在しない場合は0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be greater than 0 and less than or equal to 100."
+                        + " percentile = [" + percentile + "]");
+            }
+            long[] counts = getBucketCounts();
+            long n = 0;
+            for (long c : counts) {
+                n += c;
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(n * percentile / 100);
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= threshold) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(counts.length - 1);
+        }
+
+        /**
+         * バケットごとの件数を取得する。
+         * @return バケットごとの件数
+         */
+        public long[] getBucketCounts() {
+            long[] counts = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return counts;
+        }
+
+        /**
+         * 値を集計するバケットを取得する。
+         * @param value 値
+         * @return バケットの番号
+         */
+        private static int bucketOf(long value) {
+            return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+        }
+
+        /**
+         * バケットに集計する値の上限を取得する。
+         * @param bucket バケットの番号
+         * @return 値の上限
+         */
+        private static long upperBoundOf(int bucket) {
+            return bucket == 0 ? 0 : bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package nablarch.common.web.metrics;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 何も記録しない{@link TagMetricsRecorder}。
+ * <p/>
+ * リポジトリに{@link TagMetricsRecorder}が登録されていない場合に使用する。
+ * 一部の計測値のみを記録したい場合は、このクラスを継承して必要なメソッドのみをオーバーライドする。
+ */
+@Published(tag = "architect")
+public class NoOpTagMetricsRecorder implements TagMetricsRecorder {
+
+    /** {@inheritDoc} */
+    public void recordTagRender(Class<?> tagClass, long nanos) {
+        // nothing to do.
+    }
+
+    /** {@inheritDoc} */
+    public void recordHiddenPayloadSize(int length) {
+        // nothing to do.
+    }
+
+    /** {@inheritDoc} */
+    public void recordEncryption(long nanos) {
+        // nothing to do.
+    }
+
+    /** {@inheritDoc} */
+    public void recordDecryption(long nanos) {
+        // nothing to do.
+    }
+
+    /** {@inheritDoc} */
+    public void recordTamperingDetected() {
+        // nothing to do.
+    }
+
+    /** {@inheritDoc} */
+    public void recordFormCount(int formCount) {
+        // nothing to do.
+    }
+}
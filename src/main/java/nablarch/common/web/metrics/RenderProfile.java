@@ -0,0 +1,224 @@
+package nablarch.common.web.metrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 1リクエストの画面の出力にかかった時間の内訳を、カスタムタグのクラスごとに集計するクラス。
+ * <p/>
+ * カスタムタグの処理の開始時に{@link #enter()}、終了時に{@link #exit(Class)}を呼び出す。
+ * 入れ子になったカスタムタグの時間は、外側のカスタムタグの時間から除いて集計する。
+ * リクエストを処理するスレッドのみが使用するため、スレッドセーフではない。
+ */
+public final class RenderProfile {
+
+    /** スタックの初期サイズ */
+    private static final int INITIAL_DEPTH = 16;
+
+    /** プロファイラ */
+    private final TagRenderProfiler profiler;
+
+    /** リクエストID */
+    private final String requestId;
+
+    /** 割り当てたメモリのバイト数を計測するか否か */
+    private final boolean measuringAllocation;
+
+    /** カスタムタグのクラスごとの集計結果 */
+    private final Map<Class<?>, Entry> entries = new HashMap<Class<?>, Entry>();
+
+    /** 処理中のカスタムタグの開始時刻(ナノ秒) */
+    private long[] startNanos = new long[INITIAL_DEPTH];
+
+    /** 処理中のカスタムタグの開始時点の割り当て量 */
+    private long[] startBytes = new long[INITIAL_DEPTH];
+
+    /** 処理中のカスタムタグのボディに含むカスタムタグの時間(ナノ秒) */
+    private long[] childNanos = new long[INITIAL_DEPTH];
+
+    /** 処理中のカスタムタグのボディに含むカスタムタグの割り当て量 */
+    private long[] childBytes = new long[INITIAL_DEPTH];
+
+    /** 処理中のカスタムタグの入れ子の深さ */
+    private int depth;
+
+    /** 最も外側のカスタムタグの時間の合計(ナノ秒) */
+    private long totalNanos;
+
+    /** 最も外側のカスタムタグの割り当て量の合計 */
+    private long totalBytes;
+
+    /**
+     * コンストラクタ。
+     * @param profiler プロファイラ
+     * @param requestId リクエストID
+     */
+    RenderProfile(TagRenderProfiler profiler, String requestId) {
+        this.profiler = profiler;
+        this.requestId = requestId;
+        this.measuringAllocation = profiler.isMeasuringAllocation();
+    }
+
+    /**
+     * カスタムタグの処理の開始を記録する。
+     */
+    public void enter() {
+        if (depth == startNanos.length) {
+            int length = depth * 2;
+            startNanos = Arrays.copyOf(startNanos, length);
+            startBytes = Arrays.copyOf(startBytes, length);
+            childNanos = Arrays.copyOf(childNanos, length);
+            childBytes = Arrays.copyOf(childBytes, length);
+        }
+        startBytes[depth] = measuringAllocation ? TagRenderProfiler.currentThreadAllocatedBytes() : 0;
+        childNanos[depth] = 0;
+        childBytes[depth] = 0;
+        startNanos[depth] = System.nanoTime();
+        depth++;
+    }
+
+    /**
+     * カスタムタグの処理の終了を記録する。
+     * @param tagClass カスタムタグのクラス
+     */
+    public void exit(Class<?> tagClass) {
+        long now = System.nanoTime();
+        if (depth == 0) {
+            return;
+        }
+        depth--;
+        long elapsed = now - startNanos[depth];
+        long bytes = measuringAllocation ? TagRenderProfiler.currentThreadAllocatedBytes() - startBytes[depth] : 0;
+        Entry entry = entries.get(tagClass);
+        if (entry == null) {
+            entry = new Entry(tagClass);
+            entries.put(tagClass, entry);
+        }
+        entry.add(elapsed - childNanos[depth], bytes - childBytes[depth]);
+        if (depth == 0) {
+            totalNanos += elapsed;
+            totalBytes += bytes;
+        } else {
+            childNanos[depth - 1] += elapsed;
+            childBytes[depth - 1] += bytes;
+        }
+    }
+
+    /**
+     * 集計を完了する。
+     */
+    void finish() {
+        profiler.finish(this);
+    }
+
+    /**
+     * リクエストIDを取得する。
+     * @return リクエストID
+     */
+    String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * 割り当てたメモリのバイト数を計測しているか否かを判定する。
+     * @return 計測している場合はtrue
+     */
+    boolean isMeasuringAllocation() {
+        return measuringAllocation;
+    }
+
+    /**
+     * 最も外側のカスタムタグの時間の合計(ナノ秒)を取得する。
+     * @return 時間の合計
+     */
+    long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * 最も外側のカスタムタグの割り当て量の合計を取得する。
+     * @return 割り当て量の合計
+     */
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * カスタムタグのクラスごとの集計結果を取得する。
+     * @return 集計結果
+     */
+    Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * カスタムタグのクラスごとの集計結果。
+     */
+    static final class Entry {
+
+        /** カスタムタグのクラス */
+        private final Class<?> tagClass;
+
+        /** 出現回数 */
+        private int count;
+
+        /** 時間(ナノ秒) */
+        private long nanos;
+
+        /** 割り当て量 */
+        private long bytes;
+
+        /**
+         * コンストラクタ。
+         * @param tagClass カスタムタグのクラス
+         */
+        Entry(Class<?> tagClass) {
+            this.tagClass = tagClass;
+        }
+
+        /**
+         * 1回分の結果を加算する。
+         * @param nanos 時間(ナノ秒)
+         * @param bytes 割り当て量
+         */
+        void add(long nanos, long bytes) {
+            this.count++;
+            this.nanos += nanos;
+            this.bytes += bytes;
+        }
+
+        /**
+         * カスタムタグのクラスを取得する。
+         * @return カスタムタグのクラス
+         */
+        Class<?> getTagClass() {
+            return tagClass;
+        }
+
+        /**
+         * 出現回数を取得する。
+         * @return 出現回数
+         */
+        int getCount() {
+            return count;
+        }
+
+        /**
+         * 時間(ナノ秒)を取得する。
+         * @return 時間
+         */
+        long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * 割り当て量を取得する。
+         * @return 割り当て量
+         */
+        long getBytes() {
+            return bytes;
+        }
+    }
+}
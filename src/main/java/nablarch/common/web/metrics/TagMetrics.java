@@ -0,0 +1,130 @@
+package nablarch.common.web.metrics;
+
+import static nablarch.fw.ExecutionContext.FW_PREFIX;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.core.ThreadContext;
+import nablarch.core.repository.SystemRepository;
+
+/**
+ * {@link TagMetricsRecorder}への計測値の通知と、{@link TagRenderProfiler}による集計に使用するユーティリティ。
+ */
+public final class TagMetrics {
+
+    /** {@link TagMetricsRecorder}をリポジトリから取得する際に使用する名前 */
+    private static final String RECORDER_NAME = "tagMetricsRecorder";
+
+    /** {@link TagRenderProfiler}をリポジトリから取得する際に使用する名前 */
+    private static final String PROFILER_NAME = "tagRenderProfiler";
+
+    /** {@link RenderProfile}をリクエストスコープに格納する際に使用するキー */
+    private static final String PROFILE_KEY = FW_PREFIX + "metrics_renderProfile";
+
+    /** {@link TagRenderMetrics}をリクエストスコープに格納する際に使用するキー */
+    private static final String TAG_RENDER_KEY = FW_PREFIX + "metrics_tagRender";
+
+    /** リクエストで出力したフォームの数をリクエストスコープに格納する際に使用するキー */
+    private static final String FORM_COUNT_KEY = FW_PREFIX + "metrics_formCount";
+
+    /** リポジトリから取得できない場合に使用する{@link TagMetricsRecorder} */
+    private static final TagMetricsRecorder NO_OP_RECORDER = new NoOpTagMetricsRecorder();
+
+    /** 隠蔽コンストラクタ */
+    private TagMetrics() {
+    }
+
+    /**
+     * リポジトリから{@link TagMetricsRecorder}を取得する。<br>
+     * 存在しない場合は何も記録しない{@link NoOpTagMetricsRecorder}を使用する。
+     * @return {@link TagMetricsRecorder}
+     */
+    public static TagMetricsRecorder getRecorder() {
+        TagMetricsRecorder recorder = SystemRepository.get(RECORDER_NAME);
+        return recorder != null ? recorder : NO_OP_RECORDER;
+    }
+
+    /**
+     * リクエストで出力したフォームの数に1を加える。
+     * @param pageContext ページコンテキスト
+     */
+    public static void countForm(PageContext pageContext) {
+        AtomicInteger count = (AtomicInteger) pageContext.getAttribute(FORM_COUNT_KEY, PageContext.REQUEST_SCOPE);
+        if (count == null) {
+            count = new AtomicInteger();
+            pageContext.setAttribute(FORM_COUNT_KEY, count, PageContext.REQUEST_SCOPE);
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * カスタムタグの処理の開始を記録し、出力時間の通知先と記録先を取得する。
+     * <p/>
+     * {@link TagMetricsRecorder}と{@link TagRenderProfiler}は、リクエストで初めて呼び出された時点でリポジトリから取得し、
+     * リクエストスコープに保持する。
+     * いずれも登録されていない場合はnullを返すため、呼び出し元では出力時間の計測を省略できる。
+     * @param pageContext ページコンテキスト
+     * @return 出力時間の通知先と記録先。{@link TagMetricsRecorder}と{@link TagRenderProfiler}のいずれも登録されていない場合はnull
+     */
+    public static TagRenderMetrics beginTagRender(PageContext pageContext) {
+        TagRenderMetrics metrics = (TagRenderMetrics) pageContext.getAttribute(TAG_RENDER_KEY, PageContext.REQUEST_SCOPE);
+        if (metrics == null) {
+            metrics = createTagRenderMetrics(pageContext);
+            pageContext.setAttribute(TAG_RENDER_KEY, metrics, PageContext.REQUEST_SCOPE);
+        }
+        if (metrics == TagRenderMetrics.DISABLED) {
+            return null;
+        }
+        metrics.enter();
+        return metrics;
+    }
+
+    /**
+     * リポジトリから取得した{@link TagMetricsRecorder}と{@link TagRenderProfiler}を使用して、
+     * リクエストの出力時間の通知先と記録先を生成する。
+     * @param pageContext ページコンテキスト
+     * @return 出力時間の通知先と記録先。いずれも登録されていない場合は{@link TagRenderMetrics#DISABLED}
+     */
+    private static TagRenderMetrics createTagRenderMetrics(PageContext pageContext) {
+        TagMetricsRecorder recorder = SystemRepository.get(RECORDER_NAME);
+        if (recorder instanceof NoOpTagMetricsRecorder) {
+            recorder = null;
+        }
+        TagRenderProfiler profiler = SystemRepository.get(PROFILER_NAME);
+        RenderProfile profile = null;
+        if (profiler != null) {
+            profile = profiler.createProfile(ThreadContext.getRequestId());
+            pageContext.setAttribute(PROFILE_KEY, profile, PageContext.REQUEST_SCOPE);
+        }
+        if (recorder == null && profile == null) {
+            return TagRenderMetrics.DISABLED;
+        }
+        return new TagRenderMetrics(recorder, profile);
+    }
+
+    /**
+     * リクエストの{@link RenderProfile}の集計を完了する。
+     * @param request リクエスト
+     */
+    static void finishProfile(ServletRequest request) {
+        request.removeAttribute(TAG_RENDER_KEY);
+        RenderProfile profile = (RenderProfile) request.getAttribute(PROFILE_KEY);
+        if (profile != null) {
+            request.removeAttribute(PROFILE_KEY);
+            profile.finish();
+        }
+    }
+
+    /**
+     * リクエストで出力したフォームの数を取得する。
+     * @param request リクエスト
+     * @return フォームの数。フォームを出力していない場合は0
+     */
+    static int getFormCount(ServletRequest request) {
+        AtomicInteger count = (AtomicInteger) request.getAttribute(FORM_COUNT_KEY);
+        return count != null ? count.get() : 0;
+    }
+}
@@ -0,0 +1,62 @@
+package nablarch.common.web.metrics;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * カスタムタグの出力とhiddenタグの暗号化に関する計測値を記録するインタフェース。
+ * <p/>
+ * 実装クラスを"tagMetricsRecorder"という名前でリポジトリに登録すると、
+ * カスタムタグ、{@link nablarch.common.web.hiddenencryption.HiddenEncryptionUtil}、
+ * {@link nablarch.common.web.handler.NablarchTagHandler}が計測値を通知する。
+ * 登録しない場合は、{@link NoOpTagMetricsRecorder}を使用する。
+ * <p/>
+ * 計測値は画面を出力するスレッドや、hiddenタグの暗号化を並行して行うスレッドから通知するため、
+ * 実装クラスはスレッドセーフにすること。
+ * また、カスタムタグごとに通知するため、外部のシステムへの送信など時間のかかる処理は、
+ * 実装クラスで集計した上で非同期に行うこと。
+ */
+@Published(tag = "architect")
+public interface TagMetricsRecorder {
+
+    /**
+     * カスタムタグの出力時間を記録する。
+     * <p/>
+     * 出力時間は、カスタムタグの処理を開始してから終了するまでの時間とし、ボディに含むカスタムタグの出力時間を含む。
+     * @param tagClass カスタムタグのクラス
+     * @param nanos 出力時間(ナノ秒)
+     */
+    void recordTagRender(Class<?> tagClass, long nanos);
+
+    /**
+     * 暗号化したhiddenタグの値(nablarch_hiddenパラメータの値)の長さを記録する。
+     * @param length 暗号化したhiddenタグの値の文字数
+     */
+    void recordHiddenPayloadSize(int length);
+
+    /**
+     * hiddenタグの値の暗号化にかかった時間を記録する。
+     * @param nanos 暗号化にかかった時間(ナノ秒)
+     */
+    void recordEncryption(long nanos);
+
+    /**
+     * hiddenタグの値の復号にかかった時間を記録する。
+     * <p/>
+     * 改竄を検知した場合も記録する。
+     * @param nanos 復号にかかった時間(ナノ秒)
+     */
+    void recordDecryption(long nanos);
+
+    /**
+     * hiddenタグの暗号化機能で改竄を検知したことを記録する。
+     */
+    void recordTamperingDetected();
+
+    /**
+     * 1リクエストで出力したフォームの数を記録する。
+     * <p/>
+     * {@link TagMetricsRequestListener}を登録した場合に、フォームを出力したリクエストの終了時に記録する。
+     * @param formCount フォームの数
+     */
+    void recordFormCount(int formCount);
+}
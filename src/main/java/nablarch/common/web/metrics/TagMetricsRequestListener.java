@@ -0,0 +1,41 @@
+package nablarch.common.web.metrics;
+
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.ServletRequestListener;
+
+import nablarch.core.util.annotation.Published;
+
+/**
+ * リクエストの終了時に、リクエストで出力したフォームの数を{@link TagMetricsRecorder}に通知し、
+ * {@link TagRenderProfiler}の集計を完了するリスナー。
+ * <p/>
+ * 画面の出力は後続のハンドラの処理が終了した後に行うため、画面単位の計測値はリクエストの終了時に通知する。
+ * フォームの数を記録する場合、又は{@link TagRenderProfiler}を使用する場合は、web.xmlにこのリスナーを登録する。
+ * <pre>
+ * &lt;listener&gt;
+ *   &lt;listener-class&gt;nablarch.common.web.metrics.TagMetricsRequestListener&lt;/listener-class&gt;
+ * &lt;/listener&gt;
+ * </pre>
+ * フォームを出力しなかったリクエスト(静的リソースやAjaxのリクエストなど)は通知しない。
+ */
+@Published(tag = "architect")
+public class TagMetricsRequestListener implements ServletRequestListener {
+
+    /**
+     * {@inheritDoc}<br>
+     * リクエストでフォームを出力した場合は、フォームの数を通知する。
+     * {@link TagRenderProfiler}を使用している場合は、集計を完了する。
+     */
+    public void requestDestroyed(ServletRequestEvent event) {
+        int formCount = TagMetrics.getFormCount(event.getServletRequest());
+        if (formCount > 0) {
+            TagMetrics.getRecorder().recordFormCount(formCount);
+        }
+        TagMetrics.finishProfile(event.getServletRequest());
+    }
+
+    /** {@inheritDoc} */
+    public void requestInitialized(ServletRequestEvent event) {
+        // nothing to do.
+    }
+}
@@ -0,0 +1,54 @@
+package nablarch.common.web.metrics;
+
+/**
+ * リクエストごとに、カスタムタグの出力時間の通知先と記録先を保持するクラス。
+ * <p/>
+ * {@link TagMetricsRecorder}と{@link TagRenderProfiler}をリポジトリから取得するのはリクエストごとに1回とし、
+ * カスタムタグごとにリポジトリを検索しないようにする。
+ *
+ * @see TagMetrics#beginTagRender(jakarta.servlet.jsp.PageContext)
+ */
+public final class TagRenderMetrics {
+
+    /** 計測を行わないリクエストで使用するインスタンス */
+    static final TagRenderMetrics DISABLED = new TagRenderMetrics(null, null);
+
+    /** 出力時間を通知する{@link TagMetricsRecorder}。通知しない場合はnull */
+    private final TagMetricsRecorder recorder;
+
+    /** 出力時間の内訳を記録する{@link RenderProfile}。記録しない場合はnull */
+    private final RenderProfile profile;
+
+    /**
+     * コンストラクタ。
+     * @param recorder 出力時間を通知する{@link TagMetricsRecorder}。通知しない場合はnull
+     * @param profile 出力時間の内訳を記録する{@link RenderProfile}。記録しない場合はnull
+     */
+    TagRenderMetrics(TagMetricsRecorder recorder, RenderProfile profile) {
+        this.recorder = recorder;
+        this.profile = profile;
+    }
+
+    /**
+     * カスタムタグの処理の開始を記録する。
+     */
+    void enter() {
+        if (profile != null) {
+            profile.enter();
+        }
+    }
+
+    /**
+     * カスタムタグの処理の終了を記録し、出力時間を通知する。
+     * @param tagClass カスタムタグのクラス
+     * @param elapsedNanos 出力時間(ナノ秒)
+     */
+    public void exit(Class<?> tagClass, long elapsedNanos) {
+        if (profile != null) {
+            profile.exit(tagClass);
+        }
+        if (recorder != null) {
+            recorder.recordTagRender(tagClass, elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package nablarch.common.web.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import nablarch.core.log.Logger;
+import nablarch.core.log.LoggerManager;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * 画面の出力にかかった時間の内訳を、カスタムタグのクラスごとに集計するプロファイラ。
+ * <p/>
+ * "tagRenderProfiler"という名前でリポジトリに登録し、web.xmlに{@link TagMetricsRequestListener}を登録した場合に使用する。
+ * リクエストごとに、カスタムタグのクラスごとの出力時間、出力中に割り当てたメモリのバイト数、出現回数を集計し、
+ * リクエストの終了時に、出力時間の合計が閾値以上であれば内訳をWARNレベルでログ出力する。
+ * ログには{@link nablarch.core.ThreadContext#getRequestId()}で取得したリクエストIDを含める。
+ * <pre>
+ * 出力例：
+ * slow page rendering detected. requestId = [R0001], total = [72.5ms, 3.2MB],
+ * breakdown = [FormTag 40.1ms 1.1MB, CodeSelectTag 25.3ms 2.0MB x12, TextTag 7.1ms 0.1MB x30]
+ * </pre>
+ * 内訳の時間は、ボディに含むカスタムタグの出力時間を除いた時間とする。
+ * (ボディのテンプレートテキストの出力時間は含む)
+ * 割り当てたメモリのバイト数は、JVMがスレッドごとの割り当て量の計測をサポートしている場合のみ集計する。
+ */
+@Published(tag = "architect")
+public class TagRenderProfiler {
+
+    /** ロガー */
+    private static final Logger LOGGER = LoggerManager.get(TagRenderProfiler.class);
+
+    /** スレッドごとの割り当て量を計測する{@link ThreadMXBean}。計測をサポートしていない場合はnull */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = findAllocationBean();
+
+    /** 内訳をログ出力する閾値(ナノ秒) */
+    private long slowThresholdNanos = 1000L * 1000L * 1000L;
+
+    /** 割り当てたメモリのバイト数を計測するか否か */
+    private boolean measureAllocation = true;
+
+    /** ログ出力する内訳の最大数 */
+    private int maxBreakdownEntries = 10;
+
+    /**
+     * 内訳をログ出力する閾値(ミリ秒)を設定する。
+     * <p/>
+     * デフォルトは1000ミリ秒。
+     * @param slowThresholdMillis 内訳をログ出力する閾値(ミリ秒)
+     */
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        if (slowThresholdMillis < 0) {
+            throw new IllegalArgumentException(
+                    "slowThresholdMillis must be 0 or greater. slowThresholdMillis = [" + slowThresholdMillis + "]");
+        }
+        this.slowThresholdNanos = slowThresholdMillis * 1000L * 1000L;
+    }
+
+    /**
+     * 割り当てたメモリのバイト数を計測するか否かを設定する。
+     * <p/>
+     * デフォルトはtrue。
+     * @param measureAllocation 計測する場合はtrue
+     */
+    public void setMeasureAllocation(boolean measureAllocation) {
+        this.measureAllocation = measureAllocation;
+    }
+
+    /**
+     * ログ出力する内訳の最大数を設定する。
+     * <p/>
+     * 出力時間の長いものから順に出力する。デフォルトは10。
+     * @param maxBreakdownEntries ログ出力する内訳の最大数
+     */
+    public void setMaxBreakdownEntries(int maxBreakdownEntries) {
+        if (maxBreakdownEntries <= 0) {
+            throw new IllegalArgumentException(
+                    "maxBreakdownEntries must be greater than 0. maxBreakdownEntries = [" + maxBreakdownEntries + "]");
+        }
+        this.maxBreakdownEntries = maxBreakdownEntries;
+    }
+
+    /**
+     * リクエストごとのプロファイルを生成する。
+     * @param requestId リクエストID
+     * @return プロファイル
+     */
+    RenderProfile createProfile(String requestId) {
+        return new RenderProfile(this, requestId);
+    }
+
+    /**
+     * 割り当てたメモリのバイト数を計測するか否かを判定する。
+     * @return 計測する場合はtrue
+     */
+    boolean isMeasuringAllocation() {
+        return measureAllocation && ALLOCATION_BEAN != null;
+    }
+
+    /**
+     * 現在のスレッドが割り当てたメモリのバイト数の累計を取得する。
+     * @return 割り当てたメモリのバイト数の累計
+     */
+    static long currentThreadAllocatedBytes() {
+        return ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * プロファイルの集計を完了し、出力時間の合計が閾値以上であれば内訳をログ出力する。
+     * @param profile プロファイル
+     */
+    void finish(RenderProfile profile) {
+        if (profile.getTotalNanos() < slowThresholdNanos) {
+            return;
+        }
+        logSlowPage(createMessage(profile));
+    }
+
+    /**
+     * 出力に時間がかかった画面の内訳をログ出力する。
+     * <p/>
+     * デフォルトではWARNレベルでログ出力する。
+     * @param message メッセージ
+     */
+    protected void logSlowPage(String message) {
+        LOGGER.logWarn(message);
+    }
+
+    /**
+     * 内訳のメッセージを作成する。
+     * @param profile プロファイル
+     * @return メッセージ
+     */
+    private String createMessage(RenderProfile profile) {
+        boolean allocation = profile.isMeasuringAllocation();
+        StringBuilder message = new StringBuilder(256);
+        message.append("slow page rendering detected. requestId = [").append(profile.getRequestId())
+               .append("], total = [");
+        appendMillis(message, profile.getTotalNanos());
+        if (allocation) {
+            message.append(", ");
+            appendMegaBytes(message, profile.getTotalBytes());
+        }
+        message.append("], breakdown = [");
+        List<RenderProfile.Entry> entries = new ArrayList<RenderProfile.Entry>(profile.getEntries());
+        Collections.sort(entries, new Comparator<RenderProfile.Entry>() {
+            public int compare(RenderProfile.Entry o1, RenderProfile.Entry o2) {
+                return Long.compare(o2.getNanos(), o1.getNanos());
+            }
+        });
+        int size = Math.min(entries.size(), maxBreakdownEntries);
+        for (int i = 0; i < size; i++) {
+            RenderProfile.Entry entry = entries.get(i);
+            if (i != 0) {
+                message.append(", ");
+            }
+            message.append(entry.getTagClass().getSimpleName()).append(' ');
+            appendMillis(message, entry.getNanos());
+            if (allocation) {
+                message.append(' ');
+                appendMegaBytes(message, entry.getBytes());
+            }
+            if (entry.getCount() > 1) {
+                message.append(" x").append(entry.getCount());
+            }
+        }
+        if (entries.size() > size) {
+            message.append(", ...");
+        }
+        return message.append(']').toString();
+    }
+
+    /**
+     * 時間をミリ秒で追加する。
+     * @param message メッセージ
+     * @param nanos 時間(ナノ秒)
+     */
+    private static void appendMillis(StringBuilder message, long nanos) {
+        message.append(String.format(Locale.ROOT, "%.1fms", nanos / 1000000d));
+    }
+
+    /**
+     * バイト数をメガバイトで追加する。
+     * @param message メッセージ
+     * @param bytes バイト数
+     */
+    private static void appendMegaBytes(StringBuilder message, long bytes) {
+        message.append(String.format(Locale.ROOT, "%.1fMB", bytes / (1024d * 1024d)));
+    }
+
+    /**
+     * スレッドごとの割り当て量を計測する{@link ThreadMXBean}を取得する。
+     * @return {@link ThreadMXBean}。計測をサポートしていない場合はnull
+     */
+    private static com.sun.management.ThreadMXBean findAllocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        if (!allocationBean.isThreadAllocatedMemorySupported() || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+        return allocationBean;
+    }
+}
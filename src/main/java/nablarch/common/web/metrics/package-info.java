@@ -0,0 +1,4 @@
+/**
+ * カスタムタグの出力とhiddenタグの暗号化に関する計測値を記録する機能を提供する。
+ */
+package nablarch.common.web.metrics;
@@ -1,11 +1,15 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
+import nablarch.common.web.tag.CodeOptionCache.CodeOption;
+
 /**
  * コード値の複数のchecked属性を持つinputタグを出力するクラスの実装をサポートするクラス。
  * @author Kiyohito Itoh
@@ -155,13 +159,15 @@ public abstract class CodeCheckedInputsTagSupport extends InputTagSupport {
          * autofocus属性(HTML5)は先頭のタグだけに出力する。
          * </pre>
          */
-        protected String createInputTag(PageContext pageContext, HtmlAttributes attributes, List<?> list, Collection<?> values,
-                                         ListFormat listFormat, HtmlAttributes listAttributes) {
+        protected void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, List<?> list,
+                                     Collection<?> values, ListFormat listFormat, HtmlAttributes listAttributes)
+                throws IOException {
             String errorCssClass = listAttributes.get(HtmlAttribute.CLASS);
-            StringBuilder sb = new StringBuilder();
-            sb.append(listFormat.getListStartTag(listAttributes));
+            listFormat.writeListStartTag(out, listAttributes);
+            // リスト要素を含めるタグを持つフォーマットの場合は、先頭の要素も含めてautofocus属性を出力しない。
+            boolean written = listFormat.hasListTag();
             for (Object element : list) {
-                if (sb.length() != 0 && attributes.get(HtmlAttribute.AUTOFOCUS) != null) {
+                if (written && attributes.get(HtmlAttribute.AUTOFOCUS) != null) {
                     attributes.put(HtmlAttribute.AUTOFOCUS, null);
                 }
                 String value = getValue(element);
@@ -171,14 +177,17 @@ public abstract class CodeCheckedInputsTagSupport extends InputTagSupport {
                 String type = attributes.get(HtmlAttribute.TYPE);
                 String id = TagUtil.generateUniqueName(pageContext, type);
                 attributes.put(HtmlAttribute.ID, id);
-                String label = TagUtil.createLabelTag(type, TagUtil.escapeHtml(getFormattedLabel(element, value), true),
-                                                      id, errorCssClass);
-                
-                String checkbox = TagUtil.createTagWithoutBody("input", attributes) + label;
                 
-                sb.append(listFormat.getElementTag(listAttributes, checkbox));
+                listFormat.writeElementStartTag(out, listAttributes);
+                TagUtil.writeTagWithoutBody(out, "input", attributes);
+                String label = element instanceof CodeOption
+                        ? ((CodeOption) element).getInputLabel()
+                        : TagUtil.escapeHtml(getFormattedLabel(element, value), true);
+                TagUtil.writeLabelTag(out, label, id, errorCssClass);
+                listFormat.writeElementEndTag(out);
+                written = true;
             }
-            return sb.append(listFormat.getListEndTag()).toString();
+            listFormat.writeListEndTag(out);
         }
     }
 }
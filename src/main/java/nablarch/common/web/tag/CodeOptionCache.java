@@ -0,0 +1,296 @@
+package nablarch.common.web.tag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+import nablarch.common.code.CodeManager;
+import nablarch.common.code.CodeUtil;
+import nablarch.core.ThreadContext;
+import nablarch.core.repository.SystemRepository;
+import nablarch.core.util.annotation.Published;
+
+/**
+ * コード値の選択項目を出力するタグが使用するコード値とラベルを保持するクラス。
+ * <p/>
+ * {@link CustomTagConfig#setUseCodeOptionCache(boolean)}が有効な場合に、
+ * codeSelectタグ、codeRadioButtonsタグ、codeCheckboxesタグで使用するコード値の一覧と、
+ * 整形及びHTMLエスケープ済みのラベルを、コードID、パターン、ラベルのパターン、オプション名称のカラム名、
+ * 言語の組み合わせごとに保持する。
+ * 出力時は、選択状態とエラー時のCSSクラスのみを画面ごとに決定する。
+ * <p/>
+ * 保持する組み合わせの数は{@link CustomTagConfig#setCodeOptionCacheMaxSize(int)}で指定した上限数までとし、
+ * 上限を超えた場合は最も長く使用していない組み合わせから破棄する。
+ * <p/>
+ * 保持している内容は、リポジトリに登録された{@link CustomTagConfig}または{@link CodeManager}のインスタンスが
+ * 変わった時点(リポジトリを再読み込みした時点)で破棄する。
+ * {@link CodeManager}のインスタンスを変えずにコードマスタを再読み込みする場合
+ * ({@link nablarch.core.cache.StaticDataCache}を再読み込みする場合など)は、
+ * 保持している内容が自動では破棄されず、再読み込み前のコード値とラベルを出力し続ける。
+ * この場合は、再読み込みした後に必ず{@link #invalidate()}を呼び出して保持している内容を破棄すること。
+ */
+@Published(tag = "architect")
+public final class CodeOptionCache {
+
+    /** {@link CodeManager}をリポジトリから取得する際に使用する名前 */
+    private static final String CODE_MANAGER_NAME = "codeManager";
+
+    /** 組み合わせごとのコード値とラベル(最近使用した順) */
+    private static final LinkedHashMap<Key, List<CodeOption>> CACHE =
+            new LinkedHashMap<Key, List<CodeOption>>(16, 0.75f, true);
+
+    /** 保持している内容に対応するカスタムタグのデフォルト値 */
+    private static CustomTagConfig ownerConfig;
+
+    /** 保持している内容に対応する{@link CodeManager} */
+    private static Object ownerCodeManager;
+
+    /** 隠蔽コンストラクタ */
+    private CodeOptionCache() {
+    }
+
+    /**
+     * 保持しているコード値とラベルを破棄する。
+     * <p/>
+     * 次にタグを出力する時点で、コードマスタから取得し直す。
+     */
+    public static void invalidate() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * 保持している組み合わせの数を取得する。
+     * @return 保持している組み合わせの数
+     */
+    public static int size() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * 組み合わせに対応するコード値とラベルを取得する。
+     * @param codeId コードID
+     * @param pattern パターン。指定しない場合はnull
+     * @param labelPattern ラベルを整形するパターン。指定しない場合はnull
+     * @param optionColumnName 取得するオプション名称のカラム名。指定しない場合はnull
+     * @return コード値とラベル
+     */
+    static List<CodeOption> get(String codeId, String pattern, String labelPattern, String optionColumnName) {
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        Object codeManager = SystemRepository.getObject(CODE_MANAGER_NAME);
+        String resolvedLabelPattern = labelPattern != null ? labelPattern : config.getCodeLabelPattern();
+        Key key = new Key(codeId, pattern, resolvedLabelPattern, optionColumnName, ThreadContext.getLanguage());
+        synchronized (CACHE) {
+            if (ownerConfig != config || ownerCodeManager != codeManager) {
+                CACHE.clear();
+                ownerConfig = config;
+                ownerCodeManager = codeManager;
+            }
+            List<CodeOption> options = CACHE.get(key);
+            if (options != null) {
+                return options;
+            }
+        }
+        // コードマスタの取得中は他のスレッドを待たせないように、ロックの外で作成する。
+        List<CodeOption> options = createOptions(codeId, pattern, resolvedLabelPattern, optionColumnName);
+        synchronized (CACHE) {
+            if (ownerConfig == config && ownerCodeManager == codeManager) {
+                CACHE.put(key, options);
+                removeEldest(config.getCodeOptionCacheMaxSize());
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 上限数を超えた、最も長く使用していない組み合わせを破棄する。
+     * @param maxSize 保持する組み合わせの上限数
+     */
+    private static void removeEldest(int maxSize) {
+        Iterator<Key> it = CACHE.keySet().iterator();
+        while (CACHE.size() > maxSize) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * コードマスタからコード値とラベルを作成する。
+     * @param codeId コードID
+     * @param pattern パターン。指定しない場合はnull
+     * @param labelPattern ラベルを整形するパターン
+     * @param optionColumnName 取得するオプション名称のカラム名。指定しない場合はnull
+     * @return コード値とラベル
+     */
+    private static List<CodeOption> createOptions(String codeId, String pattern, String labelPattern,
+                                                  String optionColumnName) {
+        List<String> values = pattern == null ? CodeUtil.getValues(codeId) : CodeUtil.getValues(codeId, pattern);
+        List<CodeOption> options = new ArrayList<CodeOption>(values.size());
+        for (String value : values) {
+            options.add(new CodeOption(value, TagUtil.getCodeLabel(labelPattern, codeId, value, optionColumnName)));
+        }
+        return Collections.unmodifiableList(options);
+    }
+
+    /**
+     * コード値とラベル。
+     */
+    static final class CodeOption {
+
+        /** コード値 */
+        private final String value;
+
+        /** 整形したラベル */
+        private final String label;
+
+        /** optionタグの属性に出力するHTMLエスケープ済みのvalue属性 */
+        private final String valueAttribute;
+
+        /** optionタグのボディに出力するHTMLエスケープ済みのラベル */
+        private final String optionLabel;
+
+        /** labelタグのボディに出力するHTMLエスケープ済みのラベル(改行と半角スペースも変換する) */
+        private final String inputLabel;
+
+        /**
+         * コンストラクタ。
+         * @param value コード値
+         * @param label 整形したラベル
+         */
+        private CodeOption(String value, String label) {
+            this.value = value;
+            this.label = label;
+            this.valueAttribute = " value=\"" + TagUtil.escapeHtml(value) + "\"";
+            this.optionLabel = TagUtil.escapeHtml(label, false);
+            this.inputLabel = TagUtil.escapeHtml(label, true);
+        }
+
+        /**
+         * コード値を取得する。
+         * @return コード値
+         */
+        String getValue() {
+            return value;
+        }
+
+        /**
+         * 整形したラベルを取得する。
+         * @return 整形したラベル
+         */
+        String getLabel() {
+            return label;
+        }
+
+        /**
+         * optionタグの属性に出力するHTMLエスケープ済みのvalue属性を取得する。
+         * @return 先頭に半角スペースを含むvalue属性
+         */
+        String getValueAttribute() {
+            return valueAttribute;
+        }
+
+        /**
+         * optionタグのボディに出力するHTMLエスケープ済みのラベルを取得する。
+         * @return HTMLエスケープ済みのラベル
+         */
+        String getOptionLabel() {
+            return optionLabel;
+        }
+
+        /**
+         * labelタグのボディに出力するHTMLエスケープ済みのラベルを取得する。
+         * @return HTMLエスケープ済みのラベル
+         */
+        String getInputLabel() {
+            return inputLabel;
+        }
+    }
+
+    /**
+     * コード値とラベルを保持する組み合わせ。
+     */
+    private static final class Key {
+
+        /** コードID */
+        private final String codeId;
+
+        /** パターン */
+        private final String pattern;
+
+        /** ラベルを整形するパターン */
+        private final String labelPattern;
+
+        /** 取得するオプション名称のカラム名 */
+        private final String optionColumnName;
+
+        /** 言語 */
+        private final Locale language;
+
+        /**
+         * コンストラクタ。
+         * @param codeId コードID
+         * @param pattern パターン
+         * @param labelPattern ラベルを整形するパターン
+         * @param optionColumnName 取得するオプション名称のカラム名
+         * @param language 言語
+         */
+        Key(String codeId, String pattern, String labelPattern, String optionColumnName, Locale language) {
+            this.codeId = codeId;
+            this.pattern = pattern;
+            this.labelPattern = labelPattern;
+            this.optionColumnName = optionColumnName;
+            this.language = language;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return equals(codeId, other.codeId)
+                    && equals(pattern, other.pattern)
+                    && equals(labelPattern, other.labelPattern)
+                    && equals(optionColumnName, other.optionColumnName)
+                    && equals(language, other.language);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = hashCode(codeId);
+            result = 31 * result + hashCode(pattern);
+            result = 31 * result + hashCode(labelPattern);
+            result = 31 * result + hashCode(optionColumnName);
+            result = 31 * result + hashCode(language);
+            return result;
+        }
+
+        /**
+         * nullを考慮してオブジェクトを比較する。
+         * @param a オブジェクト
+         * @param b オブジェクト
+         * @return 等しい場合はtrue
+         */
+        private static boolean equals(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        /**
+         * nullを考慮してハッシュ値を取得する。
+         * @param o オブジェクト
+         * @return ハッシュ値
+         */
+        private static int hashCode(Object o) {
+            return o == null ? 0 : o.hashCode();
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
+import nablarch.common.web.tag.CodeOptionCache.CodeOption;
 import nablarch.core.util.StringUtil;
 
 /**
@@ -203,29 +206,64 @@ public class CodeSelectTag extends SelectTagSupport {
          * 属性とラベルはHTMLエスケープして出力する。
          * </pre>
          */
-        protected String createInputTag(PageContext pageContext, HtmlAttributes attributes, List<?> list, Collection<?> values,
-                                         ListFormat listFormat, HtmlAttributes listAttributes) {
-            StringBuilder sb = new StringBuilder();
-            sb.append(TagUtil.createStartTag("select", attributes));
+        protected void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, List<?> list,
+                                     Collection<?> values, ListFormat listFormat, HtmlAttributes listAttributes)
+                throws IOException {
+            String ls = TagUtil.getCustomTagConfig().getLineSeparator();
+            TagUtil.writeStartTag(out, "select", attributes);
             if (withNoneOption) {
                 HtmlAttributes optionAttributes = new HtmlAttributes();
                 optionAttributes.put(HtmlAttribute.VALUE, "");
-                sb.append(TagUtil.getCustomTagConfig().getLineSeparator())
-                  .append(TagUtil.createTagWithBody("option", optionAttributes, TagUtil.escapeHtml(noneOptionLabel, false)));
+                out.write(ls);
+                TagUtil.writeTagWithBody(out, "option", optionAttributes, TagUtil.escapeHtml(noneOptionLabel, false));
             }
             String errorCssClass = listAttributes.get(HtmlAttribute.CLASS);
+            HtmlAttributes optionAttributes = new HtmlAttributes();
             for (Object element : list) {
-                HtmlAttributes optionAttributes = new HtmlAttributes();
+                if (element instanceof CodeOption) {
+                    writeOption(out, ls, (CodeOption) element, errorCssClass, values);
+                    continue;
+                }
+                optionAttributes.clear();
                 String value = getValue(element);
                 if (!StringUtil.isNullOrEmpty(errorCssClass)) {
                     optionAttributes.put(HtmlAttribute.CLASS, errorCssClass);
                 }
                 optionAttributes.put(HtmlAttribute.VALUE, value);
                 optionAttributes.put(HtmlAttribute.SELECTED, TagUtil.contains(values, value));
-                sb.append(TagUtil.getCustomTagConfig().getLineSeparator())
-                  .append(TagUtil.createTagWithBody("option", optionAttributes, TagUtil.escapeHtml(getFormattedLabel(element, value), false)));
+                out.write(ls);
+                TagUtil.writeTagWithBody(out, "option", optionAttributes, TagUtil.escapeHtml(getFormattedLabel(element, value), false));
+            }
+            TagUtil.writeEndTag(out, "select");
+        }
+
+        /**
+         * {@link CodeOptionCache}が保持しているHTMLエスケープ済みの値とラベルを使用してoptionタグを出力する。
+         * <p/>
+         * 出力内容は、属性を都度HTMLエスケープして出力する場合と同じ。
+         * @param out 出力先
+         * @param ls 改行コード
+         * @param option コード値とラベル
+         * @param errorCssClass エラー時のCSSクラス名。エラーでない場合はnull
+         * @param values 入力データ
+         * @throws IOException 出力先への書き込みに失敗した場合
+         */
+        private void writeOption(JspWriter out, String ls, CodeOption option, String errorCssClass,
+                                 Collection<?> values) throws IOException {
+            out.write(ls);
+            out.write("<option");
+            if (!StringUtil.isNullOrEmpty(errorCssClass)) {
+                out.write(" class=\"");
+                out.write(TagUtil.escapeHtml(errorCssClass));
+                out.write('"');
+            }
+            out.write(option.getValueAttribute());
+            if (TagUtil.contains(values, option.getValue())) {
+                out.write(" selected=\"selected\"");
             }
-            return sb.append(TagUtil.createEndTag("select")).toString();
+            out.write('>');
+            out.write(option.getOptionLabel());
+            out.write("</option>");
         }
     }
     
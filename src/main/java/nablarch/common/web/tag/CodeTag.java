@@ -3,6 +3,7 @@ package nablarch.common.web.tag;
 import java.util.Collection;
 import java.util.List;
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
 /**
@@ -136,9 +137,8 @@ public class CodeTag extends HtmlTagSupport {
          * {@inheritDoc}<br>
          * 表示専用タグのため呼ばれることはない。
          */
-        protected String createInputTag(PageContext pageContext, HtmlAttributes attributes, List<?> list, Collection<?> values,
-                                         ListFormat listFormat, HtmlAttributes listAttributes) {
-            return "";
+        protected void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, List<?> list,
+                                     Collection<?> values, ListFormat listFormat, HtmlAttributes listAttributes) {
         }
     }
 }
@@ -5,6 +5,7 @@ import java.util.List;
 import jakarta.servlet.jsp.PageContext;
 
 import nablarch.common.code.CodeUtil;
+import nablarch.common.web.tag.CodeOptionCache.CodeOption;
 
 
 /**
@@ -70,16 +71,31 @@ public abstract class CodeTagWriterSupport extends MultivaluedInputTagWriterSupp
 
     @Override
     protected String getFormattedLabel(Object element, String value) {
+        if (element instanceof CodeOption) {
+            return ((CodeOption) element).getLabel();
+        }
         return TagUtil.getCodeLabel(labelPattern, codeId, value, optionColumnName);
     }
     
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * {@link CustomTagConfig#getUseCodeOptionCache()}が有効な場合は、
+     * {@link CodeOptionCache}が保持している{@link CodeOption}のリストを返す。
+     */
     @Override
     protected List<?> getList(PageContext pageContext) {
+        if (TagUtil.getCustomTagConfig().getUseCodeOptionCache()) {
+            return CodeOptionCache.get(codeId, pattern, labelPattern, optionColumnName);
+        }
         return pattern == null ? CodeUtil.getValues(codeId) : CodeUtil.getValues(codeId, pattern);
     }
 
     @Override
     protected String getValue(Object element) {
+        if (element instanceof CodeOption) {
+            return ((CodeOption) element).getValue();
+        }
         return (String) element;
     }
 
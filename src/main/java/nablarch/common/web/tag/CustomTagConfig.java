@@ -6,6 +6,9 @@ import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
+import nablarch.common.web.hiddenencryption.HiddenValueCodec;
+import nablarch.common.web.hiddenencryption.HiddenValueFormat;
+import nablarch.common.web.hiddenencryption.HiddenValueStore;
 import nablarch.core.util.StringUtil;
 import nablarch.fw.web.handler.SecureHandler;
 import nablarch.fw.web.i18n.DirectoryBasedResourcePathRule;
@@ -65,6 +68,18 @@ public class CustomTagConfig {
 
     /** hiddenタグの暗号化機能を使用するか否か。 */
     private boolean useHiddenEncryption = true;
+
+    /** hiddenタグの暗号化機能で使用する{@link HiddenValueCodec}。従来の形式を使用する場合はnull */
+    private HiddenValueCodec hiddenValueCodec;
+
+    /** hiddenタグの暗号化機能で、暗号化する前にhiddenタグの値をバイト列に変換する形式 */
+    private HiddenValueFormat hiddenValueFormat = HiddenValueFormat.TEXT;
+
+    /** hiddenタグの暗号化機能で、hiddenタグの値を保持する{@link HiddenValueStore}。画面に出力する場合はnull */
+    private HiddenValueStore hiddenValueStore;
+
+    /** hiddenタグの暗号化機能で、{@link ParallelHiddenEncryptionTag}のボディで暗号化を並行して行う際の並列度 */
+    private int hiddenEncryptionParallelism = 0;
     
     /** hiddenタグを暗号化しないリクエストID */
     private Set<String> noHiddenEncryptionRequestIds = new HashSet<String>();
@@ -237,6 +252,15 @@ public class CustomTagConfig {
     /** scriptタグのボディに対するサフィックス */
     private String scriptBodySuffix = "-->";
 
+    /** formタグのサブミット制御に使用するJavaScriptを外部ファイルとして参照する場合のパス */
+    private String submitFunctionScriptPath;
+
+    /** formタグのサブミット情報を空白を省いた形式で出力するか否か */
+    private boolean compactSubmissionInfo = false;
+
+    /** CSP対応時に、サブミットをフォームのクリックイベントでまとめて処理するか否か */
+    private boolean useSubmitDelegation = false;
+
     /** サブミットを行う表示制御判定を行う条件リスト */
     private List<DisplayControlChecker> displayControlCheckers;
 
@@ -297,6 +321,25 @@ public class CustomTagConfig {
     /** GETメソッドによるリクエストを使用するか否か */
     private boolean useGetRequest = true;
 
+    /**
+     * 入力系のタグでname属性に指定した名称に対応する値を取得する際に、
+     * 取得結果を画面ごとに保持するか否か。
+     * @see TagUtil#getValue(jakarta.servlet.jsp.PageContext, String, boolean)
+     */
+    private boolean useValueCache = false;
+
+    /**
+     * コード値の選択項目を出力するタグで、コード値とラベルを保持するか否か。
+     * @see CodeOptionCache
+     */
+    private boolean useCodeOptionCache = false;
+
+    /**
+     * コード値の選択項目を出力するタグで、コード値とラベルを保持する組み合わせの上限数。
+     * @see CodeOptionCache
+     */
+    private int codeOptionCacheMaxSize = 1000;
+
     /**
      * errorタグと入力項目タグのerrorCss属性のデフォルト値を取得する。
      * @return エラーレベルのメッセージに使用するCSSクラス名
@@ -631,7 +674,115 @@ public class CustomTagConfig {
     public void setUseHiddenEncryption(boolean useHiddenEncryption) {
         this.useHiddenEncryption = useHiddenEncryption;
     }
+
+    /**
+     * hiddenタグの暗号化機能で使用する{@link HiddenValueCodec}を取得する。
+     * @return {@link HiddenValueCodec}。従来の形式を使用する場合は{@code null}
+     */
+    public HiddenValueCodec getHiddenValueCodec() {
+        return hiddenValueCodec;
+    }
+
+    /**
+     * hiddenタグの暗号化機能で使用する{@link HiddenValueCodec}を設定する。
+     * <p/>
+     * 指定しない場合は、リポジトリに登録された{@link nablarch.common.encryption.Encryptor}と
+     * ハッシュ値を使用する従来の形式で暗号化する。
+     * {@link nablarch.common.web.hiddenencryption.AesGcmHiddenValueCodec}(暗号化と改竄検知)又は
+     * {@link nablarch.common.web.hiddenencryption.HmacHiddenValueCodec}(改竄検知のみ)を指定できる。
+     * 鍵を定期的にローテーションする場合は、これらを
+     * {@link nablarch.common.web.hiddenencryption.KeyRotatingHiddenValueCodec}に設定して指定する。
+     * 指定した後も、従来の形式で出力した画面からのリクエストは復号できる。
+     * デフォルトは{@code null}。
+     * @param hiddenValueCodec {@link HiddenValueCodec}
+     */
+    public void setHiddenValueCodec(HiddenValueCodec hiddenValueCodec) {
+        this.hiddenValueCodec = hiddenValueCodec;
+    }
+
+    /**
+     * hiddenタグの暗号化機能で、暗号化する前にhiddenタグの値をバイト列に変換する形式を取得する。
+     * @return 変換する形式
+     */
+    public HiddenValueFormat getHiddenValueFormat() {
+        return hiddenValueFormat;
+    }
+
+    /**
+     * hiddenタグの暗号化機能で、暗号化する前にhiddenタグの値をバイト列に変換する形式を設定する。
+     * <p/>
+     * 下記のいずれかを指定する。
+     * <ul>
+     *     <li>text(パラメータ名と値を連結したテキスト形式)</li>
+     *     <li>compact(パラメータ名の辞書と可変長整数を使用するバイナリ形式)</li>
+     *     <li>compact_deflate(バイナリ形式をDeflateで圧縮した形式)</li>
+     * </ul>
+     * サブミットを行うタグが多い画面では、compact又はcompact_deflateを指定するとnablarch_hiddenのサイズを削減できる。
+     * 形式を変更した後も、変更前に出力した画面からのリクエストは復号できる。
+     * hiddenタグの暗号化機能を使用しない場合は、この設定に関わらずテキスト形式で出力する。
+     * デフォルトはtext。
+     * @param hiddenValueFormat 変換する形式
+     * @throws IllegalArgumentException 変換する形式が不正な場合
+     */
+    public void setHiddenValueFormat(String hiddenValueFormat) {
+        for (HiddenValueFormat format : HiddenValueFormat.values()) {
+            if (format.name().equalsIgnoreCase(hiddenValueFormat)) {
+                this.hiddenValueFormat = format;
+                return;
+            }
+        }
+        throw new IllegalArgumentException(
+            String.format("hiddenValueFormat was invalid. "
+                        + "hiddenValueFormat must specify the following values. "
+                        + "values = %s hiddenValueFormat = [%s]",
+                          Arrays.toString(HiddenValueFormat.values()).toLowerCase(), hiddenValueFormat));
+    }
     
+    /**
+     * hiddenタグの暗号化機能で、hiddenタグの値を保持する{@link HiddenValueStore}を取得する。
+     * @return {@link HiddenValueStore}。画面に出力する場合は{@code null}
+     */
+    public HiddenValueStore getHiddenValueStore() {
+        return hiddenValueStore;
+    }
+
+    /**
+     * hiddenタグの暗号化機能で、hiddenタグの値を保持する{@link HiddenValueStore}を設定する。
+     * <p/>
+     * 指定した場合は、hiddenタグの値を暗号化して画面に出力する代わりにサーバ側で保持し、
+     * nablarch_hiddenには保持した値を識別するトークンのみを出力する。
+     * {@link nablarch.common.web.hiddenencryption.SessionHiddenValueStore}(セッションに保持)又は
+     * {@link nablarch.common.web.hiddenencryption.LruHiddenValueStore}(アプリケーションサーバのメモリに保持)を指定できる。
+     * 指定した後も、暗号化して出力した画面からのリクエストは復号できる。
+     * デフォルトは{@code null}。
+     * @param hiddenValueStore {@link HiddenValueStore}
+     */
+    public void setHiddenValueStore(HiddenValueStore hiddenValueStore) {
+        this.hiddenValueStore = hiddenValueStore;
+    }
+
+    /**
+     * hiddenタグの暗号化機能で、暗号化を並行して行う際の並列度を取得する。
+     * @return 並列度。並行して行わない場合は0以下
+     */
+    public int getHiddenEncryptionParallelism() {
+        return hiddenEncryptionParallelism;
+    }
+
+    /**
+     * hiddenタグの暗号化機能で、暗号化を並行して行う際の並列度を設定する。
+     * <p/>
+     * 1以上を指定した場合は、{@link ParallelHiddenEncryptionTag}のボディで出力するフォームごとの暗号化を、
+     * 指定した数のスレッドで画面の出力と並行して行う。
+     * スレッドは全てのリクエストで共有するため、CPUのコア数などを考慮して指定すること。
+     * {@link #setHiddenValueStore(HiddenValueStore)}を指定した場合は、暗号化を行わないため並行して行わない。
+     * デフォルトは0(並行して行わない)。
+     * @param hiddenEncryptionParallelism 並列度
+     */
+    public void setHiddenEncryptionParallelism(int hiddenEncryptionParallelism) {
+        this.hiddenEncryptionParallelism = hiddenEncryptionParallelism;
+    }
+
     /**
      * hiddenタグを暗号化しないリクエストIDのデフォルト値を取得する。
      * @return リクエストID
@@ -1666,6 +1817,74 @@ public class CustomTagConfig {
         this.scriptBodySuffix = scriptBodySuffix;
     }
 
+    /**
+     * formタグのサブミット制御に使用するJavaScriptを外部ファイルとして参照する場合のパスを取得する。
+     * @return パス。インラインで出力する場合はnull
+     */
+    public String getSubmitFunctionScriptPath() {
+        return submitFunctionScriptPath;
+    }
+
+    /**
+     * formタグのサブミット制御に使用するJavaScriptを外部ファイルとして参照する場合のパスを設定する。
+     * <p/>
+     * 指定した場合、formタグはサブミット制御の関数をインラインで出力せずに、
+     * 画面内で1番目のフォームの前に指定したパスを参照するscriptタグのみを出力する。
+     * パスの指定方法はscriptタグのsrc属性と同じで、静的リソースのバージョン(static_content_version)を付加して出力する。
+     * 指定したパスのJavaScriptは、{@link nablarch.common.web.handler.SubmitFunctionScriptHandler}で応答する。
+     * サブミット制御の関数はバージョンアップで変わる可能性があるため、静的リソースのバージョンと合わせて使用すること。
+     * デフォルトはnull(インラインで出力する)。
+     * @param submitFunctionScriptPath パス(例: "/javascripts/nablarch_submit.js")
+     */
+    public void setSubmitFunctionScriptPath(String submitFunctionScriptPath) {
+        this.submitFunctionScriptPath = submitFunctionScriptPath;
+    }
+
+    /**
+     * formタグのサブミット情報を空白を省いた形式で出力するか否かを取得する。
+     * @return 空白を省いた形式で出力する場合はtrue
+     */
+    public boolean isCompactSubmissionInfo() {
+        return compactSubmissionInfo;
+    }
+
+    /**
+     * formタグのサブミット情報を空白を省いた形式で出力するか否かを設定する。
+     * <p/>
+     * trueを指定した場合は、サブミット情報の空白と改行を省き、
+     * 同じアクションのURIはフォームごとに1つの配列にまとめて参照する形式で出力する。
+     * 一覧画面などサブミットするリンクやボタンが多い画面で、レスポンスのサイズを削減できる。
+     * デフォルトはfalse(1つのサブミット情報を1行で出力する)。
+     * @param compactSubmissionInfo 空白を省いた形式で出力する場合はtrue
+     */
+    public void setCompactSubmissionInfo(boolean compactSubmissionInfo) {
+        this.compactSubmissionInfo = compactSubmissionInfo;
+    }
+
+    /**
+     * CSP対応時に、サブミットをフォームのクリックイベントでまとめて処理するか否かを取得する。
+     * @return フォームのクリックイベントでまとめて処理する場合はtrue
+     */
+    public boolean isUseSubmitDelegation() {
+        return useSubmitDelegation;
+    }
+
+    /**
+     * CSP対応時に、サブミットをフォームのクリックイベントでまとめて処理するか否かを設定する。
+     * <p/>
+     * CSP対応用のnonceを使用する場合、サブミットする要素ごとにクリック時のスクリプトを出力する。
+     * trueを指定した場合は、要素ごとのスクリプトを出力せずに、formタグがフォームに1つのクリックイベントのリスナーを登録し、
+     * クリックされた要素のname属性に対応するサブミット情報でサブミットする。
+     * サブミットする要素の数に関わらず出力するスクリプトのサイズと画面表示時の処理量が一定になるため、
+     * サブミットするリンクやボタンが多い画面で有効である。
+     * CSP対応用のnonceを使用しない場合は、この設定に関わらず要素のonclick属性を出力する。
+     * デフォルトはfalse(要素ごとにスクリプトを出力する)。
+     * @param useSubmitDelegation フォームのクリックイベントでまとめて処理する場合はtrue
+     */
+    public void setUseSubmitDelegation(boolean useSubmitDelegation) {
+        this.useSubmitDelegation = useSubmitDelegation;
+    }
+
     /**
      * 言語対応のリソースパスを取得する際に使用するリソースパスルールのデフォルト値を取得する。
      * @return {@code ResourcePathRule}インタフェースを実装したクラスのインスタンス
@@ -1941,6 +2160,88 @@ public class CustomTagConfig {
         this.useGetRequest = useGetRequest;
     }
 
+    /**
+     * 入力系のタグでname属性に指定した名称に対応する値を取得する際に、
+     * 取得結果を画面ごとに保持するか否かを取得する。
+     * @return 取得結果を保持する場合は{@code true}
+     */
+    public boolean getUseValueCache() {
+        return useValueCache;
+    }
+
+    /**
+     * 入力系のタグでname属性に指定した名称に対応する値を取得する際に、
+     * 取得結果を画面ごとに保持するか否かを設定する。
+     * <p/>
+     * {@code true}を指定すると、同じname属性に対する変数スコープの探索を画面ごとに1回にする。
+     * 保持した取得結果は、setタグ又はmessageタグ(var属性指定時)で変数スコープに値を設定した時点で破棄する。
+     * また、取得結果はオブジェクト階層のルートにあたるオブジェクトごとに保持するため、
+     * JSTLのc:forEachタグのvar属性やvarStatus属性、c:setタグなどで、
+     * ページスコープ又はリクエストスコープのルートを別のオブジェクトに置き換えた場合は、置き換えたオブジェクトから取得する。
+     * 表示中にセッションスコープの値を置き換える画面や、ルートを置き換えずにオブジェクトのプロパティを
+     * 変更する画面(スクリプトレットなど)がある場合は指定しないこと。
+     * デフォルトは{@code false}。
+     *
+     * @param useValueCache 取得結果を保持する場合は{@code true}
+     * @see TagUtil#getValue(jakarta.servlet.jsp.PageContext, String, boolean)
+     */
+    public void setUseValueCache(boolean useValueCache) {
+        this.useValueCache = useValueCache;
+    }
+
+    /**
+     * コード値の選択項目を出力するタグで、コード値とラベルを保持するか否かを取得する。
+     * @return コード値とラベルを保持する場合は{@code true}
+     */
+    public boolean getUseCodeOptionCache() {
+        return useCodeOptionCache;
+    }
+
+    /**
+     * コード値の選択項目を出力するタグで、コード値とラベルを保持するか否かを設定する。
+     * <p/>
+     * {@code true}を指定すると、codeSelectタグ、codeRadioButtonsタグ、codeCheckboxesタグで、
+     * コード値の取得とラベルの整形、HTMLエスケープをコードID、パターン、ラベルのパターン、
+     * オプション名称のカラム名、言語の組み合わせごとに1回にする。
+     * 保持した内容はリポジトリを再読み込みした時点で破棄するが、
+     * コードマスタをリポジトリの再読み込みを伴わずに再読み込みする場合は、
+     * {@link CodeOptionCache#invalidate()}を呼び出して保持した内容を破棄すること。
+     * デフォルトは{@code false}。
+     *
+     * @param useCodeOptionCache コード値とラベルを保持する場合は{@code true}
+     * @see CodeOptionCache
+     */
+    public void setUseCodeOptionCache(boolean useCodeOptionCache) {
+        this.useCodeOptionCache = useCodeOptionCache;
+    }
+
+    /**
+     * コード値の選択項目を出力するタグで、コード値とラベルを保持する組み合わせの上限数を取得する。
+     * @return 保持する組み合わせの上限数
+     */
+    public int getCodeOptionCacheMaxSize() {
+        return codeOptionCacheMaxSize;
+    }
+
+    /**
+     * コード値の選択項目を出力するタグで、コード値とラベルを保持する組み合わせの上限数を設定する。
+     * <p/>
+     * 組み合わせはコードID、パターン、ラベルのパターン、オプション名称のカラム名、言語ごとに作成する。
+     * 上限を超えた場合は、最も長く使用していない組み合わせから破棄する。
+     * デフォルトは1000。
+     *
+     * @param codeOptionCacheMaxSize 保持する組み合わせの上限数
+     * @throws IllegalArgumentException 0以下の値を指定した場合
+     * @see CodeOptionCache
+     */
+    public void setCodeOptionCacheMaxSize(int codeOptionCacheMaxSize) {
+        if (codeOptionCacheMaxSize <= 0) {
+            throw new IllegalArgumentException("codeOptionCacheMaxSize must be greater than 0. codeOptionCacheMaxSize = ["
+                    + codeOptionCacheMaxSize + "]");
+        }
+        this.codeOptionCacheMaxSize = codeOptionCacheMaxSize;
+    }
+
     /**
      * 動的属性でBooleanとして扱う属性を取得する。
      * @return 動的属性でBooleanとして扱う属性
@@ -1,19 +1,47 @@
 package nablarch.common.web.tag;
 
+import jakarta.servlet.jsp.PageContext;
 import jakarta.servlet.jsp.tagext.TagSupport;
 import jakarta.servlet.jsp.tagext.TryCatchFinally;
 
+import nablarch.common.web.metrics.TagMetrics;
+import nablarch.common.web.metrics.TagRenderMetrics;
 import nablarch.core.log.Logger;
 import nablarch.core.log.LoggerManager;
 
 /**
  * カスタムタグのベースクラス。
+ * <p/>
+ * {@link #setPageContext(PageContext)}から{@link #doFinally()}までの時間を、カスタムタグの出力時間として
+ * {@link nablarch.common.web.metrics.TagMetricsRecorder}に通知する。
+ * {@link nablarch.common.web.metrics.TagRenderProfiler}を使用している場合は、同じ区間をプロファイルに記録する。
+ * いずれも使用していない場合は、出力時間を計測しない。
+ * {@link #doFinally()}をオーバーライドする場合は、スーパークラスの{@link #doFinally()}を呼び出すこと。
  * @author Kiyohito Itoh
  */
 public abstract class CustomTagSupport extends TagSupport implements TryCatchFinally {
     
     /** ロガー */
     private static final Logger LOGGER = LoggerManager.get(CustomTagSupport.class);
+
+    /** 出力を開始した時刻(ナノ秒) */
+    private long renderStartNanos;
+
+    /** 出力時間の通知先と記録先。計測していない場合はnull */
+    private TagRenderMetrics renderMetrics;
+
+    /**
+     * {@inheritDoc}<br>
+     * 出力時間の計測を開始する。
+     */
+    @Override
+    public void setPageContext(PageContext pageContext) {
+        super.setPageContext(pageContext);
+        renderMetrics = TagMetrics.beginTagRender(pageContext);
+        if (renderMetrics != null) {
+            renderStartNanos = System.nanoTime();
+        }
+    }
     
     /**
      * {@inheritDoc}<br>
@@ -23,8 +51,15 @@ public abstract class CustomTagSupport extends TagSupport implements TryCatchFin
         LOGGER.logInfo("exception occurred.", e);
         throw e;
     }
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}<br>
+     * 出力時間を通知し、プロファイルに記録する。
+     */
     public void doFinally() {
-        // nothing to do.
+        if (renderMetrics != null) {
+            TagRenderMetrics metrics = renderMetrics;
+            renderMetrics = null;
+            metrics.exit(getClass(), System.nanoTime() - renderStartNanos);
+        }
     }
 }
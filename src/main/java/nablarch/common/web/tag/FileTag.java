@@ -1,6 +1,9 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
+
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
 /**
@@ -140,9 +143,10 @@ public class FileTag extends InputTagSupport {
          * </pre>
          */
         @Override
-        protected String createInputTag(PageContext pageContext, HtmlAttributes attributes, Object value) {
+        protected void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, Object value)
+                throws IOException {
             attributes.put(HtmlAttribute.VALUE, EMPTY);
-            return TagUtil.createTagWithoutBody(getTagName(), attributes);
+            TagUtil.writeTagWithoutBody(out, getTagName(), attributes);
         }
     }
     
@@ -1,8 +1,13 @@
 package nablarch.common.web.tag;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import nablarch.common.web.tag.SubmissionInfo.SubmissionAction;
@@ -11,33 +16,56 @@ import nablarch.core.util.StringUtil;
 /**
  * フォームのコンテキスト情報を保持するクラス。<br>
  * このコンテキスト情報はページコンテキストに格納する。
+ * <p/>
+ * 一覧画面などでは1画面で多数のフォームやサブミット情報を扱うため、各コレクションは初めて値を追加する際に生成する。
+ * hiddenタグの情報はname属性とvalue属性の配列で保持し、{@link #getHiddenTagInfoList()}では参照時に属性を生成する。
+ * また、name属性ごとのvalue属性の値を追加した順に索引として保持し、name属性による検索に使用する。
+ * 値が存在しない場合の各getterは、変更できない空のコレクションを返す。
  * @author Kiyohito Itoh
  */
 public class FormContext {
+
+    /** hiddenタグの情報を保持する配列の初期サイズ */
+    private static final int INITIAL_HIDDEN_CAPACITY = 8;
     
     /** フォームのname属性 */
     private final String name;
     
     /** フォームに含まれる入力項目のname属性 */
-    private final Set<String> inputNames = new HashSet<String>();
+    private Set<String> inputNames;
     
     /** フォームに含まれるサブミット情報 */
-    private final List<SubmissionInfo> submissionInfoList = new ArrayList<SubmissionInfo>();
+    private List<SubmissionInfo> submissionInfoList;
     
     /** フォームに含まれるサブミット情報のname属性 */
-    private final Set<String> submissionInfoNames = new HashSet<String>();
+    private Set<String> submissionInfoNames;
     
     /** フォームに含まれるリクエストID */
-    private final List<String> requestIds = new ArrayList<String>();
+    private List<String> requestIds;
     
-    /** フォームに含まれるhiddenタグの情報 */
-    private final List<HtmlAttributes> hiddenTagInfoList = new ArrayList<HtmlAttributes>();
+    /** フォームに含まれるhiddenタグのname属性 */
+    private String[] hiddenNames;
+
+    /** フォームに含まれるhiddenタグのvalue属性 */
+    private String[] hiddenValues;
+
+    /** フォームに含まれるhiddenタグの属性。属性を指定せずに追加した場合はnull */
+    private HtmlAttributes[] hiddenAttributes;
+
+    /** フォームに含まれるhiddenタグの数 */
+    private int hiddenCount;
+
+    /** フォームに含まれるhiddenタグのname属性ごとのvalue属性の値(name属性を追加した順) */
+    private Map<String, List<String>> hiddenValuesByName;
     
     /** カレントのサブミット情報 */
     private SubmissionInfo currentSubmissionInfo;
 
     /** サブミット用のスクリプト。CSP対応用nonce生成時に、このリストにためこみ一括出力する */
-    private final List<String> inlineSubmissionScripts = new ArrayList<String>();
+    private List<String> inlineSubmissionScripts;
+
+    /** フォームのクリックイベントでサブミットを委譲しないサブミット情報のname属性 */
+    private List<String> undelegatedSubmissionNames;
     
     /**
      * コンストラクタ。
@@ -60,6 +88,9 @@ public class FormContext {
      * @param name 入力項目のname属性
      */
     public void addInputName(String name) {
+        if (inputNames == null) {
+            inputNames = new HashSet<String>();
+        }
         inputNames.add(name);
     }
     
@@ -68,7 +99,7 @@ public class FormContext {
      * @return フォームに含まれる入力項目のname属性
      */
     public Set<String> getInputNames() {
-        return inputNames;
+        return inputNames != null ? inputNames : Collections.<String>emptySet();
     }
     
     /**
@@ -94,6 +125,11 @@ public class FormContext {
                                     DisplayMethod displayMethod) {
         String name = TagUtil.escapeHtml(attributes.get(HtmlAttribute.NAME));
         String issuedName = null;
+        if (submissionInfoList == null) {
+            submissionInfoList = new ArrayList<SubmissionInfo>();
+            submissionInfoNames = new HashSet<String>();
+            requestIds = new ArrayList<String>();
+        }
         if (StringUtil.isNullOrEmpty(name) || submissionInfoNames.contains(name)) {
             issuedName = this.name + "_" + (submissionInfoList.size() + 1);
             attributes.put(HtmlAttribute.NAME, issuedName);
@@ -115,7 +151,7 @@ public class FormContext {
      * @return フォームに含まれるサブミット情報
      */
     public List<SubmissionInfo> getSubmissionInfoList() {
-        return submissionInfoList;
+        return submissionInfoList != null ? submissionInfoList : Collections.<SubmissionInfo>emptyList();
     }
     
     /**
@@ -139,7 +175,7 @@ public class FormContext {
      * @return フォームに含まれるリクエストID
      */
     public List<String> getRequestIds() {
-        return requestIds;
+        return requestIds != null ? requestIds : Collections.<String>emptyList();
     }
     
     /**
@@ -147,8 +183,9 @@ public class FormContext {
      * @param hiddenTagInfo フォームに含まれるhiddenタグの情報
      */
     public void addHiddenTagInfo(HtmlAttributes hiddenTagInfo) {
-        hiddenTagInfoList.add(hiddenTagInfo);
-        addInputName(hiddenTagInfo.<String>get(HtmlAttribute.NAME));
+        String name = hiddenTagInfo.get(HtmlAttribute.NAME);
+        addHiddenTag(name, hiddenTagInfo.<String>get(HtmlAttribute.VALUE), hiddenTagInfo);
+        addInputName(name);
     }
     
     /**
@@ -158,20 +195,124 @@ public class FormContext {
      */
     public void addHiddenTagInfo(String name, String... values) {
         for (String value : values) {
-            HtmlAttributes hiddenTagInfo = new HtmlAttributes();
-            hiddenTagInfo.put(HtmlAttribute.TYPE, "hidden");
-            hiddenTagInfo.put(HtmlAttribute.NAME, name);
-            hiddenTagInfo.put(HtmlAttribute.VALUE, value);
-            addHiddenTagInfo(hiddenTagInfo);
+            addHiddenTag(name, value, null);
+            addInputName(name);
+        }
+    }
+
+    /**
+     * hiddenタグのname属性とvalue属性を配列に追加する。
+     * @param name name属性の値
+     * @param value value属性の値
+     * @param attributes hiddenタグの属性。属性を指定せずに追加する場合はnull
+     */
+    private void addHiddenTag(String name, String value, HtmlAttributes attributes) {
+        if (hiddenNames == null) {
+            hiddenNames = new String[INITIAL_HIDDEN_CAPACITY];
+            hiddenValues = new String[INITIAL_HIDDEN_CAPACITY];
+        } else if (hiddenCount == hiddenNames.length) {
+            int capacity = hiddenCount * 2;
+            hiddenNames = Arrays.copyOf(hiddenNames, capacity);
+            hiddenValues = Arrays.copyOf(hiddenValues, capacity);
+            if (hiddenAttributes != null) {
+                hiddenAttributes = Arrays.copyOf(hiddenAttributes, capacity);
+            }
+        }
+        if (attributes != null && hiddenAttributes == null) {
+            hiddenAttributes = new HtmlAttributes[hiddenNames.length];
+        }
+        if (hiddenAttributes != null) {
+            hiddenAttributes[hiddenCount] = attributes;
+        }
+        hiddenNames[hiddenCount] = name;
+        hiddenValues[hiddenCount] = value;
+        hiddenCount++;
+
+        if (hiddenValuesByName == null) {
+            hiddenValuesByName = new LinkedHashMap<String, List<String>>();
+        }
+        List<String> values = hiddenValuesByName.get(name);
+        if (values == null) {
+            values = new ArrayList<String>(1);
+            hiddenValuesByName.put(name, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * フォームに含まれるhiddenタグの数を取得する。
+     * @return hiddenタグの数
+     */
+    public int getHiddenTagCount() {
+        return hiddenCount;
+    }
+
+    /**
+     * 指定された位置のhiddenタグのname属性の値を取得する。
+     * @param index 追加した順の位置
+     * @return name属性の値
+     */
+    public String getHiddenTagName(int index) {
+        checkHiddenTagIndex(index);
+        return hiddenNames[index];
+    }
+
+    /**
+     * 指定された位置のhiddenタグのvalue属性の値を取得する。
+     * @param index 追加した順の位置
+     * @return value属性の値
+     */
+    public String getHiddenTagValue(int index) {
+        checkHiddenTagIndex(index);
+        return hiddenValues[index];
+    }
+
+    /**
+     * hiddenタグの位置が範囲内であることをチェックする。
+     * @param index 追加した順の位置
+     */
+    private void checkHiddenTagIndex(int index) {
+        if (index < 0 || index >= hiddenCount) {
+            throw new IndexOutOfBoundsException("index = [" + index + "], size = [" + hiddenCount + "]");
+        }
+    }
+
+    /**
+     * 指定された位置のhiddenタグの情報を取得する。
+     * @param index 追加した順の位置
+     * @return hiddenタグの情報
+     */
+    private HtmlAttributes getHiddenTagAttributes(int index) {
+        if (hiddenAttributes != null && hiddenAttributes[index] != null) {
+            return hiddenAttributes[index];
         }
+        HtmlAttributes hiddenTagInfo = new HtmlAttributes();
+        hiddenTagInfo.put(HtmlAttribute.TYPE, "hidden");
+        hiddenTagInfo.put(HtmlAttribute.NAME, hiddenNames[index]);
+        hiddenTagInfo.put(HtmlAttribute.VALUE, hiddenValues[index]);
+        return hiddenTagInfo;
     }
     
     /**
      * フォームに含まれるhiddenタグの情報を取得する。
+     * <p/>
+     * 返却するリストは変更できない。name属性とvalue属性のみを参照する場合は、
+     * {@link #getHiddenTagName(int)}と{@link #getHiddenTagValue(int)}を使用すること。
      * @return フォームに含まれるhiddenタグの情報
      */
     public List<HtmlAttributes> getHiddenTagInfoList() {
-        return hiddenTagInfoList;
+        return new AbstractList<HtmlAttributes>() {
+            @Override
+            public HtmlAttributes get(int index) {
+                checkHiddenTagIndex(index);
+                return getHiddenTagAttributes(index);
+            }
+
+            @Override
+            public int size() {
+                return hiddenCount;
+            }
+        };
     }
 
     /**
@@ -183,20 +324,66 @@ public class FormContext {
      * @return 指定されたname属性の値を持つhiddenタグの情報。存在しない場合はnull
      */
     public HtmlAttributes getHiddenTagInfo(String name) {
-        for (HtmlAttributes hiddenTagInfo : hiddenTagInfoList) {
-            if (hiddenTagInfo.get(HtmlAttribute.NAME).equals(name)) {
-                return hiddenTagInfo;
+        if (hiddenValuesByName == null || !hiddenValuesByName.containsKey(name)) {
+            return null;
+        }
+        if (hiddenAttributes == null) {
+            HtmlAttributes hiddenTagInfo = new HtmlAttributes();
+            hiddenTagInfo.put(HtmlAttribute.TYPE, "hidden");
+            hiddenTagInfo.put(HtmlAttribute.NAME, name);
+            hiddenTagInfo.put(HtmlAttribute.VALUE, hiddenValuesByName.get(name).get(0));
+            return hiddenTagInfo;
+        }
+        // 属性を指定して追加したhiddenタグが存在する場合は、その属性を返すために位置を検索する。
+        for (int i = 0; i < hiddenCount; i++) {
+            if (hiddenNames[i].equals(name)) {
+                return getHiddenTagAttributes(i);
             }
         }
         return null;
     }
 
+    /**
+     * 指定されたname属性の値を持つhiddenタグのvalue属性の値を取得する。
+     * <p/>
+     * 一番最初に追加した値を返す。
+     *
+     * @param name name属性の値
+     * @return value属性の値。存在しない場合はnull
+     */
+    public String getHiddenTagValue(String name) {
+        if (hiddenValuesByName == null) {
+            return null;
+        }
+        List<String> values = hiddenValuesByName.get(name);
+        return values != null ? values.get(0) : null;
+    }
+
+    /**
+     * フォームに含まれるhiddenタグのname属性ごとのvalue属性の値を取得する。
+     * <p/>
+     * name属性を追加した順に返す。返却するマップはこのフォームコンテキストが保持する索引そのものであり、
+     * コピーを作成しない。{@link FormTag}はフォームの終了時に、このマップにサブミット情報の値を追加して
+     * nablarch_hiddenに出力する値として使用する。
+     *
+     * @return name属性ごとのvalue属性の値
+     */
+    public Map<String, List<String>> getHiddenTagValues() {
+        if (hiddenValuesByName == null) {
+            hiddenValuesByName = new LinkedHashMap<String, List<String>>();
+        }
+        return hiddenValuesByName;
+    }
+
     /**
      * サブミット用のスクリプトを登録する。
      *
      * @param script サブミット用のスクリプト
      */
     public void addInlineSubmissionScript(String script) {
+        if (inlineSubmissionScripts == null) {
+            inlineSubmissionScripts = new ArrayList<String>();
+        }
         inlineSubmissionScripts.add(script);
     }
 
@@ -206,6 +393,29 @@ public class FormContext {
      * @return サブミット用のスクリプト群
      */
     public List<String> getInlineSubmissionScripts() {
-        return inlineSubmissionScripts;
+        return inlineSubmissionScripts != null ? inlineSubmissionScripts : Collections.<String>emptyList();
+    }
+
+    /**
+     * フォームのクリックイベントでサブミットを委譲しないサブミット情報のname属性を追加する。
+     * <p/>
+     * onclick属性を指定した場合など、Nablarchのデフォルトのsubmit関数を呼び出さない要素のname属性を追加する。
+     *
+     * @param name サブミット情報のname属性
+     */
+    public void addUndelegatedSubmissionName(String name) {
+        if (undelegatedSubmissionNames == null) {
+            undelegatedSubmissionNames = new ArrayList<String>();
+        }
+        undelegatedSubmissionNames.add(name);
+    }
+
+    /**
+     * フォームのクリックイベントでサブミットを委譲しないサブミット情報のname属性を取得する。
+     *
+     * @return サブミット情報のname属性
+     */
+    public List<String> getUndelegatedSubmissionNames() {
+        return undelegatedSubmissionNames != null ? undelegatedSubmissionNames : Collections.<String>emptyList();
     }
 }
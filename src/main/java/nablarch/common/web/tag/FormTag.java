@@ -2,28 +2,32 @@ package nablarch.common.web.tag;
 
 import static nablarch.fw.ExecutionContext.FW_PREFIX;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 import nablarch.common.util.WebRequestUtil;
 import nablarch.common.web.WebConfig;
 import nablarch.common.web.WebConfigFinder;
 import nablarch.common.web.exclusivecontrol.HttpExclusiveControlUtil;
 import nablarch.common.web.hiddenencryption.HiddenEncryptionUtil;
+import nablarch.common.web.metrics.TagMetrics;
 import nablarch.common.web.tag.ChangeParamNameTag.ChangeParamName;
 import nablarch.common.web.tag.SubmissionInfo.SubmissionAction;
 import nablarch.common.web.token.TokenUtil;
 import nablarch.core.log.Logger;
 import nablarch.core.log.LoggerManager;
 import nablarch.core.util.Builder;
+import nablarch.core.util.StringUtil;
 import nablarch.fw.web.post.PostResubmitPreventHandler;
 import nablarch.fw.web.servlet.NablarchHttpServletRequestWrapper;
 
@@ -211,9 +215,13 @@ public class FormTag extends GenericAttributesTagSupport {
             printSubmitFunctionJS(pageContext); // サブミット関数は開始タグの直前に出力する。
         }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append(TagUtil.createStartTag("form", getAttributes()));
-        TagUtil.print(pageContext, TagUtil.getCustomTagConfig().getLineSeparator() + sb.toString());
+        try {
+            JspWriter out = pageContext.getOut();
+            out.write(TagUtil.getCustomTagConfig().getLineSeparator());
+            TagUtil.writeStartTag(out, "form", getAttributes());
+        } catch (IOException e) {
+            throw new JspException(e);
+        }
         TagUtil.setFormContext(pageContext, new FormContext(formName));
         
         return EVAL_BODY_INCLUDE;
@@ -285,7 +293,7 @@ public class FormTag extends GenericAttributesTagSupport {
         printSubmitInfoJS(pageContext, getAttributes());
 
         if (preventPostResubmit) {
-            TagUtil.print(pageContext, TagUtil.getCustomTagConfig().getLineSeparator() + createPostResubmitPreventParam());
+            printPostResubmitPreventParam();
         }        
 
         outputCloseTag();
@@ -310,16 +318,54 @@ public class FormTag extends GenericAttributesTagSupport {
      * @throws JspException　JSP例外
      */
     private void outputCloseTag() throws JspException {
-        TagUtil.print(pageContext, TagUtil.getCustomTagConfig().getLineSeparator() + TagUtil.createEndTag("form"));
+        try {
+            JspWriter out = pageContext.getOut();
+            out.write(TagUtil.getCustomTagConfig().getLineSeparator());
+            TagUtil.writeEndTag(out, "form");
+        } catch (IOException e) {
+            throw new JspException(e);
+        }
         TagUtil.setFormContext(pageContext, null);
+        TagMetrics.countForm(pageContext);
+    }
+
+    /**
+     * POST再送信の防止を指示するパラメータ用のhiddenタグを出力する。
+     * @throws JspException JSP例外
+     */
+    private void printPostResubmitPreventParam() throws JspException {
+        printHiddenTag(PostResubmitPreventHandler.POST_RESUBMIT_PREVENT_PARAM, "true");
+    }
+
+    /**
+     * 改行とhiddenタグを出力する。
+     * @param name name属性
+     * @param value value属性
+     * @throws JspException JSP例外
+     */
+    private void printHiddenTag(String name, String value) throws JspException {
+        try {
+            JspWriter out = pageContext.getOut();
+            out.write(TagUtil.getCustomTagConfig().getLineSeparator());
+            TagUtil.writeHiddenTag(out, name, value);
+        } catch (IOException e) {
+            throw new JspException(e);
+        }
     }
 
     /**
-     * POST再送信の防止を指示するパラメータ用のhiddenタグを作成する。
-     * @return POST再送信の防止を指示するパラメータ用のhiddenタグ
+     * 改行とscriptタグを出力する。
+     * @param pageContext ページコンテキスト
+     * @param javaScript scriptタグのボディに指定するJavaScript
+     * @throws JspException JSP例外
      */
-    private String createPostResubmitPreventParam() {
-        return TagUtil.createHiddenTag(PostResubmitPreventHandler.POST_RESUBMIT_PREVENT_PARAM, "true");
+    private static void printScriptTag(PageContext pageContext, CharSequence javaScript) throws JspException {
+        try {
+            pageContext.getOut().write(TagUtil.getCustomTagConfig().getLineSeparator());
+            TagUtil.writeScriptTag(pageContext, javaScript);
+        } catch (IOException e) {
+            throw new JspException(e);
+        }
     }
 
     /**
@@ -418,16 +464,16 @@ public class FormTag extends GenericAttributesTagSupport {
     private void copyFormatSpec(FormContext formContext, ChangeParamName changeParamName, String formatSpecSuffix) {
         String inputName = changeParamName.getInputName();
         String paramName = changeParamName.getParamName();
-        HtmlAttributes formatSpecParam = formContext.getHiddenTagInfo(inputName + formatSpecSuffix);
-        if (formatSpecParam != null) {
-            formContext.addHiddenTagInfo(
-                paramName + formatSpecSuffix, (String) formatSpecParam.get(HtmlAttribute.VALUE));
+        String formatSpec = formContext.getHiddenTagValue(inputName + formatSpecSuffix);
+        if (formatSpec != null) {
+            formContext.addHiddenTagInfo(paramName + formatSpecSuffix, formatSpec);
         }
     }
 
     /**
      * ウィンドウスコープ及びフォームコンテキストに設定されたhidden情報をまとめてnablarch_hiddenに出力する。
      * <p/>
+     * {@link ParallelHiddenEncryptionTag}のボディの場合は、暗号化をスレッドプールに依頼し、プレースホルダを出力する。
      * nablarch_submitも合わせて出力する。
      * nablarch_submitの初期値は空文字とする。
      * 
@@ -441,49 +487,64 @@ public class FormTag extends GenericAttributesTagSupport {
         FormContext formContext = TagUtil.getFormContext(pageContext);
         Map<String, List<String>> hiddenTagValues = getHiddenTagValues(formContext);
         
-        String value;
-        
         List<String> requestIds = formContext.getRequestIds();
+        ParallelHiddenEncryption parallelEncryption = ParallelHiddenEncryption.get(pageContext);
+        
+        if (!needsHiddenEncryption(config, requestIds)) {
+            printHiddenTag(HiddenEncryptionUtil.KEY_HIDDEN_NAME, WebRequestUtil.convertToParamsString(hiddenTagValues));
+        } else if (config.getHiddenValueStore() != null) {
+            printHiddenTag(HiddenEncryptionUtil.KEY_HIDDEN_NAME, HiddenEncryptionUtil.storeHiddenValues(
+                    pageContext, requestIds, hiddenTagValues, config.getHiddenValueStore()));
+        } else if (parallelEncryption != null) {
+            printHiddenTag(HiddenEncryptionUtil.KEY_HIDDEN_NAME, parallelEncryption.submit(HiddenEncryptionUtil.prepareEncryption(
+                    pageContext, requestIds, hiddenTagValues, config.getHiddenValueCodec(), config.getHiddenValueFormat())));
+        } else {
+            printEncryptedHiddenTag(config, requestIds, hiddenTagValues);
+        }
         
-        value = needsHiddenEncryption(config, requestIds)
-              ? HiddenEncryptionUtil.encryptHiddenValues(pageContext, requestIds, hiddenTagValues)
-              : WebRequestUtil.convertToParamsString(hiddenTagValues);
-                          
-        TagUtil.print(pageContext, config.getLineSeparator() + TagUtil.createHiddenTag(HiddenEncryptionUtil.KEY_HIDDEN_NAME, value));
-        TagUtil.print(pageContext, config.getLineSeparator() + TagUtil.createHiddenTag(HiddenEncryptionUtil.KEY_SUBMIT_NAME, ""));
+        printHiddenTag(HiddenEncryptionUtil.KEY_SUBMIT_NAME, "");
+    }
+
+    /**
+     * 改行と、暗号化したhiddenタグの値を出力するhiddenタグを出力する。
+     * <p/>
+     * 暗号化した結果は文字列に変換せずに、value属性に直接出力する。
+     * 暗号化した結果はHTMLエスケープが不要な文字のみで構成するため、
+     * 出力内容は{@link TagUtil#writeHiddenTag(JspWriter, String, String)}と同じとなる。
+     * @param config カスタムタグのデフォルト値
+     * @param requestIds リクエストID
+     * @param hiddenTagValues hiddenタグの値
+     * @throws JspException JSP例外
+     */
+    private void printEncryptedHiddenTag(CustomTagConfig config, List<String> requestIds,
+                                         Map<String, List<String>> hiddenTagValues) throws JspException {
+        try {
+            JspWriter out = pageContext.getOut();
+            out.write(config.getLineSeparator());
+            out.write("<input type=\"hidden\" name=\"");
+            out.write(HiddenEncryptionUtil.KEY_HIDDEN_NAME);
+            out.write("\" value=\"");
+            HiddenEncryptionUtil.writeEncryptedHiddenValues(pageContext, requestIds, hiddenTagValues,
+                    config.getHiddenValueCodec(), config.getHiddenValueFormat(), out);
+            out.write("\" />");
+        } catch (IOException e) {
+            throw new JspException(e);
+        }
     }
     
     /**
      * フォームコンテキストから暗号化対象のhiddenタグの値を取得する。
+     * <p/>
+     * フォームコンテキストが保持するname属性ごとの索引をそのまま使用し、サブミット情報の値を追加する。
      * @param formContext フォームコンテキスト
      * @return 暗号化対象のhiddenタグの値
      */
     private Map<String, List<String>> getHiddenTagValues(FormContext formContext) {
-        Map<String, List<String>> values = new HashMap<String, List<String>>();
-        setUpHiddenTagInfo(values, formContext.getHiddenTagInfoList());
+        Map<String, List<String>> values = formContext.getHiddenTagValues();
         setUpSubmissionInfo(values, formContext.getSubmissionInfoList());
         return values;
     }
     
-    /**
-     * フォームに含まれるhiddenタグの情報をhiddenタグの値に設定する。
-     * @param values hiddenタグの値
-     * @param hiddenTagInfoList フォームに含まれるhiddenタグの情報
-     */
-    private void setUpHiddenTagInfo(Map<String, List<String>> values, List<HtmlAttributes> hiddenTagInfoList) {
-        for (HtmlAttributes attributes : hiddenTagInfoList) {
-            String name = attributes.get(HtmlAttribute.NAME);
-            String value = attributes.get(HtmlAttribute.VALUE);
-            if (values.containsKey(name)) {
-                values.get(name).add(value);
-            } else {
-                List<String> paramValues = new ArrayList<String>();
-                paramValues.add(value);
-                values.put(name, paramValues);
-            }
-        }
-    }
-    
     /**
      * サブミット情報に含まれるパラメータをhiddenタグの値に設定し、元々含まれていた値をクリアする。
      * サブミット情報に含まれるパラメータには、サブミットした要素を識別するname属性のみ設定する。
@@ -549,10 +610,7 @@ public class FormTag extends GenericAttributesTagSupport {
                );
             }
             if (needsEncryption) {
-                TagUtil.print(pageContext,
-                    config.getLineSeparator()
-                  + TagUtil.createHiddenTag(HiddenEncryptionUtil.KEY_NEEDS_ENCRYPTION, "")
-                );
+                printHiddenTag(HiddenEncryptionUtil.KEY_NEEDS_ENCRYPTION, "");
             }
         }        
         return needsEncryption;
@@ -585,14 +643,43 @@ public class FormTag extends GenericAttributesTagSupport {
         if (!TagUtil.jsSupported(pageContext)) {
             return;
         }
-        String ls = TagUtil.getCustomTagConfig().getLineSeparator();
         if (isFirstForm()) {
-            TagUtil.print(pageContext, ls + TagUtil.createScriptTag(pageContext, getSubmitFunction()));
+            String scriptPath = TagUtil.getCustomTagConfig().getSubmitFunctionScriptPath();
+            if (StringUtil.hasValue(scriptPath)) {
+                printExternalScriptTag(pageContext, scriptPath);
+            } else {
+                printScriptTag(pageContext, getSubmitFunction());
+            }
+        }
+    }
+
+    /**
+     * 改行と外部ファイルを参照するscriptタグを出力する。
+     * @param pageContext ページコンテキスト
+     * @param scriptPath 外部ファイルのパス
+     * @throws JspException JSP例外
+     */
+    private static void printExternalScriptTag(PageContext pageContext, String scriptPath) throws JspException {
+        HtmlAttributes attributes = new HtmlAttributes();
+        attributes.put(HtmlAttribute.TYPE, "text/javascript");
+        attributes.put(HtmlAttribute.SRC, TagUtil.encodeUri(pageContext, scriptPath, null));
+        if (TagUtil.hasCspNonce(pageContext)) {
+            attributes.put(HtmlAttribute.NONCE, TagUtil.getCspNonce(pageContext));
+        }
+        try {
+            JspWriter out = pageContext.getOut();
+            out.write(TagUtil.getCustomTagConfig().getLineSeparator());
+            TagUtil.writeStartTag(out, "script", attributes);
+            TagUtil.writeEndTag(out, "script");
+        } catch (IOException e) {
+            throw new JspException(e);
         }
     }
 
     /**
      * サブミット制御に使用するJavaScriptのサブミット情報を出力する。
+     * <p/>
+     * サブミット情報の数は画面によっては数千になるため、中間の文字列を作成せずに出力先に直接書き込む。
      * @param pageContext ページコンテキスト
      * @param attributes 属性
      * @throws JspException JSP例外
@@ -602,97 +689,217 @@ public class FormTag extends GenericAttributesTagSupport {
             return;
         }
 
-        StringBuilder javaScript = new StringBuilder();
-        String ls = TagUtil.getCustomTagConfig().getLineSeparator();
-
         FormContext formContext = TagUtil.getFormContext(pageContext);
 
-        // サブミット用のスクリプトが登録されていた場合は、合わせて出力する。
-        // CSP対応のため、HTMLタグの属性に直接出力するのではなくscriptタグ内に含める。
-        javaScript.append(createInlineOnclickSubmissionScripts(formContext));
+        try {
+            JspWriter out = pageContext.getOut();
+            out.write(TagUtil.getCustomTagConfig().getLineSeparator());
+            TagUtil.writeScriptStartTag(pageContext);
 
-        // サブミッション情報のスクリプトを追加する
-        javaScript.append(createSubmissionInfoScripts(formContext, attributes));
-        
-        TagUtil.print(pageContext, ls + TagUtil.createScriptTag(pageContext, javaScript.toString()));
+            // サブミット用のスクリプトが登録されていた場合は、合わせて出力する。
+            // CSP対応のため、HTMLタグの属性に直接出力するのではなくscriptタグ内に含める。
+            writeInlineOnclickSubmissionScripts(out, formContext);
+
+            // サブミッション情報のスクリプトを出力する
+            writeSubmissionInfoScripts(out, formContext, attributes);
+
+            // サブミットをフォームのクリックイベントでまとめて処理する場合は、リスナーを登録するスクリプトを出力する
+            if (TagUtil.getCustomTagConfig().isUseSubmitDelegation() && TagUtil.hasCspNonce(pageContext)
+                    && !formContext.getSubmissionInfoList().isEmpty()) {
+                writeDelegateSubmitScript(out, formContext, attributes);
+            }
+
+            TagUtil.writeScriptEndTag(pageContext);
+        } catch (IOException e) {
+            throw new JspException(e);
+        }
     }
 
     /**
-     * {@link FormContext}内にサブミット用のスクリプトが登録されていた場合、スクリプトをまとめて返却する。
+     * {@link FormContext}内にサブミット用のスクリプトが登録されていた場合、スクリプトをまとめて出力する。
      *
+     * @param out 出力先
      * @param formContext {@link FormContext}
-     * @return まとめたサブミット用のスクリプト
+     * @throws IOException 出力先への書き込みに失敗した場合
      */
-    private String createInlineOnclickSubmissionScripts(FormContext formContext) {
-        StringBuilder javaScript = new StringBuilder();
-
+    private void writeInlineOnclickSubmissionScripts(JspWriter out, FormContext formContext) throws IOException {
         String ls = TagUtil.getCustomTagConfig().getLineSeparator();
 
         List<String> inlineOnclickSubmissionScripts = formContext.getInlineSubmissionScripts();
         if (!inlineOnclickSubmissionScripts.isEmpty()) {
             for (String script : inlineOnclickSubmissionScripts) {
-                javaScript.append(ls).append(script);
+                out.write(ls);
+                out.write(script);
             }
-
-            javaScript.append(ls).append(ls);
+            out.write(ls);
+            out.write(ls);
         }
-
-        return javaScript.toString();
     }
 
     /**
-     * {@link FormContext}内のサブミッション情報からスクリプトを生成して返却する。
+     * {@link FormContext}内のサブミッション情報からスクリプトを生成して出力する。
+     * <p/>
+     * {@link CustomTagConfig#isCompactSubmissionInfo()}がtrueの場合は、空白と改行を省き、
+     * 同じアクションのURIを1つの配列にまとめて参照する形式で出力する。
      *
+     * @param out 出力先
      * @param formContext {@link FormContext}
      * @param attributes 属性
-     * @return 生成したスクリプト
+     * @throws IOException 出力先への書き込みに失敗した場合
      */
-    private String createSubmissionInfoScripts(FormContext formContext, HtmlAttributes attributes) {
-        StringBuilder javaScript = new StringBuilder();
+    private void writeSubmissionInfoScripts(JspWriter out, FormContext formContext, HtmlAttributes attributes)
+            throws IOException {
 
-        String ls = TagUtil.getCustomTagConfig().getLineSeparator();
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        boolean compact = config.isCompactSubmissionInfo();
+        String ls = compact ? "" : config.getLineSeparator();
         String formName = TagUtil.escapeHtml(attributes.get(HtmlAttribute.NAME), false);
 
-        javaScript.append(SUBMISSION_INFO_VAR).append(".").append(formName).append(" = {").append(ls);
         List<SubmissionInfo> infoList = formContext.getSubmissionInfoList();
+        Map<String, Integer> actionIndices = compact ? new LinkedHashMap<String, Integer>() : null;
+
+        out.write(SUBMISSION_INFO_VAR);
+        out.write('.');
+        out.write(formName);
+        out.write(" = ");
+        if (compact && !infoList.isEmpty()) {
+            out.write("(function(a){return ");
+        }
+        out.write('{');
+        out.write(ls);
         for (int i = 0; i < infoList.size(); i++) {
             SubmissionInfo info = infoList.get(i);
-            String hash;
-            SubmissionAction submissionAction = info.getAction();
-            if (SubmissionAction.POPUP == submissionAction) {
-                String popupWindowName = info.getPopupWindowName();
-                String popupOption = info.getPopupOption();
-                hash = String.format(POPUP_SUBMISSION_INFO_HASH,
-                        info.getName(),
-                        info.getUri(),
-                        info.isAllowDoubleSubmission(),
-                        submissionAction.name(),
-                        popupWindowName != null ? "\"" + popupWindowName + "\"" : null,
-                        popupOption != null ? popupOption : "",
-                        createChangeParamNamesHash(info.getChangeParamNames()));
-            } else if (SubmissionAction.DOWNLOAD == submissionAction) {
-                hash = String.format(DOWNLOAD_SUBMISSION_INFO_HASH,
-                        info.getName(),
-                        info.getUri(),
-                        info.isAllowDoubleSubmission(),
-                        submissionAction.name(),
-                        createChangeParamNamesHash(info.getChangeParamNames()));
+            if (compact) {
+                writeSubmissionInfo(out, info, actionIndices, COMPACT_DELIMITERS);
             } else {
-                hash = String.format(SUBMISSION_INFO_HASH,
-                        info.getName(),
-                        info.getUri(),
-                        info.isAllowDoubleSubmission(),
-                        submissionAction.name());
+                writeSubmissionInfo(out, info, null, DEFAULT_DELIMITERS);
             }
-            javaScript.append(hash);
             if (i != infoList.size() - 1) {
-                javaScript.append(",");
+                out.write(',');
+            }
+            out.write(ls);
+        }
+        out.write('}');
+        if (compact && !infoList.isEmpty()) {
+            out.write(";})([");
+            boolean first = true;
+            for (String action : actionIndices.keySet()) {
+                if (!first) {
+                    out.write(',');
+                }
+                out.write('"');
+                out.write(action);
+                out.write('"');
+                first = false;
+            }
+            out.write("])");
+        }
+        out.write(';');
+    }
+
+    /**
+     * フォームのクリックイベントでサブミットするリスナーを登録するスクリプトを出力する。
+     * <p/>
+     * onclick属性を指定した要素など、フォームのクリックイベントでサブミットしない要素のname属性を合わせて出力する。
+     *
+     * @param out 出力先
+     * @param formContext {@link FormContext}
+     * @param attributes 属性
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private void writeDelegateSubmitScript(JspWriter out, FormContext formContext, HtmlAttributes attributes)
+            throws IOException {
+        out.write(TagUtil.getCustomTagConfig().getLineSeparator());
+        out.write(FW_PREFIX);
+        out.write("delegateSubmit(\"");
+        out.write(TagUtil.escapeHtml(attributes.get(HtmlAttribute.NAME), false));
+        out.write("\", [");
+        List<String> undelegatedNames = formContext.getUndelegatedSubmissionNames();
+        for (int i = 0; i < undelegatedNames.size(); i++) {
+            if (i != 0) {
+                out.write(',');
             }
-            javaScript.append(ls);
+            out.write('"');
+            out.write(undelegatedNames.get(i));
+            out.write('"');
         }
-        javaScript.append("};");
+        out.write("]);");
+    }
 
-        return javaScript.toString();
+    /**
+     * サブミッション情報のハッシュを出力する。
+     * @param out 出力先
+     * @param info サブミッション情報
+     * @param actionIndices アクションのURIと配列のインデックスの対応。URIをそのまま出力する場合はnull
+     * @param delimiters 区切り文字
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private static void writeSubmissionInfo(JspWriter out, SubmissionInfo info,
+            Map<String, Integer> actionIndices, String[] delimiters) throws IOException {
+
+        String colon = delimiters[0];
+        String comma = delimiters[1];
+        String uri = String.valueOf(info.getUri());
+        SubmissionAction submissionAction = info.getAction();
+
+        out.write('"');
+        out.write(info.getName());
+        out.write('"');
+        out.write(colon);
+        out.write(delimiters[2]);
+        out.write("\"action\"");
+        out.write(colon);
+        if (actionIndices != null) {
+            Integer index = actionIndices.get(uri);
+            if (index == null) {
+                index = actionIndices.size();
+                actionIndices.put(uri, index);
+            }
+            out.write("a[");
+            out.write(index.toString());
+            out.write(']');
+        } else {
+            out.write('"');
+            out.write(uri);
+            out.write('"');
+        }
+        out.write(comma);
+        out.write("\"allowDoubleSubmission\"");
+        out.write(colon);
+        out.write(info.isAllowDoubleSubmission() ? "true" : "false");
+        out.write(comma);
+        out.write("\"submissionAction\"");
+        out.write(colon);
+        out.write('"');
+        out.write(submissionAction.name());
+        out.write('"');
+        if (SubmissionAction.POPUP == submissionAction) {
+            String popupWindowName = info.getPopupWindowName();
+            String popupOption = info.getPopupOption();
+            out.write(comma);
+            out.write("\"popupWindowName\"");
+            out.write(colon);
+            if (popupWindowName != null) {
+                out.write('"');
+                out.write(popupWindowName);
+                out.write('"');
+            } else {
+                out.write("null");
+            }
+            out.write(comma);
+            out.write("\"popupOption\"");
+            out.write(colon);
+            out.write('"');
+            out.write(popupOption != null ? popupOption : "");
+            out.write('"');
+        }
+        if (SubmissionAction.POPUP == submissionAction || SubmissionAction.DOWNLOAD == submissionAction) {
+            out.write(comma);
+            out.write("\"changeParamNames\"");
+            out.write(colon);
+            writeChangeParamNamesHash(out, info.getChangeParamNames(), colon);
+        }
+        out.write(delimiters[3]);
     }
 
     /**
@@ -707,30 +914,35 @@ public class FormTag extends GenericAttributesTagSupport {
         }
 
         StringBuilder javaScript = new StringBuilder();
-        String ls = TagUtil.getCustomTagConfig().getLineSeparator();
         String formName = TagUtil.escapeHtml(attributes.get(HtmlAttribute.NAME), false);
         javaScript.append(SUBMISSION_END_MARK_PREFIX).append(".").append(formName).append(" = true;");
-        TagUtil.print(pageContext, ls + TagUtil.createScriptTag(pageContext, javaScript.toString()));
+        printScriptTag(pageContext, javaScript);
     }
 
     /**
-     * パラメータ名の変更情報リストからハッシュを生成する。
+     * パラメータ名の変更情報リストからハッシュを出力する。
+     * @param out 出力先
      * @param changeParamNames パラメータ名の変更情報リスト
-     * @return パラメータ名の変更情報リストハッシュ
+     * @param colon キーと値の区切り文字
+     * @throws IOException 出力先への書き込みに失敗した場合
      */
-    private String createChangeParamNamesHash(List<ChangeParamName> changeParamNames) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{");
-        for (ChangeParamName changeParamName : changeParamNames) {
-            if (sb.length() != 1) {
-                sb.append(",");
+    private static void writeChangeParamNamesHash(JspWriter out, List<ChangeParamName> changeParamNames,
+            String colon) throws IOException {
+        out.write('{');
+        for (int i = 0; i < changeParamNames.size(); i++) {
+            ChangeParamName changeParamName = changeParamNames.get(i);
+            if (i != 0) {
+                out.write(',');
             }
-            sb.append(String.format(PARAM_HASH,
-                                    TagUtil.escapeJavaScriptString(changeParamName.getInputName()),
-                                    TagUtil.escapeJavaScriptString(changeParamName.getParamName())));
+            out.write('"');
+            out.write(TagUtil.escapeJavaScriptString(changeParamName.getInputName()));
+            out.write('"');
+            out.write(colon);
+            out.write('"');
+            out.write(TagUtil.escapeJavaScriptString(changeParamName.getParamName()));
+            out.write('"');
         }
-        sb.append("}");
-        return sb.toString();
+        out.write('}');
     }
     
     /** 画面内で1番目のフォームタグかどうかの情報をリクエストスコープに設定する際に使用するキー */
@@ -757,18 +969,49 @@ public class FormTag extends GenericAttributesTagSupport {
 
     /** フォームのサブミット制御を行うJavaScript関数 */
     private static String submitFunction;
+
+    /** フォームのクリックイベントでサブミットする関数を含む、フォームのサブミット制御を行うJavaScript関数 */
+    private static String delegatingSubmitFunction;
+
+    /**
+     * フォームのサブミット制御を行うJavaScript関数を取得する。
+     * <p/>
+     * {@link CustomTagConfig#setSubmitFunctionScriptPath(String)}を指定した場合に、
+     * 外部ファイルとして応答する内容を取得するために使用する。
+     * @return フォームのサブミット制御を行うJavaScript関数
+     */
+    public static String getSubmitFunctionScript() {
+        return getSubmitFunction();
+    }
     
     /**
      * フォームのサブミット制御を行うJavaScript関数を取得する。
      * リポジトリから改行コード（カスタムタグのデフォルト値設定）を取得するため、このメソッドを設けている。
+     * <p/>
+     * {@link CustomTagConfig#isUseSubmitDelegation()}がtrueの場合は、フォームのクリックイベントでサブミットする関数を含める。
      * @return フォームのサブミット制御を行うJavaScript関数
      */
     private static String getSubmitFunction() {
-        if (submitFunction != null) {
+        if (submitFunction == null) {
+            submitFunction = createSubmitFunction();
+        }
+        if (!TagUtil.getCustomTagConfig().isUseSubmitDelegation()) {
             return submitFunction;
         }
+        if (delegatingSubmitFunction == null) {
+            delegatingSubmitFunction = submitFunction + TagUtil.getCustomTagConfig().getLineSeparator()
+                    + replaceSubmitFunctionVariables(DELEGATE_SUBMIT_FUNCTION);
+        }
+        return delegatingSubmitFunction;
+    }
+
+    /**
+     * フォームのサブミット制御を行うJavaScript関数を作成する。
+     * @return フォームのサブミット制御を行うJavaScript関数
+     */
+    private static String createSubmitFunction() {
         String ls = TagUtil.getCustomTagConfig().getLineSeparator();
-        submitFunction = Builder.join(new String[] {
+        return replaceSubmitFunctionVariables(Builder.join(new String[] {
                                         SUBMIT_FUNCTION,
                                         SUBMIT_ON_WINDOW_FUNCTION,
                                         SUBMIT_TO_NEW_FORM_FUNCTION,
@@ -777,32 +1020,29 @@ public class FormTag extends GenericAttributesTagSupport {
                                         ADD_HIDDEN_TAG_FUNCTION,
                                         STOP_SUBMISSION_FUNCTION,
                                         "var $submissionInfoVar$ = {};",
-                                        "$submissionEndMarkPrefix$ = {};"}, ls)
-                                .replace(Builder.LS, ls)
-                                .replace("$fwPrefix$", FW_PREFIX)
-                                .replace("$submissionInfoVar$", SUBMISSION_INFO_VAR)
-                                .replace("$submissionEndMarkPrefix$", SUBMISSION_END_MARK_PREFIX)
-                                .replace("$popupAction$", SubmissionAction.POPUP.name())
-                                .replace("$downloadAction$", SubmissionAction.DOWNLOAD.name());
-        return submitFunction;
+                                        "$submissionEndMarkPrefix$ = {};"}, ls));
+    }
+
+    /**
+     * JavaScript関数の改行コードと変数を置換する。
+     * @param function JavaScript関数
+     * @return 置換後のJavaScript関数
+     */
+    private static String replaceSubmitFunctionVariables(String function) {
+        return function.replace(Builder.LS, TagUtil.getCustomTagConfig().getLineSeparator())
+                       .replace("$fwPrefix$", FW_PREFIX)
+                       .replace("$submissionInfoVar$", SUBMISSION_INFO_VAR)
+                       .replace("$submissionEndMarkPrefix$", SUBMISSION_END_MARK_PREFIX)
+                       .replace("$popupAction$", SubmissionAction.POPUP.name())
+                       .replace("$downloadAction$", SubmissionAction.DOWNLOAD.name());
     }
     
-    /** サブミット情報のハッシュ */
-    private static final String SUBMISSION_INFO_HASH
-        = "\"%s\": { \"action\": \"%s\", \"allowDoubleSubmission\": %s, \"submissionAction\": \"%s\" }";
-    
-    /** ダウンロード用のサブミット情報のハッシュ */
-    private static final String DOWNLOAD_SUBMISSION_INFO_HASH
-        = "\"%s\": { \"action\": \"%s\", \"allowDoubleSubmission\": %s, \"submissionAction\": \"%s\", \"changeParamNames\": %s }";
-    
-    /** ポップアップ用のサブミット情報のハッシュ */
-    private static final String POPUP_SUBMISSION_INFO_HASH
-        = "\"%s\": { \"action\": \"%s\", \"allowDoubleSubmission\": %s, \"submissionAction\": \"%s\""
-                + ", \"popupWindowName\": %s, \"popupOption\": \"%s\", \"changeParamNames\": %s }";
-    
-    /** パラメータのハッシュ値 */
-    private static final String PARAM_HASH = "\"%s\": \"%s\"";
-    
+    /** サブミット情報のハッシュの区切り文字(キーと値、要素、開始、終了の順) */
+    private static final String[] DEFAULT_DELIMITERS = {": ", ", ", "{ ", " }"};
+
+    /** 空白を省いて出力する場合のサブミット情報のハッシュの区切り文字(キーと値、要素、開始、終了の順) */
+    private static final String[] COMPACT_DELIMITERS = {":", ",", "{", "}"};
+
     /** submit関数 */
     private static final String SUBMIT_FUNCTION = Builder.join(new String[] {
             
@@ -1037,6 +1277,48 @@ public class FormTag extends GenericAttributesTagSupport {
 
     }, Builder.LS);
     
+    /** delegateSubmit関数 */
+    private static final String DELEGATE_SUBMIT_FUNCTION = Builder.join(new String[] {
+
+            // フォームのクリックイベントで、クリックされた要素のサブミット情報を使用してサブミットする。
+            "function $fwPrefix$delegateSubmit(formName, undelegatedNames) {",
+            "    var form = document.querySelector(\"form[name='\" + formName + \"']\");",
+            "    if (form == null) {",
+            "        return;",
+            "    }",
+            "    var undelegated = {};",
+            "    for (var i = 0; i < undelegatedNames.length; i++) {",
+            "        undelegated[undelegatedNames[i]] = true;",
+            "    }",
+            "    form.addEventListener(\"click\", function(event) {",
+                     // 二重送信防止などで要素のイベントハンドラがサブミットを抑止した場合は何もしない。
+            "        if (event.defaultPrevented) {",
+            "            return;",
+            "        }",
+                     // クリックされた位置から、name属性を持つサブミット対象の要素を検索する。
+            "        var element = event.target;",
+            "        while (element != null && element != form) {",
+            "            if (element.tagName.match(/^(a|input|button)$/i) && element.getAttribute(\"name\") != null) {",
+            "                break;",
+            "            }",
+            "            element = element.parentNode;",
+            "        }",
+            "        if (element == null || element == form) {",
+            "            return;",
+            "        }",
+            "        var submitName = element.getAttribute(\"name\");",
+            "        var formData = $submissionInfoVar$[formName];",
+            "        if (formData == null || formData[submitName] == null || undelegated[submitName]) {",
+            "            return;",
+            "        }",
+            "        if (!$fwPrefix$submit(event, element)) {",
+            "            event.preventDefault();",
+            "        }",
+            "    });",
+            "}"
+
+    }, Builder.LS);
+    
     /** {@inheritDoc} */
     @Override
     protected String getTagName() {
@@ -1,10 +1,12 @@
 package nablarch.common.web.tag;
 
+import nablarch.common.web.HtmlTagUtil;
 import nablarch.core.util.StringUtil;
 import nablarch.core.util.annotation.Published;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,8 +27,11 @@ public class HtmlAttributes {
         }
     };
 
+    /** 出力順に並べた全属性(values()による配列のコピーを毎回行わないためにキャッシュする) */
+    private static final HtmlAttribute[] ATTRIBUTES_IN_ORDER = HtmlAttribute.values();
+
     /** 属性を保持するマップ */
-    private Map<HtmlAttribute, Object> attributes = new HashMap<HtmlAttribute, Object>();
+    private Map<HtmlAttribute, Object> attributes = new EnumMap<HtmlAttribute, Object>(HtmlAttribute.class);
 
     /** 動的属性を保持するマップ */
     private List<DynamicAttribute> dynamicAttributes = new ArrayList<DynamicAttribute>();
@@ -85,7 +90,7 @@ public class HtmlAttributes {
      */
     @SuppressWarnings("unchecked")
     public <T> T get(HtmlAttribute attribute) {
-        return attributes.containsKey(attribute) ? (T) attributes.get(attribute) : null;
+        return (T) attributes.get(attribute);
     }
 
     /**
@@ -132,31 +137,59 @@ public class HtmlAttributes {
             return "";
         }
         StringBuilder sb = new StringBuilder((attributes.size() + dynamicAttributes.size()) * 20);
-        for (HtmlAttribute attr : HtmlAttribute.values()) {
-            if (!attributes.containsKey(attr)) {
-                continue;
-            }
-            Object o = attributes.get(attr);
-            if (o == null) {
-                continue;
-            }
-            if (o instanceof Boolean) {
-                if (((Boolean) o)) {
-                    o = attr.getXHtmlName();
-                } else {
+        try {
+            writeHTML(tagName, sb);
+        } catch (IOException e) {
+            // StringBuilderへの追加でIOExceptionが発生することはない。
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * HTMLタグの属性に指定できる形式の文字列を出力先に書き込む。
+     * <pre>
+     * 出力内容は{@link #toHTML(String)}と同じ。
+     * 属性ごとに中間の文字列を生成せずに、出力先へ直接書き込む。
+     * </pre>
+     * @param tagName タグ名称
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public void writeHTML(String tagName, Appendable out) throws IOException {
+        if (isEmpty()) {
+            return;
+        }
+        boolean written = false;
+        if (!attributes.isEmpty()) {
+            for (HtmlAttribute attr : ATTRIBUTES_IN_ORDER) {
+                Object o = attributes.get(attr);
+                if (o == null) {
                     continue;
                 }
+                if (o instanceof Boolean) {
+                    if (((Boolean) o)) {
+                        o = attr.getXHtmlName();
+                    } else {
+                        continue;
+                    }
+                }
+                if (written) {
+                    out.append(' ');
+                }
+                out.append(attr.getXHtmlName()).append("=\"");
+                HtmlTagUtil.escapeHtml(o, false, out);
+                if (isStaticResourceLink(tagName, attr)) {
+                    // 静的リソースの場合は、タイムスタンプをGETパラメータに追加
+                    // これにより、サーバを再起動したタイミングでクライアントのキャッシュを無視して強制的にリソースの最新化が可能となる。
+                    TagUtil.writeStaticContentVersion(StringUtil.toString(o), out);
+                }
+                out.append('"');
+                written = true;
             }
-            if (sb.length() != 0) {
-                sb.append(' ');
-            }
-            String escapeValue = TagUtil.escapeHtml(o, false);
-            if (isStaticResourceLink(tagName, attr)) {
-                // 静的リソースの場合は、タイムスタンプをGETパラメータに追加
-                // これにより、サーバを再起動したタイミングでクライアントのキャッシュを無視して強制的にリソースの最新化が可能となる。
-                escapeValue = TagUtil.addStaticContentVersion(escapeValue);
-            }
-            sb.append(String.format("%s=\"%s\"", attr.getXHtmlName(), escapeValue));
+        }
+        if (dynamicAttributes.isEmpty()) {
+            return;
         }
         CustomTagConfig config = TagUtil.getCustomTagConfig();
         for (DynamicAttribute dynamicAttribute : dynamicAttributes) {
@@ -169,13 +202,14 @@ public class HtmlAttributes {
                     continue;
                 }
             }
-            if (sb.length() != 0) {
-                sb.append(' ');
+            if (written) {
+                out.append(' ');
             }
-            String escapeValue = TagUtil.escapeHtml(value, false);
-            sb.append(String.format("%s=\"%s\"", name, escapeValue));
+            out.append(name).append("=\"");
+            HtmlTagUtil.escapeHtml(value, false, out);
+            out.append('"');
+            written = true;
         }
-        return sb.toString();
     }
 
     /**
@@ -36,6 +36,7 @@ public abstract class HtmlTagSupport extends CustomTagSupport implements Dynamic
      */
     public void doFinally() {
         attributes.clear();
+        super.doFinally();
     }
 
     public void setDynamicAttribute(String uri, String localName, Object value) {
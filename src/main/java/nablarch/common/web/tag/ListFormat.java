@@ -1,8 +1,11 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import jakarta.servlet.jsp.JspWriter;
+
 /**
  * リスト表示に使用するフォーマットを表す列挙型。
  * @author Kiyohito Itoh
@@ -15,6 +18,10 @@ public enum ListFormat {
         public String getElementTag(HtmlAttributes attributes, String content) {
             return content + "<br />";
         }
+        /** {@inheritDoc}} */
+        public void writeElementEndTag(JspWriter out) throws IOException {
+            out.write("<br />");
+        }
     },
     
     /** divタグ */
@@ -23,6 +30,14 @@ public enum ListFormat {
         public String getElementTag(HtmlAttributes attributes, String content) {
             return TagUtil.createTagWithBody("div", attributes, content);
         }
+        /** {@inheritDoc}} */
+        public void writeElementStartTag(JspWriter out, HtmlAttributes attributes) throws IOException {
+            TagUtil.writeStartTag(out, "div", attributes);
+        }
+        /** {@inheritDoc}} */
+        public void writeElementEndTag(JspWriter out) throws IOException {
+            TagUtil.writeEndTag(out, "div");
+        }
     },
 
     /** spanタグ */
@@ -31,6 +46,14 @@ public enum ListFormat {
         public String getElementTag(HtmlAttributes attributes, String content) {
             return TagUtil.createTagWithBody("span", attributes, content);
         }
+        /** {@inheritDoc}} */
+        public void writeElementStartTag(JspWriter out, HtmlAttributes attributes) throws IOException {
+            TagUtil.writeStartTag(out, "span", attributes);
+        }
+        /** {@inheritDoc}} */
+        public void writeElementEndTag(JspWriter out) throws IOException {
+            TagUtil.writeEndTag(out, "span");
+        }
     },
     
     /** ulタグタグ */
@@ -47,6 +70,26 @@ public enum ListFormat {
         public String getElementTag(HtmlAttributes attributes, String content) {
             return TagUtil.createTagWithBody("li", attributes, content);
         }
+        /** {@inheritDoc}} */
+        public void writeListStartTag(JspWriter out, HtmlAttributes attributes) throws IOException {
+            TagUtil.writeStartTag(out, "ul", attributes);
+        }
+        /** {@inheritDoc}} */
+        public void writeListEndTag(JspWriter out) throws IOException {
+            TagUtil.writeEndTag(out, "ul");
+        }
+        /** {@inheritDoc}} */
+        public void writeElementStartTag(JspWriter out, HtmlAttributes attributes) throws IOException {
+            TagUtil.writeStartTag(out, "li", attributes);
+        }
+        /** {@inheritDoc}} */
+        public void writeElementEndTag(JspWriter out) throws IOException {
+            TagUtil.writeEndTag(out, "li");
+        }
+        /** {@inheritDoc}} */
+        boolean hasListTag() {
+            return true;
+        }
     },
     
     /** olタグタグ */
@@ -63,6 +106,26 @@ public enum ListFormat {
         public String getElementTag(HtmlAttributes attributes, String content) {
             return TagUtil.createTagWithBody("li", attributes, content);
         }
+        /** {@inheritDoc}} */
+        public void writeListStartTag(JspWriter out, HtmlAttributes attributes) throws IOException {
+            TagUtil.writeStartTag(out, "ol", attributes);
+        }
+        /** {@inheritDoc}} */
+        public void writeListEndTag(JspWriter out) throws IOException {
+            TagUtil.writeEndTag(out, "ol");
+        }
+        /** {@inheritDoc}} */
+        public void writeElementStartTag(JspWriter out, HtmlAttributes attributes) throws IOException {
+            TagUtil.writeStartTag(out, "li", attributes);
+        }
+        /** {@inheritDoc}} */
+        public void writeElementEndTag(JspWriter out) throws IOException {
+            TagUtil.writeEndTag(out, "li");
+        }
+        /** {@inheritDoc}} */
+        boolean hasListTag() {
+            return true;
+        }
     },
     
     /** スペース */
@@ -71,6 +134,10 @@ public enum ListFormat {
         public String getElementTag(HtmlAttributes attributes, String content) {
             return content + "&nbsp;";
         }
+        /** {@inheritDoc}} */
+        public void writeElementEndTag(JspWriter out) throws IOException {
+            out.write("&nbsp;");
+        }
     };
     
     /**
@@ -97,6 +164,47 @@ public enum ListFormat {
      * @return リスト要素のタグ
      */
     public abstract String getElementTag(HtmlAttributes attributes, String content);
+
+    /**
+     * リスト要素を含める開始タグを出力する。
+     * @param out 出力先
+     * @param attributes 属性
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public void writeListStartTag(JspWriter out, HtmlAttributes attributes) throws IOException {
+    }
+
+    /**
+     * リスト要素を含める終了タグを出力する。
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public void writeListEndTag(JspWriter out) throws IOException {
+    }
+
+    /**
+     * リスト要素のタグのうち、タグの内容の前に位置する部分を出力する。
+     * @param out 出力先
+     * @param attributes 属性
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public void writeElementStartTag(JspWriter out, HtmlAttributes attributes) throws IOException {
+    }
+
+    /**
+     * リスト要素のタグのうち、タグの内容の後に位置する部分を出力する。
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public abstract void writeElementEndTag(JspWriter out) throws IOException;
+
+    /**
+     * リスト要素を含めるタグを持つか否かを判定する。
+     * @return リスト要素を含めるタグを持つ場合はtrue
+     */
+    boolean hasListTag() {
+        return false;
+    }
     
     /** リスト表示に使用するフォーマット */
     private static final List<String> FORMATS;
@@ -1,8 +1,10 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
 import nablarch.core.util.StringUtil;
@@ -204,29 +206,31 @@ public class ListSelectTag extends SelectTagSupport {
          * 属性とラベルはHTMLエスケープして出力する。
          * </pre>
          */
-        protected String createInputTag(PageContext pageContext, HtmlAttributes attributes, List<?> list, Collection<?> values,
-                                         ListFormat listFormat, HtmlAttributes listAttributes) {
-            StringBuilder sb = new StringBuilder();
-            sb.append(TagUtil.createStartTag("select", attributes));
+        protected void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, List<?> list,
+                                     Collection<?> values, ListFormat listFormat, HtmlAttributes listAttributes)
+                throws IOException {
+            String ls = TagUtil.getCustomTagConfig().getLineSeparator();
+            TagUtil.writeStartTag(out, "select", attributes);
             if (withNoneOption) {
                 HtmlAttributes optionAttributes = new HtmlAttributes();
                 optionAttributes.put(HtmlAttribute.VALUE, "");
-                sb.append(TagUtil.getCustomTagConfig().getLineSeparator())
-                  .append(TagUtil.createTagWithBody("option", optionAttributes, TagUtil.escapeHtml(noneOptionLabel, false)));
+                out.write(ls);
+                TagUtil.writeTagWithBody(out, "option", optionAttributes, TagUtil.escapeHtml(noneOptionLabel, false));
             }
             String errorCssClass = listAttributes.get(HtmlAttribute.CLASS);
+            HtmlAttributes optionAttributes = new HtmlAttributes();
             for (Object element : list) {
-                HtmlAttributes optionAttributes = new HtmlAttributes();
+                optionAttributes.clear();
                 String value = getValue(element);
                 if (!StringUtil.isNullOrEmpty(errorCssClass)) {
                     optionAttributes.put(HtmlAttribute.CLASS, errorCssClass);
                 }
                 optionAttributes.put(HtmlAttribute.VALUE, value);
                 optionAttributes.put(HtmlAttribute.SELECTED, TagUtil.contains(values, value));
-                sb.append(TagUtil.getCustomTagConfig().getLineSeparator())
-                  .append(TagUtil.createTagWithBody("option", optionAttributes, TagUtil.escapeHtml(getFormattedLabel(element, value), false)));
+                out.write(ls);
+                TagUtil.writeTagWithBody(out, "option", optionAttributes, TagUtil.escapeHtml(getFormattedLabel(element, value), false));
             }
-            return sb.append(TagUtil.createEndTag("select")).toString();
+            TagUtil.writeEndTag(out, "select");
         }
     }
 }
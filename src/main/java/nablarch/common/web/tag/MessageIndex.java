@@ -0,0 +1,138 @@
+package nablarch.common.web.tag;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.core.message.Message;
+import nablarch.core.validation.ValidationResultMessage;
+import nablarch.fw.ExecutionContext;
+
+/**
+ * リクエストスコープに設定されているメッセージリストを、プロパティ名で検索するための索引。
+ * <p/>
+ * 入力項目ごとにメッセージリストを走査しないように、プロパティ名からメッセージの位置への索引を
+ * リクエストごとに1回だけ作成する。
+ * 索引は、メッセージリストのインスタンスか要素数が変わった時点で作成し直す。
+ */
+final class MessageIndex {
+
+    /** 索引をリクエストスコープに格納する際に使用するキー */
+    private static final String MESSAGE_INDEX_KEY = ExecutionContext.FW_PREFIX + "message_index";
+
+    /** メッセージリスト */
+    private final List<Message> messages;
+
+    /** 索引作成時のメッセージ数 */
+    private final int size;
+
+    /** プロパティ名に対応する最初のメッセージの位置 */
+    private final Map<String, Integer> indexes;
+
+    /**
+     * メッセージリストから索引を作成する。
+     * @param messages メッセージリスト
+     */
+    private MessageIndex(List<Message> messages) {
+        this.messages = messages;
+        this.size = messages.size();
+        this.indexes = new HashMap<String, Integer>();
+        for (int i = 0; i < size; i++) {
+            Message message = messages.get(i);
+            if (message instanceof ValidationResultMessage) {
+                String propertyName = ((ValidationResultMessage) message).getPropertyName();
+                if (!indexes.containsKey(propertyName)) {
+                    indexes.put(propertyName, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * リクエストスコープに設定されているメッセージリストの索引を取得する。
+     * @param pageContext ページコンテキスト
+     * @return 索引。メッセージリストが存在しない場合はnull
+     */
+    static MessageIndex get(PageContext pageContext) {
+        List<Message> messages = TagUtil.getMessages(pageContext);
+        if (messages == null) {
+            return null;
+        }
+        MessageIndex index = (MessageIndex) pageContext.getAttribute(MESSAGE_INDEX_KEY, PageContext.REQUEST_SCOPE);
+        if (index == null || index.messages != messages || index.size != messages.size()) {
+            index = new MessageIndex(messages);
+            pageContext.setAttribute(MESSAGE_INDEX_KEY, index, PageContext.REQUEST_SCOPE);
+        }
+        return index;
+    }
+
+    /**
+     * プロパティ名に対応するメッセージを検索する。
+     * @param name プロパティ名
+     * @return メッセージ。見つからない場合はnull
+     */
+    Message find(String name) {
+        Integer index = indexes.get(name);
+        return index != null ? messages.get(index) : null;
+    }
+
+    /**
+     * プロパティ名に対応するメッセージを検索する。
+     * <p/>
+     * 複数のプロパティ名に対応するメッセージが存在する場合は、メッセージリストで最初に出現するメッセージを返す。
+     * @param names プロパティ名
+     * @return メッセージ。見つからない場合はnull
+     */
+    Message find(Set<String> names) {
+        int first = indexOf(names);
+        return first != -1 ? messages.get(first) : null;
+    }
+
+    /**
+     * プロパティ名とそのエイリアスに対応するメッセージを検索する。
+     * <p/>
+     * 複数のプロパティ名に対応するメッセージが存在する場合は、メッセージリストで最初に出現するメッセージを返す。
+     * @param name プロパティ名
+     * @param aliases プロパティ名のエイリアス。指定しない場合はnull
+     * @return メッセージ。見つからない場合はnull
+     */
+    Message find(String name, Set<String> aliases) {
+        int first = indexOf(name);
+        if (aliases != null) {
+            int index = indexOf(aliases);
+            if (index != -1 && (first == -1 || index < first)) {
+                first = index;
+            }
+        }
+        return first != -1 ? messages.get(first) : null;
+    }
+
+    /**
+     * 複数のプロパティ名のいずれかに対応する最初のメッセージの位置を取得する。
+     * @param names プロパティ名
+     * @return メッセージの位置。見つからない場合は-1
+     */
+    private int indexOf(Set<String> names) {
+        int first = -1;
+        for (String name : names) {
+            int index = indexOf(name);
+            if (index != -1 && (first == -1 || index < first)) {
+                first = index;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * プロパティ名に対応する最初のメッセージの位置を取得する。
+     * @param name プロパティ名
+     * @return メッセージの位置。見つからない場合は-1
+     */
+    private int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index != null ? index : -1;
+    }
+}
@@ -189,6 +189,7 @@ public class MessageTag extends CustomTagSupport {
                                       : message.formatMessage();
         if (var != null) {
             pageContext.setAttribute(var, formattedMessage, PageContext.REQUEST_SCOPE);
+            ValueCache.invalidate(pageContext);
         } else { 
             TagUtil.print(pageContext, htmlEscape
                                            ? TagUtil.escapeHtml(formattedMessage, withHtmlFormat)
@@ -1,10 +1,12 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
 import nablarch.core.util.StringUtil;
@@ -65,8 +67,8 @@ public abstract class MultivaluedInputTagWriterSupport implements Serializable {
      * 多値の入力項目を出力する。
      * <pre>
      * 選択項目リストが存在しない場合は何も出力しない。
-     * 入力画面の場合は、{@link #createInputTag(PageContext, HtmlAttributes, List, Collection, ListFormat, HtmlAttributes)}に処理を移譲する。
-     * 確認画面の場合は、{@link #createOutputTag(PageContext, HtmlAttributes, List, Collection, ListFormat)}に処理を移譲する。
+     * 入力画面の場合は、{@link #writeInputTag(PageContext, JspWriter, HtmlAttributes, List, Collection, ListFormat, HtmlAttributes)}に処理を移譲する。
+     * 確認画面の場合は、{@link #writeOutputTag(PageContext, JspWriter, HtmlAttributes, List, Collection, ListFormat)}に処理を移譲する。
      * 
      * 入力画面の場合のみname属性に対応するエラーメッセージが存在する場合はclass属性に指定されたCSSクラス名を追記で設定する。
      * </pre>
@@ -81,21 +83,24 @@ public abstract class MultivaluedInputTagWriterSupport implements Serializable {
             return;
         }
         
-        Collection<?> values = getValues(pageContext, attributes);
+        // 選択肢ごとに選択状態を判定するため、選択した値が多い場合は検索用のコレクションに変換しておく。
+        Collection<?> values = SelectedValues.of(getValues(pageContext, attributes));
         ListFormat useListFormat = listFormat != null ? listFormat : getDefaultListFormat();
         
-        String tag;
-        if (isConfirmationPage(pageContext)) {
-            tag = createOutputTag(pageContext, attributes, list, values, useListFormat);
-        } else {
-            String errorCssClass = TagUtil.editClassAttributeForError(pageContext, attributes, errorCss, nameAlias);
-            HtmlAttributes listAttributes = new HtmlAttributes();
-            if (!StringUtil.isNullOrEmpty(errorCssClass)) {
-                listAttributes.put(HtmlAttribute.CLASS, errorCssClass);
+        try {
+            if (isConfirmationPage(pageContext)) {
+                writeOutputTag(pageContext, pageContext.getOut(), attributes, list, values, useListFormat);
+            } else {
+                String errorCssClass = TagUtil.editClassAttributeForError(pageContext, attributes, errorCss, nameAlias);
+                HtmlAttributes listAttributes = new HtmlAttributes();
+                if (!StringUtil.isNullOrEmpty(errorCssClass)) {
+                    listAttributes.put(HtmlAttribute.CLASS, errorCssClass);
+                }
+                writeInputTag(pageContext, pageContext.getOut(), attributes, list, values, useListFormat, listAttributes);
             }
-            tag = createInputTag(pageContext, attributes, list, values, useListFormat, listAttributes);
+        } catch (IOException e) {
+            throw new JspException(e);
         }
-        TagUtil.print(pageContext, tag);
     }
     
     /**
@@ -120,52 +125,56 @@ public abstract class MultivaluedInputTagWriterSupport implements Serializable {
     }
     
     /**
-     * 出力タグを作成する。
+     * 出力タグを出力する。
      * <pre>
      * name属性に対応する入力データが存在する場合は指定されたフォーマットで出力する。
      * ラベルはHTMLエスケープして出力する。
      * </pre>
      * @param pageContext ページコンテキスト
+     * @param out 出力先
      * @param attributes 属性
      * @param list リスト
      * @param values 入力値
      * @param listFormat リストタグ
-     * @return 出力タグ
+     * @throws IOException 出力先への書き込みに失敗した場合
      */
-    protected String createOutputTag(PageContext pageContext, HtmlAttributes attributes,
-                                      List<?> list, Collection<?> values,
-                                      ListFormat listFormat) {
-        StringBuilder elements = new StringBuilder();
+    protected void writeOutputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes,
+                                  List<?> list, Collection<?> values,
+                                  ListFormat listFormat) throws IOException {
+        boolean written = false;
         for (Object element : list) {
             String value = getValue(element);
             if (TagUtil.contains(values, value)) {
-                elements.append(listFormat.getElementTag(HtmlAttributes.EMPTY_ATTRIBUTES,
-                                                         TagUtil.escapeHtml(getFormattedLabel(element, value), true)));
+                if (!written) {
+                    // 入力データが存在する場合のみリスト要素を含めるタグを出力する。
+                    listFormat.writeListStartTag(out, HtmlAttributes.EMPTY_ATTRIBUTES);
+                    written = true;
+                }
+                listFormat.writeElementStartTag(out, HtmlAttributes.EMPTY_ATTRIBUTES);
+                out.print(TagUtil.escapeHtml(getFormattedLabel(element, value), true));
+                listFormat.writeElementEndTag(out);
             }
         }
-        StringBuilder listTag = new StringBuilder();
-        if (elements.length() != 0) {
-            listTag.append(listFormat.getListStartTag(HtmlAttributes.EMPTY_ATTRIBUTES))
-                   .append(elements)
-                   .append(listFormat.getListEndTag());
+        if (written) {
+            listFormat.writeListEndTag(out);
         }
-        return listTag.toString();
     }
     
     /**
-     * 入力タグを作成する。
+     * 入力タグを出力する。
      * @param pageContext ページコンテキスト
+     * @param out 出力先
      * @param attributes 属性
      * @param list リスト
      * @param values 入力値
      * @param listFormat リストタグ
      * @param listAttributes リストタグ用の属性。
      *                        name属性に対応するエラーメッセージが存在する場合は、CSSクラス名を設定している。
-     * @return 入力タグ
+     * @throws IOException 出力先への書き込みに失敗した場合
      */
-    protected abstract String createInputTag(PageContext pageContext, HtmlAttributes attributes,
-                                                List<?> list, Collection<?> values,
-                                                ListFormat listFormat, HtmlAttributes listAttributes);
+    protected abstract void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes,
+                                          List<?> list, Collection<?> values,
+                                          ListFormat listFormat, HtmlAttributes listAttributes) throws IOException;
     
     /**
      * 値を取得する。
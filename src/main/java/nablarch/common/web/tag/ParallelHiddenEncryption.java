@@ -0,0 +1,203 @@
+package nablarch.common.web.tag;
+
+import static nablarch.fw.ExecutionContext.FW_PREFIX;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.common.web.HtmlTagUtil;
+
+/**
+ * hiddenタグの暗号化を、画面を出力するスレッドと並行して行うクラス。
+ * <p/>
+ * {@link ParallelHiddenEncryptionTag}のボディで出力するフォームごとに、暗号化をスレッドプールに依頼し、
+ * nablarch_hiddenの値にはプレースホルダを出力する。
+ * ボディの出力が完了した時点で暗号化の完了を待ち、プレースホルダを暗号化した結果で置き換える。
+ * <p/>
+ * スレッドプールは全てのリクエストで共有し、スレッド数と待ち行列の長さを並列度で制限する。
+ * 待ち行列が上限に達した場合、又はスレッドプールが終了している場合は、画面を出力するスレッドで暗号化を行う。
+ */
+final class ParallelHiddenEncryption {
+
+    /** リクエストスコープに格納する際に使用するキー */
+    private static final String KEY = FW_PREFIX + "parallelHiddenEncryption";
+
+    /** スレッドあたりの待ち行列の長さ */
+    private static final int QUEUE_CAPACITY_PER_THREAD = 16;
+
+    /** プレースホルダの識別子の生成に使用する乱数生成器 */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** スレッド名の連番 */
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    /**
+     * 依頼を受け付けられない場合に、依頼したスレッドで処理を実行するハンドラ。
+     * <p/>
+     * {@link ThreadPoolExecutor.CallerRunsPolicy}はスレッドプールが終了している場合に処理を破棄し、
+     * 結果を待つスレッドが完了しない{@link Future}を待ち続けることになるため、終了しているかどうかに関わらず実行する。
+     */
+    private static final RejectedExecutionHandler RUN_ON_CALLER = new RejectedExecutionHandler() {
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            r.run();
+        }
+    };
+
+    /** スレッドプールの生成と置き換えに使用するロック */
+    private static final Object EXECUTOR_LOCK = new Object();
+
+    /** 共有するスレッドプール */
+    private static ThreadPoolExecutor executor;
+
+    /** 共有するスレッドプールの並列度 */
+    private static int executorParallelism;
+
+    /** 外側のタグで開始した並列暗号化。存在しない場合はnull */
+    private final ParallelHiddenEncryption outer;
+
+    /** 暗号化を依頼したスレッドプール */
+    private final ThreadPoolExecutor pool;
+
+    /** プレースホルダのプレフィックス(HTMLエスケープの対象となる文字を含まない) */
+    private final String prefix;
+
+    /** 暗号化の結果(依頼した順) */
+    private final List<Future<String>> results = new ArrayList<Future<String>>();
+
+    /**
+     * コンストラクタ。
+     * @param outer 外側のタグで開始した並列暗号化。存在しない場合はnull
+     * @param pool 暗号化を依頼するスレッドプール
+     */
+    private ParallelHiddenEncryption(ParallelHiddenEncryption outer, ThreadPoolExecutor pool) {
+        this.outer = outer;
+        this.pool = pool;
+        this.prefix = "{" + FW_PREFIX + "hidden:" + Long.toHexString(RANDOM.nextLong()) + ":";
+    }
+
+    /**
+     * 並列暗号化を開始し、リクエストスコープに設定する。
+     * @param pageContext ページコンテキスト
+     * @param parallelism 並列度
+     * @return 並列暗号化
+     */
+    static ParallelHiddenEncryption begin(PageContext pageContext, int parallelism) {
+        ParallelHiddenEncryption encryption = new ParallelHiddenEncryption(get(pageContext), getExecutor(parallelism));
+        pageContext.setAttribute(KEY, encryption, PageContext.REQUEST_SCOPE);
+        return encryption;
+    }
+
+    /**
+     * リクエストスコープから並列暗号化を取得する。
+     * @param pageContext ページコンテキスト
+     * @return 並列暗号化。開始していない場合はnull
+     */
+    static ParallelHiddenEncryption get(PageContext pageContext) {
+        return (ParallelHiddenEncryption) pageContext.getAttribute(KEY, PageContext.REQUEST_SCOPE);
+    }
+
+    /**
+     * 並列暗号化を終了し、リクエストスコープを外側のタグで開始した並列暗号化に戻す。
+     * <p/>
+     * 完了していない暗号化は取り消す。
+     * @param pageContext ページコンテキスト
+     */
+    void end(PageContext pageContext) {
+        for (Future<String> result : results) {
+            result.cancel(false);
+        }
+        if (outer != null) {
+            pageContext.setAttribute(KEY, outer, PageContext.REQUEST_SCOPE);
+        } else {
+            pageContext.removeAttribute(KEY, PageContext.REQUEST_SCOPE);
+        }
+    }
+
+    /**
+     * 暗号化をスレッドプールに依頼する。
+     * @param task 暗号化を行うタスク
+     * @return 暗号化した結果の代わりに出力するプレースホルダ
+     */
+    String submit(Callable<String> task) {
+        results.add(pool.submit(task));
+        return getPlaceholder(results.size() - 1);
+    }
+
+    /**
+     * 暗号化の完了を待ち、ボディのプレースホルダを暗号化した結果で置き換えて出力する。
+     * <p/>
+     * 暗号化した結果は、hiddenタグのvalue属性と同じくHTMLエスケープして出力する。
+     * @param body ボディの内容
+     * @param out 出力先
+     * @throws IOException 出力に失敗した場合
+     * @throws ExecutionException 暗号化に失敗した場合
+     * @throws InterruptedException 待機中に割り込まれた場合
+     */
+    void writeTo(String body, Writer out) throws IOException, ExecutionException, InterruptedException {
+        int position = 0;
+        for (int i = 0; i < results.size(); i++) {
+            String placeholder = getPlaceholder(i);
+            int index = body.indexOf(placeholder, position);
+            String value = results.get(i).get();
+            if (index == -1) {
+                continue;
+            }
+            out.write(body, position, index - position);
+            HtmlTagUtil.escapeHtml(value, false, out);
+            position = index + placeholder.length();
+        }
+        out.write(body, position, body.length() - position);
+    }
+
+    /**
+     * プレースホルダを取得する。
+     * @param index 依頼した順の番号
+     * @return プレースホルダ
+     */
+    private String getPlaceholder(int index) {
+        return prefix + index + "}";
+    }
+
+    /**
+     * 並列度に応じたスレッドプールを取得する。
+     * <p/>
+     * 並列度が変更された場合、又はスレッドプールが終了している場合は、スレッドプールを作り直す。
+     * 変更前のスレッドプールは、並列度の変更前に開始した並列暗号化が引き続き依頼に使用するため終了しない。
+     * スレッドはアイドル状態が続くと終了するため、参照されなくなったスレッドプールはそのまま破棄される。
+     * @param parallelism 並列度
+     * @return スレッドプール
+     */
+    static ThreadPoolExecutor getExecutor(int parallelism) {
+        synchronized (EXECUTOR_LOCK) {
+            if (executor == null || executor.isShutdown() || executorParallelism != parallelism) {
+                executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<Runnable>(parallelism * QUEUE_CAPACITY_PER_THREAD),
+                        new ThreadFactory() {
+                            public Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r, "nablarch-hidden-encryption-" + THREAD_NUMBER.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        },
+                        RUN_ON_CALLER);
+                executor.allowCoreThreadTimeOut(true);
+                executorParallelism = parallelism;
+            }
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package nablarch.common.web.tag;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.tagext.BodyContent;
+import jakarta.servlet.jsp.tagext.BodyTag;
+
+/**
+ * ボディで出力するフォームのhiddenタグの暗号化を、並行して行うクラス。
+ * <pre>
+ * 多数のフォームを含む画面で使用する。
+ * カスタムタグのデフォルト値設定でhiddenタグの暗号化の並列度が指定されている場合は、
+ * ボディの内容をバッファリングし、フォームごとの暗号化をスレッドプールで行う。
+ * ボディの出力が完了した時点で暗号化の完了を待ち、暗号化した結果を埋め込んで出力する。
+ * 出力内容は、このタグを使用しない場合と同じとなる。
+ * 並列度が指定されていない場合は、何もせずにボディを評価する。
+ * </pre>
+ */
+public class ParallelHiddenEncryptionTag extends CustomTagSupport implements BodyTag {
+
+    /** {@link BodyContent} */
+    private BodyContent bodyContent;
+
+    /** 並列暗号化。並列度が指定されていない場合はnull */
+    private ParallelHiddenEncryption encryption;
+
+    /**
+     * {@inheritDoc}<br>
+     * 並列度が指定されている場合は、並列暗号化を開始してボディをバッファリングする。
+     */
+    public int doStartTag() throws JspException {
+        int parallelism = TagUtil.getCustomTagConfig().getHiddenEncryptionParallelism();
+        if (parallelism <= 0) {
+            return EVAL_BODY_INCLUDE;
+        }
+        encryption = ParallelHiddenEncryption.begin(pageContext, parallelism);
+        return EVAL_BODY_BUFFERED;
+    }
+
+    /** {@inheritDoc} */
+    public void doInitBody() throws JspException {
+    }
+
+    /** {@inheritDoc} */
+    public void setBodyContent(BodyContent bodyContent) {
+        this.bodyContent = bodyContent;
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * 暗号化の完了を待ち、暗号化した結果を埋め込んだボディを出力する。
+     */
+    @Override
+    public int doEndTag() throws JspException {
+        if (encryption == null || bodyContent == null) {
+            return EVAL_PAGE;
+        }
+        try {
+            encryption.writeTo(bodyContent.getString(), bodyContent.getEnclosingWriter());
+        } catch (IOException e) {
+            throw new JspException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JspException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new JspException(cause);
+        }
+        return EVAL_PAGE;
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * 並列暗号化を終了する。
+     */
+    @Override
+    public void doFinally() {
+        if (encryption != null) {
+            encryption.end(pageContext);
+            encryption = null;
+        }
+        bodyContent = null;
+        super.doFinally();
+    }
+}
@@ -1,8 +1,11 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
+
 import nablarch.core.util.StringUtil;
 
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
 /**
@@ -170,7 +173,8 @@ public class PasswordTag extends InputTagSupport {
          * 属性はHTMLエスケープして出力する。
          * </pre>
          */
-        protected String createInputTag(PageContext pageContext, HtmlAttributes attributes, Object value) {
+        protected void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, Object value)
+                throws IOException {
             if (restoreValue) {
                 attributes.put(HtmlAttribute.VALUE, value);
             }
@@ -181,7 +185,7 @@ public class PasswordTag extends InputTagSupport {
                     attributes.put(HtmlAttribute.AUTOCOMPLETE, "off");
                 }
             }
-            return TagUtil.createTagWithoutBody(getTagName(), attributes);
+            TagUtil.writeTagWithoutBody(out, getTagName(), attributes);
         }
 
         /**
@@ -190,13 +194,14 @@ public class PasswordTag extends InputTagSupport {
          * 入力データを指定された置換文字に置き換え、HTMLエスケープして出力する。
          * </pre>
          */
-        protected String createOutputTag(PageContext pageContext, HtmlAttributes attributes, Object value) {
+        protected void writeOutputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, Object value)
+                throws IOException {
             String password = StringUtil.toString(value);
             StringBuilder sb = new StringBuilder(password.length());
             for (int i = 0; i < password.length(); i++) {
                 sb.append(replacement);
             }
-            return TagUtil.escapeHtml(sb.toString(), true);
+            out.print(TagUtil.escapeHtml(sb.toString(), true));
         }
     }
     
@@ -0,0 +1,297 @@
+package nablarch.common.web.tag;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.core.util.ObjectUtil;
+
+/**
+ * name属性に指定されたオブジェクト階層へのアクセスを解析した結果を保持するクラス。
+ * <p/>
+ * name属性の解析結果は、name属性ごとに上限付きでキャッシュする。
+ * プロパティの取得に使用するgetterは、クラスとプロパティ名ごとにキャッシュする。
+ * <p/>
+ * プロパティの取得結果と例外は、{@link ObjectUtil#getProperty(Object, String)}及び
+ * {@link ObjectUtil#getPropertyIfExists(Object, String)}を使用した場合と同じになる。
+ * getterが例外(エラーを含む)を送出した場合は、{@link ObjectUtil}と同じく、
+ * 送出された例外を{@link InvocationTargetException}で包んだ{@link IllegalArgumentException}を送出する。
+ * publicでないクラスに定義されたgetterなど、{@link MethodHandle}を取得できない場合は{@link ObjectUtil}に処理を委譲する。
+ */
+final class PropertyPath {
+
+    /** ドットのパターン */
+    private static final Pattern DOT_PATTERN = Pattern.compile("\\.");
+
+    /** 角括弧付プロパティのパターン */
+    private static final Pattern BRACKET_PATTERN = Pattern.compile("^(.+?)\\[(.+?)\\]$");
+
+    /** キャッシュするname属性の上限 */
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    /** name属性ごとの解析結果 */
+    private static final ConcurrentMap<String, PropertyPath> CACHE = new ConcurrentHashMap<String, PropertyPath>();
+
+    /** getterの型(オブジェクトを受け取りプロパティの値を返す) */
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /** クラスごとのgetter(キーはプロパティ名) */
+    private static final ClassValue<ConcurrentMap<String, Getter>> GETTERS = new ClassValue<ConcurrentMap<String, Getter>>() {
+        @Override
+        protected ConcurrentMap<String, Getter> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<String, Getter>();
+        }
+    };
+
+    /** ドットで区切ったname属性の値ごとのセグメント */
+    private final Segment[] segments;
+
+    /**
+     * name属性を解析して生成する。
+     * @param name name属性
+     */
+    private PropertyPath(String name) {
+        String[] splitName = DOT_PATTERN.split(name);
+        segments = new Segment[splitName.length];
+        for (int i = 0; i < splitName.length; i++) {
+            segments[i] = new Segment(splitName[i]);
+        }
+    }
+
+    /**
+     * name属性の解析結果を取得する。
+     * @param name name属性
+     * @return 解析結果
+     */
+    static PropertyPath compile(String name) {
+        PropertyPath path = CACHE.get(name);
+        if (path != null) {
+            return path;
+        }
+        path = new PropertyPath(name);
+        if (CACHE.size() >= MAX_CACHE_SIZE) {
+            // 添字付きのname属性などで上限に達した場合は、古い解析結果をまとめて破棄する。
+            CACHE.clear();
+        }
+        CACHE.put(name, path);
+        return path;
+    }
+
+    /**
+     * オブジェクト階層のルートにあたるオブジェクトを変数スコープから取得する際の名前を取得する。
+     * @return ルートの名前
+     */
+    String getRootName() {
+        return segments[0].property;
+    }
+
+    /**
+     * 指定されたスコープのname属性のプロパティを保持するオブジェクトを取得する。
+     * @param pageContext ページコンテキスト
+     * @param scope スコープ
+     * @return name属性のプロパティを保持するオブジェクト。存在しない場合はnull
+     */
+    Object getObjectOnScope(PageContext pageContext, int scope) {
+        Segment root = segments[0];
+        Object obj;
+        if (root.indexed) {
+            // List or Array
+            int index = root.getIndex();
+            obj = TagUtil.getElement(pageContext.getAttribute(root.property, scope), index);
+        } else {
+            // Object or Map
+            obj = pageContext.getAttribute(root.property, scope);
+        }
+
+        // find leaf
+        for (int i = 1; i < segments.length - 1; i++) {
+            if (obj == null) {
+                return null;
+            }
+            obj = segments[i].getValue(obj);
+        }
+        return obj;
+    }
+
+    /**
+     * オブジェクトそのものまたはプロパティを選択して返す。
+     * <p/>
+     * {@link TagUtil#chooseObjectOrProperty(Object, String[])}と同じ処理を行う。
+     * @param obj プロパティを取得する元になるオブジェクト
+     * @return name属性のセグメントが1つの場合はオブジェクト、それ以外は最後のセグメントに一致するプロパティ
+     */
+    Object chooseObjectOrProperty(Object obj) {
+        if (obj == null) {
+            return null;
+        }
+        if (segments.length == 1) {
+            return obj;
+        }
+        return segments[segments.length - 1].getValue(obj);
+    }
+
+    /**
+     * プロパティを取得する。
+     * @param obj オブジェクト
+     * @param property プロパティ名
+     * @param required プロパティが存在しない場合に例外を送出する場合はtrue
+     * @return プロパティの値。プロパティが存在せずrequiredがfalseの場合はnull
+     */
+    private static Object getProperty(Object obj, String property, boolean required) {
+        if (obj instanceof Map<?, ?>) {
+            return ((Map<?, ?>) obj).get(property);
+        }
+        ConcurrentMap<String, Getter> getters = GETTERS.get(obj.getClass());
+        Getter getter = getters.get(property);
+        if (getter == null) {
+            getter = Getter.resolve(obj.getClass(), property);
+            getters.putIfAbsent(property, getter);
+        }
+        if (getter.handle == null) {
+            if (getter == Getter.NOT_FOUND && !required) {
+                return null;
+            }
+            return required ? ObjectUtil.getProperty(obj, property) : ObjectUtil.getPropertyIfExists(obj, property);
+        }
+        try {
+            return (Object) getter.handle.invokeExact(obj);
+        } catch (Throwable e) {
+            // ObjectUtilと同じく、getterが送出した例外はリフレクションによる呼び出しと同じ形で包む。
+            throw new IllegalArgumentException(new InvocationTargetException(e));
+        }
+    }
+
+    /**
+     * ドットで区切ったname属性の値を解析した結果。
+     */
+    private static final class Segment {
+
+        /** プロパティ名 */
+        private final String property;
+
+        /** 角括弧内の文字列。角括弧がない場合はnull */
+        private final String indexText;
+
+        /** 角括弧付きか否か */
+        private final boolean indexed;
+
+        /** 角括弧内のインデックス。数値に変換できない場合はnull */
+        private final Integer index;
+
+        /**
+         * ドットで区切ったname属性の値を解析して生成する。
+         * @param name ドットで区切ったname属性の値
+         */
+        Segment(String name) {
+            Matcher matcher = BRACKET_PATTERN.matcher(name);
+            indexed = matcher.matches();
+            if (indexed) {
+                property = matcher.group(1);
+                indexText = matcher.group(2);
+                index = toIndex(indexText);
+            } else {
+                property = name;
+                indexText = null;
+                index = null;
+            }
+        }
+
+        /**
+         * 角括弧内の文字列をインデックスに変換する。
+         * @param text 角括弧内の文字列
+         * @return インデックス。数値に変換できない場合はnull
+         */
+        private static Integer toIndex(String text) {
+            try {
+                return Integer.valueOf(text);
+            } catch (NumberFormatException e) {
+                // 解析時ではなく、アクセス時に例外を送出する。
+                return null;
+            }
+        }
+
+        /**
+         * 角括弧内のインデックスを取得する。
+         * @return インデックス
+         */
+        int getIndex() {
+            return index != null ? index : Integer.valueOf(indexText);
+        }
+
+        /**
+         * オブジェクトからこのセグメントに対応する値を取得する。
+         * @param obj オブジェクト
+         * @return 値
+         */
+        Object getValue(Object obj) {
+            if (indexed) {
+                // List or Array
+                Object list = getProperty(obj, property, true);
+                return TagUtil.getElement(list, getIndex());
+            }
+            // Object or Map
+            return getProperty(obj, property, false);
+        }
+    }
+
+    /**
+     * プロパティのgetter。
+     */
+    private static final class Getter {
+
+        /** getterが存在しないことを表すインスタンス */
+        private static final Getter NOT_FOUND = new Getter(null);
+
+        /** {@link ObjectUtil}に処理を委譲することを表すインスタンス */
+        private static final Getter DELEGATE = new Getter(null);
+
+        /** getterを呼び出すハンドル */
+        private final MethodHandle handle;
+
+        /**
+         * コンストラクタ。
+         * @param handle getterを呼び出すハンドル
+         */
+        private Getter(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        /**
+         * クラスとプロパティ名に対応するgetterを解決する。
+         * @param type クラス
+         * @param property プロパティ名
+         * @return getter
+         */
+        static Getter resolve(Class<?> type, String property) {
+            if (property.isEmpty()) {
+                return DELEGATE;
+            }
+            Method method;
+            try {
+                method = type.getMethod(ObjectUtil.getGetterMethodName(property));
+            } catch (NoSuchMethodException e) {
+                return NOT_FOUND;
+            } catch (RuntimeException e) {
+                return DELEGATE;
+            }
+            if (Modifier.isStatic(method.getModifiers())) {
+                return DELEGATE;
+            }
+            try {
+                return new Getter(MethodHandles.publicLookup().unreflect(method).asType(GETTER_TYPE));
+            } catch (IllegalAccessException e) {
+                return DELEGATE;
+            }
+        }
+    }
+}
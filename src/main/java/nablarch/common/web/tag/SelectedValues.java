@@ -0,0 +1,84 @@
+package nablarch.common.web.tag;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * 選択項目において選択した値を、{@link Object#toString()}した文字列で検索できるようにしたコレクション。
+ * <p/>
+ * 選択肢ごとに{@link TagUtil#contains(Collection, Object)}を呼び出す場合に、
+ * 選択した値を毎回走査しないように、選択した値の文字列をタグごとに1回だけ{@link Set}に変換する。
+ * 走査や要素数などのコレクションとしての振る舞いは、元のコレクションと同じ。
+ */
+final class SelectedValues extends AbstractCollection<Object> {
+
+    /** {@link Set}に変換する選択した値の数の下限(これより少ない場合は走査した方が速い) */
+    static final int THRESHOLD = 8;
+
+    /** 選択した値 */
+    private final Collection<?> values;
+
+    /** 選択した値を{@link Object#toString()}した文字列 */
+    private final Set<String> strValues;
+
+    /**
+     * コンストラクタ。
+     * @param values 選択した値
+     */
+    private SelectedValues(Collection<?> values) {
+        this.values = values;
+        this.strValues = new HashSet<String>(values.size() * 4 / 3 + 1);
+        for (Object element : values) {
+            if (element != null) {
+                strValues.add(element.toString());
+            }
+        }
+    }
+
+    /**
+     * 選択した値を、文字列で検索できるコレクションに変換する。
+     * <p/>
+     * 選択した値の数が{@link #THRESHOLD}より少ない場合は、変換せずにそのまま返す。
+     * @param values 選択した値
+     * @return 選択した値
+     */
+    static Collection<?> of(Collection<?> values) {
+        if (values == null || values.size() < THRESHOLD || values instanceof SelectedValues) {
+            return values;
+        }
+        return new SelectedValues(values);
+    }
+
+    /**
+     * 選択した値に、指定された値の文字列と等しい値が含まれているかを判定する。
+     * @param value 選択肢の値
+     * @return 含まれている場合はtrue
+     */
+    boolean containsString(Object value) {
+        return value != null && strValues.contains(value.toString());
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        final Iterator<?> iterator = values.iterator();
+        return new Iterator<Object>() {
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+            public Object next() {
+                return iterator.next();
+            }
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+}
@@ -106,6 +106,7 @@ public class SetTag extends CustomTagSupport {
                                 : TagUtil.getValue(pageContext, name, true);
         }
         pageContext.setAttribute(var, obj, scope);
+        ValueCache.invalidate(pageContext);
         
         return SKIP_BODY;
     }
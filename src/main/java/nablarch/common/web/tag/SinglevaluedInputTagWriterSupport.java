@@ -1,9 +1,11 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Set;
 
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
 /**
@@ -58,8 +60,8 @@ public class SinglevaluedInputTagWriterSupport implements Serializable {
     /**
      * 単一値の入力項目を出力する。
      * <pre>
-     * 入力画面の場合は、{@link #createInputTag(jakarta.servlet.jsp.PageContext, HtmlAttributes, Object)}に処理を移譲する。
-     * 確認画面の場合は、{@link #createOutputTag(jakarta.servlet.jsp.PageContext, HtmlAttributes, Object)}に処理を移譲する。
+     * 入力画面の場合は、{@link #writeInputTag(PageContext, JspWriter, HtmlAttributes, Object)}に処理を移譲する。
+     * 確認画面の場合は、{@link #writeOutputTag(PageContext, JspWriter, HtmlAttributes, Object)}に処理を移譲する。
      * </pre>
      * @param pageContext ページコンテキスト
      * @param attributes 属性
@@ -71,44 +73,50 @@ public class SinglevaluedInputTagWriterSupport implements Serializable {
         Object object = TagUtil.getSingleValue(pageContext, name);
         Object value = object != null ? object : "";
         
-        String tag;
-        if (TagUtil.isConfirmationPage(pageContext)) {
-            tag = createOutputTag(pageContext, attributes, value);
-        } else {
-            TagUtil.editClassAttributeForError(pageContext, attributes, errorCss, nameAlias);
-            tag = createInputTag(pageContext, attributes, value);
+        try {
+            if (TagUtil.isConfirmationPage(pageContext)) {
+                writeOutputTag(pageContext, pageContext.getOut(), attributes, value);
+            } else {
+                TagUtil.editClassAttributeForError(pageContext, attributes, errorCss, nameAlias);
+                writeInputTag(pageContext, pageContext.getOut(), attributes, value);
+            }
+        } catch (IOException e) {
+            throw new JspException(e);
         }
-        TagUtil.print(pageContext, tag);
     }
 
     /**
-     * 出力タグを作成する。
+     * 出力タグを出力する。
      * <pre>
      * name属性に対応する入力データが存在する場合はHTMLエスケープして出力する。
      * </pre>
      * @param pageContext ページコンテキスト
+     * @param out 出力先
      * @param attributes 属性
      * @param value 入力値
-     * @return 出力タグ
+     * @throws IOException 出力先への書き込みに失敗した場合
      */
-    protected String createOutputTag(PageContext pageContext, HtmlAttributes attributes, Object value) {
-        return TagUtil.escapeHtml(value, true);
+    protected void writeOutputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, Object value)
+            throws IOException {
+        out.print(TagUtil.escapeHtml(value, true));
     }
 
     /**
-     * 入力タグを作成する。
+     * 入力タグを出力する。
      * <pre>
      * 指定された属性を使用してボディを持たないタグを出力する。
      * value属性に指定されたvalueを設定する。
      * 属性はHTMLエスケープして出力する。
      * </pre>
      * @param pageContext ページコンテキスト
+     * @param out 出力先
      * @param attributes 属性
      * @param value 入力値
-     * @return 入力タグ
+     * @throws IOException 出力先への書き込みに失敗した場合
      */
-    protected String createInputTag(PageContext pageContext, HtmlAttributes attributes, Object value) {
+    protected void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, Object value)
+            throws IOException {
         attributes.put(HtmlAttribute.VALUE, value);
-        return TagUtil.createTagWithoutBody(tagName, attributes);
+        TagUtil.writeTagWithoutBody(out, tagName, attributes);
     }
 }
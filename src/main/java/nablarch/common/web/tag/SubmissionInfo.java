@@ -1,6 +1,7 @@
 package nablarch.common.web.tag;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,6 +10,9 @@ import nablarch.common.web.tag.ChangeParamNameTag.ChangeParamName;
 
 /**
  * サブミット情報を保持するクラス。
+ * <p/>
+ * 一覧画面などでは1画面で多数のサブミット情報を扱うため、
+ * パラメータとパラメータ名の変更情報は初めて追加する際に生成する。
  * @author Kiyohito Itoh
  */
 public class SubmissionInfo {
@@ -39,7 +43,7 @@ public class SubmissionInfo {
     private final boolean allowDoubleSubmission;
     
     /** サブミット時に追加するパラメータ */
-    private final Map<String, List<String>> paramsMap;
+    private Map<String, List<String>> paramsMap;
 
     /** ポップアップのウィンドウ名 */
     private final String popupWindowName;
@@ -48,7 +52,7 @@ public class SubmissionInfo {
     private final String popupOption;
     
     /** ポップアップ用のサブミット時のパラメータ名の変更情報 */
-    private final List<ChangeParamName> changeParamNames;
+    private List<ChangeParamName> changeParamNames;
     
     /** 表示制御方法 */
     private final DisplayMethod displayMethod;
@@ -73,8 +77,6 @@ public class SubmissionInfo {
         this.allowDoubleSubmission = allowDoubleSubmission;
         this.popupWindowName = popupWindowName;
         this.popupOption = popupOption;
-        paramsMap = new HashMap<String, List<String>>();
-        changeParamNames = new ArrayList<ChangeParamName>();
         this.displayMethod = displayMethod;
     }
 
@@ -132,25 +134,34 @@ public class SubmissionInfo {
      * @param value パラメータの値
      */
     public void addParam(String name, String value) {
-        if (!paramsMap.containsKey(name)) {
-            paramsMap.put(name, new ArrayList<String>());
+        if (paramsMap == null) {
+            paramsMap = new HashMap<String, List<String>>();
         }
-        paramsMap.get(name).add(value);
+        List<String> values = paramsMap.get(name);
+        if (values == null) {
+            values = new ArrayList<String>();
+            paramsMap.put(name, values);
+        }
+        values.add(value);
     }
     
     /**
      * サブミット時に追加するパラメータを取得する。
+     * <p/>
+     * パラメータが存在しない場合は、変更できない空のマップを返す。
      * @return サブミット時に追加するパラメータ
      */
     public Map<String, List<String>> getParamsMap() {
-        return paramsMap;
+        return paramsMap != null ? paramsMap : Collections.<String, List<String>>emptyMap();
     }
     
     /**
      * サブミット時に追加するパラメータをクリアする。
      */
     public void clearParams() {
-        paramsMap.clear();
+        if (paramsMap != null) {
+            paramsMap.clear();
+        }
     }
     
     /**
@@ -159,15 +170,20 @@ public class SubmissionInfo {
      * @param inputName 変更元となる元画面のinput要素のname属性
      */
     public void addChangeParamName(String paramName, String inputName) {
+        if (changeParamNames == null) {
+            changeParamNames = new ArrayList<ChangeParamName>();
+        }
         changeParamNames.add(new ChangeParamName(paramName, inputName));
     }
 
     /**
      * ポップアップ用のサブミット時のパラメータ名の変更情報を取得する。
+     * <p/>
+     * 変更情報が存在しない場合は、変更できない空のリストを返す。
      * @return ポップアップ用のサブミット時のパラメータ名の変更情報
      */
     public List<ChangeParamName> getChangeParamNames() {
-        return changeParamNames;
+        return changeParamNames != null ? changeParamNames : Collections.<ChangeParamName>emptyList();
     }
     
     /**
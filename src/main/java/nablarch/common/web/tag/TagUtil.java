@@ -24,6 +24,7 @@ import java.util.regex.Pattern;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
 import nablarch.common.code.CodeUtil;
@@ -41,7 +42,6 @@ import nablarch.core.util.I18NUtil;
 import nablarch.core.util.ObjectUtil;
 import nablarch.core.util.StringUtil;
 import nablarch.core.util.annotation.Published;
-import nablarch.core.validation.ValidationResultMessage;
 import nablarch.fw.ExecutionContext;
 import nablarch.fw.web.HttpRequest;
 import nablarch.fw.web.handler.KeitaiAccessHandler;
@@ -72,9 +72,6 @@ public final class TagUtil {
     /** スペースのパターン */
     private static final Pattern SPACE_PATTERN = Pattern.compile("\\s");
 
-    /** ドットのパターン */
-    private static final Pattern DOT_PATTERN = Pattern.compile("\\.");
-
     /** カンマのパターン */
     private static final Pattern COMMA_PATTERN = Pattern.compile("\\s*,\\s*");
 
@@ -136,7 +133,7 @@ public final class TagUtil {
      * @return オープンタグ
      */
     public static String createStartTag(String tagName, HtmlAttributes attributes) {
-        return attributes.isEmpty() ? String.format("<%s>", tagName) : String.format("<%s %s>", tagName, attributes.toHTML(tagName));
+        return attributes.isEmpty() ? "<" + tagName + ">" : "<" + tagName + " " + attributes.toHTML(tagName) + ">";
     }
 
     /**
@@ -145,7 +142,7 @@ public final class TagUtil {
      * @return 終了タグ
      */
     public static String createEndTag(String tagName) {
-        return String.format("</%s>", tagName);
+        return "</" + tagName + ">";
     }
 
     /**
@@ -170,8 +167,7 @@ public final class TagUtil {
      * @return ボディを持たないタグ
      */
     public static String createTagWithoutBody(String tagName, HtmlAttributes attributes) {
-        return attributes.isEmpty() ? String.format("<%s />", tagName) : String.format("<%s %s />", tagName, attributes.toHTML(
-                tagName));
+        return attributes.isEmpty() ? "<" + tagName + " />" : "<" + tagName + " " + attributes.toHTML(tagName) + " />";
     }
 
     /**
@@ -181,11 +177,21 @@ public final class TagUtil {
      * @return hiddenタグ
      */
     public static String createHiddenTag(String name, String value) {
+        return createTagWithoutBody("input", createHiddenTagAttributes(name, value));
+    }
+
+    /**
+     * hiddenタグの属性を作成する。
+     * @param name name属性
+     * @param value value属性
+     * @return hiddenタグの属性
+     */
+    private static HtmlAttributes createHiddenTagAttributes(String name, String value) {
         HtmlAttributes attributes = new HtmlAttributes();
         attributes.put(HtmlAttribute.TYPE, "hidden");
         attributes.put(HtmlAttribute.NAME, name);
         attributes.put(HtmlAttribute.VALUE, value);
-        return createTagWithoutBody("input", attributes);
+        return attributes;
     }
 
     /**
@@ -198,12 +204,22 @@ public final class TagUtil {
      * @return labelタグ
      */
     public static String createLabelTag(String type, String content, String forAttribute, String cssClass) {
+        return createTagWithBody("label", createLabelTagAttributes(forAttribute, cssClass), content);
+    }
+
+    /**
+     * labelタグの属性を作成する。
+     * @param forAttribute for属性。未指定の場合はnull
+     * @param cssClass CSSクラス名
+     * @return labelタグの属性
+     */
+    private static HtmlAttributes createLabelTagAttributes(String forAttribute, String cssClass) {
         HtmlAttributes attributes = new HtmlAttributes();
         attributes.put(HtmlAttribute.FOR, forAttribute);
         if (!StringUtil.isNullOrEmpty(cssClass)) {
             attributes.put(HtmlAttribute.CLASS, cssClass);
         }
-        return createTagWithBody("label", attributes, content);
+        return attributes;
     }
 
     /**
@@ -248,15 +264,8 @@ public final class TagUtil {
         CustomTagConfig config = getCustomTagConfig();
         String ls = config.getLineSeparator();
 
-        HtmlAttributes attributes = new HtmlAttributes();
-        attributes.put(HtmlAttribute.TYPE, "text/javascript");
-
-        if (hasCspNonce(pageContext)) {
-            attributes.put(HtmlAttribute.NONCE, getCspNonce(pageContext));
-        }
-
         return new StringBuilder()
-                .append(createStartTag("script", attributes))
+                .append(createStartTag("script", createScriptTagAttributes(pageContext)))
                 .append(ls)
                 .append(config.getScriptBodyPrefix())
                 .append(ls)
@@ -267,6 +276,161 @@ public final class TagUtil {
                 .append(createEndTag("script")).toString();
     }
 
+    /**
+     * scriptタグの属性を作成する。
+     * @param pageContext ページコンテキスト
+     * @return scriptタグの属性
+     */
+    private static HtmlAttributes createScriptTagAttributes(PageContext pageContext) {
+        HtmlAttributes attributes = new HtmlAttributes();
+        attributes.put(HtmlAttribute.TYPE, "text/javascript");
+
+        if (hasCspNonce(pageContext)) {
+            attributes.put(HtmlAttribute.NONCE, getCspNonce(pageContext));
+        }
+        return attributes;
+    }
+
+    // タグを出力先に直接書き込むメソッド
+    //
+    // 下記のメソッドは、create～Tagメソッドと同じ内容を中間の文字列を作成せずに出力先に書き込む。
+
+    /**
+     * 開始タグを出力する。
+     * @param out 出力先
+     * @param tagName タグ名
+     * @param attributes 属性
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public static void writeStartTag(JspWriter out, String tagName, HtmlAttributes attributes) throws IOException {
+        out.write('<');
+        out.write(tagName);
+        if (!attributes.isEmpty()) {
+            out.write(' ');
+            attributes.writeHTML(tagName, out);
+        }
+        out.write('>');
+    }
+
+    /**
+     * 終了タグを出力する。
+     * @param out 出力先
+     * @param tagName タグ名
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public static void writeEndTag(JspWriter out, String tagName) throws IOException {
+        out.write("</");
+        out.write(tagName);
+        out.write('>');
+    }
+
+    /**
+     * ボディを持つタグを出力する。
+     * @param out 出力先
+     * @param tagName タグ名
+     * @param attributes 属性
+     * @param body ボディ
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public static void writeTagWithBody(JspWriter out, String tagName, HtmlAttributes attributes, String body)
+            throws IOException {
+        writeStartTag(out, tagName, attributes);
+        out.print(body);
+        writeEndTag(out, tagName);
+    }
+
+    /**
+     * ボディを持たないタグを出力する。
+     * @param out 出力先
+     * @param tagName タグ名
+     * @param attributes 属性
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public static void writeTagWithoutBody(JspWriter out, String tagName, HtmlAttributes attributes) throws IOException {
+        out.write('<');
+        out.write(tagName);
+        if (!attributes.isEmpty()) {
+            out.write(' ');
+            attributes.writeHTML(tagName, out);
+        }
+        out.write(" />");
+    }
+
+    /**
+     * hiddenタグを出力する。
+     * @param out 出力先
+     * @param name name属性
+     * @param value value属性
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public static void writeHiddenTag(JspWriter out, String name, String value) throws IOException {
+        writeTagWithoutBody(out, "input", createHiddenTagAttributes(name, value));
+    }
+
+    /**
+     * labelタグを出力する。
+     * @param out 出力先
+     * @param content labelタグの内容
+     * @param forAttribute for属性。未指定の場合はnull
+     * @param cssClass CSSクラス名
+     * @throws IOException 出力先への書き込みに失敗した場合
+     * @see #createLabelTag(String, String, String, String)
+     */
+    public static void writeLabelTag(JspWriter out, String content, String forAttribute, String cssClass)
+            throws IOException {
+        writeTagWithBody(out, "label", createLabelTagAttributes(forAttribute, cssClass), content);
+    }
+
+    /**
+     * JavaScriptを含めるscriptタグを出力する。
+     * <p/>
+     * 出力内容は{@link #createScriptTag(PageContext, String)}と同じ。
+     * @param pageContext ページコンテキスト
+     * @param javaScript scriptタグのボディに指定するJavaScript
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public static void writeScriptTag(PageContext pageContext, CharSequence javaScript) throws IOException {
+        writeScriptStartTag(pageContext);
+        pageContext.getOut().append(javaScript);
+        writeScriptEndTag(pageContext);
+    }
+
+    /**
+     * scriptタグの開始タグと、ボディに対するプレフィックスを出力する。
+     * <p/>
+     * ボディのJavaScriptを出力先に直接書き込む場合に、{@link #writeScriptEndTag(PageContext)}と組み合わせて使用する。
+     * @param pageContext ページコンテキスト
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public static void writeScriptStartTag(PageContext pageContext) throws IOException {
+
+        CustomTagConfig config = getCustomTagConfig();
+        String ls = config.getLineSeparator();
+        JspWriter out = pageContext.getOut();
+
+        writeStartTag(out, "script", createScriptTagAttributes(pageContext));
+        out.write(ls);
+        out.write(config.getScriptBodyPrefix());
+        out.write(ls);
+    }
+
+    /**
+     * scriptタグのボディに対するサフィックスと、終了タグを出力する。
+     * @param pageContext ページコンテキスト
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    public static void writeScriptEndTag(PageContext pageContext) throws IOException {
+
+        CustomTagConfig config = getCustomTagConfig();
+        String ls = config.getLineSeparator();
+        JspWriter out = pageContext.getOut();
+
+        out.write(ls);
+        out.write(config.getScriptBodySuffix());
+        out.write(ls);
+        writeEndTag(out, "script");
+    }
+
     /**
      * リクエストスコープにCSP対応用のnonceが保存されているか否か確認する。
      * nonceが保存されている場合、{@code true}を返却する。
@@ -792,6 +956,8 @@ public final class TagUtil {
      *
      * onclick属性が編集されている場合、または{@code suppressDefaultSubmit}プロパティが{@code true}の
      * 場合は登録しない。
+     * {@link CustomTagConfig#isUseSubmitDelegation()}がtrueの場合は、{@link FormTag}が出力するフォームのクリックイベントで
+     * サブミットするため登録しない。登録しない要素のname属性のみをフォームコンテキストに登録する。
      *
      * @param pageContext ページコンテキスト
      * @param tagName クリック対象のタグ名
@@ -803,18 +969,24 @@ public final class TagUtil {
             return;
         }
 
+        FormContext formContext = getFormContext(pageContext);
+        boolean delegation = getCustomTagConfig().isUseSubmitDelegation();
+
         String onclick = attributes.get(HtmlAttribute.ONCLICK);
-        if (!StringUtil.isNullOrEmpty(onclick)) {
-            // onclick属性が指定されていた場合はスクリプトを登録しない
+        if (!StringUtil.isNullOrEmpty(onclick) || suppressDefaultSubmit) {
+            // onclick属性が指定されていた場合、又はNablarchのデフォルトのsubmit関数呼び出しが抑制されている場合は、
+            // スクリプトを登録しない(フォームのクリックイベントでもサブミットしない)
+            if (delegation) {
+                formContext.addUndelegatedSubmissionName(escapeHtml(attributes.<String>get(HtmlAttribute.NAME)));
+            }
             return;
         }
 
-        if (suppressDefaultSubmit) {
-            // Nablarchのデフォルトのsubmit関数呼び出しが抑制されている場合は、スクリプトを登録しない
+        if (delegation) {
+            // フォームのクリックイベントでサブミットするため、要素ごとのスクリプトは登録しない
             return;
         }
 
-        FormContext formContext = getFormContext(pageContext);
         StringBuilder javaScript = new StringBuilder();
         javaScript.append("document.querySelector(\"");
         javaScript.append("form[name='");
@@ -868,9 +1040,11 @@ public final class TagUtil {
      * @return 追記したCSSクラス名。追記しなかった場合はnull
      */
     public static String editClassAttributeForError(PageContext pageContext, HtmlAttributes attributes, String cssClass, Set<String> nameAlias) {
-        Set<String> names = nameAlias != null ? new HashSet<String>(nameAlias) : new HashSet<String>();
-        names.add(attributes.<String>get(HtmlAttribute.NAME));
-        Message message = TagUtil.findMessage(pageContext, names);
+        MessageIndex index = MessageIndex.get(pageContext);
+        if (index == null) {
+            return null;
+        }
+        Message message = index.find(attributes.<String>get(HtmlAttribute.NAME), nameAlias);
         String useCssClass = null;
         if (message != null) {
             useCssClass = cssClass != null ? cssClass : getCustomTagConfig().getErrorCss();
@@ -1203,6 +1377,10 @@ public final class TagUtil {
      * <li>Servlet APIのリクエストパラメータ(includeRequestParameterがtrueの場合のみ)</li>
      * <li>Servlet APIのセッションスコープ</li>
      * </ol>
+     * <br>
+     * {@link CustomTagConfig#setUseValueCache(boolean)}が有効な場合は、取得結果を画面ごとに保持し、
+     * 同じname属性に対しては保持している取得結果を返す。
+     * ただし、ページスコープ又はリクエストスコープのルートにあたるオブジェクトが置き換わっている場合は、再度探索する。
      *
      * @param pageContext ページコンテキスト
      * @param name name属性
@@ -1210,6 +1388,7 @@ public final class TagUtil {
      * @return value属性。存在しない場合はnull
      *
      * @see CustomTagConfig#setUseValueAsNullIfObjectExists(boolean)
+     * @see CustomTagConfig#setUseValueCache(boolean)
      */
     public static Object getValue(PageContext pageContext, String name, boolean includeRequestParameter) {
 
@@ -1221,20 +1400,44 @@ public final class TagUtil {
         }
 
         CustomTagConfig config = getCustomTagConfig();
+        if (!config.getUseValueCache()) {
+            return findValue(pageContext, name, includeRequestParameter, config);
+        }
 
+        ValueCache cache = ValueCache.get(pageContext);
+        Object value = cache.getValue(pageContext, name, includeRequestParameter);
+        if (value == ValueCache.NOT_CACHED) {
+            value = findValue(pageContext, name, includeRequestParameter, config);
+            cache.putValue(pageContext, name, includeRequestParameter, value);
+        }
+        return value;
+    }
+
+    /**
+     * name属性に対応するvalue属性を変数スコープ及びリクエストパラメータから探索する。
+     * <p/>
+     * 探索方法については、{@link #getValue(PageContext, String, boolean)}メソッドのJavaDocを参照。
+     * @param pageContext ページコンテキスト
+     * @param name name属性
+     * @param includeRequestParameter 取得先にリクエストパラメータを含める場合はtrue
+     * @param config カスタムタグのデフォルト値
+     * @return value属性。存在しない場合はnull
+     */
+    private static Object findValue(PageContext pageContext, String name, boolean includeRequestParameter,
+                                    CustomTagConfig config) {
         try {
 
-            String[] splitName = DOT_PATTERN.split(name);
+            PropertyPath path = PropertyPath.compile(name);
 
-            Object pageObj = getObjectOnScope(pageContext, splitName, PageContext.PAGE_SCOPE);
-            Object pageValue = chooseObjectOrProperty(pageObj, splitName);
+            Object pageObj = path.getObjectOnScope(pageContext, PageContext.PAGE_SCOPE);
+            Object pageValue = path.chooseObjectOrProperty(pageObj);
             if (config.getUseValueAsNullIfObjectExists()
                     && pageObj != null || pageValue != null) {
                 return pageValue;
             }
 
-            Object requestObj = getObjectOnScope(pageContext, splitName, PageContext.REQUEST_SCOPE);
-            Object requestValue = chooseObjectOrProperty(requestObj, splitName);
+            Object requestObj = path.getObjectOnScope(pageContext, PageContext.REQUEST_SCOPE);
+            Object requestValue = path.chooseObjectOrProperty(requestObj);
             if (config.getUseValueAsNullIfObjectExists() && requestObj != null
                     || requestValue != null) {
                 return requestValue;
@@ -1250,9 +1453,9 @@ public final class TagUtil {
             if(pageContext.getSession() == null) {
                 return null;
             }
-            Object sessionObj = getObjectOnScope(pageContext, splitName, PageContext.SESSION_SCOPE);
+            Object sessionObj = path.getObjectOnScope(pageContext, PageContext.SESSION_SCOPE);
 
-            return chooseObjectOrProperty(sessionObj, splitName);
+            return path.chooseObjectOrProperty(sessionObj);
         } catch (RuntimeException e) {
             throw new IllegalArgumentException("failed to parse. name = [" + name + "]", e);
         }
@@ -1285,49 +1488,13 @@ public final class TagUtil {
         }
     }
 
-    /**
-     * 指定されたスコープのname属性のプロパティを保持するオブジェクトを取得する。
-     * @param pageContext ページコンテキスト
-     * @param splitName ドットで区切ったname属性の値
-     * @param scope スコープ
-     * @return name属性のプロパティを保持するオブジェクト。存在しない場合はnull
-     */
-    private static Object getObjectOnScope(PageContext pageContext, String[] splitName, int scope) {
-        Object obj;
-        String name = splitName[0];
-        Matcher rootMatcher = BRACKET_PATTERN.matcher(name);
-        if (rootMatcher.matches()) {
-            // List or Array
-            obj = getElement(pageContext.getAttribute(rootMatcher.group(1), scope), Integer.valueOf(rootMatcher.group(2)));
-        } else {
-            // Object or Map
-            obj = pageContext.getAttribute(name, scope);
-        }
-
-        // find leaf
-        for (int i = 1; i < splitName.length - 1; i++) {
-            if (obj == null) {
-                return null;
-            }
-            Matcher nodeMatcher = BRACKET_PATTERN.matcher(splitName[i]);
-            if (nodeMatcher.matches()) {
-                // List or Array
-                obj = getElement(ObjectUtil.getProperty(obj, nodeMatcher.group(1)), Integer.valueOf(nodeMatcher.group(2)));
-            } else {
-                // Object or Map
-                obj = ObjectUtil.getPropertyIfExists(obj, splitName[i]);
-            }
-        }
-        return obj;
-    }
-
     /**
      * List又は配列の要素を取得する。
      * @param obj List又は配列
      * @param index 要素のインデックス
      * @return 要素
      */
-    private static Object getElement(Object obj, int index) {
+    static Object getElement(Object obj, int index) {
         if (obj == null) {
             return null;
         }
@@ -1346,6 +1513,8 @@ public final class TagUtil {
      * <pre>
      * 選択した値と選択肢の値は、ともに{@link Object#toString()}してから等しいか判定する。
      * 選択項目の選択状態を判定する際に使用する。
+     * 多値の入力項目を出力するタグでは、選択した値が多い場合に文字列の{@link java.util.Set}に変換したコレクションを
+     * 渡すため、走査せずに判定する。
      * </pre>
      * @param values 選択した値
      * @param value 選択肢の値
@@ -1355,6 +1524,9 @@ public final class TagUtil {
         if ((values == null || values.isEmpty()) || value == null) {
             return false;
         }
+        if (values instanceof SelectedValues) {
+            return ((SelectedValues) values).containsString(value);
+        }
         String strValue = value.toString();
         for (Object element : values) {
             if (element != null && strValue.equals(element.toString())) {
@@ -1474,14 +1646,47 @@ public final class TagUtil {
         }
         StringBuilder sb = new StringBuilder(uri.length() + 50);
         sb.append(uri);
-        sb.append(uri.contains("?") ? '&' : '?');
-        sb.append(FW_PREFIX);
-        sb.append(STATIC_CONTENT_VERSION_KEY);
-        sb.append('=');
-        sb.append(escapeHtml(staticContentVersion, false));
+        try {
+            appendStaticContentVersion(uri, staticContentVersion, sb);
+        } catch (IOException e) {
+            // StringBuilderへの追加でIOExceptionが発生することはない。
+            throw new IllegalStateException(e);
+        }
         return sb.toString();
     }
 
+    /**
+     * 出力済みのURIに続けて、静的リソースのバージョンをGETパラメータとして書き込む。
+     * <p/>
+     * 書き込む内容は{@link #addStaticContentVersion(String)}でURIに付加される部分と同じ。
+     * @param uri 出力済みのURI(GETパラメータの有無の判定に使用する)
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    static void writeStaticContentVersion(String uri, Appendable out) throws IOException {
+        String staticContentVersion = SystemRepository.get(STATIC_CONTENT_VERSION_KEY);
+        if (StringUtil.isNullOrEmpty(staticContentVersion)) {
+            return;
+        }
+        appendStaticContentVersion(uri, staticContentVersion, out);
+    }
+
+    /**
+     * 静的リソースのバージョンをGETパラメータとして書き込む。
+     * @param uri バージョンを付加するURI
+     * @param staticContentVersion 静的リソースのバージョン
+     * @param out 出力先
+     * @throws IOException 出力先への書き込みに失敗した場合
+     */
+    private static void appendStaticContentVersion(String uri, String staticContentVersion, Appendable out)
+            throws IOException {
+        out.append(uri.indexOf('?') != -1 ? '&' : '?')
+           .append(FW_PREFIX)
+           .append(STATIC_CONTENT_VERSION_KEY)
+           .append('=');
+        HtmlTagUtil.escapeHtml(staticContentVersion, false, out);
+    }
+
 
     /**
      * JavaScriptの文字列として使用する向けにエスケープを行う。
@@ -1541,9 +1746,8 @@ public final class TagUtil {
      * @return メッセージ。見つからない場合はnull
      */
     public static Message findMessage(PageContext pageContext, String name) {
-        Set<String> names = new HashSet<String>();
-        names.add(name);
-        return findMessage(pageContext, names);
+        MessageIndex index = MessageIndex.get(pageContext);
+        return index != null ? index.find(name) : null;
     }
 
     /**
@@ -1556,18 +1760,11 @@ public final class TagUtil {
      * @return メッセージ。見つからない場合はnull
      */
     public static Message findMessage(PageContext pageContext, Set<String> names) {
-        List<Message> messages = TagUtil.getMessages(pageContext);
-        if (messages == null || (names == null || names.isEmpty())) {
+        if (names == null || names.isEmpty()) {
             return null;
         }
-        for (Message message : messages) {
-            if (message instanceof ValidationResultMessage) {
-                if (names.contains(((ValidationResultMessage) message).getPropertyName())) {
-                    return message;
-                }
-            }
-        }
-        return null;
+        MessageIndex index = MessageIndex.get(pageContext);
+        return index != null ? index.find(names) : null;
     }
 
     // 入力画面と確認画面のJSP共通化をサポートするメソッド
@@ -1,6 +1,7 @@
 package nablarch.common.web.tag;
 
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
 import nablarch.core.ThreadContext;
@@ -8,6 +9,7 @@ import nablarch.core.util.FormatSpec;
 import nablarch.core.util.StringUtil;
 import nablarch.fw.ExecutionContext;
 
+import java.io.IOException;
 import java.util.Locale;
 
 /**
@@ -233,7 +235,8 @@ public class TextTag extends InputTagSupport {
          * </pre>
          */
         @Override
-        protected String createInputTag(PageContext pageContext, HtmlAttributes attributes, Object valueFromName) {
+        protected void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, Object valueFromName)
+                throws IOException {
             Object obj;
             if (useValueAttr) {
                 obj = value;
@@ -258,7 +261,7 @@ public class TextTag extends InputTagSupport {
                     attributes.put(HtmlAttribute.AUTOCOMPLETE, "off");
                 }
             }
-            return super.createInputTag(pageContext, attributes, obj);
+            super.writeInputTag(pageContext, out, attributes, obj);
         }
 
         /**
@@ -349,7 +352,8 @@ public class TextTag extends InputTagSupport {
          * </pre>
          */
         @Override
-        protected String createOutputTag(PageContext pageContext, HtmlAttributes attributes, Object valueFromName) {
+        protected void writeOutputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, Object valueFromName)
+                throws IOException {
             Object obj;
             if (useValueAttr) {
                 obj = value;
@@ -360,7 +364,7 @@ public class TextTag extends InputTagSupport {
                 obj = TagUtil.formatValue(pageContext, attributes.<String>get(HtmlAttribute.NAME),
                         TagUtil.createFormatSpec(valueFormat), obj);
             }
-            return super.createOutputTag(pageContext, attributes, obj);
+            super.writeOutputTag(pageContext, out, attributes, obj);
         }
     }
 
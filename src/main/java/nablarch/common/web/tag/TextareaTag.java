@@ -1,8 +1,11 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
+
 import nablarch.core.util.StringUtil;
 
 import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.PageContext;
 
 /**
@@ -157,14 +160,14 @@ public class TextareaTag extends FocusAttributesTagSupport {
          * 属性はHTMLエスケープして出力する。
          * </pre>
          */
-        protected String createInputTag(PageContext pageContext, HtmlAttributes attributes, Object value) {
+        protected void writeInputTag(PageContext pageContext, JspWriter out, HtmlAttributes attributes, Object value)
+                throws IOException {
+            TagUtil.writeStartTag(out, getTagName(), attributes);
             // 開始タグ直後の改行はレンダリング時に削除されてしまう。
             // 入力データの先頭に改行を表示出来るようにするため、先頭に削除用の改行を設定。
-            String s = new StringBuilder()
-                    .append(TagUtil.getCustomTagConfig().getLineSeparator())
-                    .append(StringUtil.toString(value))
-                    .toString();
-            return TagUtil.createTagWithBody(getTagName(), attributes, TagUtil.escapeHtml(s, false));
+            out.print(TagUtil.escapeHtml(TagUtil.getCustomTagConfig().getLineSeparator(), false));
+            out.print(TagUtil.escapeHtml(StringUtil.toString(value), false));
+            TagUtil.writeEndTag(out, getTagName());
         }
     }
     
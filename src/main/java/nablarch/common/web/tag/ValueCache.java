@@ -0,0 +1,178 @@
+package nablarch.common.web.tag;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.fw.ExecutionContext;
+
+/**
+ * name属性に対応する値の取得結果を保持するクラス。
+ * <p/>
+ * {@link CustomTagConfig#setUseValueCache(boolean)}が有効な場合に、
+ * {@link TagUtil#getValue(PageContext, String, boolean)}の取得結果をname属性ごとに保持し、
+ * 同じname属性に対する変数スコープの探索を1回にする。
+ * <p/>
+ * ページスコープの値は画面(JSP)ごとに異なるため、取得結果はページスコープに保持する。
+ * <p/>
+ * 取得結果は、取得した時点でページスコープとリクエストスコープに設定されていた、オブジェクト階層のルートにあたるオブジェクトとともに保持し、
+ * いずれかのスコープのルートが別のオブジェクトに置き換わっている場合は使用しない。
+ * これにより、c:forEachタグのvar属性やvarStatus属性のように、繰り返しごとにページスコープの値が置き換わる場合も、
+ * 繰り返しごとのオブジェクトから取得する。
+ * リクエストスコープには変更の世代を保持し、{@link #invalidate(PageContext)}で世代を進めることで、
+ * インクルード元の画面が保持している取得結果も含めて破棄する。
+ */
+final class ValueCache {
+
+    /** 取得結果をページスコープに格納する際に使用するキー */
+    private static final String CACHE_KEY = ExecutionContext.FW_PREFIX + "value_cache";
+
+    /** 変更の世代をリクエストスコープに格納する際に使用するキー */
+    private static final String GENERATION_KEY = ExecutionContext.FW_PREFIX + "value_cache_generation";
+
+    /** 取得結果を保持していないことを表すオブジェクト */
+    static final Object NOT_CACHED = new Object();
+
+    /** リクエスト単位の変更の世代 */
+    private final Generation generation;
+
+    /** 取得結果に対応する変更の世代 */
+    private int cachedGeneration;
+
+    /** リクエストパラメータを含めて取得した結果 */
+    private final Map<String, Entry> valuesWithParameter = new HashMap<String, Entry>();
+
+    /** 変数スコープのみから取得した結果 */
+    private final Map<String, Entry> valuesOnScope = new HashMap<String, Entry>();
+
+    /**
+     * コンストラクタ。
+     * @param generation リクエスト単位の変更の世代
+     */
+    private ValueCache(Generation generation) {
+        this.generation = generation;
+        this.cachedGeneration = generation.value;
+    }
+
+    /**
+     * 画面に対応する取得結果を取得する。
+     * @param pageContext ページコンテキスト
+     * @return 取得結果
+     */
+    static ValueCache get(PageContext pageContext) {
+        ValueCache cache = (ValueCache) pageContext.getAttribute(CACHE_KEY, PageContext.PAGE_SCOPE);
+        if (cache == null) {
+            cache = new ValueCache(getGeneration(pageContext));
+            pageContext.setAttribute(CACHE_KEY, cache, PageContext.PAGE_SCOPE);
+        } else if (cache.cachedGeneration != cache.generation.value) {
+            cache.valuesWithParameter.clear();
+            cache.valuesOnScope.clear();
+            cache.cachedGeneration = cache.generation.value;
+        }
+        return cache;
+    }
+
+    /**
+     * 保持している取得結果を破棄する。
+     * <p/>
+     * 変数スコープの値を変更した場合に呼び出す。
+     * 現在のリクエストで取得結果を保持している全ての画面が対象となる。
+     * @param pageContext ページコンテキスト
+     */
+    static void invalidate(PageContext pageContext) {
+        Generation generation = (Generation) pageContext.getAttribute(GENERATION_KEY, PageContext.REQUEST_SCOPE);
+        if (generation != null) {
+            generation.value++;
+        }
+    }
+
+    /**
+     * リクエスト単位の変更の世代を取得する。
+     * @param pageContext ページコンテキスト
+     * @return 変更の世代
+     */
+    private static Generation getGeneration(PageContext pageContext) {
+        Generation generation = (Generation) pageContext.getAttribute(GENERATION_KEY, PageContext.REQUEST_SCOPE);
+        if (generation == null) {
+            generation = new Generation();
+            pageContext.setAttribute(GENERATION_KEY, generation, PageContext.REQUEST_SCOPE);
+        }
+        return generation;
+    }
+
+    /**
+     * name属性に対応する取得結果を取得する。
+     * <p/>
+     * 取得結果を保持した後に、ページスコープ又はリクエストスコープのルートにあたるオブジェクトが置き換わっている場合は、
+     * 保持していないものとして扱う。
+     * @param pageContext ページコンテキスト
+     * @param name name属性
+     * @param includeRequestParameter 取得先にリクエストパラメータを含める場合はtrue
+     * @return 取得結果。保持していない場合は{@link #NOT_CACHED}
+     */
+    Object getValue(PageContext pageContext, String name, boolean includeRequestParameter) {
+        Entry entry = (includeRequestParameter ? valuesWithParameter : valuesOnScope).get(name);
+        if (entry == null
+                || pageContext.getAttribute(entry.rootName, PageContext.PAGE_SCOPE) != entry.pageRoot
+                || pageContext.getAttribute(entry.rootName, PageContext.REQUEST_SCOPE) != entry.requestRoot) {
+            return NOT_CACHED;
+        }
+        return entry.value;
+    }
+
+    /**
+     * name属性に対応する取得結果を保持する。
+     * @param pageContext ページコンテキスト
+     * @param name name属性
+     * @param includeRequestParameter 取得先にリクエストパラメータを含める場合はtrue
+     * @param value 取得結果
+     */
+    void putValue(PageContext pageContext, String name, boolean includeRequestParameter, Object value) {
+        String rootName = PropertyPath.compile(name).getRootName();
+        Entry entry = new Entry(rootName, pageContext.getAttribute(rootName, PageContext.PAGE_SCOPE),
+                                pageContext.getAttribute(rootName, PageContext.REQUEST_SCOPE), value);
+        (includeRequestParameter ? valuesWithParameter : valuesOnScope).put(name, entry);
+    }
+
+    /**
+     * 保持している取得結果。
+     */
+    private static final class Entry {
+
+        /** ルートにあたるオブジェクトの名前 */
+        private final String rootName;
+
+        /** 取得した時点のページスコープのルート */
+        private final Object pageRoot;
+
+        /** 取得した時点のリクエストスコープのルート */
+        private final Object requestRoot;
+
+        /** 取得結果 */
+        private final Object value;
+
+        /**
+         * コンストラクタ。
+         * @param rootName ルートにあたるオブジェクトの名前
+         * @param pageRoot 取得した時点のページスコープのルート
+         * @param requestRoot 取得した時点のリクエストスコープのルート
+         * @param value 取得結果
+         */
+        Entry(String rootName, Object pageRoot, Object requestRoot, Object value) {
+            this.rootName = rootName;
+            this.pageRoot = pageRoot;
+            this.requestRoot = requestRoot;
+            this.value = value;
+        }
+    }
+
+    /**
+     * リクエスト単位の変更の世代。
+     */
+    private static final class Generation {
+
+        /** 世代 */
+        private int value;
+    }
+}
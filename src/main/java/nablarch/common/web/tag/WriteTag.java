@@ -1,7 +1,9 @@
 package nablarch.common.web.tag;
 
+import nablarch.common.web.HtmlTagUtil;
 import nablarch.core.util.StringUtil;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -163,10 +165,15 @@ public class WriteTag extends CustomTagSupport {
             if (valueFormat != null) {
                 obj = TagUtil.formatValue(pageContext, name, TagUtil.createFormatSpec(valueFormat), obj);
             }
-            String output = htmlEscape
-                    ? TagUtil.escapeHtml(obj, withHtmlFormat, safeTags, safeAttributes)
-                    : StringUtil.toString(obj);
-            TagUtil.print(pageContext, output);
+            if (htmlEscape) {
+                try {
+                    HtmlTagUtil.escapeHtml(obj, withHtmlFormat, safeTags, safeAttributes, pageContext.getOut());
+                } catch (IOException e) {
+                    throw new JspException(e);
+                }
+            } else {
+                TagUtil.print(pageContext, StringUtil.toString(obj));
+            }
         }
         return SKIP_BODY;
     }
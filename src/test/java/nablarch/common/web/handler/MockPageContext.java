@@ -328,7 +328,15 @@ public class MockPageContext extends PageContext {
         }
 
         public void write(char[] cbuf, int off, int len) throws IOException {
-            throw new UnsupportedOperationException();
+            sb.append(cbuf, off, len);
+        }
+
+        public void write(int c) throws IOException {
+            sb.append((char) c);
+        }
+
+        public void write(String str, int off, int len) throws IOException {
+            sb.append(str, off, off + len);
         }
     }
 }
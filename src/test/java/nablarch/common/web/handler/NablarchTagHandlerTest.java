@@ -3,6 +3,7 @@ package nablarch.common.web.handler;
 import nablarch.common.util.WebRequestUtil;
 import nablarch.common.web.hiddenencryption.HiddenEncryptionUtil;
 import nablarch.common.web.hiddenencryption.KeyEncryptionContextNotFoundException;
+import nablarch.common.web.hiddenencryption.SessionHiddenValueStore;
 import nablarch.common.web.hiddenencryption.TamperingDetectedException;
 import nablarch.common.web.tag.CustomTagConfig;
 import nablarch.common.web.tag.TagUtil;
@@ -551,4 +552,178 @@ public class NablarchTagHandlerTest {
         assertThat((CustomTagConfig) context.getRequestScopedVar(NablarchTagHandler.CUSTOM_TAG_CONFIG_KEY), is(TagUtil.getCustomTagConfig()));
         
     }
+
+    /**
+     * 復号を遅延する場合、リクエストパラメータにアクセスした時点で復号されること。
+     */
+    @Test
+    public void testHandlerForLazyDecryption() {
+
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        boolean useHiddenEncryption = config.getUseHiddenEncryption();
+        config.setUseHiddenEncryption(true);
+
+        NablarchTagHandler handler = new NablarchTagHandler();
+        handler.setStatusCode(400);
+        handler.setPath("/error.jsp");
+        handler.setLazyDecryption(true);
+
+        // リクエストパラメータにアクセスしない場合は、復号しない。
+        init("R0001", true);
+        HttpResponse response = handler.handle(request, context);
+        assertThat(response.getStatusCode(), is(200));
+        assertNull(context.getRequestScopedVar(NablarchTagHandler.DECRYPTED_PARAMS));
+
+        // 暗号化キーがセッションに存在しない場合は、リクエストパラメータにアクセスしなくても、次のハンドラに委譲する前にエラーとする。
+        handler.setSessionExpirePath("/sessionExpired.jsp");
+        handler.setSessionExpireStatusCode(401);
+        init("R0001", true);
+        context.getSessionScopeMap().clear();
+        final List<String> handled = new ArrayList<String>();
+        context.setHandlerQueue(Collections.singletonList(new HttpRequestHandler() {
+            public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+                handled.add("handled");
+                return new HttpResponse(200);
+            }
+        }));
+        try {
+            handler.handle(request, context);
+            fail();
+        } catch (HttpErrorResponse e) {
+            assertThat(e.getCause().getClass().getName(), is(KeyEncryptionContextNotFoundException.class.getName()));
+            assertThat(e.getResponse().getStatusCode(), is(401));
+            assertThat(e.getResponse().getContentPath().getPath(), is("/sessionExpired.jsp"));
+        }
+
+        // nablarch_submitパラメータが存在しない場合も、次のハンドラに委譲する前にエラーとする。
+        init("R0001", true);
+        request.getParamMap().remove(HiddenEncryptionUtil.KEY_SUBMIT_NAME);
+        context.setHandlerQueue(Collections.singletonList(new HttpRequestHandler() {
+            public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+                handled.add("handled");
+                return new HttpResponse(200);
+            }
+        }));
+        try {
+            handler.handle(request, context);
+            fail();
+        } catch (HttpErrorResponse e) {
+            assertThat(e.getResponse().getStatusCode(), is(400));
+            assertThat(e.getCause().getMessage(), is("valid submitName parameter not found."));
+        }
+        assertThat(handled.isEmpty(), is(true));
+
+        // JSPにフォワードする場合は、リクエストパラメータにアクセスしていなくても、処理結果を返す前に改竄を検知する。
+        init("R0001", true);
+        request.setParam(HiddenEncryptionUtil.KEY_SUBMIT_NAME, "unknown");
+        context.setHandlerQueue(Collections.singletonList(new HttpRequestHandler() {
+            public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+                return new HttpResponse("/WEB-INF/view/input.jsp");
+            }
+        }));
+        try {
+            handler.handle(request, context);
+            fail();
+        } catch (HttpErrorResponse e) {
+            assertThat(e.getResponse().getStatusCode(), is(400));
+            assertThat(e.getResponse().getContentPath().getPath(), is("/error.jsp"));
+            assertThat(e.getCause().getMessage(), is("submitName was invalid."));
+        }
+
+        // リクエストパラメータにアクセスした場合は、復号してサブミット情報とcheckboxタグの値を設定する。
+        init("R0001", true);
+        request.setParam("nablarch_cbx_off_param_user.useEmail", "0");
+        final List<String> accessed = new ArrayList<String>();
+        context.setHandlerQueue(Collections.singletonList(new HttpRequestHandler() {
+            public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+                accessed.add(request.getParam("go1")[0]);
+                return new HttpResponse(200);
+            }
+        }));
+        response = handler.handle(request, context);
+        assertThat(response.getStatusCode(), is(200));
+        assertThat(accessed, is(Arrays.asList("aaa")));
+        assertNotNull(context.getRequestScopedVar(NablarchTagHandler.DECRYPTED_PARAMS));
+        assertThat(request.getParam("param1")[0], is("param1_value"));
+        assertThat(request.getParam("user.useEmail")[0], is("0"));
+        assertNull(request.getParam(HiddenEncryptionUtil.KEY_HIDDEN_NAME));
+
+        // 改竄を検知した場合は、アクセスするたびに同じエラーとなる。
+        init("R0001", true);
+        request.setParam(HiddenEncryptionUtil.KEY_SUBMIT_NAME, "unknown");
+        handler.handle(request, context);
+        for (int i = 0; i < 2; i++) {
+            try {
+                request.getParam("param1");
+                fail();
+            } catch (HttpErrorResponse e) {
+                assertThat(e.getResponse().getStatusCode(), is(400));
+                assertThat(e.getResponse().getContentPath().getPath(), is("/error.jsp"));
+                assertThat(e.getCause().getMessage(), is("submitName was invalid."));
+            }
+        }
+
+        // 次のハンドラが例外を送出した場合は、リクエストパラメータにアクセスしていなくても、例外を送出する前に改竄を検知する。
+        init("R0001", true);
+        request.setParam(HiddenEncryptionUtil.KEY_SUBMIT_NAME, "unknown");
+        context.setHandlerQueue(Collections.singletonList(new HttpRequestHandler() {
+            public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+                throw new HttpErrorResponse(400, "/WEB-INF/view/onError.jsp");
+            }
+        }));
+        try {
+            handler.handle(request, context);
+            fail();
+        } catch (HttpErrorResponse e) {
+            assertThat(e.getResponse().getContentPath().getPath(), is("/error.jsp"));
+            assertThat(e.getCause().getMessage(), is("submitName was invalid."));
+        }
+
+        // 改竄がない場合は、次のハンドラが送出した例外をそのまま送出し、解決したパラメータを参照できる。
+        init("R0001", true);
+        context.setHandlerQueue(Collections.singletonList(new HttpRequestHandler() {
+            public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+                throw new HttpErrorResponse(400, "/WEB-INF/view/onError.jsp");
+            }
+        }));
+        try {
+            handler.handle(request, context);
+            fail();
+        } catch (HttpErrorResponse e) {
+            assertThat(e.getResponse().getContentPath().getPath(), is("/WEB-INF/view/onError.jsp"));
+        }
+        assertNotNull(context.getRequestScopedVar(NablarchTagHandler.DECRYPTED_PARAMS));
+        assertThat(request.getParam("go1")[0], is("aaa"));
+
+        // サーバ側で保持している場合は、リクエストIDによる改竄チェックを次のハンドラに委譲する前に行う。
+        config.setHiddenValueStore(new SessionHiddenValueStore());
+        try {
+            init("R0003", true);
+            MockPageContext pageContext = new MockPageContext();
+            pageContext.getAttributes(PageContext.SESSION_SCOPE).putAll(context.getSessionScopeMap());
+            Map<String, List<String>> values = new HashMap<String, List<String>>();
+            values.put("nablarch_hidden_submit_go", new ArrayList<String>(Arrays.asList("")));
+            request.setParam(HiddenEncryptionUtil.KEY_HIDDEN_NAME, HiddenEncryptionUtil.storeHiddenValues(
+                    pageContext, Arrays.asList("R0001"), values, config.getHiddenValueStore()));
+            context.setSessionScopeMap(pageContext.getAttributes(PageContext.SESSION_SCOPE));
+            context.setHandlerQueue(Collections.singletonList(new HttpRequestHandler() {
+                public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+                    handled.add("handled");
+                    return new HttpResponse(200);
+                }
+            }));
+            try {
+                handler.handle(request, context);
+                fail();
+            } catch (HttpErrorResponse e) {
+                assertThat(e.getResponse().getStatusCode(), is(400));
+                assertThat(e.getCause().getMessage(), is("requestId was invalid."));
+            }
+            assertThat(handled.isEmpty(), is(true));
+        } finally {
+            config.setHiddenValueStore(null);
+        }
+
+        config.setUseHiddenEncryption(useHiddenEncryption);
+    }
 }
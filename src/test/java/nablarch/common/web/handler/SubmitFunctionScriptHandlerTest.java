@@ -0,0 +1,94 @@
+package nablarch.common.web.handler;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
+import nablarch.common.web.tag.CustomTagConfig;
+import nablarch.common.web.tag.FormTag;
+import nablarch.common.web.tag.TagUtil;
+import nablarch.fw.ExecutionContext;
+import nablarch.fw.web.HttpRequest;
+import nablarch.fw.web.HttpRequestHandler;
+import nablarch.fw.web.HttpResponse;
+import nablarch.fw.web.MockHttpRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link SubmitFunctionScriptHandler}のテスト。
+ */
+public class SubmitFunctionScriptHandlerTest {
+
+    private final SubmitFunctionScriptHandler handler = new SubmitFunctionScriptHandler();
+
+    @Before
+    public void setUp() {
+        TagUtil.getCustomTagConfig().setSubmitFunctionScriptPath("/javascripts/nablarch_submit.js");
+    }
+
+    @After
+    public void tearDown() {
+        TagUtil.getCustomTagConfig().setSubmitFunctionScriptPath(null);
+    }
+
+    private static ExecutionContext createContext() {
+        ExecutionContext context = new ExecutionContext();
+        context.setHandlerQueue(Collections.singletonList(new HttpRequestHandler() {
+            public HttpResponse handle(HttpRequest request, ExecutionContext context) {
+                return new HttpResponse(404);
+            }
+        }));
+        return context;
+    }
+
+    /**
+     * リクエストパスが一致する場合は、サブミット制御のJavaScriptを応答すること。
+     */
+    @Test
+    public void testHandleScriptPath() {
+        HttpResponse response = handler.handle(
+                new MockHttpRequest().setRequestPath("/javascripts/nablarch_submit.js"), createContext());
+        assertThat(response.getStatusCode(), is(200));
+        assertThat(response.getContentType(), is("text/javascript;charset=UTF-8"));
+        assertThat(response.getHeader("Cache-Control"), is("public, max-age=31536000"));
+        assertThat(response.getBodyString(), is(FormTag.getSubmitFunctionScript()));
+        assertThat(response.getBodyString(), containsString("function nablarch_submit(event, element) {"));
+    }
+
+    /**
+     * Cache-Controlヘッダを変更できること。
+     */
+    @Test
+    public void testCacheControl() {
+        handler.setCacheControl("no-cache");
+        HttpResponse response = handler.handle(
+                new MockHttpRequest().setRequestPath("/javascripts/nablarch_submit.js"), createContext());
+        assertThat(response.getHeader("Cache-Control"), is("no-cache"));
+
+        handler.setCacheControl(null);
+        response = handler.handle(
+                new MockHttpRequest().setRequestPath("/javascripts/nablarch_submit.js"), createContext());
+        assertThat(response.getHeader("Cache-Control"), is(nullValue()));
+    }
+
+    /**
+     * リクエストパスが一致しない場合、又はパスを指定していない場合は、次のハンドラに委譲すること。
+     */
+    @Test
+    public void testHandleOtherPath() {
+        HttpResponse response = handler.handle(new MockHttpRequest().setRequestPath("/action/menu"), createContext());
+        assertThat(response.getStatusCode(), is(404));
+
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        config.setSubmitFunctionScriptPath(null);
+        response = handler.handle(
+                new MockHttpRequest().setRequestPath("/javascripts/nablarch_submit.js"), createContext());
+        assertThat(response.getStatusCode(), is(404));
+    }
+}
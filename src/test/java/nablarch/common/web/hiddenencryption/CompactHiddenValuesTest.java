@@ -0,0 +1,92 @@
+package nablarch.common.web.hiddenencryption;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nablarch.common.util.WebRequestUtil;
+
+import org.junit.Test;
+
+/**
+ * {@link CompactHiddenValues}のテスト。
+ */
+public class CompactHiddenValuesTest {
+
+    /**
+     * バイナリ形式に変換した値を元に戻せること。
+     */
+    @Test
+    public void testSerializeAndDeserialize() {
+        Map<String, List<String>> values = createValues(3);
+        values.put("empty", new ArrayList<String>());
+
+        for (boolean deflate : new boolean[] {false, true}) {
+            byte[] bytes = CompactHiddenValues.serialize(values, deflate);
+            assertTrue(CompactHiddenValues.isCompact(bytes));
+
+            Map<String, List<String>> actual = CompactHiddenValues.deserialize(bytes);
+            Map<String, List<String>> expected = new HashMap<String, List<String>>(values);
+            expected.remove("empty");
+            assertThat(actual, is(expected));
+            assertThat(HiddenValueFormat.deserialize(bytes), is(expected));
+        }
+    }
+
+    /**
+     * サブミットを行うタグが多い場合は、テキスト形式より小さくなること。
+     */
+    @Test
+    public void testSize() {
+        Map<String, List<String>> values = createValues(200);
+        int textLength = HiddenValueFormat.TEXT.serialize(values).length;
+        int compactLength = HiddenValueFormat.COMPACT.serialize(values).length;
+        int deflatedLength = HiddenValueFormat.COMPACT_DEFLATE.serialize(values).length;
+        assertTrue(compactLength < textLength);
+        assertTrue(deflatedLength < compactLength);
+    }
+
+    /**
+     * 不正なバイト列の場合は改竄を検知すること。
+     */
+    @Test
+    public void testInvalidBytes() {
+        byte[] bytes = CompactHiddenValues.serialize(createValues(1), false);
+
+        assertTampering(Arrays.copyOf(bytes, bytes.length - 1), "compact hidden value was truncated.");
+        assertTampering(Arrays.copyOf(bytes, bytes.length + 1), "compact hidden value has trailing bytes.");
+        assertTampering(new byte[] {0, 2, 0}, "compact hidden value header was invalid.");
+        assertTampering(new byte[] {0, 1, 1, 5}, "compact hidden value has invalid reference.");
+        assertTampering(new byte[] {0, (byte) 0x81, 1, 2, 3}, "inflating compact hidden value failed.");
+    }
+
+    private static void assertTampering(byte[] bytes, String message) {
+        try {
+            CompactHiddenValues.deserialize(bytes);
+            fail("must throw TamperingDetectedException.");
+        } catch (TamperingDetectedException e) {
+            assertThat(e.getMessage(), is(message));
+        }
+    }
+
+    private static Map<String, List<String>> createValues(int submitCount) {
+        Map<String, List<String>> values = new HashMap<String, List<String>>();
+        values.put(HiddenEncryptionUtil.KEY_HIDDEN_REQUEST_IDS_NAME, Arrays.asList("R0001", "R0002"));
+        values.put("user.name", Arrays.asList("名前", "", "a|b=c\\d"));
+        for (int i = 0; i < submitCount; i++) {
+            Map<String, List<String>> params = new HashMap<String, List<String>>();
+            params.put(HiddenEncryptionUtil.KEY_SUBMIT_NAME, Arrays.asList("button" + i));
+            params.put("id", Arrays.asList(String.valueOf(i)));
+            values.put(HiddenEncryptionUtil.KEY_HIDDEN_SUBMIT_NAME_PREFIX + "button" + i,
+                       Arrays.asList(WebRequestUtil.convertToParamsString(params)));
+        }
+        return values;
+    }
+}
@@ -5,13 +5,17 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.Serializable;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import jakarta.servlet.jsp.PageContext;
 
+import nablarch.common.encryption.AesEncryptor;
 import nablarch.common.web.handler.MockPageContext;
 import nablarch.common.web.handler.WebTestUtil;
 import nablarch.core.ThreadContext;
@@ -167,4 +171,497 @@ public class HiddenEncryptionUtilTest {
         
         SystemRepository.clear();
     }
+
+    /**
+     * スレッドごとにCipherを保持する場合も、{@link AesEncryptor}と同じ結果となること。
+     */
+    @Test
+    public void testThreadLocalAesEncryptor() {
+        AesEncryptor aesEncryptor = new AesEncryptor();
+        ThreadLocalAesEncryptor encryptor = new ThreadLocalAesEncryptor(aesEncryptor);
+        Serializable context = encryptor.generateContext();
+        byte[] src = "nablarch_hidden".getBytes();
+
+        byte[] encrypted = encryptor.encrypt(context, src);
+        assertThat(encrypted, is(aesEncryptor.encrypt((AesEncryptor.AesContext) context, src)));
+        assertThat(encryptor.decrypt(context, encrypted), is(src));
+        assertThat(encryptor.decrypt(context, encryptor.encrypt(context, src)), is(src));
+
+        try {
+            encryptor.decrypt(context, src);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("decryption failed. transformation = [AES/CBC/PKCS5Padding]"));
+        }
+        try {
+            encryptor.encrypt(null, src);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("context or src is null."));
+        }
+    }
+
+    /**
+     * {@link HiddenValueCodec}を使用して暗号化と復号ができること。
+     */
+    @Test
+    public void testEncryptAndDecryptWithCodec() {
+        assertEncryptAndDecrypt(new AesGcmHiddenValueCodec(), "gcm.");
+        assertEncryptAndDecrypt(new HmacHiddenValueCodec(), "hmac.");
+    }
+
+    /**
+     * AES-GCMで暗号化した値を改竄した場合は、改竄を検知すること。
+     */
+    @Test
+    public void testDecryptWithAesGcmForTampering() {
+        HiddenValueCodec codec = new AesGcmHiddenValueCodec();
+        MockPageContext pageContext = new MockPageContext();
+        String hiddenValue = HiddenEncryptionUtil.encryptHiddenValues(
+                pageContext, Arrays.asList("R0001"), createValues(), codec);
+        ExecutionContext context = createContext(pageContext);
+        ThreadContext.setRequestId("R0001");
+
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(context, tamper(hiddenValue), codec);
+            fail("must throw TamperingDetectedException.");
+        } catch (TamperingDetectedException e) {
+            assertThat(e.getMessage(), is("authentication tag was invalid."));
+        }
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(context, "gcm.AAAA", codec);
+            fail("must throw TamperingDetectedException.");
+        } catch (TamperingDetectedException e) {
+            assertThat(e.getMessage(), is("encrypted value was too short."));
+        }
+
+        ThreadContext.setRequestId("R0002");
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(context, hiddenValue, codec);
+            fail("must throw TamperingDetectedException.");
+        } catch (TamperingDetectedException e) {
+            assertThat(e.getMessage(), is("requestId was invalid."));
+        }
+
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(new ExecutionContext(), hiddenValue, codec);
+            fail("must throw KeyEncryptionContextNotFoundException.");
+        } catch (KeyEncryptionContextNotFoundException e) {
+            assertThat(e.getMessage(), is("key encryption context was not found. session key = [/nablarch_encryptionContext_gcm]"));
+        }
+    }
+
+    /**
+     * HMACで改竄検知する値を改竄した場合は、改竄を検知すること。
+     */
+    @Test
+    public void testDecryptWithHmacForTampering() {
+        HiddenValueCodec codec = new HmacHiddenValueCodec();
+        MockPageContext pageContext = new MockPageContext();
+        String hiddenValue = HiddenEncryptionUtil.encryptHiddenValues(
+                pageContext, Arrays.asList("R0001"), createValues(), codec);
+        assertTrue(new String(Base64Util.decode(hiddenValue.substring("hmac.".length()))).contains("param1"));
+        ExecutionContext context = createContext(pageContext);
+        ThreadContext.setRequestId("R0001");
+
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(context, tamper(hiddenValue), codec);
+            fail("must throw TamperingDetectedException.");
+        } catch (TamperingDetectedException e) {
+            assertThat(e.getMessage(), is("mac was invalid."));
+        }
+    }
+
+    /**
+     * {@link HiddenValueCodec}を指定した場合も、従来の形式で暗号化した値を復号できること。
+     */
+    @Test
+    public void testDecryptLegacyFormatWithCodec() {
+        MockPageContext pageContext = new MockPageContext();
+        String hiddenValue = HiddenEncryptionUtil.encryptHiddenValues(pageContext, Arrays.asList("R0001"), createValues());
+        ThreadContext.setRequestId("R0001");
+
+        Map<String, List<String>> actuals = HiddenEncryptionUtil.decryptHiddenValues(
+                createContext(pageContext), hiddenValue, new AesGcmHiddenValueCodec());
+        assertThat(actuals.get("param1"), is(Arrays.asList("param1")));
+
+        // 他の形式の値は、従来の形式として扱うため復号できない。
+        String hmacValue = HiddenEncryptionUtil.encryptHiddenValues(
+                pageContext, Arrays.asList("R0001"), createValues(), new HmacHiddenValueCodec());
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), hmacValue, new AesGcmHiddenValueCodec());
+            fail("must throw TamperingDetectedException.");
+        } catch (TamperingDetectedException e) {
+            // OK
+        }
+    }
+
+    private static void assertEncryptAndDecrypt(HiddenValueCodec codec, String prefix) {
+        MockPageContext pageContext = new MockPageContext();
+        Map<String, List<String>> values = createValues();
+        String hiddenValue = HiddenEncryptionUtil.encryptHiddenValues(
+                pageContext, Arrays.asList("R0001", "R0002"), values, codec);
+        assertTrue(hiddenValue.startsWith(prefix));
+
+        ThreadContext.setRequestId("R0002");
+        Map<String, List<String>> actuals = HiddenEncryptionUtil.decryptHiddenValues(
+                createContext(pageContext), hiddenValue, codec);
+        Map<String, List<String>> expecteds = new HashMap<String, List<String>>(values);
+        expecteds.remove(HiddenEncryptionUtil.KEY_HIDDEN_REQUEST_IDS_NAME);
+        WebTestUtil.assertParams(actuals, expecteds);
+    }
+
+    private static Map<String, List<String>> createValues() {
+        Map<String, List<String>> values = new HashMap<String, List<String>>();
+        values.put("param1", new ArrayList<String>(Arrays.asList("param1")));
+        values.put("param2", new ArrayList<String>(Arrays.asList("param2a", "param2b")));
+        return values;
+    }
+
+    private static ExecutionContext createContext(MockPageContext pageContext) {
+        ExecutionContext context = new ExecutionContext();
+        context.setSessionScopeMap(pageContext.getAttributes(PageContext.SESSION_SCOPE));
+        return context;
+    }
+
+    private static String tamper(String hiddenValue) {
+        int separator = hiddenValue.indexOf('.');
+        byte[] bytes = Base64Util.decode(hiddenValue.substring(separator + 1));
+        bytes[bytes.length / 2] ^= 1;
+        return hiddenValue.substring(0, separator + 1) + Base64Util.encode(bytes);
+    }
+
+    /**
+     * バイナリ形式に変換して暗号化した値を復号できること。
+     */
+    @Test
+    public void testEncryptAndDecryptWithCompactFormat() {
+        for (HiddenValueCodec codec : new HiddenValueCodec[] {null, new AesGcmHiddenValueCodec()}) {
+            for (HiddenValueFormat format : HiddenValueFormat.values()) {
+                MockPageContext pageContext = new MockPageContext();
+                Map<String, List<String>> values = createValues();
+                String hiddenValue = HiddenEncryptionUtil.encryptHiddenValues(
+                        pageContext, Arrays.asList("R0001"), values, codec, format);
+
+                ThreadContext.setRequestId("R0001");
+                Map<String, List<String>> actuals = HiddenEncryptionUtil.decryptHiddenValues(
+                        createContext(pageContext), hiddenValue, codec);
+                Map<String, List<String>> expecteds = new HashMap<String, List<String>>(values);
+                expecteds.remove(HiddenEncryptionUtil.KEY_HIDDEN_REQUEST_IDS_NAME);
+                WebTestUtil.assertParams(actuals, expecteds);
+            }
+        }
+    }
+
+    /**
+     * {@link HiddenValueStore}に保持した値をトークンで取得できること。
+     */
+    @Test
+    public void testStoreAndDecrypt() {
+        for (HiddenValueStoreSupport store : new HiddenValueStoreSupport[] {new SessionHiddenValueStore(), new LruHiddenValueStore()}) {
+            MockPageContext pageContext = new MockPageContext();
+            Map<String, List<String>> values = createValues();
+            String hiddenValue = HiddenEncryptionUtil.storeHiddenValues(pageContext, Arrays.asList("R0001"), values, store);
+            assertTrue(hiddenValue.startsWith("~"));
+            assertThat(hiddenValue.length(), is(25));
+
+            ThreadContext.setRequestId("R0001");
+            Map<String, List<String>> actuals = HiddenEncryptionUtil.decryptHiddenValues(
+                    createContext(pageContext), hiddenValue, null, store);
+            Map<String, List<String>> expecteds = new HashMap<String, List<String>>(values);
+            expecteds.remove(HiddenEncryptionUtil.KEY_HIDDEN_REQUEST_IDS_NAME);
+            WebTestUtil.assertParams(actuals, expecteds);
+
+            // 取得した値を変更しても、保持している値は変わらない。
+            actuals.get("param1").set(0, "changed");
+            actuals = HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), hiddenValue, null, store);
+            assertThat(actuals.get("param1"), is(Arrays.asList("param1")));
+
+            ThreadContext.setRequestId("R0002");
+            try {
+                HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), hiddenValue, null, store);
+                fail("must throw TamperingDetectedException.");
+            } catch (TamperingDetectedException e) {
+                assertThat(e.getMessage(), is("requestId was invalid."));
+            }
+
+            // 存在しないトークンと、他のセッションからのリクエストは、セッションの有効期限切れとして扱う。
+            ThreadContext.setRequestId("R0001");
+            try {
+                HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), "~unknown", null, store);
+                fail("must throw KeyEncryptionContextNotFoundException.");
+            } catch (KeyEncryptionContextNotFoundException e) {
+                assertThat(e.getMessage(), is("hidden values were not found in the store."));
+            }
+            MockPageContext otherPageContext = new MockPageContext();
+            HiddenEncryptionUtil.storeHiddenValues(otherPageContext, Arrays.asList("R0001"), createValues(), store);
+            try {
+                HiddenEncryptionUtil.decryptHiddenValues(createContext(otherPageContext), hiddenValue, null, store);
+                fail("must throw KeyEncryptionContextNotFoundException.");
+            } catch (KeyEncryptionContextNotFoundException e) {
+                assertThat(e.getMessage(), is("hidden values were not found in the store."));
+            }
+
+            assertThat(store.getSaveCount(), is(2L));
+            assertThat(store.getHitCount(), is(3L));
+            assertThat(store.getMissCount(), is(2L));
+
+            // 暗号化した値は、ストアを指定しても復号できる。
+            String encrypted = HiddenEncryptionUtil.encryptHiddenValues(pageContext, Arrays.asList("R0001"), createValues());
+            actuals = HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), encrypted, null, store);
+            assertThat(actuals.get("param1"), is(Arrays.asList("param1")));
+        }
+    }
+
+    /**
+     * {@link SessionHiddenValueStore}は、上限を超えた場合に最も古い値を追い出すこと。
+     */
+    @Test
+    public void testSessionHiddenValueStoreEviction() {
+        SessionHiddenValueStore store = new SessionHiddenValueStore();
+        store.setMaxEntriesPerSession(2);
+        MockPageContext pageContext = new MockPageContext();
+        ExecutionContext context = createContext(pageContext);
+
+        String token1 = store.save(pageContext, createValues());
+        String token2 = store.save(pageContext, createValues());
+        store.load(context, token1);
+        String token3 = store.save(pageContext, createValues());
+
+        assertThat(store.load(context, token1).get("param1"), is(Arrays.asList("param1")));
+        assertThat(store.load(context, token2), is((Map<String, List<String>>) null));
+        assertThat(store.load(context, token3).get("param1"), is(Arrays.asList("param1")));
+        assertThat(store.getEvictionCount(), is(1L));
+
+        // 表示中の画面のフォームであっても、追い出された値をサブミットした場合はセッションの有効期限切れとなる。
+        ThreadContext.setRequestId("R0001");
+        List<String> forms = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            forms.add(HiddenEncryptionUtil.storeHiddenValues(pageContext, Arrays.asList("R0001"), createValues(), store));
+        }
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(context, forms.get(0), null, store);
+            fail("must throw KeyEncryptionContextNotFoundException.");
+        } catch (KeyEncryptionContextNotFoundException e) {
+            assertThat(e.getMessage(), is("hidden values were not found in the store."));
+        }
+        assertThat(HiddenEncryptionUtil.decryptHiddenValues(context, forms.get(2), null, store).get("param1"),
+                   is(Arrays.asList("param1")));
+
+        try {
+            store.setMaxEntriesPerSession(0);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("maxEntriesPerSession must be greater than 0. maxEntriesPerSession = [0]"));
+        }
+    }
+
+    /**
+     * {@link SessionHiddenValueStore}は、デフォルトでは1画面に多数のフォームがあっても値を追い出さないこと。
+     * また、保持している値を変更するたびにセッションに設定し直すこと。
+     */
+    @Test
+    public void testSessionHiddenValueStoreUpdatesSession() {
+        SessionHiddenValueStore store = new SessionHiddenValueStore();
+        final List<String> updated = new ArrayList<String>();
+        MockPageContext pageContext = new MockPageContext() {
+            @Override
+            public void setAttribute(String name, Object value, int scope) {
+                if (scope == PageContext.SESSION_SCOPE) {
+                    updated.add(name);
+                }
+                super.setAttribute(name, value, scope);
+            }
+        };
+        List<String> tokens = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            tokens.add(store.save(pageContext, createValues()));
+            assertThat(updated.size(), is(i + 2));
+        }
+        assertThat(store.getEvictionCount(), is(0L));
+
+        Map<String, Object> session = new HashMap<String, Object>(pageContext.getAttributes(PageContext.SESSION_SCOPE)) {
+            @Override
+            public Object put(String key, Object value) {
+                updated.add(key);
+                return super.put(key, value);
+            }
+        };
+        ExecutionContext context = new ExecutionContext();
+        context.setSessionScopeMap(session);
+        updated.clear();
+        assertThat(store.load(context, tokens.get(0)).get("param1"), is(Arrays.asList("param1")));
+        assertThat(updated.size(), is(1));
+        assertThat(store.load(context, "unknown"), is((Map<String, List<String>>) null));
+        assertThat(updated.size(), is(1));
+    }
+
+    /**
+     * 鍵をローテーションした場合も、保持している鍵で暗号化した値は復号できること。
+     */
+    @Test
+    public void testEncryptAndDecryptWithKeyRotation() {
+        final long[] now = {0L};
+        KeyRotatingHiddenValueCodec codec = new KeyRotatingHiddenValueCodec() {
+            @Override
+            protected long currentTimeMillis() {
+                return now[0];
+            }
+        };
+        codec.setCodec(new HmacHiddenValueCodec());
+        codec.setRotationIntervalSeconds(60);
+        codec.setActiveKeyCount(2);
+        assertThat(codec.getFormatId(), is("hmac-r"));
+
+        MockPageContext pageContext = new MockPageContext();
+        ExecutionContext context = createContext(pageContext);
+        ThreadContext.setRequestId("R0001");
+
+        String value1 = HiddenEncryptionUtil.encryptHiddenValues(pageContext, Arrays.asList("R0001"), createValues(), codec);
+        assertTrue(value1.startsWith("hmac-r."));
+        now[0] += 30000L;
+        String value2 = HiddenEncryptionUtil.encryptHiddenValues(pageContext, Arrays.asList("R0001"), createValues(), codec);
+        assertThat(value2, is(value1));
+
+        now[0] += 30000L;
+        String value3 = HiddenEncryptionUtil.encryptHiddenValues(pageContext, Arrays.asList("R0001"), createValues(), codec);
+        assertThat(Base64Util.decode(value3.substring("hmac-r.".length()))[0], is((byte) 1));
+        assertThat(HiddenEncryptionUtil.decryptHiddenValues(context, value1, codec).get("param1"), is(Arrays.asList("param1")));
+        assertThat(HiddenEncryptionUtil.decryptHiddenValues(context, value3, codec).get("param1"), is(Arrays.asList("param1")));
+
+        // 保持する数を超えた古い鍵は破棄する。
+        now[0] += 60000L;
+        String value4 = HiddenEncryptionUtil.encryptHiddenValues(pageContext, Arrays.asList("R0001"), createValues(), codec);
+        assertThat(HiddenEncryptionUtil.decryptHiddenValues(context, value3, codec).get("param1"), is(Arrays.asList("param1")));
+        assertThat(HiddenEncryptionUtil.decryptHiddenValues(context, value4, codec).get("param1"), is(Arrays.asList("param1")));
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(context, value1, codec);
+            fail("must throw KeyEncryptionContextNotFoundException.");
+        } catch (KeyEncryptionContextNotFoundException e) {
+            assertThat(e.getMessage(), is("key version was expired. version = [0]"));
+        }
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(context, tamper(value4), codec);
+            fail("must throw TamperingDetectedException.");
+        } catch (TamperingDetectedException e) {
+            assertThat(e.getMessage(), is("mac was invalid."));
+        }
+    }
+
+    /**
+     * スレッドごとにキャッシュする鍵の上限を超えても、暗号化と復号ができること。
+     */
+    @Test
+    public void testEncryptAndDecryptWithManyKeys() {
+        HiddenValueCodec[] codecs = {new AesGcmHiddenValueCodec(), new HmacHiddenValueCodec()};
+        for (HiddenValueCodec codec : codecs) {
+            List<Serializable> keys = new ArrayList<Serializable>();
+            List<byte[]> encodeds = new ArrayList<byte[]>();
+            for (int i = 0; i < 40; i++) {
+                Serializable key = codec.generateContext();
+                keys.add(key);
+                encodeds.add(codec.encode(key, ("payload" + i).getBytes()));
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                assertThat(new String(codec.decode(keys.get(i), encodeds.get(i))), is("payload" + i));
+            }
+        }
+    }
+
+    /**
+     * ストリームで暗号化して出力した値が、文字列で暗号化した値と同じ形式となり、復号できること。
+     */
+    @Test
+    public void testWriteEncryptedHiddenValues() throws Exception {
+        final HmacHiddenValueCodec hmac = new HmacHiddenValueCodec();
+        // ストリームで変換できない委譲先
+        HiddenValueCodec nonStreaming = new HiddenValueCodec() {
+            public String getFormatId() {
+                return "hmacx";
+            }
+            public Serializable generateContext() {
+                return hmac.generateContext();
+            }
+            public byte[] encode(Serializable context, byte[] payload) {
+                return hmac.encode(context, payload);
+            }
+            public byte[] decode(Serializable context, byte[] encoded) {
+                return hmac.decode(context, encoded);
+            }
+        };
+        KeyRotatingHiddenValueCodec rotatingHmac = new KeyRotatingHiddenValueCodec();
+        rotatingHmac.setCodec(hmac);
+        KeyRotatingHiddenValueCodec rotatingNonStreaming = new KeyRotatingHiddenValueCodec();
+        rotatingNonStreaming.setCodec(nonStreaming);
+
+        // HMACは同じ値から同じ結果を生成するため、文字列で暗号化した結果と比較できる。
+        for (HiddenValueCodec codec : new HiddenValueCodec[] {hmac, rotatingHmac, rotatingNonStreaming}) {
+            for (HiddenValueFormat format : HiddenValueFormat.values()) {
+                MockPageContext pageContext = new MockPageContext();
+                StringWriter out = new StringWriter();
+                HiddenEncryptionUtil.writeEncryptedHiddenValues(
+                        pageContext, Arrays.asList("R0001"), createValues(), codec, format, out);
+                String expected = HiddenEncryptionUtil.encryptHiddenValues(
+                        pageContext, Arrays.asList("R0001"), createValues(), codec, format);
+                assertThat(codec.getFormatId() + " " + format, out.toString(), is(expected));
+
+                ThreadContext.setRequestId("R0001");
+                assertThat(HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), out.toString(), codec)
+                                   .get("param2"), is(Arrays.asList("param2a", "param2b")));
+            }
+        }
+
+        for (HiddenValueCodec codec : new HiddenValueCodec[] {null, new AesGcmHiddenValueCodec()}) {
+            for (HiddenValueFormat format : HiddenValueFormat.values()) {
+                MockPageContext pageContext = new MockPageContext();
+                StringWriter out = new StringWriter();
+                HiddenEncryptionUtil.writeEncryptedHiddenValues(
+                        pageContext, Arrays.asList("R0001"), createValues(), codec, format, out);
+
+                ThreadContext.setRequestId("R0001");
+                assertThat(HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), out.toString(), codec)
+                                   .get("param2"), is(Arrays.asList("param2a", "param2b")));
+            }
+        }
+    }
+
+    /**
+     * 大きな値をストリームで暗号化して復号できること。
+     * BASE64として不正な値は、改竄として検知すること。
+     */
+    @Test
+    public void testStreamingWithLargeValues() throws Exception {
+        HiddenValueCodec codec = new AesGcmHiddenValueCodec();
+        MockPageContext pageContext = new MockPageContext();
+        Map<String, List<String>> values = new HashMap<String, List<String>>();
+        List<String> largeValues = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            largeValues.add("あいうえお" + i);
+        }
+        values.put("large", largeValues);
+
+        for (HiddenValueFormat format : HiddenValueFormat.values()) {
+            StringWriter out = new StringWriter();
+            HiddenEncryptionUtil.writeEncryptedHiddenValues(pageContext, Arrays.asList("R0001"),
+                    new HashMap<String, List<String>>(values), codec, format, out);
+            assertTrue(out.toString().startsWith("gcm."));
+
+            ThreadContext.setRequestId("R0001");
+            assertThat(HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), out.toString(), codec)
+                               .get("large"), is(largeValues));
+        }
+
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), "gcm.AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA!", codec);
+            fail("must throw TamperingDetectedException.");
+        } catch (TamperingDetectedException e) {
+            assertThat(e.getMessage(), is("base64 decoding failed."));
+        }
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(createContext(pageContext), "gcm.あいうえ", codec);
+            fail("must throw TamperingDetectedException.");
+        } catch (TamperingDetectedException e) {
+            assertThat(e.getMessage(), is("base64 decoding failed."));
+        }
+    }
 }
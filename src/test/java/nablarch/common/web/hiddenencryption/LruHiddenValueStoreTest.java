@@ -0,0 +1,154 @@
+package nablarch.common.web.hiddenencryption;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.common.web.handler.MockPageContext;
+import nablarch.fw.ExecutionContext;
+
+import org.junit.Test;
+
+/**
+ * {@link LruHiddenValueStore}のテスト。
+ */
+public class LruHiddenValueStoreTest {
+
+    /** テストで使用する現在時刻 */
+    private long now = 1000000L;
+
+    /** 現在時刻を変更できる{@link LruHiddenValueStore} */
+    private final LruHiddenValueStore store = new LruHiddenValueStore() {
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    };
+
+    /**
+     * 上限を超えた場合は、最近使用していない値から追い出すこと。
+     */
+    @Test
+    public void testEviction() {
+        store.setMaxSize(2);
+        MockPageContext pageContext = new MockPageContext();
+        ExecutionContext context = createContext(pageContext);
+
+        String token1 = store.save(pageContext, createValues());
+        String token2 = store.save(pageContext, createValues());
+        store.load(context, token1);
+        String token3 = store.save(pageContext, createValues());
+
+        assertThat(store.size(), is(2));
+        assertThat(store.load(context, token1).get("param"), is(Arrays.asList("value")));
+        assertThat(store.load(context, token2), is((Map<String, List<String>>) null));
+        assertThat(store.load(context, token3).get("param"), is(Arrays.asList("value")));
+        assertThat(store.getEvictionCount(), is(1L));
+        assertThat(store.getHitCount(), is(3L));
+        assertThat(store.getMissCount(), is(1L));
+    }
+
+    /**
+     * セッションごとの上限を超えた場合は、そのセッションで最も古く保持した値のみを追い出し、
+     * 他のセッションの値は追い出さないこと。
+     */
+    @Test
+    public void testEvictionPerOwner() {
+        store.setMaxEntriesPerOwner(2);
+        MockPageContext otherPageContext = new MockPageContext();
+        ExecutionContext otherContext = createContext(otherPageContext);
+        String otherToken = store.save(otherPageContext, createValues());
+
+        MockPageContext pageContext = new MockPageContext();
+        ExecutionContext context = createContext(pageContext);
+        List<String> tokens = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            tokens.add(store.save(pageContext, createValues()));
+        }
+
+        assertThat(store.size(), is(3));
+        assertThat(store.getEvictionCount(), is(3L));
+        assertThat(store.load(otherContext, otherToken).get("param"), is(Arrays.asList("value")));
+        assertThat(store.load(context, tokens.get(2)), is((Map<String, List<String>>) null));
+        assertThat(store.load(context, tokens.get(3)).get("param"), is(Arrays.asList("value")));
+        assertThat(store.load(context, tokens.get(4)).get("param"), is(Arrays.asList("value")));
+
+        // 全体の上限で追い出した値は、セッションごとの保持数からも除かれる。
+        store.setMaxSize(3);
+        store.save(otherPageContext, createValues());
+        assertThat(store.size(), is(3));
+        assertThat(store.load(otherContext, otherToken), is((Map<String, List<String>>) null));
+        store.save(pageContext, createValues());
+        assertThat(store.load(context, tokens.get(4)).get("param"), is(Arrays.asList("value")));
+    }
+
+    /**
+     * 有効期限を過ぎた値は取得できず、破棄されること。
+     */
+    @Test
+    public void testExpiration() {
+        store.setExpirySeconds(60);
+        MockPageContext pageContext = new MockPageContext();
+        ExecutionContext context = createContext(pageContext);
+
+        String token1 = store.save(pageContext, createValues());
+        now += 30000L;
+        String token2 = store.save(pageContext, createValues());
+        now += 30000L;
+
+        assertThat(store.load(context, token1), is((Map<String, List<String>>) null));
+        assertThat(store.load(context, token2).get("param"), is(Arrays.asList("value")));
+        assertThat(store.getExpirationCount(), is(1L));
+
+        // 保持する際に、有効期限を過ぎた値を破棄する。
+        now += 30000L;
+        store.save(pageContext, createValues());
+        assertThat(store.size(), is(1));
+        assertThat(store.getExpirationCount(), is(2L));
+    }
+
+    /**
+     * 不正な設定値を指定した場合は、例外が送出されること。
+     */
+    @Test
+    public void testInvalidSettings() {
+        try {
+            store.setMaxSize(0);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("maxSize must be greater than 0. maxSize = [0]"));
+        }
+        try {
+            store.setMaxEntriesPerOwner(0);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("maxEntriesPerOwner must be greater than 0. maxEntriesPerOwner = [0]"));
+        }
+        try {
+            store.setExpirySeconds(-1);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("expirySeconds must be greater than 0. expirySeconds = [-1]"));
+        }
+    }
+
+    private static Map<String, List<String>> createValues() {
+        Map<String, List<String>> values = new HashMap<String, List<String>>();
+        values.put("param", new ArrayList<String>(Arrays.asList("value")));
+        return values;
+    }
+
+    private static ExecutionContext createContext(MockPageContext pageContext) {
+        ExecutionContext context = new ExecutionContext();
+        context.setSessionScopeMap(pageContext.getAttributes(PageContext.SESSION_SCOPE));
+        return context;
+    }
+}
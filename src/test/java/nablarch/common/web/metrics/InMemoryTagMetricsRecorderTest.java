@@ -0,0 +1,190 @@
+package nablarch.common.web.metrics;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.ServletRequestEvent;
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.common.web.handler.MockPageContext;
+import nablarch.common.web.hiddenencryption.HiddenEncryptionUtil;
+import nablarch.common.web.hiddenencryption.HiddenValueFormat;
+import nablarch.common.web.hiddenencryption.HmacHiddenValueCodec;
+import nablarch.common.web.tag.CustomTagSupport;
+import nablarch.core.ThreadContext;
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+import nablarch.fw.ExecutionContext;
+import nablarch.test.support.web.servlet.MockServletContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link InMemoryTagMetricsRecorder}のテスト。
+ */
+public class InMemoryTagMetricsRecorderTest {
+
+    private final InMemoryTagMetricsRecorder recorder = new InMemoryTagMetricsRecorder();
+
+    @Before
+    public void setUp() {
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                Map<String, Object> data = new HashMap<String, Object>();
+                data.put("tagMetricsRecorder", recorder);
+                return data;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        SystemRepository.clear();
+    }
+
+    /**
+     * ヒストグラムに値を集計できること。
+     */
+    @Test
+    public void testHistogram() {
+        InMemoryTagMetricsRecorder.Histogram histogram = recorder.getEncryptionTimes();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMax(), is(0L));
+        assertThat(histogram.getMean(), is(0d));
+        assertThat(histogram.getValueAtPercentile(50), is(0L));
+
+        for (long value : new long[] {0, 1, 2, 3, 100, 1000}) {
+            recorder.recordEncryption(value);
+        }
+        assertThat(histogram.getCount(), is(6L));
+        assertThat(histogram.getTotal(), is(1106L));
+        assertThat(histogram.getMax(), is(1000L));
+        long[] buckets = histogram.getBucketCounts();
+        assertThat(buckets[0], is(1L));
+        assertThat(buckets[1], is(1L));
+        assertThat(buckets[2], is(2L));
+        assertThat(buckets[7], is(1L));
+        assertThat(buckets[10], is(1L));
+        assertThat(histogram.getValueAtPercentile(50), is(3L));
+        assertThat(histogram.getValueAtPercentile(100), is(1023L));
+
+        try {
+            histogram.getValueAtPercentile(0);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("percentile must be greater than 0 and less than or equal to 100. percentile = [0.0]"));
+        }
+
+        recorder.reset();
+        assertThat(recorder.getEncryptionTimes().getCount(), is(0L));
+        assertThat(histogram.getCount(), is(6L));
+    }
+
+    /**
+     * リポジトリに登録した場合は、カスタムタグの出力時間とフォームの数を記録すること。
+     */
+    @Test
+    public void testRecordTagRenderAndFormCount() throws Exception {
+        MockPageContext pageContext = new MockPageContext();
+        CustomTagSupport tag = new CustomTagSupport() {
+        };
+        tag.setPageContext(pageContext);
+        tag.doFinally();
+        // 計測を開始していない場合は記録しない。
+        tag.doFinally();
+        assertThat(recorder.getTagRenderTimes().get(tag.getClass()).getCount(), is(1L));
+
+        TagMetricsRequestListener listener = new TagMetricsRequestListener();
+        listener.requestDestroyed(new ServletRequestEvent(new MockServletContext(), pageContext.getRequest()));
+        assertThat(recorder.getFormCounts().getCount(), is(0L));
+
+        TagMetrics.countForm(pageContext);
+        TagMetrics.countForm(pageContext);
+        listener.requestDestroyed(new ServletRequestEvent(new MockServletContext(), pageContext.getRequest()));
+        assertThat(recorder.getFormCounts().getCount(), is(1L));
+        assertThat(recorder.getFormCounts().getMax(), is(2L));
+    }
+
+    /**
+     * リポジトリから取得するのはリクエストごとに1回とし、
+     * 通知先と記録先のいずれも登録されていない場合は出力時間を計測しないこと。
+     */
+    @Test
+    public void testTagRenderResolvedOncePerRequest() throws Exception {
+        MockPageContext pageContext = new MockPageContext();
+        TagRenderMetrics metrics = TagMetrics.beginTagRender(pageContext);
+        SystemRepository.clear();
+        // リクエスト中にリポジトリを変更しても、同じリクエストでは取得済みの通知先を使用する。
+        assertThat(TagMetrics.beginTagRender(pageContext) == metrics, is(true));
+
+        TagMetricsRequestListener listener = new TagMetricsRequestListener();
+        listener.requestDestroyed(new ServletRequestEvent(new MockServletContext(), pageContext.getRequest()));
+        assertThat(TagMetrics.beginTagRender(pageContext) == null, is(true));
+
+        CustomTagSupport tag = new CustomTagSupport() {
+        };
+        tag.setPageContext(pageContext);
+        tag.doFinally();
+        assertThat(recorder.getTagRenderTimes().isEmpty(), is(true));
+
+        // NoOpTagMetricsRecorderは登録されていない場合と同じく計測しない。
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                Map<String, Object> data = new HashMap<String, Object>();
+                data.put("tagMetricsRecorder", new NoOpTagMetricsRecorder());
+                return data;
+            }
+        });
+        assertThat(TagMetrics.beginTagRender(new MockPageContext()) == null, is(true));
+    }
+
+    /**
+     * リポジトリに登録した場合は、hiddenタグの暗号化と復号の計測値を記録すること。
+     */
+    @Test
+    public void testRecordHiddenEncryption() throws Exception {
+        HmacHiddenValueCodec codec = new HmacHiddenValueCodec();
+        MockPageContext pageContext = new MockPageContext();
+        String value = HiddenEncryptionUtil.encryptHiddenValues(
+                pageContext, Arrays.asList("R0001"), createValues(), codec, HiddenValueFormat.TEXT);
+        StringWriter out = new StringWriter();
+        HiddenEncryptionUtil.writeEncryptedHiddenValues(
+                pageContext, Arrays.asList("R0001"), createValues(), codec, HiddenValueFormat.TEXT, out);
+
+        assertThat(recorder.getEncryptionTimes().getCount(), is(2L));
+        assertThat(recorder.getHiddenPayloadSizes().getCount(), is(2L));
+        assertThat(recorder.getHiddenPayloadSizes().getTotal(), is((long) (value.length() + out.toString().length())));
+
+        ExecutionContext context = new ExecutionContext();
+        context.setSessionScopeMap(pageContext.getAttributes(PageContext.SESSION_SCOPE));
+        ThreadContext.setRequestId("R0001");
+        HiddenEncryptionUtil.decryptHiddenValues(context, value, codec);
+        try {
+            HiddenEncryptionUtil.decryptHiddenValues(context, "hmac.AAAA", codec);
+            fail("must throw TamperingDetectedException.");
+        } catch (RuntimeException e) {
+            // 改竄を検知した場合も復号時間は記録する。
+        }
+        assertThat(recorder.getDecryptionTimes().getCount(), is(2L));
+        assertTrue(recorder.getDecryptionTimes().getTotal() > 0);
+    }
+
+    private static Map<String, List<String>> createValues() {
+        Map<String, List<String>> values = new HashMap<String, List<String>>();
+        values.put("param1", new ArrayList<String>(Arrays.asList("param1")));
+        return values;
+    }
+}
@@ -0,0 +1,146 @@
+package nablarch.common.web.metrics;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.ServletRequestEvent;
+
+import nablarch.common.web.handler.MockPageContext;
+import nablarch.common.web.tag.CustomTagSupport;
+import nablarch.core.ThreadContext;
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
+import nablarch.test.support.web.servlet.MockServletContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link TagRenderProfiler}のテスト。
+ */
+public class TagRenderProfilerTest {
+
+    private final List<String> messages = new ArrayList<String>();
+
+    private final TagRenderProfiler profiler = new TagRenderProfiler() {
+        @Override
+        protected void logSlowPage(String message) {
+            messages.add(message);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        SystemRepository.load(new ObjectLoader() {
+            @Override
+            public Map<String, Object> load() {
+                Map<String, Object> data = new HashMap<String, Object>();
+                data.put("tagRenderProfiler", profiler);
+                return data;
+            }
+        });
+        ThreadContext.setRequestId("R0001");
+    }
+
+    @After
+    public void tearDown() {
+        SystemRepository.clear();
+    }
+
+    /**
+     * 出力時間の合計が閾値以上の場合は、カスタムタグのクラスごとの内訳をログ出力すること。
+     */
+    @Test
+    public void testSlowPage() {
+        profiler.setSlowThresholdMillis(0);
+        MockPageContext pageContext = render();
+
+        finishRequest(pageContext);
+        assertThat(messages.size(), is(1));
+        String message = messages.get(0);
+        assertTrue(message, message.matches(
+                "slow page rendering detected\\. requestId = \\[R0001\\], total = \\[\\d+\\.\\dms(, \\d+\\.\\dMB)?\\], "
+                + "breakdown = \\[.*\\]"));
+        assertTrue(message, message.matches(".*OuterTag \\d+\\.\\dms( \\d+\\.\\dMB)?[,\\]].*"));
+        assertTrue(message, message.matches(".*InnerTag \\d+\\.\\dms( \\d+\\.\\dMB)? x3[,\\]].*"));
+
+        // 集計を完了したプロファイルは、再度ログ出力しない。
+        finishRequest(pageContext);
+        assertThat(messages.size(), is(1));
+    }
+
+    /**
+     * 出力時間の合計が閾値未満の場合は、ログ出力しないこと。
+     */
+    @Test
+    public void testFastPage() {
+        profiler.setSlowThresholdMillis(60000);
+        finishRequest(render());
+        assertThat(messages.size(), is(0));
+    }
+
+    /**
+     * ログ出力する内訳の数を制限できること。
+     */
+    @Test
+    public void testMaxBreakdownEntries() {
+        profiler.setSlowThresholdMillis(0);
+        profiler.setMaxBreakdownEntries(1);
+        profiler.setMeasureAllocation(false);
+        finishRequest(render());
+        assertThat(messages.size(), is(1));
+        assertTrue(messages.get(0), messages.get(0).matches(
+                ".*total = \\[\\d+\\.\\dms\\], breakdown = \\[(Outer|Inner)Tag \\d+\\.\\dms( x3)?, \\.\\.\\.\\]"));
+    }
+
+    /**
+     * 不正な設定値の場合は、例外を送出すること。
+     */
+    @Test
+    public void testInvalidSettings() {
+        try {
+            profiler.setSlowThresholdMillis(-1);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("slowThresholdMillis must be 0 or greater. slowThresholdMillis = [-1]"));
+        }
+        try {
+            profiler.setMaxBreakdownEntries(0);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("maxBreakdownEntries must be greater than 0. maxBreakdownEntries = [0]"));
+        }
+    }
+
+    private static MockPageContext render() {
+        MockPageContext pageContext = new MockPageContext();
+        OuterTag outer = new OuterTag();
+        outer.setPageContext(pageContext);
+        for (int i = 0; i < 3; i++) {
+            InnerTag inner = new InnerTag();
+            inner.setPageContext(pageContext);
+            inner.doFinally();
+        }
+        outer.doFinally();
+        return pageContext;
+    }
+
+    private static void finishRequest(MockPageContext pageContext) {
+        new TagMetricsRequestListener().requestDestroyed(
+                new ServletRequestEvent(new MockServletContext(), pageContext.getRequest()));
+    }
+
+    private static class OuterTag extends CustomTagSupport {
+    }
+
+    private static class InnerTag extends CustomTagSupport {
+    }
+}
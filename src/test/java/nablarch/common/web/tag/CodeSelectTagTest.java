@@ -7,12 +7,18 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import jakarta.servlet.jsp.PageContext;
 import jakarta.servlet.jsp.tagext.Tag;
 
+import nablarch.common.web.handler.MockPageContext;
 import nablarch.core.ThreadContext;
+import nablarch.core.repository.ObjectLoader;
+import nablarch.core.repository.SystemRepository;
 import nablarch.core.util.Builder;
 import nablarch.test.support.SystemRepositoryResource;
 
@@ -679,6 +685,113 @@ public class CodeSelectTagTest extends TagTestSupport<CodeSelectTag> {
         assertTrue(formContext.getInputNames().contains("entity.bbb"));
     }
 
+    /**
+     * コード値とラベルを保持する場合も、保持しない場合と同じ内容が出力されること。
+     */
+    @Test
+    public void testInputPageWithCodeOptionCache() throws Exception {
+
+        TagTestUtil.setUpCodeTagTest();
+
+        ThreadContext.setLanguage(Locale.JAPANESE);
+
+        FormContext formContext = TagTestUtil.createFormContext();
+        TagUtil.setFormContext(pageContext, formContext);
+
+        pageContext.getMockReq().getParams().put("entity.bbb", new String[] {"03" + TagTestUtil.HTML});
+
+        TagTestUtil.setErrorMessages(pageContext);
+
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        try {
+            writeCodeSelectTag("$VALUE$:$NAME$");
+            String expected = TagTestUtil.getOutput(pageContext);
+            ((MockPageContext.MockJspWriter) pageContext.getOut()).clearOutput();
+
+            config.setUseCodeOptionCache(true);
+            writeCodeSelectTag("$VALUE$:$NAME$");
+            assertThat(TagTestUtil.getOutput(pageContext), is(expected));
+
+            List<?> options = CodeOptionCache.get("0003", "PATTERN2", "$VALUE$:$NAME$", null);
+            assertThat(options.size(), is(2));
+            assertThat(CodeOptionCache.get("0003", "PATTERN2", "$VALUE$:$NAME$", null) == options, is(true));
+            assertThat(CodeOptionCache.get("0003", "PATTERN2", "$NAME$", null) == options, is(false));
+
+            CodeOptionCache.invalidate();
+            options = CodeOptionCache.get("0003", "PATTERN2", "$VALUE$:$NAME$", null);
+            assertThat(CodeOptionCache.get("0003", "PATTERN2", "$VALUE$:$NAME$", null) == options, is(true));
+
+            // リポジトリを再読み込みしてCodeManagerが変わった場合は、保持している内容を破棄する。
+            final MockCodeManager reloaded = new MockCodeManager();
+            reloaded.setCodePatterns(CODE_PATTERNS);
+            reloaded.setCodeNames(CODE_NAMES);
+            SystemRepository.load(new ObjectLoader() {
+                @Override
+                public Map<String, Object> load() {
+                    Map<String, Object> data = new HashMap<String, Object>();
+                    data.put("codeManager", reloaded);
+                    return data;
+                }
+            });
+            assertThat(CodeOptionCache.get("0003", "PATTERN2", "$VALUE$:$NAME$", null) == options, is(false));
+            assertThat(CodeOptionCache.size(), is(1));
+        } finally {
+            config.setUseCodeOptionCache(false);
+            CodeOptionCache.invalidate();
+        }
+    }
+
+    /**
+     * 上限数を超えた場合は、最も長く使用していない組み合わせから破棄すること。
+     */
+    @Test
+    public void testCodeOptionCacheMaxSize() throws Exception {
+
+        TagTestUtil.setUpCodeTagTest();
+
+        ThreadContext.setLanguage(Locale.JAPANESE);
+
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        try {
+            config.setCodeOptionCacheMaxSize(2);
+            CodeOptionCache.invalidate();
+
+            List<?> value = CodeOptionCache.get("0003", "PATTERN2", "$VALUE$", null);
+            List<?> name = CodeOptionCache.get("0003", "PATTERN2", "$NAME$", null);
+            // 使用した組み合わせは破棄しない。
+            assertThat(CodeOptionCache.get("0003", "PATTERN2", "$VALUE$", null) == value, is(true));
+            CodeOptionCache.get("0003", "PATTERN2", "$VALUE$:$NAME$", null);
+            assertThat(CodeOptionCache.size(), is(2));
+
+            assertThat(CodeOptionCache.get("0003", "PATTERN2", "$VALUE$", null) == value, is(true));
+            assertThat(CodeOptionCache.get("0003", "PATTERN2", "$NAME$", null) == name, is(false));
+            assertThat(CodeOptionCache.size(), is(2));
+
+            try {
+                config.setCodeOptionCacheMaxSize(0);
+                fail("must throw IllegalArgumentException.");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), is("codeOptionCacheMaxSize must be greater than 0. codeOptionCacheMaxSize = [0]"));
+            }
+        } finally {
+            config.setCodeOptionCacheMaxSize(1000);
+            CodeOptionCache.invalidate();
+        }
+    }
+
+    private void writeCodeSelectTag(String labelPattern) throws Exception {
+        CodeSelectTag tag = new CodeSelectTag();
+        tag.setPageContext(pageContext);
+        tag.setName("entity.bbb");
+        tag.setCodeId("0003");
+        tag.setPattern("PATTERN2");
+        tag.setLabelPattern(labelPattern);
+        tag.setWithNoneOption(true);
+        tag.setErrorCss("errorCss_test" + TagTestUtil.HTML);
+        assertThat(tag.doStartTag(), is(Tag.SKIP_BODY));
+        assertThat(tag.doEndTag(), is(Tag.EVAL_PAGE));
+    }
+
     @Test
     public void testInputPageForErrorUsingAlias() throws Exception {
 
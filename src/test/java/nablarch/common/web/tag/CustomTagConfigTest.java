@@ -1,5 +1,6 @@
 package nablarch.common.web.tag;
 
+import nablarch.common.web.hiddenencryption.HiddenValueFormat;
 import nablarch.fw.web.i18n.DirectoryBasedResourcePathRule;
 import nablarch.fw.web.i18n.FilenameBasedResourcePathRule;
 import nablarch.fw.web.i18n.ResourcePathRule;
@@ -163,6 +164,25 @@ public class CustomTagConfigTest {
         }
     }
     
+    @Test
+    public void testSetHiddenValueFormat() {
+        CustomTagConfig config = new CustomTagConfig();
+        assertThat(config.getHiddenValueFormat(), is(HiddenValueFormat.TEXT));
+        config.setHiddenValueFormat("compact");
+        assertThat(config.getHiddenValueFormat(), is(HiddenValueFormat.COMPACT));
+        config.setHiddenValueFormat("COMPACT_DEFLATE");
+        assertThat(config.getHiddenValueFormat(), is(HiddenValueFormat.COMPACT_DEFLATE));
+
+        try {
+            config.setHiddenValueFormat("binary");
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(),
+                is("hiddenValueFormat was invalid. hiddenValueFormat must specify the following values. "
+                 + "values = [text, compact, compact_deflate] hiddenValueFormat = [binary]"));
+        }
+    }
+
     @Test
     public void testSetLineSeparator() {
         CustomTagConfig config = new CustomTagConfig();
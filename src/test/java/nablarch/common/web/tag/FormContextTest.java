@@ -0,0 +1,105 @@
+package nablarch.common.web.tag;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * {@link FormContext}のテスト。
+ */
+public class FormContextTest {
+
+    /**
+     * 値を追加していない場合は、空のコレクションを返すこと。
+     */
+    @Test
+    public void testEmpty() {
+        FormContext context = new FormContext("form1");
+        assertTrue(context.getInputNames().isEmpty());
+        assertTrue(context.getSubmissionInfoList().isEmpty());
+        assertTrue(context.getRequestIds().isEmpty());
+        assertTrue(context.getHiddenTagInfoList().isEmpty());
+        assertTrue(context.getInlineSubmissionScripts().isEmpty());
+        assertTrue(context.getUndelegatedSubmissionNames().isEmpty());
+        assertThat(context.getHiddenTagCount(), is(0));
+        assertThat(context.getHiddenTagInfo("name"), is(nullValue()));
+        assertThat(context.getHiddenTagValue("name"), is(nullValue()));
+        assertTrue(context.getHiddenTagValues().isEmpty());
+    }
+
+    /**
+     * hiddenタグの値を、name属性を追加した順にまとめて取得できること。
+     */
+    @Test
+    public void testHiddenTagValues() {
+        FormContext context = new FormContext("form1");
+        context.addHiddenTagInfo("b", "b1");
+        context.addHiddenTagInfo("a", "a1", "a2");
+        context.addHiddenTagInfo("b", "b2");
+        context.addHiddenTagInfo("c", "c1");
+
+        Map<String, List<String>> values = context.getHiddenTagValues();
+        assertThat(new ArrayList<String>(values.keySet()), is(Arrays.asList("b", "a", "c")));
+        assertThat(values.get("a"), is(Arrays.asList("a1", "a2")));
+        assertThat(values.get("b"), is(Arrays.asList("b1", "b2")));
+        assertThat(values.get("c"), is(Arrays.asList("c1")));
+        assertThat(context.getHiddenTagInfo("b").<String>get(HtmlAttribute.VALUE), is("b1"));
+    }
+
+    /**
+     * hiddenタグの情報を、追加した順に保持すること。
+     * 属性を指定して追加した場合は、指定した属性を返すこと。
+     */
+    @Test
+    public void testHiddenTagInfo() {
+        FormContext context = new FormContext("form1");
+        HtmlAttributes attributes = new HtmlAttributes();
+        attributes.put(HtmlAttribute.TYPE, "hidden");
+        attributes.put(HtmlAttribute.ID, "id1");
+        attributes.put(HtmlAttribute.NAME, "hidden1");
+        attributes.put(HtmlAttribute.VALUE, "value1");
+        context.addHiddenTagInfo(attributes);
+        for (int i = 0; i < 20; i++) {
+            context.addHiddenTagInfo("name" + (i % 3), "v" + i);
+        }
+
+        assertThat(context.getHiddenTagCount(), is(21));
+        assertThat(context.getHiddenTagName(0), is("hidden1"));
+        assertThat(context.getHiddenTagValue(0), is("value1"));
+        assertThat(context.getHiddenTagName(20), is("name1"));
+        assertThat(context.getHiddenTagValue(20), is("v19"));
+        assertTrue(context.getInputNames().contains("hidden1"));
+        assertTrue(context.getInputNames().contains("name2"));
+
+        List<HtmlAttributes> list = context.getHiddenTagInfoList();
+        assertThat(list.size(), is(21));
+        assertThat(list.get(0), is(sameInstance(attributes)));
+        assertThat(list.get(2).<String>get(HtmlAttribute.TYPE), is("hidden"));
+        assertThat(list.get(2).<String>get(HtmlAttribute.NAME), is("name1"));
+        assertThat(list.get(2).<String>get(HtmlAttribute.VALUE), is("v1"));
+
+        assertThat(context.getHiddenTagInfo("name2").<String>get(HtmlAttribute.VALUE), is("v2"));
+        assertThat(context.getHiddenTagInfo("hidden1"), is(sameInstance(attributes)));
+
+        assertThat(context.getHiddenTagValue("name0"), is("v0"));
+        assertThat(context.getHiddenTagValue("unknown"), is(nullValue()));
+        assertThat(context.getHiddenTagInfo("unknown"), is(nullValue()));
+
+        try {
+            context.getHiddenTagName(21);
+            fail("must throw IndexOutOfBoundsException.");
+        } catch (IndexOutOfBoundsException e) {
+            assertThat(e.getMessage(), is("index = [21], size = [21]"));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package nablarch.common.web.tag;
 
 import static nablarch.fw.ExecutionContext.FW_PREFIX;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.core.Is.is;
@@ -14,6 +15,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -1079,7 +1081,7 @@ public class FormTagTest extends TagTestSupport<FormTag> {
         
         String hiddenValue = HiddenEncryptionUtil.encryptHiddenValues(pageContext,
                 new ArrayList<String>() {{ add("R0001"); }},
-                new HashMap<String, List<String>>() {
+                new LinkedHashMap<String, List<String>>() {
                     {
                         put("user.remarks", new ArrayList<String>() {{ add("remarks_sample"); }});
                         put("user.comments", new ArrayList<String>() {{ add("comments_sample1"); add("comments_sample2"); }});
@@ -1155,7 +1157,7 @@ public class FormTagTest extends TagTestSupport<FormTag> {
         
         String hiddenValue = HiddenEncryptionUtil.encryptHiddenValues(pageContext,
                 new ArrayList<String>() {{ add("R0001"); }},
-                new HashMap<String, List<String>>() {
+                new LinkedHashMap<String, List<String>>() {
                     {
                         put("nablarch_token", new ArrayList<String>() {{ add(token); }});
                         put("user.remarks", new ArrayList<String>() {{ add("remarks_sample"); }});
@@ -1312,7 +1314,7 @@ public class FormTagTest extends TagTestSupport<FormTag> {
         
         String hiddenValue = HiddenEncryptionUtil.encryptHiddenValues(pageContext,
                 new ArrayList<String>() {{ add("R0001"); }},
-                new HashMap<String, List<String>>() {
+                new LinkedHashMap<String, List<String>>() {
                     {
                         put("nablarch_token", new ArrayList<String>() {{ add(token); }});
                         put("user.comments", new ArrayList<String>() {{ add("comments_sample1"); add("comments_sample2"); }});
@@ -2722,6 +2724,115 @@ public class FormTagTest extends TagTestSupport<FormTag> {
         );
     }
 
+    /**
+     * サブミット制御のJavaScriptを外部ファイルとして参照する場合は、
+     * 1番目のフォームの前に外部ファイルを参照するscriptタグのみが出力されることを確認する。
+     */
+    @Test
+    public void testExternalSubmitFunctionScript() throws Exception {
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        config.setSubmitFunctionScriptPath("/javascripts/nablarch_submit.js");
+        try {
+            FormContext formContext = TagTestUtil.createFormContext();
+            TagUtil.setFormContext(pageContext, formContext);
+            pageContext.setAttribute(SecureHandler.CSP_NONCE_KEY, "abcde");
+
+            target.setName("my_form1");
+            assertThat(target.doStartTag(), is(Tag.EVAL_BODY_INCLUDE));
+
+            assertTagOutputAndClearOutput(
+                    "",
+                    "<script type=\"text/javascript\" src=\"/nablarch_test/javascripts/nablarch_submit.js_encode_suffix?nablarch_static_content_version=1.0.0\" nonce=\"abcde\"></script>",
+                    "<form name=\"my_form1\" method=\"post\">"
+            );
+        } finally {
+            config.setSubmitFunctionScriptPath(null);
+        }
+    }
+
+    /**
+     * サブミット情報を空白を省いた形式で出力する場合は、同じアクションのURIを1つの配列にまとめて出力することを確認する。
+     */
+    @Test
+    public void testCompactSubmissionInfo() throws Exception {
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        config.setCompactSubmissionInfo(true);
+        try {
+            target.setName("my_form1");
+            assertThat(target.doStartTag(), is(Tag.EVAL_BODY_INCLUDE));
+
+            FormContext formContext = TagUtil.getFormContext(pageContext);
+            formContext.addSubmissionInfo(SubmissionAction.TRANSITION, createTagNameof("submit1"), "./R1", false, "R1", null, null, DisplayMethod.NORMAL);
+            formContext.addSubmissionInfo(SubmissionAction.TRANSITION, createTagNameof("submit2"), "./R1", true, "R1", null, null, DisplayMethod.NORMAL);
+            formContext.addSubmissionInfo(SubmissionAction.POPUP, createTagNameof("popup1"), "./R2", true, "R2", "subWin1", "width=400", DisplayMethod.NORMAL);
+            formContext.getCurrentSubmissionInfo().addChangeParamName("sub.id", "form.id");
+            formContext.addSubmissionInfo(SubmissionAction.DOWNLOAD, createTagNameof("download1"), "./R1", true, "R1", null, null, DisplayMethod.NORMAL);
+
+            assertThat(target.doEndTag(), is(Tag.EVAL_PAGE));
+
+            String output = TagTestUtil.getOutput(pageContext);
+            assertThat(output, containsString(TagUtil.getCustomTagConfig().getLineSeparator()
+                    + "nablarch_submission_info.my_form1 = (function(a){return {"
+                    + "\"submit1\":{\"action\":a[0],\"allowDoubleSubmission\":false,\"submissionAction\":\"TRANSITION\"},"
+                    + "\"submit2\":{\"action\":a[0],\"allowDoubleSubmission\":true,\"submissionAction\":\"TRANSITION\"},"
+                    + "\"popup1\":{\"action\":a[1],\"allowDoubleSubmission\":true,\"submissionAction\":\"POPUP\","
+                    + "\"popupWindowName\":\"subWin1\",\"popupOption\":\"width=400\",\"changeParamNames\":{\"form.id\":\"sub.id\"}},"
+                    + "\"download1\":{\"action\":a[0],\"allowDoubleSubmission\":true,\"submissionAction\":\"DOWNLOAD\",\"changeParamNames\":{}}"
+                    + "};})([\"./R1\",\"./R2\"]);"
+                    + TagUtil.getCustomTagConfig().getLineSeparator()));
+        } finally {
+            config.setCompactSubmissionInfo(false);
+        }
+    }
+
+    /**
+     * サブミットをフォームのクリックイベントでまとめて処理する場合は、要素ごとのスクリプトを出力せずに、
+     * フォームにリスナーを登録するスクリプトを出力することを確認する。
+     */
+    @Test
+    public void testSubmitDelegation() throws Exception {
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        config.setUseSubmitDelegation(true);
+        try {
+            FormContext formContext = TagTestUtil.createFormContext();
+            TagUtil.setFormContext(pageContext, formContext);
+            pageContext.setAttribute(SecureHandler.CSP_NONCE_KEY, "abcde");
+
+            target.setName("my_form1");
+            assertThat(target.doStartTag(), is(Tag.EVAL_BODY_INCLUDE));
+
+            String output = TagTestUtil.getOutput(pageContext);
+            assertThat(output, containsString("function nablarch_delegateSubmit(formName, undelegatedNames) {"));
+            TagTestUtil.clearOutput(pageContext);
+
+            SubmitTag submitTag1 = new SubmitTag();
+            submitTag1.setPageContext(pageContext);
+            submitTag1.setName("my_form1_submit1");
+            submitTag1.setUri("./my_form1_submit1");
+            submitTag1.doStartTag();
+            submitTag1.doEndTag();
+
+            SubmitTag submitTag2 = new SubmitTag();
+            submitTag2.setPageContext(pageContext);
+            submitTag2.setName("my_form1_submit2");
+            submitTag2.setUri("./my_form1_submit2");
+            submitTag2.setSuppressDefaultSubmit(true);
+            submitTag2.doStartTag();
+            submitTag2.doEndTag();
+
+            assertThat(target.doEndTag(), is(Tag.EVAL_PAGE));
+
+            output = TagTestUtil.getOutput(pageContext);
+            assertThat(output, not(containsString("document.querySelector")));
+            assertThat(output, containsString("nablarch_submission_info.my_form1 = {"));
+            assertThat(output, containsString("};" + config.getLineSeparator()
+                    + "nablarch_delegateSubmit(\"my_form1\", [\"my_form1_submit2\"]);" + config.getLineSeparator()
+                    + "-->"));
+        } finally {
+            config.setUseSubmitDelegation(false);
+        }
+    }
+
     private void assertTagOutputAndClearOutput(String... expectedArray) {
         assertTagOutputAndClearOutput(Collections.<Integer>emptySet(), expectedArray);
     }
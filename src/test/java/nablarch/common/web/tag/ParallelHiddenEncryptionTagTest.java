@@ -0,0 +1,149 @@
+package nablarch.common.web.tag;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import jakarta.servlet.jsp.tagext.BodyTag;
+import jakarta.servlet.jsp.tagext.Tag;
+
+import nablarch.common.web.handler.MockPageContext.MockJspWriter;
+import nablarch.common.web.hiddenencryption.HiddenEncryptionUtil;
+import nablarch.common.web.hiddenencryption.HiddenValueCodec;
+import nablarch.common.web.hiddenencryption.HiddenValueFormat;
+import nablarch.common.web.hiddenencryption.HmacHiddenValueCodec;
+
+import org.junit.Test;
+
+/**
+ * {@link ParallelHiddenEncryptionTag}のテスト。
+ */
+public class ParallelHiddenEncryptionTagTest extends TagTestSupport<ParallelHiddenEncryptionTag> {
+
+    public ParallelHiddenEncryptionTagTest() {
+        super(new ParallelHiddenEncryptionTag());
+    }
+
+    /**
+     * 並列度が指定されていない場合は、何もせずにボディを評価すること。
+     */
+    @Test
+    public void testNotParallel() throws Exception {
+        assertThat(target.doStartTag(), is(Tag.EVAL_BODY_INCLUDE));
+        assertNull(ParallelHiddenEncryption.get(pageContext));
+        assertThat(target.doEndTag(), is(Tag.EVAL_PAGE));
+    }
+
+    /**
+     * 並列度が指定されている場合は、プレースホルダを逐次暗号化と同じ結果で置き換えて出力すること。
+     */
+    @Test
+    public void testParallel() throws Exception {
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        config.setHiddenEncryptionParallelism(2);
+        try {
+            assertThat(target.doStartTag(), is(BodyTag.EVAL_BODY_BUFFERED));
+            ParallelHiddenEncryption encryption = ParallelHiddenEncryption.get(pageContext);
+            assertNotNull(encryption);
+
+            // HMACは同じ値から同じ結果を生成するため、逐次暗号化の結果と比較できる。
+            HiddenValueCodec codec = new HmacHiddenValueCodec();
+            StringBuilder body = new StringBuilder();
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < 5; i++) {
+                String placeholder = encryption.submit(HiddenEncryptionUtil.prepareEncryption(
+                        pageContext, Arrays.asList("R0001"), createValues(i), codec, HiddenValueFormat.COMPACT));
+                String serial = HiddenEncryptionUtil.encryptHiddenValues(
+                        pageContext, Arrays.asList("R0001"), createValues(i), codec, HiddenValueFormat.COMPACT);
+                body.append("<form name=\"form").append(i).append("\"><input type=\"hidden\" value=\"")
+                    .append(placeholder).append("\" /></form>\n");
+                expected.append("<form name=\"form").append(i).append("\"><input type=\"hidden\" value=\"")
+                        .append(serial).append("\" /></form>\n");
+            }
+            String placeholder = encryption.submit(new Callable<String>() {
+                public String call() {
+                    return "a&b";
+                }
+            });
+            body.append("<input value=\"").append(placeholder).append("\" />");
+            expected.append("<input value=\"a&amp;b\" />");
+
+            MockBodyContent bodyContent = new MockBodyContent(body.toString());
+            target.setBodyContent(bodyContent);
+            assertThat(target.doEndTag(), is(Tag.EVAL_PAGE));
+            assertThat(((MockJspWriter) bodyContent.getEnclosingWriter()).getOutput(), is(expected.toString()));
+
+            target.doFinally();
+            assertNull(ParallelHiddenEncryption.get(pageContext));
+        } finally {
+            config.setHiddenEncryptionParallelism(0);
+        }
+    }
+
+    /**
+     * 並列暗号化を開始した後に並列度が変更された場合でも、
+     * 開始時のスレッドプールで暗号化を行い、プレースホルダを置き換えて出力すること。
+     * 開始時のスレッドプールが終了している場合は、画面を出力するスレッドで暗号化を行うこと。
+     */
+    @Test
+    public void testChangeParallelismAfterBegin() throws Exception {
+        CustomTagConfig config = TagUtil.getCustomTagConfig();
+        config.setHiddenEncryptionParallelism(2);
+        try {
+            assertThat(target.doStartTag(), is(BodyTag.EVAL_BODY_BUFFERED));
+            ParallelHiddenEncryption encryption = ParallelHiddenEncryption.get(pageContext);
+            ThreadPoolExecutor before = ParallelHiddenEncryption.getExecutor(2);
+
+            // 別のリクエストで並列度を変更した場合、開始済みの並列暗号化が使用するスレッドプールは終了しないこと。
+            ThreadPoolExecutor after = ParallelHiddenEncryption.getExecutor(3);
+            assertThat(after == before, is(false));
+            assertThat(before.isShutdown(), is(false));
+
+            String first = encryption.submit(new Callable<String>() {
+                public String call() {
+                    return "first";
+                }
+            });
+
+            // 開始時のスレッドプールが終了していても、暗号化が完了すること。
+            before.shutdown();
+            final Thread current = Thread.currentThread();
+            final boolean[] onCaller = new boolean[1];
+            String second = encryption.submit(new Callable<String>() {
+                public String call() {
+                    onCaller[0] = Thread.currentThread() == current;
+                    return "second";
+                }
+            });
+            assertTrue(onCaller[0]);
+
+            MockBodyContent bodyContent = new MockBodyContent(first + "," + second);
+            target.setBodyContent(bodyContent);
+            assertThat(target.doEndTag(), is(Tag.EVAL_PAGE));
+            assertThat(((MockJspWriter) bodyContent.getEnclosingWriter()).getOutput(), is("first,second"));
+            target.doFinally();
+
+            // 終了したスレッドプールは、次に取得する際に作り直すこと。
+            assertThat(ParallelHiddenEncryption.getExecutor(2).isShutdown(), is(false));
+        } finally {
+            config.setHiddenEncryptionParallelism(0);
+        }
+    }
+
+    private static Map<String, List<String>> createValues(int index) {
+        Map<String, List<String>> values = new HashMap<String, List<String>>();
+        values.put("param", new ArrayList<String>(Arrays.asList("value" + index)));
+        values.put(HiddenEncryptionUtil.KEY_HIDDEN_SUBMIT_NAME_PREFIX + "go", new ArrayList<String>(Arrays.asList("")));
+        return values;
+    }
+}
@@ -0,0 +1,182 @@
+package nablarch.common.web.tag;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.jsp.PageContext;
+
+import nablarch.common.web.handler.MockPageContext;
+
+import org.junit.Test;
+
+/**
+ * {@link PropertyPath}のテスト。
+ */
+public class PropertyPathTest {
+
+    private final MockPageContext pageContext = new MockPageContext();
+
+    /**
+     * 同じname属性の解析結果は再利用されること。
+     */
+    @Test
+    public void testCompile() {
+        PropertyPath path = PropertyPath.compile("form.items[3].price");
+        assertThat(PropertyPath.compile("form.items[3].price"), is(sameInstance(path)));
+    }
+
+    /**
+     * オブジェクト階層をたどって値を取得できること。
+     */
+    @Test
+    public void testGetValue() {
+        Map<String, Object> form = new HashMap<String, Object>();
+        form.put("items", Arrays.asList(new Item("a", 100), new Item("b", 200)));
+        pageContext.setAttribute("form", form, PageContext.REQUEST_SCOPE);
+
+        assertThat(getValue("form.items[1].price"), is((Object) 200));
+        assertThat(getValue("form.items[0].name"), is((Object) "a"));
+        assertThat(getValue("form.items[2].name"), is(nullValue()));
+        assertThat(getValue("form.items[0].unknown"), is(nullValue()));
+        assertThat(getValue("form.unknown.name"), is(nullValue()));
+    }
+
+    /**
+     * 角括弧付きのプロパティが存在しない場合は例外が送出されること。
+     */
+    @Test
+    public void testIndexedPropertyNotFound() {
+        pageContext.setAttribute("item", new Item("a", 100), PageContext.REQUEST_SCOPE);
+        try {
+            getValue("item.unknown[0]");
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    /**
+     * 角括弧内が数値でない場合は、アクセス時に例外が送出されること。
+     */
+    @Test
+    public void testInvalidIndex() {
+        PropertyPath path = PropertyPath.compile("item.list[key].name");
+        assertThat(path.getObjectOnScope(pageContext, PageContext.REQUEST_SCOPE), is(nullValue()));
+
+        Map<String, Object> item = new HashMap<String, Object>();
+        item.put("list", Arrays.asList(new Item("a", 100)));
+        pageContext.setAttribute("item", item, PageContext.REQUEST_SCOPE);
+        try {
+            path.getObjectOnScope(pageContext, PageContext.REQUEST_SCOPE);
+            fail("must throw NumberFormatException.");
+        } catch (NumberFormatException e) {
+            // OK
+        }
+    }
+
+    /**
+     * getterが例外又はエラーを送出した場合は、{@link nablarch.core.util.ObjectUtil}と同じく、
+     * {@link InvocationTargetException}で包んだIllegalArgumentExceptionが送出されること。
+     * staticなgetterなど、{@link nablarch.core.util.ObjectUtil}に委譲する場合も同じになること。
+     */
+    @Test
+    public void testGetterThrowsException() {
+        pageContext.setAttribute("item", new Item("a", 100), PageContext.REQUEST_SCOPE);
+        pageContext.setAttribute("staticItem", new StaticItem(), PageContext.REQUEST_SCOPE);
+        for (String root : new String[] {"item", "staticItem"}) {
+            assertGetterException(root + ".error", IllegalStateException.class, "error");
+            assertGetterException(root + ".fatal", StackOverflowError.class, "fatal");
+            assertGetterException(root + ".checked", Exception.class, "checked");
+        }
+    }
+
+    private void assertGetterException(String name, Class<? extends Throwable> expectedType, String expectedMessage) {
+        try {
+            getValue(name);
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getCause().getClass().getName(), is(InvocationTargetException.class.getName()));
+            Throwable target = ((InvocationTargetException) e.getCause()).getTargetException();
+            assertThat(target.getClass().getName(), is(expectedType.getName()));
+            assertThat(target.getMessage(), is(expectedMessage));
+        }
+    }
+
+    /**
+     * publicでないクラスのgetterは{@link nablarch.core.util.ObjectUtil}と同じ結果となること。
+     */
+    @Test
+    public void testNonPublicClass() {
+        pageContext.setAttribute("hidden", new HiddenItem(), PageContext.REQUEST_SCOPE);
+        try {
+            getValue("hidden.name");
+            fail("must throw IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            // OK
+        }
+    }
+
+    private Object getValue(String name) {
+        PropertyPath path = PropertyPath.compile(name);
+        return path.chooseObjectOrProperty(path.getObjectOnScope(pageContext, PageContext.REQUEST_SCOPE));
+    }
+
+    public static final class Item {
+        private final String name;
+        private final int price;
+
+        public Item(String name, int price) {
+            this.name = name;
+            this.price = price;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPrice() {
+            return price;
+        }
+
+        public List<String> getError() {
+            throw new IllegalStateException("error");
+        }
+
+        public String getFatal() {
+            throw new StackOverflowError("fatal");
+        }
+
+        public String getChecked() throws Exception {
+            throw new Exception("checked");
+        }
+    }
+
+    public static final class StaticItem {
+        public static String getError() {
+            throw new IllegalStateException("error");
+        }
+
+        public static String getFatal() {
+            throw new StackOverflowError("fatal");
+        }
+
+        public static String getChecked() throws Exception {
+            throw new Exception("checked");
+        }
+    }
+
+    private static final class HiddenItem {
+        public String getName() {
+            return "hidden";
+        }
+    }
+}
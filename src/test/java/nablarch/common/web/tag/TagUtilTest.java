@@ -4,6 +4,7 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -39,6 +40,7 @@ import jakarta.servlet.jsp.tagext.Tag;
 import nablarch.common.permission.BasicPermission;
 import nablarch.common.permission.Permission;
 import nablarch.common.permission.PermissionUtil;
+import nablarch.common.web.HtmlTagUtil;
 import nablarch.common.web.handler.MockPageContext;
 import nablarch.common.web.handler.MockPageContext.MockJspWriter;
 import nablarch.common.web.handler.WebTestUtil;
@@ -49,6 +51,7 @@ import nablarch.core.repository.SystemRepository;
 import nablarch.core.util.Builder;
 import nablarch.core.util.FileUtil;
 import nablarch.core.util.FormatSpec;
+import nablarch.core.validation.ValidationResultMessage;
 import nablarch.fw.ExecutionContext;
 import nablarch.fw.web.HttpRequest;
 import nablarch.fw.web.MockHttpRequest;
@@ -107,6 +110,40 @@ public class TagUtilTest {
         assertThat(TagUtil.createTagWithoutBody("input", attributes), is("<input name=\"test_name\" value=\"test_value\" />"));
     }
 
+    @Test
+    public void testWriteTag() throws IOException {
+        MockJspWriter out = (MockJspWriter) pageContext.getOut();
+        HtmlAttributes attributes = new HtmlAttributes();
+
+        TagUtil.writeTagWithoutBody(out, "br", attributes);
+        TagUtil.writeStartTag(out, "div", attributes);
+        TagUtil.writeEndTag(out, "div");
+        assertThat(out.getOutput(), is("<br /><div></div>"));
+        out.clearOutput();
+
+        attributes.put(HtmlAttribute.NAME, "test_name");
+        attributes.put(HtmlAttribute.VALUE, "<test_value>");
+        TagUtil.writeTagWithoutBody(out, "input", attributes);
+        assertThat(out.getOutput(), is(TagUtil.createTagWithoutBody("input", attributes)));
+        out.clearOutput();
+
+        TagUtil.writeTagWithBody(out, "option", attributes, "body");
+        assertThat(out.getOutput(), is(TagUtil.createTagWithBody("option", attributes, "body")));
+        out.clearOutput();
+
+        TagUtil.writeHiddenTag(out, "hidden_name", "hidden_value");
+        assertThat(out.getOutput(), is(TagUtil.createHiddenTag("hidden_name", "hidden_value")));
+        out.clearOutput();
+
+        TagUtil.writeLabelTag(out, "label_content", "label_for", "label_css");
+        assertThat(out.getOutput(), is(TagUtil.createLabelTag("checkbox", "label_content", "label_for", "label_css")));
+        out.clearOutput();
+
+        pageContext.setAttribute(SecureHandler.CSP_NONCE_KEY, "abcde", PageContext.REQUEST_SCOPE);
+        TagUtil.writeScriptTag(pageContext, "alert(\"test\");");
+        assertThat(out.getOutput(), is(TagUtil.createScriptTag(pageContext, "alert(\"test\");")));
+    }
+
     @Test
     public void testPrintForException() {
         JspWriter writer = new MockPageContext.MockJspWriter() {
@@ -170,6 +207,35 @@ public class TagUtilTest {
         assertThat(TagUtil.escapeHtml("aaa\\bbb"), is("aaa\\bbb"));
     }
 
+    @Test
+    public void testEscapeHtmlWithoutEscapeTarget() {
+        // エスケープ対象の文字を含まない場合は、元の文字列がそのまま返される。
+        String str = "aaa\\bbb あいう";
+        assertThat(HtmlTagUtil.escapeHtml(str, false), is(sameInstance(str)));
+        assertThat(HtmlTagUtil.escapeHtml(str, false, Arrays.asList("b"), Arrays.asList("id")), is(sameInstance(str)));
+        assertThat(HtmlTagUtil.escapeHtml(str, true), is("aaa\\bbb&nbsp;あいう"));
+    }
+
+    @Test
+    public void testEscapeHtmlToAppendable() throws Exception {
+        StringBuilder sb = new StringBuilder("[");
+        HtmlTagUtil.escapeHtml("aaa\r\nbbb<\"'&  >", true, sb);
+        assertThat(sb.toString(), is("[aaa<br />bbb&lt;&#034;&#039;&amp;&nbsp;&nbsp;&gt;"));
+
+        sb = new StringBuilder();
+        HtmlTagUtil.escapeHtml("aaa\r\nbbb<\"'&  >", false, sb);
+        assertThat(sb.toString(), is("aaa\r\nbbb&lt;&#034;&#039;&amp;  &gt;"));
+
+        sb = new StringBuilder();
+        HtmlTagUtil.escapeHtml("<b>a</b><i>b</i>", false, Arrays.asList("b"), Arrays.<String>asList(), sb);
+        assertThat(sb.toString(), is("<b>a</b>&lt;i&gt;b&lt;/i&gt;"));
+
+        // nullの場合はAppendableの規約に従って"null"が書き込まれる。
+        sb = new StringBuilder();
+        HtmlTagUtil.escapeHtml(null, false, sb);
+        assertThat(sb.toString(), is("null"));
+    }
+
     @Test
     public void testEscapeJavaScriptString() {
         assertNull(TagUtil.escapeJavaScriptString(null));
@@ -806,6 +872,63 @@ public class TagUtilTest {
 
     }
 
+    @Test
+    public void testGetValueWithValueCache() throws Exception {
+        TagUtil.getCustomTagConfig().setUseValueCache(true);
+        try {
+            Sample requestObj = new Sample("req_");
+            pageContext.setAttribute("sample", requestObj, PageContext.REQUEST_SCOPE);
+            assertThat((String) TagUtil.getValue(pageContext, "sample.string", false), is("req_string0"));
+            assertThat(TagUtil.getValue(pageContext, "unknown", true), nullValue());
+
+            // ルートのオブジェクトが同じ場合は、保持している取得結果が返される。
+            requestObj.setString("changed");
+            assertThat((String) TagUtil.getValue(pageContext, "sample.string", false), is("req_string0"));
+
+            // ルートのオブジェクトが置き換わった場合は、再度探索する。
+            pageContext.setAttribute("unknown", "value", PageContext.REQUEST_SCOPE);
+            assertThat((String) TagUtil.getValue(pageContext, "unknown", true), is("value"));
+            assertThat((String) TagUtil.getValue(pageContext, "unknown", false), is("value"));
+
+            // setタグで変数スコープを変更した場合は破棄される。
+            SetTag setTag = new SetTag();
+            setTag.setPageContext(pageContext);
+            setTag.setVar("other");
+            setTag.setValue("other");
+            setTag.doStartTag();
+            assertThat((String) TagUtil.getValue(pageContext, "sample.string", false), is("changed"));
+            assertThat((String) TagUtil.getValue(pageContext, "unknown", true), is("value"));
+        } finally {
+            TagUtil.getCustomTagConfig().setUseValueCache(false);
+        }
+    }
+
+    /**
+     * c:forEachタグのように繰り返しごとにページスコープの値が置き換わる場合は、
+     * 取得結果を保持していても、繰り返しごとのオブジェクトから取得すること。
+     */
+    @Test
+    public void testGetValueWithValueCacheInLoop() throws Exception {
+        TagUtil.getCustomTagConfig().setUseValueCache(true);
+        try {
+            Sample sessionObj = new Sample("ses_");
+            pageContext.setAttribute("row", sessionObj, PageContext.SESSION_SCOPE);
+            for (int i = 0; i < 3; i++) {
+                // var属性とvarStatus属性に相当する値を、繰り返しごとにページスコープに設定する。
+                pageContext.setAttribute("row", new Sample("row" + i + "_"), PageContext.PAGE_SCOPE);
+                pageContext.setAttribute("status", Collections.singletonMap("index", i), PageContext.PAGE_SCOPE);
+                assertThat((String) TagUtil.getValue(pageContext, "row.string", true), is("row" + i + "_string0"));
+                assertThat((Integer) TagUtil.getValue(pageContext, "status.index", false), is(i));
+            }
+
+            // ループを抜けてページスコープの値が削除された場合は、他のスコープから取得する。
+            pageContext.removeAttribute("row", PageContext.PAGE_SCOPE);
+            assertThat((String) TagUtil.getValue(pageContext, "row.string", true), is("ses_string0"));
+        } finally {
+            TagUtil.getCustomTagConfig().setUseValueCache(false);
+        }
+    }
+
     @Test
     public void testGetValueForUseValueAsNullIfPropertyIsExists() {
 
@@ -868,6 +991,73 @@ public class TagUtilTest {
         assertTrue(TagUtil.contains(Arrays.asList(null, "abc", null), "abc"));
     }
 
+    /**
+     * 選択した値が多い場合も、走査した場合と同じ結果となること。
+     */
+    @Test
+    public void testContainsWithSelectedValues() {
+        List<Object> selected = new ArrayList<Object>();
+        selected.add(null);
+        for (int i = 0; i < SelectedValues.THRESHOLD; i++) {
+            selected.add(i);
+        }
+        Collection<?> values = SelectedValues.of(selected);
+        assertThat(values instanceof SelectedValues, is(true));
+        assertThat(values.size(), is(selected.size()));
+        assertThat(new ArrayList<Object>(values), is(selected));
+
+        assertTrue(TagUtil.contains(values, "0"));
+        assertTrue(TagUtil.contains(values, 7));
+        assertFalse(TagUtil.contains(values, "8"));
+        assertFalse(TagUtil.contains(values, null));
+
+        List<Object> few = Arrays.<Object>asList("a", "b");
+        assertThat(SelectedValues.of(few) == few, is(true));
+        assertThat(SelectedValues.of(null), is(nullValue()));
+    }
+
+    @Test
+    public void testFindMessage() {
+        TagTestUtil.setErrorMessages(pageContext);
+        List<Message> messages = TagUtil.getMessages(pageContext);
+        Message aaa = null;
+        Message bbb = null;
+        for (Message message : messages) {
+            if (message instanceof ValidationResultMessage) {
+                String propertyName = ((ValidationResultMessage) message).getPropertyName();
+                if (aaa == null && propertyName.equals("entity.aaa")) {
+                    aaa = message;
+                } else if (bbb == null && propertyName.equals("entity.bbb")) {
+                    bbb = message;
+                }
+            }
+        }
+
+        assertThat(TagUtil.findMessage(pageContext, "entity.bbb"), Matchers.sameInstance(bbb));
+        assertNull(TagUtil.findMessage(pageContext, "entity.unknown"));
+
+        // 複数のプロパティ名に対応するメッセージが存在する場合は、メッセージリストで最初のメッセージが返される。
+        Set<String> names = new HashSet<String>(Arrays.asList("entity.ccc", "entity.aaa"));
+        Message first = messages.indexOf(aaa) < messages.indexOf(TagUtil.findMessage(pageContext, "entity.ccc"))
+                ? aaa : TagUtil.findMessage(pageContext, "entity.ccc");
+        assertThat(TagUtil.findMessage(pageContext, names), Matchers.sameInstance(first));
+
+        HtmlAttributes attributes = new HtmlAttributes();
+        attributes.put(HtmlAttribute.NAME, "entity.ccc");
+        assertThat(TagUtil.editClassAttributeForError(pageContext, attributes, "error", null), is("error"));
+        attributes = new HtmlAttributes();
+        attributes.put(HtmlAttribute.NAME, "entity.unknown");
+        assertNull(TagUtil.editClassAttributeForError(pageContext, attributes, "error", null));
+        assertThat(TagUtil.editClassAttributeForError(pageContext, attributes, "error",
+                new HashSet<String>(Arrays.asList("entity.ccc"))), is("error"));
+
+        // メッセージが追加された場合は、追加されたメッセージも検索される。
+        TagTestUtil.MockMessageResource res = SystemRepository.get("stringResourceHolder");
+        ValidationResultMessage added = new ValidationResultMessage("entity.ddd", res.get("MSG11110"), new Object[] {"DDD"});
+        messages.add(added);
+        assertThat(TagUtil.findMessage(pageContext, "entity.ddd"), Matchers.<Message>sameInstance(added));
+    }
+
     @Test
     public void testFindMessageForInvalidArgs() {
 
@@ -1,5 +1,6 @@
 package nablarch.common.web.tag;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -124,4 +125,30 @@ public class XHtmlAttributesTest {
 
         TagUtil.getCustomTagConfig().setDynamicBooleanAttributes(new ArrayList<String>(current));
     }
+
+    @Test
+    public void testWriteHTML() throws IOException {
+
+        HtmlAttributes attributes = new HtmlAttributes();
+        attributes.put(HtmlAttribute.NAME, "name_test");
+        attributes.put(HtmlAttribute.CLASS, "class_test");
+        attributes.put(HtmlAttribute.TYPE, null);
+        attributes.put(HtmlAttribute.DISABLED, false);
+        attributes.put(HtmlAttribute.READONLY, true);
+        attributes.put(HtmlAttribute.VALUE, "<a & 'b'>");
+        attributes.put(HtmlAttribute.SRC, "image.png");
+        attributes.putDynamicAttribute("dyna-name", "\"dyna-value\"");
+
+        StringBuilder sb = new StringBuilder("<input ");
+        attributes.writeHTML("input", sb);
+
+        String expected = "class=\"class_test\" name=\"name_test\" value=\"&lt;a &amp; &#039;b&#039;&gt;\" readonly=\"readonly\""
+                        + " src=\"image.png?nablarch_static_content_version=&lt;1.0&gt;\" dyna-name=\"&#034;dyna-value&#034;\"";
+        assertThat(sb.toString(), is("<input " + expected));
+        assertThat(attributes.toHTML("input"), is(expected));
+
+        sb = new StringBuilder();
+        new HtmlAttributes().writeHTML("input", sb);
+        assertThat(sb.length(), is(0));
+    }
 }